@@ -18,7 +18,7 @@ public class CacheConfig {
 
     @Bean
     public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("autoProcessingModels");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager("autoProcessingModels", "compiledColumnRules", "fraisRules");
         cacheManager.setCaffeine(caffeineCacheBuilder());
         return cacheManager;
     }
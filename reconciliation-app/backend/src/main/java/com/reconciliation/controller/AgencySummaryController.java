@@ -4,6 +4,7 @@ import com.reconciliation.dto.AgencySummarySaveRequest;
 import com.reconciliation.model.AgencySummary;
 import com.reconciliation.entity.AgencySummaryEntity;
 import com.reconciliation.repository.AgencySummaryRepository;
+import com.reconciliation.service.AgencySummaryBulkService;
 import com.reconciliation.service.OperationService;
 import com.reconciliation.service.CompteService;
 import com.reconciliation.service.FraisTransactionService;
@@ -12,6 +13,8 @@ import com.reconciliation.dto.OperationCreateRequest;
 import com.reconciliation.model.Compte;
 import com.reconciliation.entity.FraisTransactionEntity;
 import com.reconciliation.entity.OperationEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,14 +26,13 @@ import java.util.HashMap;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 import java.util.Optional;
-import java.util.Set;
-import java.util.HashSet;
-import java.util.Arrays;
 
 @RestController
 @RequestMapping("/api/agency-summary")
 public class AgencySummaryController {
 
+    private static final Logger logger = LoggerFactory.getLogger(AgencySummaryController.class);
+
     @Autowired
     private AgencySummaryRepository repository;
     
@@ -45,6 +47,9 @@ public class AgencySummaryController {
     
     @Autowired
     private FraisTransactionService fraisTransactionService;
+    
+    @Autowired
+    private AgencySummaryBulkService agencySummaryBulkService;
 
     /**
      * Détermine le type d'opération basé sur le nom du service
@@ -80,78 +85,24 @@ public class AgencySummaryController {
         // Variable finale pour utilisation dans lambda
         final List<String> allowedCountries = allowedCountriesTemp;
         
-        // Récupérer toutes les données agency_summary
+        // Cloisonnement et exclusion des opérations annulées/rejetées appliqués en SQL
         List<AgencySummaryEntity> allSummaries;
         if (allowedCountries == null) {
             // GNL ou admin : tous les pays
-            allSummaries = repository.findAll();
-            System.out.println("🌍 Cloisonnement: Admin/GNL détecté, retour de " + allSummaries.size() + " enregistrements");
+            allSummaries = repository.findAllNotCancelled();
+            logger.debug("🌍 Cloisonnement: Admin/GNL détecté, retour de {} enregistrements", allSummaries.size());
         } else if (allowedCountries.isEmpty()) {
             // Aucun pays autorisé
-            System.out.println("🌍 Cloisonnement: Aucun pays autorisé pour l'utilisateur " + username);
+            logger.debug("🌍 Cloisonnement: Aucun pays autorisé pour l'utilisateur {}", username);
             return new ArrayList<>();
         } else {
             // Filtrer par pays autorisés
-            List<AgencySummaryEntity> allEntities = repository.findAll();
-            System.out.println("🌍 Cloisonnement: Filtrage pour utilisateur " + username + " - Pays autorisés: " + allowedCountries);
-            System.out.println("🌍 Cloisonnement: Total enregistrements avant filtrage: " + allEntities.size());
-            
-            allSummaries = allEntities.stream()
-                .filter(entity -> {
-                    if (entity.getCountry() == null) {
-                        System.out.println("⚠️ Enregistrement sans pays: " + entity.getAgency() + "/" + entity.getService());
-                        return false;
-                    }
-                    // Convertir le nom du pays en code pays si nécessaire
-                    String countryCode = getCountryCode(entity.getCountry());
-                    boolean included = allowedCountries.contains(countryCode);
-                    if (!included) {
-                        System.out.println("🚫 Enregistrement exclu: " + entity.getCountry() + " (code: " + countryCode + ") - Pays autorisés: " + allowedCountries);
-                    }
-                    return included;
-                })
-                .collect(Collectors.toList());
-            
-            System.out.println("🌍 Cloisonnement: Total enregistrements après filtrage: " + allSummaries.size());
-        }
-        
-        // Récupérer les opérations pour vérifier les statuts
-        List<com.reconciliation.model.Operation> allOperations = operationService.getAllOperations(username);
-        
-        // Créer un set des opérations annulées/rejetées pour les types spécifiques
-        Set<String> excludedOperations = new HashSet<>();
-        List<String> excludedStatusTypes = Arrays.asList(
-            "total_paiement",
-            "total_cashin",
-            "Compense_client",
-            "Compense_fournisseur",
-            "ajustement",
-            "Appro_client",
-            "Appro_fournisseur",
-            "nivellement",
-            "régularisation_solde",
-            "FRAIS_TRANSACTION",
-            "annulation_bo",
-            "annulation_partenaire"
-        );
-        
-        for (com.reconciliation.model.Operation op : allOperations) {
-            if (excludedStatusTypes.contains(op.getTypeOperation()) && 
-                op.getStatut() != null && 
-                (op.getStatut().equals("Annulée") || op.getStatut().equals("Rejetée"))) {
-                // Créer une clé unique pour identifier l'opération
-                String key = op.getDateOperation().toLocalDate().toString() + "|" + 
-                           op.getCodeProprietaire() + "|" + op.getService();
-                excludedOperations.add(key);
-            }
+            allSummaries = repository.findNotCancelledByCountryCodeIn(allowedCountries);
+            logger.debug("🌍 Cloisonnement: Filtrage pour utilisateur {} - Pays autorisés: {} - {} enregistrements",
+                username, allowedCountries, allSummaries.size());
         }
         
-        // Filtrer les agency_summary en excluant celles correspondant aux opérations annulées/rejetées
         return allSummaries.stream()
-            .filter(entity -> {
-                String key = entity.getDate() + "|" + entity.getAgency() + "|" + entity.getService();
-                return !excludedOperations.contains(key);
-            })
             .map(entity -> {
                 AgencySummary dto = new AgencySummary();
                 dto.setId(entity.getId());
@@ -166,95 +117,6 @@ public class AgencySummaryController {
             .collect(Collectors.toList());
     }
     
-    /**
-     * Convertit un nom de pays en code pays pour le filtrage
-     */
-    private String getCountryCode(String countryName) {
-        if (countryName == null || countryName.trim().isEmpty()) {
-            return "";
-        }
-        
-        String normalizedName = countryName.trim().toUpperCase();
-        
-        // Gérer les variantes spéciales comme "CITCH" qui signifie "CI" (Côte d'Ivoire)
-        if (normalizedName.equals("CITCH") || normalizedName.startsWith("CITCH")) {
-            return "CI";
-        }
-        
-        // Mapping des noms de pays vers leurs codes
-        java.util.Map<String, String> countryMap = new java.util.HashMap<>();
-        countryMap.put("CAMEROUN", "CM");
-        countryMap.put("CAMEROON", "CM");
-        countryMap.put("CÔTE D'IVOIRE", "CI");
-        countryMap.put("COTE D'IVOIRE", "CI");
-        countryMap.put("COTE DIVOIRE", "CI");
-        countryMap.put("CÔTE DIVOIRE", "CI");
-        countryMap.put("SÉNÉGAL", "SN");
-        countryMap.put("SENEGAL", "SN");
-        countryMap.put("BURKINA FASO", "BF");
-        countryMap.put("BURKINA", "BF");
-        countryMap.put("MALI", "ML");
-        countryMap.put("BÉNIN", "BJ");
-        countryMap.put("BENIN", "BJ");
-        countryMap.put("NIGER", "NE");
-        countryMap.put("TCHAD", "TD");
-        countryMap.put("TOGO", "TG");
-        
-        // Chercher par nom exact (insensible à la casse)
-        for (java.util.Map.Entry<String, String> entry : countryMap.entrySet()) {
-            if (entry.getKey().equalsIgnoreCase(normalizedName)) {
-                return entry.getValue();
-            }
-        }
-        
-        // Chercher par contenu (pour gérer les cas comme "Côte d'Ivoire" dans "Côte d'Ivoire - Abidjan")
-        if (normalizedName.contains("COTE") || normalizedName.contains("CÔTE") || normalizedName.contains("IVOIRE")) {
-            return "CI";
-        }
-        if (normalizedName.contains("SENEGAL") || normalizedName.contains("SÉNÉGAL")) {
-            return "SN";
-        }
-        if (normalizedName.contains("CAMEROUN") || normalizedName.contains("CAMEROON")) {
-            return "CM";
-        }
-        if (normalizedName.contains("BURKINA")) {
-            return "BF";
-        }
-        if (normalizedName.contains("MALI")) {
-            return "ML";
-        }
-        if (normalizedName.contains("BENIN") || normalizedName.contains("BÉNIN")) {
-            return "BJ";
-        }
-        if (normalizedName.contains("NIGER")) {
-            return "NE";
-        }
-        if (normalizedName.contains("TCHAD")) {
-            return "TD";
-        }
-        if (normalizedName.contains("TOGO")) {
-            return "TG";
-        }
-        
-        // Si c'est déjà un code (2 lettres), le retourner tel quel
-        if (normalizedName.length() == 2) {
-            return normalizedName;
-        }
-        
-        // Si c'est un code de 4-5 lettres qui commence par un code pays connu, extraire les 2 premières lettres
-        if (normalizedName.length() >= 4) {
-            String firstTwo = normalizedName.substring(0, 2);
-            // Vérifier si c'est un code pays valide
-            List<String> validCodes = Arrays.asList("CM", "CI", "SN", "BF", "ML", "BJ", "NE", "TD", "TG");
-            if (validCodes.contains(firstTwo)) {
-                return firstTwo;
-            }
-        }
-        
-        // Sinon, retourner le nom tel quel pour comparaison (normalisé en majuscules)
-        return normalizedName;
-    }
-
     /**
      * Endpoint de debug pour vérifier les données AgencySummary
      */
@@ -342,10 +204,11 @@ public class AgencySummaryController {
             List<String> errorRecords = new ArrayList<>();
             List<Map<String, Object>> duplicateRecords = new ArrayList<>();
 
-            // 1. Séparer doublons et non-doublons
+            // 1. Séparer doublons et non-doublons (doublons existants chargés en une requête)
+            AgencySummaryBulkService.DuplicateIndex duplicateIndex = agencySummaryBulkService.loadDuplicateIndex(summaryList);
             List<AgencySummary> nonDoublons = new ArrayList<>();
             for (AgencySummary summary : summaryList) {
-                List<AgencySummaryEntity> existingDuplicates = repository.findDuplicates(
+                List<AgencySummaryEntity> existingDuplicates = duplicateIndex.findDuplicates(
                     summary.getDate(),
                     summary.getAgency(),
                     summary.getService(),
@@ -380,19 +243,18 @@ public class AgencySummaryController {
                 }
             }
 
-            // 2. Enregistrer uniquement les non-doublons
+            // 2. Enregistrer uniquement les non-doublons (insertion par lots)
+            List<AgencySummaryEntity> entities = new ArrayList<>(nonDoublons.size());
             for (AgencySummary summary : nonDoublons) {
+                entities.add(toEntity(summary, timestamp));
+            }
+            List<String> insertErrors = agencySummaryBulkService.insertAll(entities);
+            for (int i = 0; i < nonDoublons.size(); i++) {
+                AgencySummary summary = nonDoublons.get(i);
                 try {
-                    AgencySummaryEntity entity = new AgencySummaryEntity();
-                    entity.setAgency(summary.getAgency());
-                    entity.setService(summary.getService());
-                    entity.setCountry(summary.getCountry());
-                    entity.setDate(summary.getDate());
-                    entity.setTotalVolume(summary.getTotalVolume());
-                    entity.setRecordCount(summary.getRecordCount());
-                    entity.setTimestamp(timestamp);
-                    repository.save(entity);
-                    repository.flush();
+                    if (insertErrors.get(i) != null) {
+                        throw new IllegalStateException(insertErrors.get(i));
+                    }
                     String successMessage = String.format(
                         "✅ Enregistrement sauvegardé avec succès:\n" +
                         "   Date: %s\n" +
@@ -465,8 +327,12 @@ public class AgencySummaryController {
         List<String> errorRecords = new ArrayList<>();
         List<Map<String, Object>> duplicateRecords = new ArrayList<>();
 
+        // Doublons existants chargés en une requête ; les résumés retenus du lot comptent aussi comme doublons
+        AgencySummaryBulkService.DuplicateIndex duplicateIndex = agencySummaryBulkService.loadDuplicateIndex(summaries);
+        List<AgencySummary> retained = new ArrayList<>();
+        List<AgencySummaryEntity> entities = new ArrayList<>();
         for (AgencySummary summary : summaries) {
-            List<AgencySummaryEntity> existing = repository.findDuplicates(
+            List<AgencySummaryEntity> existing = duplicateIndex.findDuplicates(
                 summary.getDate(),
                 summary.getAgency(),
                 summary.getService(),
@@ -481,16 +347,19 @@ public class AgencySummaryController {
                 continue;
             }
 
+            AgencySummaryEntity entity = toEntity(summary, null);
+            duplicateIndex.add(entity);
+            retained.add(summary);
+            entities.add(entity);
+        }
+
+        List<String> insertErrors = agencySummaryBulkService.insertAll(entities);
+        for (int i = 0; i < retained.size(); i++) {
+            AgencySummary summary = retained.get(i);
             try {
-                AgencySummaryEntity entity = new AgencySummaryEntity();
-                entity.setAgency(summary.getAgency());
-                entity.setService(summary.getService());
-                entity.setCountry(summary.getCountry());
-                entity.setDate(summary.getDate());
-                entity.setTotalVolume(summary.getTotalVolume());
-                entity.setRecordCount(summary.getRecordCount());
-                repository.save(entity);
-                repository.flush();
+                if (insertErrors.get(i) != null) {
+                    throw new IllegalStateException(insertErrors.get(i));
+                }
                 
                 try {
                     createOperationFromSummaryInNewTransaction(summary);
@@ -522,6 +391,18 @@ public class AgencySummaryController {
         return ResponseEntity.ok(response);
     }
 
+    private AgencySummaryEntity toEntity(AgencySummary summary, String timestamp) {
+        AgencySummaryEntity entity = new AgencySummaryEntity();
+        entity.setAgency(summary.getAgency());
+        entity.setService(summary.getService());
+        entity.setCountry(summary.getCountry());
+        entity.setDate(summary.getDate());
+        entity.setTotalVolume(summary.getTotalVolume());
+        entity.setRecordCount(summary.getRecordCount());
+        entity.setTimestamp(timestamp);
+        return entity;
+    }
+
     /**
      * Enregistrer uniquement les lignes sélectionnées (agence + service)
      */
@@ -568,6 +449,8 @@ public class AgencySummaryController {
         Map<String, List<AgencySummaryEntity>> duplicates = new HashMap<>();
         List<String> errorMessages = new ArrayList<>();
 
+        AgencySummaryBulkService.DuplicateIndex duplicateIndex = new AgencySummaryBulkService.DuplicateIndex(allRecords);
+
         for (AgencySummaryEntity record : allRecords) {
             String key = String.format("%s_%s_%s_%.2f_%d",
                 record.getDate(),
@@ -577,7 +460,7 @@ public class AgencySummaryController {
                 record.getRecordCount()
             );
 
-            List<AgencySummaryEntity> duplicateRecords = repository.findDuplicates(
+            List<AgencySummaryEntity> duplicateRecords = duplicateIndex.findDuplicates(
                 record.getDate(),
                 record.getAgency(),
                 record.getService(),
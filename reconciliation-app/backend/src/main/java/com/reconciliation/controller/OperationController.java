@@ -3,20 +3,30 @@ package com.reconciliation.controller;
 import com.reconciliation.model.Operation;
 import com.reconciliation.service.OperationService;
 import com.reconciliation.service.OperationBusinessService;
+import com.reconciliation.service.PaysFilterService;
 import com.reconciliation.dto.OperationUpdateRequest;
 import com.reconciliation.dto.OperationCreateRequest;
 import com.reconciliation.dto.FormOperationCreateRequest;
 import com.reconciliation.dto.DeleteOperationsRequest;
 import com.reconciliation.dto.DeleteOperationsResponse;
+import com.reconciliation.dto.OperationPage;
+import com.reconciliation.dto.OperationSearchCriteria;
 import com.reconciliation.util.RequestContextUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.http.HttpStatus;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +54,18 @@ public class OperationController {
     @Autowired
     private com.reconciliation.repository.CompteRepository compteRepository;
     
+    @Autowired
+    private PaysFilterService paysFilterService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${operations.page.default-size:500}")
+    private int defaultPageSize;
+    
+    @Value("${operations.page.max-size:5000}")
+    private int maxPageSize;
+    
     @GetMapping
     public ResponseEntity<List<Operation>> getAllOperations() {
         try {
@@ -69,11 +91,14 @@ public class OperationController {
         }
     }
 
-    // Import Excel/CSV d'opérations (transaction_cree / annulation_bo)
+    // Import Excel/CSV d'opérations (transaction_cree / annulation_bo) ; mode=bulk pour l'import en masse
     @PostMapping(value = "/upload", consumes = {"multipart/form-data"})
-    public ResponseEntity<java.util.Map<String, Object>> upload(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<java.util.Map<String, Object>> upload(@RequestParam("file") MultipartFile file,
+                                                                @RequestParam(value = "mode", required = false) String mode) {
         try {
-            var res = operationImportService.importFile(file);
+            var res = "bulk".equalsIgnoreCase(mode)
+                ? operationImportService.importFileBulk(file)
+                : operationImportService.importFile(file);
             java.util.Map<String, Object> payload = new java.util.HashMap<>();
             payload.put("totalRead", res.totalRead);
             payload.put("saved", res.saved);
@@ -518,6 +543,127 @@ public class OperationController {
         return ResponseEntity.ok(operations);
     }
     
+    /**
+     * Liste d'opérations paginée par curseur (tri dateOperation puis id, décroissant par défaut).
+     * Accepte les filtres des autres listes ; la réponse contient nextCursor à renvoyer pour la page suivante.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<OperationPage> getOperationsPage(
+            @RequestParam(required = false) String numeroCompte,
+            @RequestParam(required = false) Long compteId,
+            @RequestParam(required = false) String typeOperation,
+            @RequestParam(required = false) String pays,
+            @RequestParam(required = false) String statut,
+            @RequestParam(required = false) String banque,
+            @RequestParam(required = false) String codeProprietaire,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String nomBordereau,
+            @RequestParam(required = false) Double montantMin,
+            @RequestParam(required = false) String dateDebut,
+            @RequestParam(required = false) String dateFin,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(defaultValue = "false") boolean withFrais,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            OperationSearchCriteria criteria = buildSearchCriteria(numeroCompte, compteId, typeOperation, pays, statut,
+                    banque, codeProprietaire, service, nomBordereau, montantMin, dateDebut, dateFin, order);
+            int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+            OperationPage page = operationService.getOperationsPage(criteria, cursor, pageSize, withFrais);
+            return ResponseEntity.ok(page);
+        } catch (Exception e) {
+            logger.error("[API] Erreur dans /operations/page: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Export en flux NDJSON (une opération JSON par ligne) de toutes les opérations filtrées,
+     * avec les mêmes filtres que /page : mémoire constante côté serveur quel que soit le volume
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamOperations(
+            @RequestParam(required = false) String numeroCompte,
+            @RequestParam(required = false) Long compteId,
+            @RequestParam(required = false) String typeOperation,
+            @RequestParam(required = false) String pays,
+            @RequestParam(required = false) String statut,
+            @RequestParam(required = false) String banque,
+            @RequestParam(required = false) String codeProprietaire,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String nomBordereau,
+            @RequestParam(required = false) Double montantMin,
+            @RequestParam(required = false) String dateDebut,
+            @RequestParam(required = false) String dateFin,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(defaultValue = "false") boolean withFrais) {
+        OperationSearchCriteria criteria;
+        try {
+            criteria = buildSearchCriteria(numeroCompte, compteId, typeOperation, pays, statut,
+                    banque, codeProprietaire, service, nomBordereau, montantMin, dateDebut, dateFin, order);
+        } catch (Exception e) {
+            logger.error("[API] Erreur dans /operations/stream: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            long start = System.currentTimeMillis();
+            BufferedOutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+            long count = operationService.streamOperations(criteria, withFrais, operation -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(operation));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+            logger.info("[API] /operations/stream: {} opération(s) envoyée(s) en {} ms", count, System.currentTimeMillis() - start);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+    
+    /**
+     * Filtres communs de /page et /stream ; les pays sont limités à ceux autorisés pour l'utilisateur
+     */
+    private OperationSearchCriteria buildSearchCriteria(String numeroCompte, Long compteId, String typeOperation,
+            String pays, String statut, String banque, String codeProprietaire, String service, String nomBordereau,
+            Double montantMin, String dateDebut, String dateFin, String order) {
+        OperationSearchCriteria criteria = new OperationSearchCriteria();
+        if (numeroCompte != null && !numeroCompte.isEmpty()) {
+            criteria.setNumerosCompte(operationService.resolveNumerosCompte(numeroCompte));
+        }
+        criteria.setCompteId(compteId);
+        criteria.setTypeOperation(emptyToNull(typeOperation));
+        criteria.setPays(emptyToNull(pays));
+        criteria.setStatut(emptyToNull(statut));
+        criteria.setBanque(emptyToNull(banque));
+        criteria.setCodeProprietaire(emptyToNull(codeProprietaire));
+        criteria.setService(emptyToNull(service));
+        criteria.setNomBordereau(emptyToNull(nomBordereau));
+        criteria.setMontantMin(montantMin);
+        if (dateDebut != null && !dateDebut.isEmpty()) {
+            criteria.setDateDebut(LocalDateTime.parse(dateDebut + (dateDebut.length() == 10 ? "T00:00:00" : "")));
+        }
+        if (dateFin != null && !dateFin.isEmpty()) {
+            criteria.setDateFin(LocalDateTime.parse(dateFin + (dateFin.length() == 10 ? "T23:59:59" : "")));
+        }
+        criteria.setAscending("asc".equalsIgnoreCase(order));
+        
+        String username = RequestContextUtil.getUsernameFromRequest();
+        if (username != null && !username.isEmpty()) {
+            // null signifie tous les pays (GNL ou admin)
+            criteria.setPaysAutorises(paysFilterService.getAllowedPaysCodes(username));
+        }
+        return criteria;
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
     @PostMapping("/test-create-operation")
     public ResponseEntity<Map<String, Object>> testCreateOperation(@RequestBody OperationCreateRequest request) {
         try {
@@ -19,6 +19,9 @@ public class ProfilController {
     
     @Autowired
     private com.reconciliation.service.PermissionGeneratorService permissionGeneratorService;
+    
+    @Autowired
+    private com.reconciliation.service.AuthorizationSnapshotService authorizationSnapshotService;
 
     // Profils
     @GetMapping
@@ -207,6 +210,14 @@ public class ProfilController {
         return diagnostic;
     }
 
+    /**
+     * Compteurs du cache des droits utilisateurs (hits / misses)
+     */
+    @GetMapping("/authorization-cache/stats")
+    public Map<String, Object> getAuthorizationCacheStats() {
+        return authorizationSnapshotService.getStats();
+    }
+
     /**
      * Analyse approfondie de toutes les actions disponibles par module
      * Retourne toutes les actions spécifiques de chaque module détectées dans les contrôleurs
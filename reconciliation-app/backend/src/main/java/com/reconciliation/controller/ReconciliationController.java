@@ -6,11 +6,14 @@ import com.reconciliation.service.CsvReconciliationService;
 import com.reconciliation.service.MagicReconciliationService;
 import com.reconciliation.service.KeyDiscoveryService;
 import com.reconciliation.service.ReconciliationJobService;
+import com.reconciliation.service.ReconciliationJobQueue;
 import com.reconciliation.entity.ReconciliationJob;
+import com.reconciliation.entity.ReconciliationJobResultChunk.ResultCategory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Set;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 import com.reconciliation.model.ReconciliationProgress;
 import com.reconciliation.service.ReconciliationProgressService;
@@ -43,6 +47,8 @@ import com.reconciliation.entity.ReconciliationOkEntity;
 import com.reconciliation.entity.ReconciliationStatusEntity;
 import com.reconciliation.repository.ReconciliationStatusRepository;
 import com.reconciliation.service.ReconciliationLockService;
+import com.reconciliation.service.TabularFileReader;
+import org.springframework.http.MediaType;
 
 @Slf4j
 @RestController
@@ -75,6 +81,10 @@ public class ReconciliationController {
     private ReconciliationStatusRepository reconStatusRepository;
     @Autowired
     private ReconciliationLockService lockService;
+    @Autowired
+    private TabularFileReader tabularFileReader;
+    @Autowired
+    private ReconciliationJobQueue jobQueue;
 
     @GetMapping("/test")
     public ResponseEntity<String> test() {
@@ -310,6 +320,48 @@ public class ReconciliationController {
         }
     }
 
+    /**
+     * Réconciliation en flux : les fichiers BO et partenaire bruts sont lus côté serveur
+     * (partie "request" = paramètres de réconciliation sans contenu de fichier)
+     */
+    @PostMapping(value = "/reconcile/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> reconcileStream(
+            @RequestPart("boFile") MultipartFile boFile,
+            @RequestPart("partnerFile") MultipartFile partnerFile,
+            @RequestPart("request") ReconciliationRequest request,
+            HttpServletRequest httpRequest) throws IOException {
+        long startTime = System.currentTimeMillis();
+        String userId = extractUserId(httpRequest);
+        String lockKey = "reconcile_stream_" + userId + "_" + System.currentTimeMillis();
+        
+        log.info("🌊 === REQUÊTE DE RÉCONCILIATION EN FLUX REÇUE ===");
+        log.info("📁 Fichier BO: {} ({} bytes)", boFile.getOriginalFilename(), boFile.getSize());
+        log.info("📁 Fichier Partenaire: {} ({} bytes)", partnerFile.getOriginalFilename(), partnerFile.getSize());
+        log.info("🔑 Colonne clé BO: {}, Colonne clé Partenaire: {}", request.getBoKeyColumn(), request.getPartnerKeyColumn());
+        
+        boolean lockAcquired = lockService.acquireLock(lockKey, ReconciliationLockService.LOCK_TYPE_USER, userId, null, 60);
+        if (!lockAcquired) {
+            log.warn("⚠️ Impossible d'acquérir le verrou pour la réconciliation en flux - Une autre réconciliation est peut-être en cours");
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", true);
+            errorResponse.put("message", "Une réconciliation est déjà en cours. Veuillez patienter.");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+        }
+        try {
+            ReconciliationResponse response = reconciliationService.reconcileStreaming(
+                () -> tabularFileReader.open(boFile.getInputStream(), boFile.getOriginalFilename()),
+                () -> tabularFileReader.open(partnerFile.getInputStream(), partnerFile.getOriginalFilename()),
+                request);
+            
+            long totalTime = System.currentTimeMillis() - startTime;
+            log.info("✅ Réconciliation en flux terminée en {} ms - {} correspondances, {} BO uniquement, {} Partenaire uniquement",
+                totalTime, response.getTotalMatches(), response.getTotalBoOnly(), response.getTotalPartnerOnly());
+            return ResponseEntity.ok(response);
+        } finally {
+            lockService.releaseLock(lockKey, ReconciliationLockService.LOCK_TYPE_USER);
+        }
+    }
+
     @PostMapping("/upload")
     public ResponseEntity<String> uploadFile(@RequestParam("file") MultipartFile file, HttpServletRequest httpRequest) {
         long startTime = System.currentTimeMillis();
@@ -429,105 +481,100 @@ public class ReconciliationController {
     }
 
     @PostMapping("/start")
-    public ResponseEntity<Map<String, String>> startReconciliation(@RequestBody ReconciliationRequest req) {
-        String jobId = UUID.randomUUID().toString();
-        // reconciliationService.reconcileAsync(jobId, req); // Lancer en asynchrone (méthode non implémentée)
+    public ResponseEntity<Map<String, String>> startReconciliation(@RequestBody ReconciliationRequest req,
+                                                                   HttpServletRequest httpRequest) {
         Map<String, String> resp = new HashMap<>();
+        try {
+            String jobId = jobQueue.submit(req, extractUserId(httpRequest));
+            resp.put("jobId", jobId);
+            resp.put("status", "queued");
+            return ResponseEntity.ok(resp);
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ File de réconciliation pleine, requête refusée");
+            resp.put("error", "true");
+            resp.put("message", "Trop de réconciliations en cours. Veuillez réessayer plus tard.");
+            return ResponseEntity.status(429).body(resp);
+        }
+    }
+
+    @PostMapping("/cancel/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelReconciliation(@PathVariable String jobId) {
+        log.info("⏹️ Demande d'annulation du job: {}", jobId);
+        ReconciliationJobQueue.CancelOutcome outcome = jobQueue.cancel(jobId);
+        if (outcome == ReconciliationJobQueue.CancelOutcome.NOT_FOUND) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> resp = new HashMap<>();
         resp.put("jobId", jobId);
+        if (outcome == ReconciliationJobQueue.CancelOutcome.ALREADY_FINISHED) {
+            // Job déjà dans un état terminal : renvoyer son statut actuel
+            resp.put("status", jobService.getJobStatus(jobId)
+                .map(job -> job.getStatus().name().toLowerCase())
+                .orElse("unknown"));
+            resp.put("message", "Le job est déjà terminé et ne peut plus être annulé");
+            return ResponseEntity.status(409).body(resp);
+        }
+        resp.put("status", "cancelled");
         return ResponseEntity.ok(resp);
     }
 
     @GetMapping("/progress")
     public ResponseEntity<Map<String, Object>> getProgress(@RequestParam String sessionId) {
-        log.info("📊 Récupération des résultats pour le job: {}", sessionId);
-        
-        try {
-            Optional<ReconciliationJob> jobOpt = jobService.getJobStatus(sessionId);
-            
-            if (jobOpt.isPresent()) {
-                ReconciliationJob job = jobOpt.get();
-                Map<String, Object> response = new HashMap<>();
-                
-                // Ajouter la progression
-                ReconciliationProgress progress = progressService.getProgress(sessionId);
-                response.put("progress", progress);
-                
-                // Ajouter le résultat si disponible
-                if (job.getResultJson() != null) {
-                    try {
-                        ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), 
-                                ReconciliationResponse.class);
-                        response.put("result", result);
-                        log.info("✅ Résultats trouvés pour le job {}: {} correspondances", sessionId, 
-                                result.getMatches() != null ? result.getMatches().size() : 0);
-                    } catch (Exception e) {
-                        log.warn("Erreur lors du parsing du résultat pour job {}", sessionId, e);
-                    }
-                } else {
-                    log.warn("⚠️ Aucun résultat JSON pour le job: {}", sessionId);
-                }
-                
-                // Ajouter l'erreur si présente
-                if (job.getErrorMessage() != null) {
-                    response.put("error", job.getErrorMessage());
-                }
-                
-                return ResponseEntity.ok(response);
-            } else {
-                log.warn("⚠️ Job non trouvé: {}", sessionId);
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "Job non trouvé: " + sessionId);
-                return ResponseEntity.notFound().build();
-            }
-            
-        } catch (Exception e) {
-            log.error("Erreur lors de la récupération des résultats du job {}", sessionId, e);
-            Map<String, Object> error = new HashMap<>();
-            error.put("error", "Erreur serveur: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(error);
-        }
+        return progressResponse(sessionId);
     }
 
     @GetMapping("/progress/{jobId}")
     public ResponseEntity<Map<String, Object>> getJobProgress(@PathVariable String jobId) {
-        log.info("📊 Récupération des résultats pour le job: {}", jobId);
-        
+        return progressResponse(jobId);
+    }
+
+    /**
+     * Statut, progression et compteurs d'un job (sans les lignes de résultat, à paginer via /results/*)
+     */
+    private ResponseEntity<Map<String, Object>> progressResponse(String jobId) {
         try {
             Optional<ReconciliationJob> jobOpt = jobService.getJobStatus(jobId);
-            
-            if (jobOpt.isPresent()) {
-                ReconciliationJob job = jobOpt.get();
-                Map<String, Object> response = new HashMap<>();
-                
-                // Ajouter la progression
-                ReconciliationProgress progress = progressService.getProgress(jobId);
-                response.put("progress", progress);
-                
-                // Ajouter le résultat si disponible
-                if (job.getResultJson() != null) {
-                    try {
-                        ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), 
-                                ReconciliationResponse.class);
-                        response.put("result", result);
-                    } catch (Exception e) {
-                        log.warn("Erreur lors du parsing du résultat pour job {}", jobId, e);
-                    }
-                }
-                
-                // Ajouter l'erreur si présente
-                if (job.getErrorMessage() != null) {
-                    response.put("error", job.getErrorMessage());
-                }
-                
-                return ResponseEntity.ok(response);
-            } else {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "Job non trouvé: " + jobId);
+            if (jobOpt.isEmpty()) {
+                log.warn("⚠️ Job non trouvé: {}", jobId);
                 return ResponseEntity.notFound().build();
             }
+            ReconciliationJob job = jobOpt.get();
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobId", jobId);
+            response.put("status", job.getStatus());
+            
+            // Progression en mémoire, sinon déduite du statut (progression expirée ou job d'avant un redémarrage)
+            ReconciliationProgress progress = progressService.findProgress(jobId);
+            if (progress == null) {
+                switch (job.getStatus()) {
+                    case COMPLETED: progress = new ReconciliationProgress(100, "Réconciliation terminée avec succès", 0, 0); break;
+                    case CANCELLED: progress = new ReconciliationProgress(0, "Annulé", 0, 0); break;
+                    case FAILED: progress = new ReconciliationProgress(0, "Erreur: " + job.getErrorMessage(), 0, 0); break;
+                    default: progress = progressService.getProgress(jobId); break;
+                }
+            }
+            response.put("progress", progress);
+            
+            response.put("resultAvailable", jobService.hasResult(job));
+            if (job.getTotalMatches() != null) {
+                Map<String, Object> counters = new HashMap<>();
+                counters.put("totalMatches", job.getTotalMatches());
+                counters.put("totalMismatches", job.getTotalMismatches());
+                counters.put("totalBoOnly", job.getTotalBoOnly());
+                counters.put("totalPartnerOnly", job.getTotalPartnerOnly());
+                counters.put("totalBoRecords", job.getTotalBoRecords());
+                counters.put("totalPartnerRecords", job.getTotalPartnerRecords());
+                counters.put("executionTime", job.getExecutionTimeMs());
+                counters.put("processedRecords", job.getProcessedRecords());
+                response.put("result", counters);
+            }
             
+            if (job.getErrorMessage() != null) {
+                response.put("error", job.getErrorMessage());
+            }
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
-            log.error("Erreur lors de la récupération des résultats du job {}", jobId, e);
+            log.error("Erreur lors de la récupération de la progression du job {}", jobId, e);
             Map<String, Object> error = new HashMap<>();
             error.put("error", "Erreur serveur: " + e.getMessage());
             return ResponseEntity.internalServerError().body(error);
@@ -555,8 +602,8 @@ public class ReconciliationController {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
             
-            // Parser les résultats JSON
-            if (job.getResultJson() == null) {
+            // Charger les résultats (blocs ou ancien format JSON)
+            if (!jobService.hasResult(job)) {
                 log.error("❌ Aucun résultat JSON trouvé pour le job: {}", sessionId);
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("success", false);
@@ -564,7 +611,7 @@ public class ReconciliationController {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
             
-            ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), ReconciliationResponse.class);
+            ReconciliationResponse result = jobService.loadResult(job);
             
             // Construire la réponse
             Map<String, Object> results = new HashMap<>();
@@ -623,15 +670,29 @@ public class ReconciliationController {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
             
-            if (job.getResultJson() == null) {
-                log.error("❌ Aucun résultat JSON trouvé pour le job: {}", sessionId);
+            if (!jobService.hasResult(job)) {
+                log.error("❌ Aucun résultat trouvé pour le job: {}", sessionId);
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("success", false);
                 errorResponse.put("error", "Aucun résultat disponible");
                 return ResponseEntity.badRequest().body(errorResponse);
             }
             
-            ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), ReconciliationResponse.class);
+            // Compteurs lus dans les colonnes du job (ancien format : désérialisation du JSON)
+            ReconciliationResponse result;
+            if (job.getTotalMatches() != null) {
+                result = new ReconciliationResponse();
+                result.setTotalMatches(job.getTotalMatches());
+                result.setTotalMismatches(job.getTotalMismatches());
+                result.setTotalBoOnly(job.getTotalBoOnly());
+                result.setTotalPartnerOnly(job.getTotalPartnerOnly());
+                result.setTotalBoRecords(job.getTotalBoRecords());
+                result.setTotalPartnerRecords(job.getTotalPartnerRecords());
+                result.setExecutionTimeMs(job.getExecutionTimeMs() != null ? job.getExecutionTimeMs() : 0L);
+                result.setProcessedRecords(job.getProcessedRecords());
+            } else {
+                result = jobService.loadResult(job);
+            }
             
             // Retourner uniquement le résumé (sans les données détaillées)
             Map<String, Object> summary = new HashMap<>();
@@ -675,39 +736,7 @@ public class ReconciliationController {
         try {
             log.info("📋 Récupération des matches pour le job: {} (page: {}, size: {})", sessionId, page, size);
             
-            Optional<ReconciliationJob> jobOpt = jobService.getJobStatus(sessionId);
-            if (!jobOpt.isPresent()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            ReconciliationJob job = jobOpt.get();
-            if (job.getResultJson() == null) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("success", false);
-                errorResponse.put("error", "Aucun résultat disponible");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-            
-            ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), ReconciliationResponse.class);
-            List<ReconciliationResponse.Match> matches = result.getMatches() != null ? result.getMatches() : new ArrayList<>();
-            
-            int start = page * size;
-            int end = Math.min(start + size, matches.size());
-            List<ReconciliationResponse.Match> pagedMatches = start < matches.size() 
-                ? matches.subList(start, end) 
-                : new ArrayList<>();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("matches", pagedMatches);
-            response.put("total", matches.size());
-            response.put("page", page);
-            response.put("size", size);
-            response.put("totalPages", (int) Math.ceil((double) matches.size() / size));
-            
-            log.info("✅ {} matches retournés (page {}/{})", pagedMatches.size(), page + 1, (int) Math.ceil((double) matches.size() / size));
-            return ResponseEntity.ok(response);
-            
+            return buildResultPage(sessionId, ResultCategory.MATCHES, "matches", page, size);
         } catch (Exception e) {
             log.error("❌ Erreur lors de la récupération des matches: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
@@ -728,39 +757,7 @@ public class ReconciliationController {
         try {
             log.info("📋 Récupération des mismatches pour le job: {} (page: {}, size: {})", sessionId, page, size);
             
-            Optional<ReconciliationJob> jobOpt = jobService.getJobStatus(sessionId);
-            if (!jobOpt.isPresent()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            ReconciliationJob job = jobOpt.get();
-            if (job.getResultJson() == null) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("success", false);
-                errorResponse.put("error", "Aucun résultat disponible");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-            
-            ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), ReconciliationResponse.class);
-            List<Map<String, String>> mismatches = result.getMismatches() != null ? result.getMismatches() : new ArrayList<>();
-            
-            int start = page * size;
-            int end = Math.min(start + size, mismatches.size());
-            List<Map<String, String>> pagedMismatches = start < mismatches.size() 
-                ? mismatches.subList(start, end) 
-                : new ArrayList<>();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("mismatches", pagedMismatches);
-            response.put("total", mismatches.size());
-            response.put("page", page);
-            response.put("size", size);
-            response.put("totalPages", (int) Math.ceil((double) mismatches.size() / size));
-            
-            log.info("✅ {} mismatches retournés (page {}/{})", pagedMismatches.size(), page + 1, (int) Math.ceil((double) mismatches.size() / size));
-            return ResponseEntity.ok(response);
-            
+            return buildResultPage(sessionId, ResultCategory.MISMATCHES, "mismatches", page, size);
         } catch (Exception e) {
             log.error("❌ Erreur lors de la récupération des mismatches: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
@@ -781,39 +778,7 @@ public class ReconciliationController {
         try {
             log.info("📋 Récupération des boOnly pour le job: {} (page: {}, size: {})", sessionId, page, size);
             
-            Optional<ReconciliationJob> jobOpt = jobService.getJobStatus(sessionId);
-            if (!jobOpt.isPresent()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            ReconciliationJob job = jobOpt.get();
-            if (job.getResultJson() == null) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("success", false);
-                errorResponse.put("error", "Aucun résultat disponible");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-            
-            ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), ReconciliationResponse.class);
-            List<Map<String, String>> boOnly = result.getBoOnly() != null ? result.getBoOnly() : new ArrayList<>();
-            
-            int start = page * size;
-            int end = Math.min(start + size, boOnly.size());
-            List<Map<String, String>> pagedBoOnly = start < boOnly.size() 
-                ? boOnly.subList(start, end) 
-                : new ArrayList<>();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("boOnly", pagedBoOnly);
-            response.put("total", boOnly.size());
-            response.put("page", page);
-            response.put("size", size);
-            response.put("totalPages", (int) Math.ceil((double) boOnly.size() / size));
-            
-            log.info("✅ {} boOnly retournés (page {}/{})", pagedBoOnly.size(), page + 1, (int) Math.ceil((double) boOnly.size() / size));
-            return ResponseEntity.ok(response);
-            
+            return buildResultPage(sessionId, ResultCategory.BO_ONLY, "boOnly", page, size);
         } catch (Exception e) {
             log.error("❌ Erreur lors de la récupération des boOnly: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
@@ -834,39 +799,7 @@ public class ReconciliationController {
         try {
             log.info("📋 Récupération des partnerOnly pour le job: {} (page: {}, size: {})", sessionId, page, size);
             
-            Optional<ReconciliationJob> jobOpt = jobService.getJobStatus(sessionId);
-            if (!jobOpt.isPresent()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            ReconciliationJob job = jobOpt.get();
-            if (job.getResultJson() == null) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("success", false);
-                errorResponse.put("error", "Aucun résultat disponible");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-            
-            ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), ReconciliationResponse.class);
-            List<Map<String, String>> partnerOnly = result.getPartnerOnly() != null ? result.getPartnerOnly() : new ArrayList<>();
-            
-            int start = page * size;
-            int end = Math.min(start + size, partnerOnly.size());
-            List<Map<String, String>> pagedPartnerOnly = start < partnerOnly.size() 
-                ? partnerOnly.subList(start, end) 
-                : new ArrayList<>();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("partnerOnly", pagedPartnerOnly);
-            response.put("total", partnerOnly.size());
-            response.put("page", page);
-            response.put("size", size);
-            response.put("totalPages", (int) Math.ceil((double) partnerOnly.size() / size));
-            
-            log.info("✅ {} partnerOnly retournés (page {}/{})", pagedPartnerOnly.size(), page + 1, (int) Math.ceil((double) partnerOnly.size() / size));
-            return ResponseEntity.ok(response);
-            
+            return buildResultPage(sessionId, ResultCategory.PARTNER_ONLY, "partnerOnly", page, size);
         } catch (Exception e) {
             log.error("❌ Erreur lors de la récupération des partnerOnly: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
@@ -876,6 +809,40 @@ public class ReconciliationController {
         }
     }
 
+    /**
+     * Construit la réponse paginée d'une catégorie de résultat (seuls les blocs de la page sont chargés)
+     */
+    private ResponseEntity<Map<String, Object>> buildResultPage(String sessionId, ResultCategory category,
+                                                                String listKey, int page, int size) throws IOException {
+        Optional<ReconciliationJob> jobOpt = jobService.getJobStatus(sessionId);
+        if (!jobOpt.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        ReconciliationJob job = jobOpt.get();
+        if (!jobService.hasResult(job)) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Aucun résultat disponible");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        
+        int total = jobService.getResultTotal(job, category);
+        List<?> pagedRows = jobService.getResultPage(job, category, page, size);
+        int totalPages = (int) Math.ceil((double) total / size);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put(listKey, pagedRows);
+        response.put("total", total);
+        response.put("page", page);
+        response.put("size", size);
+        response.put("totalPages", totalPages);
+        
+        log.info("✅ {} {} retournés (page {}/{})", pagedRows.size(), listKey, page + 1, totalPages);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/analyze-keys")
     public ResponseEntity<Map<String, Object>> analyzeKeys(
             @RequestParam("boFile") MultipartFile boFile,
@@ -84,11 +84,10 @@ public class Result8RecController {
         // Variable finale pour utilisation dans lambda
         final List<String> allowedCountries = allowedCountriesTemp;
         
-        List<Result8RecEntity> all = repository.findAll();
-        
-        // Filtrer par pays autorisés si nécessaire
+        // Filtrer par pays autorisés si nécessaire (en SQL, sur la colonne country_code)
         if (allowedCountries == null) {
             // GNL ou admin : tous les pays
+            List<Result8RecEntity> all = repository.findAll();
             log.info("🌍 Cloisonnement Result8Rec: Admin/GNL détecté, retour de {} enregistrements", all.size());
             return ResponseEntity.ok(all);
         } else if (allowedCountries.isEmpty()) {
@@ -96,121 +95,13 @@ public class Result8RecController {
             log.info("🌍 Cloisonnement Result8Rec: Aucun pays autorisé pour l'utilisateur {}", username);
             return ResponseEntity.ok(new ArrayList<>());
         } else {
-            // Filtrer par pays autorisés
-            log.info("🌍 Cloisonnement Result8Rec: Filtrage pour utilisateur {} - Pays autorisés: {}", username, allowedCountries);
-            log.info("🌍 Cloisonnement Result8Rec: Total enregistrements avant filtrage: {}", all.size());
-            
-            List<Result8RecEntity> filtered = all.stream()
-                .filter(entity -> {
-                    if (entity.getCountry() == null) {
-                        log.warn("⚠️ Enregistrement Result8Rec sans pays: {}/{}/{}", entity.getAgency(), entity.getService(), entity.getDate());
-                        return false;
-                    }
-                    // Convertir le nom du pays en code pays si nécessaire
-                    String countryCode = getCountryCode(entity.getCountry());
-                    boolean included = allowedCountries.contains(countryCode);
-                    if (!included) {
-                        log.debug("🚫 Enregistrement Result8Rec exclu: {} (code: {}) - Pays autorisés: {}", 
-                            entity.getCountry(), countryCode, allowedCountries);
-                    }
-                    return included;
-                })
-                .collect(Collectors.toList());
-            
-            log.info("🌍 Cloisonnement Result8Rec: Total enregistrements après filtrage: {}", filtered.size());
+            List<Result8RecEntity> filtered = repository.findByCountryCodeInOrderByIdAsc(allowedCountries);
+            log.info("🌍 Cloisonnement Result8Rec: Filtrage pour utilisateur {} - Pays autorisés: {} - {} enregistrements",
+                username, allowedCountries, filtered.size());
             return ResponseEntity.ok(filtered);
         }
     }
     
-    /**
-     * Convertit un nom de pays en code pays pour le filtrage
-     */
-    private String getCountryCode(String countryName) {
-        if (countryName == null || countryName.trim().isEmpty()) {
-            return "";
-        }
-        
-        String normalizedName = countryName.trim().toUpperCase();
-        
-        // Gérer les variantes spéciales comme "CITCH" qui signifie "CI" (Côte d'Ivoire)
-        if (normalizedName.equals("CITCH") || normalizedName.startsWith("CITCH")) {
-            return "CI";
-        }
-        
-        // Mapping des noms de pays vers leurs codes
-        java.util.Map<String, String> countryMap = new java.util.HashMap<>();
-        countryMap.put("CAMEROUN", "CM");
-        countryMap.put("CAMEROON", "CM");
-        countryMap.put("CÔTE D'IVOIRE", "CI");
-        countryMap.put("COTE D'IVOIRE", "CI");
-        countryMap.put("COTE DIVOIRE", "CI");
-        countryMap.put("CÔTE DIVOIRE", "CI");
-        countryMap.put("SÉNÉGAL", "SN");
-        countryMap.put("SENEGAL", "SN");
-        countryMap.put("BURKINA FASO", "BF");
-        countryMap.put("BURKINA", "BF");
-        countryMap.put("MALI", "ML");
-        countryMap.put("BÉNIN", "BJ");
-        countryMap.put("BENIN", "BJ");
-        countryMap.put("NIGER", "NE");
-        countryMap.put("TCHAD", "TD");
-        countryMap.put("TOGO", "TG");
-        
-        // Chercher par nom exact (insensible à la casse)
-        for (java.util.Map.Entry<String, String> entry : countryMap.entrySet()) {
-            if (entry.getKey().equalsIgnoreCase(normalizedName)) {
-                return entry.getValue();
-            }
-        }
-        
-        // Chercher par contenu (pour gérer les cas comme "Côte d'Ivoire" dans "Côte d'Ivoire - Abidjan")
-        if (normalizedName.contains("COTE") || normalizedName.contains("CÔTE") || normalizedName.contains("IVOIRE")) {
-            return "CI";
-        }
-        if (normalizedName.contains("SENEGAL") || normalizedName.contains("SÉNÉGAL")) {
-            return "SN";
-        }
-        if (normalizedName.contains("CAMEROUN") || normalizedName.contains("CAMEROON")) {
-            return "CM";
-        }
-        if (normalizedName.contains("BURKINA")) {
-            return "BF";
-        }
-        if (normalizedName.contains("MALI")) {
-            return "ML";
-        }
-        if (normalizedName.contains("BENIN") || normalizedName.contains("BÉNIN")) {
-            return "BJ";
-        }
-        if (normalizedName.contains("NIGER")) {
-            return "NE";
-        }
-        if (normalizedName.contains("TCHAD")) {
-            return "TD";
-        }
-        if (normalizedName.contains("TOGO")) {
-            return "TG";
-        }
-        
-        // Si c'est déjà un code (2 lettres), le retourner tel quel
-        if (normalizedName.length() == 2) {
-            return normalizedName;
-        }
-        
-        // Si c'est un code de 4-5 lettres qui commence par un code pays connu, extraire les 2 premières lettres
-        if (normalizedName.length() >= 4) {
-            String firstTwo = normalizedName.substring(0, 2);
-            // Vérifier si c'est un code pays valide
-            List<String> validCodes = java.util.Arrays.asList("CM", "CI", "SN", "BF", "ML", "BJ", "NE", "TD", "TG");
-            if (validCodes.contains(firstTwo)) {
-                return firstTwo;
-            }
-        }
-        
-        // Sinon, retourner le nom tel quel pour comparaison (normalisé en majuscules)
-        return normalizedName;
-    }
-
     @PostMapping("/bulk")
     public ResponseEntity<?> saveBulk(@RequestBody List<Result8RecEntity> rows) {
         // Récupérer le username depuis le contexte de la requête
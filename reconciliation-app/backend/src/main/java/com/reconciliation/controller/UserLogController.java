@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/log-utilisateur")
@@ -35,6 +36,14 @@ public class UserLogController {
         }
     }
 
+    /**
+     * Compteurs de l'écriture asynchrone des logs (en file, écrits, abandonnés, en erreur)
+     */
+    @GetMapping("/writer-stats")
+    public ResponseEntity<Map<String, Object>> getWriterStats() {
+        return ResponseEntity.ok(userLogService.getWriterStats());
+    }
+
     /**
      * Récupérer un log par ID
      */
@@ -0,0 +1,22 @@
+package com.reconciliation.dto;
+
+import com.reconciliation.model.Operation;
+
+import java.util.List;
+
+/**
+ * Page d'opérations ; nextCursor est à renvoyer pour obtenir la page suivante (null en fin de liste)
+ */
+public class OperationPage {
+    public List<Operation> content;
+    public String nextCursor;
+    public boolean hasNext;
+    public int size;
+
+    public OperationPage(List<Operation> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+        this.size = content.size();
+    }
+}
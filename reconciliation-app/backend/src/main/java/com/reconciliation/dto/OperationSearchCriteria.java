@@ -0,0 +1,137 @@
+package com.reconciliation.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Filtres des listes d'opérations paginées par curseur ou exportées en flux.
+ * Un filtre null n'est pas appliqué ; paysAutorises null signifie tous les pays.
+ */
+public class OperationSearchCriteria {
+    private Long compteId;
+    private List<String> numerosCompte;
+    private List<String> paysAutorises;
+    private String typeOperation;
+    private String pays;
+    private String statut;
+    private String banque;
+    private String codeProprietaire;
+    private String service;
+    private String nomBordereau;
+    private Double montantMin;
+    private LocalDateTime dateDebut;
+    private LocalDateTime dateFin;
+    private boolean ascending;
+
+    public Long getCompteId() {
+        return compteId;
+    }
+
+    public void setCompteId(Long compteId) {
+        this.compteId = compteId;
+    }
+
+    public List<String> getNumerosCompte() {
+        return numerosCompte;
+    }
+
+    public void setNumerosCompte(List<String> numerosCompte) {
+        this.numerosCompte = numerosCompte;
+    }
+
+    public List<String> getPaysAutorises() {
+        return paysAutorises;
+    }
+
+    public void setPaysAutorises(List<String> paysAutorises) {
+        this.paysAutorises = paysAutorises;
+    }
+
+    public String getTypeOperation() {
+        return typeOperation;
+    }
+
+    public void setTypeOperation(String typeOperation) {
+        this.typeOperation = typeOperation;
+    }
+
+    public String getPays() {
+        return pays;
+    }
+
+    public void setPays(String pays) {
+        this.pays = pays;
+    }
+
+    public String getStatut() {
+        return statut;
+    }
+
+    public void setStatut(String statut) {
+        this.statut = statut;
+    }
+
+    public String getBanque() {
+        return banque;
+    }
+
+    public void setBanque(String banque) {
+        this.banque = banque;
+    }
+
+    public String getCodeProprietaire() {
+        return codeProprietaire;
+    }
+
+    public void setCodeProprietaire(String codeProprietaire) {
+        this.codeProprietaire = codeProprietaire;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public void setService(String service) {
+        this.service = service;
+    }
+
+    public String getNomBordereau() {
+        return nomBordereau;
+    }
+
+    public void setNomBordereau(String nomBordereau) {
+        this.nomBordereau = nomBordereau;
+    }
+
+    public Double getMontantMin() {
+        return montantMin;
+    }
+
+    public void setMontantMin(Double montantMin) {
+        this.montantMin = montantMin;
+    }
+
+    public LocalDateTime getDateDebut() {
+        return dateDebut;
+    }
+
+    public void setDateDebut(LocalDateTime dateDebut) {
+        this.dateDebut = dateDebut;
+    }
+
+    public LocalDateTime getDateFin() {
+        return dateFin;
+    }
+
+    public void setDateFin(LocalDateTime dateFin) {
+        this.dateFin = dateFin;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public void setAscending(boolean ascending) {
+        this.ascending = ascending;
+    }
+}
@@ -1,8 +1,14 @@
 package com.reconciliation.entity;
 
+import com.reconciliation.util.CountryCodeUtil;
 import jakarta.persistence.*;
 
 @Entity
+@Table(name = "agency_summary_entity", indexes = {
+    @Index(name = "idx_agency_summary_country_code", columnList = "country_code"),
+    @Index(name = "idx_agency_summary_date_agency", columnList = "date, agency")
+})
+@EntityListeners(RankingCubeListener.class)
 public class AgencySummaryEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -10,6 +16,9 @@ public class AgencySummaryEntity {
     private String agency;
     private String service;
     private String country;
+    /** Code pays calculé depuis country (cloisonnement en SQL) */
+    @Column(name = "country_code")
+    private String countryCode;
     private String date;
     private double totalVolume;
     private int recordCount;
@@ -23,6 +32,7 @@ public class AgencySummaryEntity {
     public void setService(String service) { this.service = service; }
     public String getCountry() { return country; }
     public void setCountry(String country) { this.country = country; }
+    public String getCountryCode() { return countryCode; }
     public String getDate() { return date; }
     public void setDate(String date) { this.date = date; }
     public double getTotalVolume() { return totalVolume; }
@@ -31,4 +41,10 @@ public class AgencySummaryEntity {
     public void setRecordCount(int recordCount) { this.recordCount = recordCount; }
     public String getTimestamp() { return timestamp; }
     public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
-} 
\ No newline at end of file
+
+    @PrePersist
+    @PreUpdate
+    void computeCountryCode() {
+        countryCode = CountryCodeUtil.toCountryCode(country);
+    }
+}
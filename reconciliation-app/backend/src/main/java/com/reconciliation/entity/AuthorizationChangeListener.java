@@ -0,0 +1,47 @@
+package com.reconciliation.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version des données d'autorisation (utilisateurs, profils, droits, pays).
+ *
+ * Branché sur les entités concernées : toute écriture incrémente la version après le commit, ce qui rend
+ * périmés les instantanés d'autorisation en cache (voir {@code AuthorizationSnapshotService}).
+ */
+public class AuthorizationChangeListener {
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        markChanged();
+    }
+
+    /**
+     * Signale une modification des données d'autorisation (après commit si une transaction est active)
+     */
+    public static void markChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    VERSION.incrementAndGet();
+                }
+            });
+        } else {
+            VERSION.incrementAndGet();
+        }
+    }
+
+    public static long currentVersion() {
+        return VERSION.get();
+    }
+}
@@ -8,6 +8,7 @@ import com.reconciliation.entity.ProfilPermissionEntity;
 
 @Entity
 @Table(name = "module")
+@EntityListeners(AuthorizationChangeListener.class)
 public class ModuleEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -4,7 +4,12 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "operation")
+@Table(name = "operation", indexes = {
+    @Index(name = "idx_operation_compte_date", columnList = "compte_id, date_operation, id"),
+    @Index(name = "idx_operation_proprietaire_service_date", columnList = "code_proprietaire, service, date_operation"),
+    @Index(name = "idx_operation_date_id", columnList = "date_operation, id")
+})
+@EntityListeners(RankingCubeListener.class)
 public class OperationEntity {
     
     @Id
@@ -5,6 +5,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "pays")
+@EntityListeners(AuthorizationChangeListener.class)
 public class PaysEntity {
     
     @Id
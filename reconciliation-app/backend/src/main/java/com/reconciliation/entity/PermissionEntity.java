@@ -7,6 +7,7 @@ import com.reconciliation.entity.ProfilPermissionEntity;
 
 @Entity
 @Table(name = "permission")
+@EntityListeners(AuthorizationChangeListener.class)
 public class PermissionEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
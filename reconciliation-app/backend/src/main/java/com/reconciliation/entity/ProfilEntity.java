@@ -7,6 +7,7 @@ import com.reconciliation.entity.ProfilPermissionEntity;
 
 @Entity
 @Table(name = "profil")
+@EntityListeners(AuthorizationChangeListener.class)
 public class ProfilEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
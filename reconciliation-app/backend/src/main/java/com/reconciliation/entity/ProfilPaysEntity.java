@@ -7,6 +7,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 @Table(name = "profil_pays", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"profil_id", "pays_id"})
 })
+@EntityListeners(AuthorizationChangeListener.class)
 public class ProfilPaysEntity {
     
     @Id
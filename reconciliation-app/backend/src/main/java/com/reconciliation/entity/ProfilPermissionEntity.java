@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
 @Table(name = "profil_permission")
+@EntityListeners(AuthorizationChangeListener.class)
 public class ProfilPermissionEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,54 @@
+package com.reconciliation.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Agrégat pré-calculé des classements : une ligne par (jour, pays normalisé, agence, service).
+ *
+ * Les colonnes "summary" viennent des agency_summary (nombre de transactions, volume), les colonnes
+ * "operation" des opérations enrichies de leurs frais. Jour nul = date de résumé non interprétable.
+ */
+@Entity
+@Table(name = "ranking_cube",
+       uniqueConstraints = @UniqueConstraint(name = "uk_ranking_cube_cell",
+                                             columnNames = {"bucket_date", "country", "agency", "service"}),
+       indexes = @Index(name = "idx_ranking_cube_date", columnList = "bucket_date"))
+@Data
+@NoArgsConstructor
+public class RankingCubeEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "bucket_date")
+    private LocalDate bucketDate;
+
+    @Column(name = "country", nullable = false, length = 10)
+    private String country;
+
+    @Column(name = "agency", nullable = false)
+    private String agency;
+
+    @Column(name = "service", nullable = false)
+    private String service;
+
+    @Column(name = "summary_count", nullable = false)
+    private long summaryCount;
+
+    @Column(name = "transaction_count", nullable = false)
+    private long transactionCount;
+
+    @Column(name = "total_volume", nullable = false)
+    private double totalVolume;
+
+    @Column(name = "operation_count", nullable = false)
+    private long operationCount;
+
+    @Column(name = "total_fees", nullable = false)
+    private double totalFees;
+}
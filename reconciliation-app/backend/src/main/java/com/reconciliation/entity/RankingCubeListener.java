@@ -0,0 +1,134 @@
+package com.reconciliation.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Suivi des jours à recalculer dans le cube des classements (ranking_cube).
+ *
+ * Branché sur les résumés d'agence et les opérations : toute écriture marque son jour comme modifié,
+ * après le commit de la transaction (pour qu'un recalcul ne relise pas un état non encore validé).
+ * Les écritures hors entités (requêtes JPQL/JDBC) doivent appeler {@link #markDirty(LocalDate)} elles-mêmes.
+ */
+public class RankingCubeListener {
+
+    private static final Object LOCK = new Object();
+    private static Set<LocalDate> dirtyDays = new HashSet<>();
+    private static boolean fullRebuild = true;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        if (entity instanceof OperationEntity) {
+            LocalDateTime dateOperation = ((OperationEntity) entity).getDateOperation();
+            markDirty(dateOperation != null ? dateOperation.toLocalDate() : null);
+        } else if (entity instanceof AgencySummaryEntity) {
+            markDirty(parseDay(((AgencySummaryEntity) entity).getDate()));
+        }
+    }
+
+    /**
+     * Marque un jour à recalculer (null = jour inconnu, recalcul complet)
+     */
+    public static void markDirty(LocalDate day) {
+        afterCommit(() -> {
+            synchronized (LOCK) {
+                if (day == null) {
+                    fullRebuild = true;
+                } else {
+                    dirtyDays.add(day);
+                }
+            }
+        });
+    }
+
+    /**
+     * Demande un recalcul complet (ex: changement de la configuration des frais)
+     */
+    public static void markAllDirty() {
+        afterCommit(() -> {
+            synchronized (LOCK) {
+                fullRebuild = true;
+            }
+        });
+    }
+
+    /**
+     * Demande un recalcul complet immédiatement, sans attendre de commit (ex: échec d'un recalcul)
+     */
+    public static void requestFullRebuild() {
+        synchronized (LOCK) {
+            fullRebuild = true;
+        }
+    }
+
+    /**
+     * Récupère et vide les jours à recalculer (un recalcul complet demandé n'est pas concerné)
+     */
+    public static Set<LocalDate> drainDirtyDays() {
+        synchronized (LOCK) {
+            if (dirtyDays.isEmpty()) {
+                return Collections.emptySet();
+            }
+            Set<LocalDate> days = dirtyDays;
+            dirtyDays = new HashSet<>();
+            return days;
+        }
+    }
+
+    /**
+     * Vrai si un recalcul complet a été demandé depuis le dernier recalcul complet
+     */
+    public static boolean isFullRebuildRequested() {
+        synchronized (LOCK) {
+            return fullRebuild;
+        }
+    }
+
+    /**
+     * Début d'un recalcul complet : la demande et les jours marqués jusqu'ici sont pris en charge
+     */
+    public static void startFullRebuild() {
+        synchronized (LOCK) {
+            dirtyDays = new HashSet<>();
+            fullRebuild = false;
+        }
+    }
+
+    /**
+     * Jour d'un résumé d'agence (format yyyy-MM-dd), null si non interprétable
+     */
+    public static LocalDate parseDay(String date) {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
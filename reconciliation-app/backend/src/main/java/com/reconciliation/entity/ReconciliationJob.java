@@ -42,6 +42,31 @@ public class ReconciliationJob {
     @Column(name = "result_json", columnDefinition = "TEXT")
     private String resultJson;
     
+    // Compteurs du résultat (les lignes sont stockées par blocs dans reconciliation_job_result_chunks)
+    @Column(name = "total_matches")
+    private Integer totalMatches;
+    
+    @Column(name = "total_mismatches")
+    private Integer totalMismatches;
+    
+    @Column(name = "total_bo_only")
+    private Integer totalBoOnly;
+    
+    @Column(name = "total_partner_only")
+    private Integer totalPartnerOnly;
+    
+    @Column(name = "total_bo_records")
+    private Integer totalBoRecords;
+    
+    @Column(name = "total_partner_records")
+    private Integer totalPartnerRecords;
+    
+    @Column(name = "execution_time_ms")
+    private Long executionTimeMs;
+    
+    @Column(name = "processed_records")
+    private Integer processedRecords;
+    
     @Column(name = "error_message")
     private String errorMessage;
     
@@ -0,0 +1,47 @@
+package com.reconciliation.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Bloc de résultats d'un job de réconciliation : jusqu'à N lignes d'une catégorie, sérialisées en JSON compressé (gzip)
+ */
+@Entity
+@Table(name = "reconciliation_job_result_chunks",
+       uniqueConstraints = @UniqueConstraint(name = "uk_result_chunk_job_category_index",
+                                             columnNames = {"job_id", "category", "chunk_index"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationJobResultChunk {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "job_id", nullable = false)
+    private String jobId;
+    
+    @Column(name = "category", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private ResultCategory category;
+    
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+    
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+    
+    @Lob
+    @Column(name = "payload", nullable = false, columnDefinition = "LONGBLOB")
+    private byte[] payload;
+    
+    public enum ResultCategory {
+        MATCHES,
+        MISMATCHES,
+        BO_ONLY,
+        PARTNER_ONLY
+    }
+}
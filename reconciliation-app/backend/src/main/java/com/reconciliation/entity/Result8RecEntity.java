@@ -1,9 +1,12 @@
 package com.reconciliation.entity;
 
+import com.reconciliation.util.CountryCodeUtil;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "result8rec")
+@Table(name = "result8rec", indexes = {
+    @Index(name = "idx_result8rec_country_code", columnList = "country_code")
+})
 public class Result8RecEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -13,6 +16,9 @@ public class Result8RecEntity {
     private String agency;
     private String service;
     private String country;
+    /** Code pays calculé depuis country (cloisonnement en SQL) */
+    @Column(name = "country_code")
+    private String countryCode;
 
     private int totalTransactions;
     private double totalVolume;
@@ -46,6 +52,8 @@ public class Result8RecEntity {
     public String getCountry() { return country; }
     public void setCountry(String country) { this.country = country; }
 
+    public String getCountryCode() { return countryCode; }
+
     public int getTotalTransactions() { return totalTransactions; }
     public void setTotalTransactions(int totalTransactions) { this.totalTransactions = totalTransactions; }
 
@@ -84,6 +92,10 @@ public class Result8RecEntity {
 
     public String getCreatedAt() { return createdAt; }
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
-}
-
 
+    @PrePersist
+    @PreUpdate
+    void computeCountryCode() {
+        countryCode = CountryCodeUtil.toCountryCode(country);
+    }
+}
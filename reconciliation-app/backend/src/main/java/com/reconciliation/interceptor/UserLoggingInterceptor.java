@@ -2,8 +2,11 @@ package com.reconciliation.interceptor;
 
 import com.reconciliation.entity.UserLogEntity;
 import com.reconciliation.service.UserLogService;
+import com.reconciliation.util.PathPrefixTrie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -11,9 +14,14 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import java.util.Set;
+import java.util.regex.Pattern;
+
 @Component
 public class UserLoggingInterceptor implements HandlerInterceptor {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserLoggingInterceptor.class);
+
     @Autowired
     private UserLogService userLogService;
 
@@ -76,6 +84,74 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         "/api/permissions" // Permissions (GET automatique)
     };
 
+    // Tables de routes précompilées (un seul parcours du chemin par recherche)
+    private static final PathPrefixTrie<Boolean> EXCLUDED_ROUTES = excludedRoutes(EXCLUDED_PATHS, true);
+    private static final PathPrefixTrie<Boolean> EXCLUDED_GET_ROUTES = excludedRoutes(EXCLUDED_GET_PATHS, false);
+    private static final PathPrefixTrie<Boolean> STATIC_ROUTES = new PathPrefixTrie<Boolean>()
+        .prefix("/static/", true)
+        .prefix("/css/", true)
+        .prefix("/js/", true)
+        .prefix("/images/", true);
+
+    // Chemins de liste pour lesquels même une consultation par ID n'est pas loggée
+    private static final Set<String> LIST_BASE_PATHS = Set.of(
+        "/api/pays", "/api/profils", "/api/users", "/api/comptes", "/api/operations", "/api/operations-bancaires",
+        "/api/ranking", "/api/statistics", "/api/stats", "/api/frais", "/api/frais-transaction", "/api/ecart-solde",
+        "/api/impact-op", "/api/trx-sf", "/api/service-balance", "/api/banque", "/api/comptabilite", "/api/traitement",
+        "/api/results", "/api/result8rec", "/api/modules", "/api/permissions"
+    );
+
+    // Module par préfixe de chemin (le premier préfixe déclaré l'emporte)
+    private static final PathPrefixTrie<String> MODULE_ROUTES = new PathPrefixTrie<String>()
+        .prefix("/api/operations", "Opérations")
+        .prefix("/api/operations-bancaires", "Opérations")
+        .prefix("/api/comptes", "Comptes")
+        .prefix("/api/frais", "Frais")
+        .prefix("/api/commission", "Frais")
+        .prefix("/api/reconciliation", "Réconciliation")
+        .prefix("/api/stats", "Statistiques")
+        .prefix("/api/statistics", "Statistiques")
+        .prefix("/api/ranking", "Classements")
+        .prefix("/api/ecart-solde", "TSOP")
+        .prefix("/api/trx-sf", "TRX SF")
+        .prefix("/api/impact-op", "Impact OP")
+        .prefix("/api/service-balance", "Service Balance")
+        .prefix("/api/banque", "BANQUE")
+        .prefix("/api/comptabilite", "Comptabilité")
+        .prefix("/api/auto-processing-models", "Modèles")
+        .prefix("/api/profils", "Profil")
+        .prefix("/api/users", "Utilisateur")
+        .prefix("/api/dashboard", "Dashboard")
+        .prefix("/api/traitement", "Traitement")
+        .prefix("/api/results", "Résultats")
+        .prefix("/api/result8rec", "Résultats")
+        .prefix("/api/pays", "Pays")
+        .prefix("/api/modules", "Module")
+        .prefix("/api/permissions", "Permission")
+        .prefix("/api/reconciliation-dashboard", "Dashboard")
+        .prefix("/api/banque-dashboard", "Dashboard")
+        .prefix("/api/report-dashboard", "Dashboard");
+
+    private static final Pattern MODULE_ID_PATH = Pattern.compile("/api/[^/]+/\\d+$");
+    private static final Pattern RESULT8REC_ID_PATH = Pattern.compile("/api/result8rec/\\d+");
+    private static final Pattern USERS_ID_PATH = Pattern.compile("/api/users/\\d+");
+    private static final Pattern PROFILS_ID_PATH = Pattern.compile("/api/profils/\\d+");
+    private static final Pattern COMPTES_ID_PATH = Pattern.compile("/api/comptes/\\d+");
+    private static final Pattern OPERATIONS_ID_PATH = Pattern.compile("/api/operations/\\d+");
+    private static final Pattern IMPACT_OP_ID_PATH = Pattern.compile("/api/impact-op/\\d+");
+    private static final Pattern TRAILING_ID_PATH = Pattern.compile(".*/\\d+$");
+
+    private static PathPrefixTrie<Boolean> excludedRoutes(String[] paths, boolean withQueryString) {
+        PathPrefixTrie<Boolean> routes = new PathPrefixTrie<>();
+        for (String path : paths) {
+            routes.pathAndChildren(path, true);
+            if (withQueryString) {
+                routes.prefix(path + "?", true);
+            }
+        }
+        return routes;
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, 
                              HttpServletResponse response, 
@@ -84,10 +160,8 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         String method = request.getMethod();
 
         // Ignorer les chemins exclus
-        for (String excludedPath : EXCLUDED_PATHS) {
-            if (path.equals(excludedPath) || path.startsWith(excludedPath + "/") || path.startsWith(excludedPath + "?")) {
-                return true;
-            }
+        if (EXCLUDED_ROUTES.matches(path)) {
+            return true;
         }
 
         // Ignorer les requêtes OPTIONS (CORS)
@@ -96,7 +170,7 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         }
 
         // Ignorer les chemins statiques
-        if (path.startsWith("/static/") || path.startsWith("/css/") || path.startsWith("/js/") || path.startsWith("/images/")) {
+        if (STATIC_ROUTES.matches(path)) {
             return true;
         }
 
@@ -112,10 +186,8 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         if ("GET".equals(method)) {
             // Par défaut, NE PAS logger les GET
             // Vérifier d'abord si c'est un chemin GET exclu (listes, chargements automatiques)
-            for (String excludedGetPath : EXCLUDED_GET_PATHS) {
-                if (path.equals(excludedGetPath) || path.startsWith(excludedGetPath + "/")) {
-                    return true; // Ne pas logger cette requête GET
-                }
+            if (EXCLUDED_GET_ROUTES.matches(path)) {
+                return true; // Ne pas logger cette requête GET
             }
             
             // Vérifier aussi les patterns de chemins GET automatiques
@@ -155,26 +227,20 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
             return true;
         }
 
-        // Logger l'action utilisateur
+        // Logger l'action utilisateur (écriture asynchrone, hors du temps de réponse)
         try {
             String moduleName = extractModuleNameFromPath(path);
             String permissionName = extractPermissionNameFromPath(path, method);
             
-            // Debug temporaire
-            if (moduleName == null || permissionName == null) {
-                System.out.println("⚠️ Log non enregistré - Path: " + path + ", Method: " + method + 
-                    ", Module: " + moduleName + ", Permission: " + permissionName);
-            }
-            
             if (moduleName != null && permissionName != null) {
-                userLogService.saveLog(permissionName, moduleName, username);
-                System.out.println("✅ Log enregistré - Path: " + path + ", Method: " + method + 
-                    ", Module: " + moduleName + ", Permission: " + permissionName + ", User: " + username);
+                userLogService.enqueueLog(permissionName, moduleName, username);
+            } else {
+                logger.debug("⚠️ Log non enregistré - Path: {}, Method: {}, Module: {}, Permission: {}",
+                    path, method, moduleName, permissionName);
             }
         } catch (Exception e) {
             // Ne pas bloquer la requête en cas d'erreur de logging
-            System.err.println("Erreur lors de l'enregistrement du log: " + e.getMessage());
-            e.printStackTrace();
+            logger.warn("Erreur lors de l'enregistrement du log: {}", e.getMessage());
         }
 
         return true;
@@ -236,32 +302,11 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         
         // 2. Consultation d'un élément spécifique par ID uniquement (ex: /api/users/123)
         // Pattern strict : /api/module/123 (seulement 2 niveaux après /api, sans paramètres)
-        if (lowerPath.matches("/api/[^/]+/\\d+$")) {
+        if (MODULE_ID_PATH.matcher(lowerPath).matches()) {
             // Vérifier que ce n'est pas un chemin exclu
             String basePath = lowerPath.substring(0, lowerPath.lastIndexOf('/'));
             // Exclure TOUS les chemins de liste même avec ID (chargements automatiques)
-            if (basePath.equals("/api/pays") || 
-                basePath.equals("/api/profils") || 
-                basePath.equals("/api/users") ||
-                basePath.equals("/api/comptes") ||
-                basePath.equals("/api/operations") ||
-                basePath.equals("/api/operations-bancaires") ||
-                basePath.equals("/api/ranking") ||
-                basePath.equals("/api/statistics") ||
-                basePath.equals("/api/stats") ||
-                basePath.equals("/api/frais") ||
-                basePath.equals("/api/frais-transaction") ||
-                basePath.equals("/api/ecart-solde") ||
-                basePath.equals("/api/impact-op") ||
-                basePath.equals("/api/trx-sf") ||
-                basePath.equals("/api/service-balance") ||
-                basePath.equals("/api/banque") ||
-                basePath.equals("/api/comptabilite") ||
-                basePath.equals("/api/traitement") ||
-                basePath.equals("/api/results") ||
-                basePath.equals("/api/result8rec") ||
-                basePath.equals("/api/modules") ||
-                basePath.equals("/api/permissions")) {
+            if (LIST_BASE_PATHS.contains(basePath)) {
                 // Même avec un ID, ces chemins sont souvent des chargements automatiques
                 return false;
             }
@@ -288,35 +333,8 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
     private String extractModuleNameFromPath(String path) {
         if (path == null) return null;
         
-        if (path.startsWith("/api/operations")) return "Opérations";
-        if (path.startsWith("/api/operations-bancaires")) return "Opérations";
-        if (path.startsWith("/api/comptes")) return "Comptes";
-        if (path.startsWith("/api/frais")) return "Frais";
-        if (path.startsWith("/api/commission")) return "Frais";
-        if (path.startsWith("/api/reconciliation")) return "Réconciliation";
-        if (path.startsWith("/api/stats")) return "Statistiques";
-        if (path.startsWith("/api/statistics")) return "Statistiques";
-        if (path.startsWith("/api/ranking")) return "Classements";
-        if (path.startsWith("/api/ecart-solde")) return "TSOP";
-        if (path.startsWith("/api/trx-sf")) return "TRX SF";
-        if (path.startsWith("/api/impact-op")) return "Impact OP";
-        if (path.startsWith("/api/service-balance")) return "Service Balance";
-        if (path.startsWith("/api/banque")) return "BANQUE";
-        if (path.startsWith("/api/comptabilite")) return "Comptabilité";
-        if (path.startsWith("/api/auto-processing-models")) return "Modèles";
-        if (path.startsWith("/api/profils")) return "Profil";
-        if (path.startsWith("/api/users")) return "Utilisateur";
-        if (path.startsWith("/api/dashboard")) return "Dashboard";
-        if (path.startsWith("/api/traitement")) return "Traitement";
-        if (path.startsWith("/api/results")) return "Résultats";
-        if (path.startsWith("/api/result8rec")) return "Résultats";
-        if (path.startsWith("/api/pays")) return "Pays";
-        if (path.startsWith("/api/modules")) return "Module";
-        if (path.startsWith("/api/permissions")) return "Permission";
-        if (path.startsWith("/api/dashboard")) return "Dashboard";
-        if (path.startsWith("/api/reconciliation-dashboard")) return "Dashboard";
-        if (path.startsWith("/api/banque-dashboard")) return "Dashboard";
-        if (path.startsWith("/api/report-dashboard")) return "Dashboard";
+        String module = MODULE_ROUTES.match(path);
+        if (module != null) return module;
         
         // Par défaut, retourner "Autre" pour ne pas bloquer le logging
         return "Autre";
@@ -350,7 +368,7 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         
         // Actions spécifiques result8rec (rapport de réconciliation)
         if (lowerPath.startsWith("/api/result8rec")) {
-            if (lowerPath.matches("/api/result8rec/\\d+")) {
+            if (RESULT8REC_ID_PATH.matcher(lowerPath).matches()) {
                 // PUT /api/result8rec/{id} ou DELETE /api/result8rec/{id}
                 if (lowerMethod.equals("put") || lowerMethod.equals("patch")) {
                     return "modifier_ligne_rapport";
@@ -371,7 +389,7 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         
         // Actions spécifiques utilisateurs
         if (lowerPath.startsWith("/api/users")) {
-            if (lowerPath.matches("/api/users/\\d+")) {
+            if (USERS_ID_PATH.matcher(lowerPath).matches()) {
                 if (lowerMethod.equals("put") || lowerMethod.equals("patch")) {
                     return "modifier_utilisateur";
                 } else if (lowerMethod.equals("delete")) {
@@ -388,7 +406,7 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         
         // Actions spécifiques profils
         if (lowerPath.startsWith("/api/profils")) {
-            if (lowerPath.matches("/api/profils/\\d+")) {
+            if (PROFILS_ID_PATH.matcher(lowerPath).matches()) {
                 if (lowerMethod.equals("put") || lowerMethod.equals("patch")) {
                     return "modifier_profil";
                 } else if (lowerMethod.equals("delete")) {
@@ -405,7 +423,7 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
         
         // Actions spécifiques comptes
         if (lowerPath.startsWith("/api/comptes")) {
-            if (lowerPath.matches("/api/comptes/\\d+")) {
+            if (COMPTES_ID_PATH.matcher(lowerPath).matches()) {
                 if (lowerMethod.equals("put") || lowerMethod.equals("patch")) {
                     return "modifier_compte";
                 } else if (lowerMethod.equals("delete")) {
@@ -426,7 +444,7 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
                 return "filtrer_operations";
             } else if (lowerMethod.equals("post")) {
                 return "creer_operation";
-            } else if (lowerPath.matches("/api/operations/\\d+")) {
+            } else if (OPERATIONS_ID_PATH.matcher(lowerPath).matches()) {
                 if (lowerMethod.equals("put") || lowerMethod.equals("patch")) {
                     return "modifier_operation";
                 } else if (lowerMethod.equals("delete")) {
@@ -450,7 +468,7 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
                 return "valider_impact_op";
             } else if (lowerPath.contains("/delete-batch")) {
                 return "supprimer_impacts_en_masse";
-            } else if (lowerPath.matches("/api/impact-op/\\d+")) {
+            } else if (IMPACT_OP_ID_PATH.matcher(lowerPath).matches()) {
                 if (lowerMethod.equals("put") || lowerMethod.equals("patch")) {
                     return "modifier_impact_op";
                 } else if (lowerMethod.equals("delete")) {
@@ -504,7 +522,7 @@ public class UserLoggingInterceptor implements HandlerInterceptor {
                 // Pour les GET, on peut être plus précis selon le contexte
                 if (lowerPath.contains("/all") || lowerPath.contains("/list")) {
                     return "consulter_liste";
-                } else if (lowerPath.matches(".*/\\d+$")) {
+                } else if (TRAILING_ID_PATH.matcher(lowerPath).matches()) {
                     return "consulter_detail";
                 } else {
                     return "consulter";
@@ -0,0 +1,313 @@
+package com.reconciliation.model;
+
+import java.util.*;
+
+/**
+ * Table d'enregistrements en colonnes pour le moteur de réconciliation.
+ *
+ * Un seul schéma de colonnes est partagé par toutes les lignes, et chaque cellule est stockée sous forme
+ * de code entier dans un dictionnaire de valeurs (une valeur répétée n'est stockée qu'une fois).
+ * Les lignes sont adressées par index ; {@link #rowView(int)} expose une ligne sous forme de Map en lecture
+ * seule pour la sérialisation vers {@code ReconciliationResponse}.
+ *
+ * Construction mono-thread ; lectures concurrentes possibles une fois la table construite.
+ */
+public class RecordTable {
+
+    /** Code réservé aux cellules absentes (null) */
+    public static final int NULL_CODE = 0;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Dictionary dictionary;
+    private final List<String> columns = new ArrayList<>();
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final List<int[]> columnData = new ArrayList<>();
+    private int rowCount;
+    private int capacity;
+
+    public RecordTable(Dictionary dictionary) {
+        this(dictionary, INITIAL_CAPACITY);
+    }
+
+    public RecordTable(Dictionary dictionary, int expectedRows) {
+        this.dictionary = dictionary;
+        this.capacity = Math.max(16, expectedRows);
+    }
+
+    /**
+     * Construit une table à partir de lignes Map (le schéma est l'union des colonnes dans l'ordre d'apparition)
+     */
+    public static RecordTable fromRows(List<Map<String, String>> rows, Dictionary dictionary) {
+        RecordTable table = new RecordTable(dictionary, rows.size());
+        for (Map<String, String> row : rows) {
+            table.appendRow(row);
+        }
+        return table;
+    }
+
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Index de la colonne, ou -1 si la colonne n'existe pas
+     */
+    public int columnIndex(String column) {
+        Integer index = columnIndex.get(column);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Ajoute une colonne (vide) au schéma si elle n'existe pas et retourne son index
+     */
+    public int addColumn(String column) {
+        Integer existing = columnIndex.get(column);
+        if (existing != null) {
+            return existing;
+        }
+        int index = columns.size();
+        columns.add(column);
+        columnIndex.put(column, index);
+        columnData.add(new int[capacity]);
+        return index;
+    }
+
+    /**
+     * Ajoute une ligne et retourne son index
+     */
+    public int appendRow(Map<String, String> row) {
+        ensureCapacity(rowCount + 1);
+        int rowIndex = rowCount++;
+        for (Map.Entry<String, String> entry : row.entrySet()) {
+            int col = addColumn(entry.getKey());
+            columnData.get(col)[rowIndex] = dictionary.encode(entry.getValue());
+        }
+        return rowIndex;
+    }
+
+    public String get(int row, int col) {
+        if (col < 0) {
+            return null;
+        }
+        return dictionary.decode(columnData.get(col)[row]);
+    }
+
+    public String get(int row, String column) {
+        return get(row, columnIndex(column));
+    }
+
+    public int code(int row, int col) {
+        return col < 0 ? NULL_CODE : columnData.get(col)[row];
+    }
+
+    public void set(int row, int col, String value) {
+        columnData.get(col)[row] = dictionary.encode(value);
+    }
+
+    public void setCode(int row, int col, int code) {
+        columnData.get(col)[row] = code;
+    }
+
+    /**
+     * Compare deux cellules : comparaison des codes si le dictionnaire est partagé, sinon des valeurs
+     */
+    public static boolean valueEquals(RecordTable a, int rowA, int colA, RecordTable b, int rowB, int colB) {
+        if (a.dictionary == b.dictionary) {
+            return a.code(rowA, colA) == b.code(rowB, colB);
+        }
+        return Objects.equals(a.get(rowA, colA), b.get(rowB, colB));
+    }
+
+    /**
+     * Copie de la table (mêmes colonnes, même dictionnaire) ; les codes existants restent valides
+     * car le dictionnaire ne fait que croître
+     */
+    public RecordTable copy() {
+        RecordTable copy = new RecordTable(dictionary, capacity);
+        for (int col = 0; col < columns.size(); col++) {
+            copy.columns.add(columns.get(col));
+            copy.columnIndex.put(columns.get(col), col);
+            copy.columnData.add(columnData.get(col).clone());
+        }
+        copy.rowCount = rowCount;
+        return copy;
+    }
+
+    /**
+     * Liste (vue) des lignes de la table sous forme de Map
+     */
+    public List<Map<String, String>> rows() {
+        return new AbstractList<Map<String, String>>() {
+            @Override
+            public Map<String, String> get(int index) {
+                return rowView(index);
+            }
+
+            @Override
+            public int size() {
+                return rowCount;
+            }
+        };
+    }
+
+    /**
+     * Vue Map en lecture seule d'une ligne (les cellules nulles sont omises)
+     */
+    public RowView rowView(int row) {
+        return new RowView(this, row, null, null);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity + (capacity >> 1));
+        for (int i = 0; i < columnData.size(); i++) {
+            columnData.set(i, Arrays.copyOf(columnData.get(i), newCapacity));
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * Dictionnaire de valeurs partagé entre tables (code 0 = null)
+     */
+    public static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        public Dictionary() {
+            values.add(null);
+        }
+
+        public int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        public String decode(int code) {
+            return values.get(code);
+        }
+
+        public int size() {
+            return values.size();
+        }
+    }
+
+    /**
+     * Ligne exposée comme Map, avec une éventuelle entrée supplémentaire (ex: "Commentaire") sans copie de la ligne
+     */
+    public static class RowView extends AbstractMap<String, String> {
+        private final RecordTable table;
+        private final int row;
+        private final String extraKey;
+        private final String extraValue;
+
+        private RowView(RecordTable table, int row, String extraKey, String extraValue) {
+            this.table = table;
+            this.row = row;
+            this.extraKey = extraKey;
+            this.extraValue = extraValue;
+        }
+
+        public RecordTable getTable() {
+            return table;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Retourne une vue de la même ligne avec une entrée ajoutée (ou remplacée)
+         */
+        public RowView with(String key, String value) {
+            return new RowView(table, row, key, value);
+        }
+
+        @Override
+        public String get(Object key) {
+            if (extraKey != null && extraKey.equals(key)) {
+                return extraValue;
+            }
+            if (!(key instanceof String)) {
+                return null;
+            }
+            return table.get(row, (String) key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int col = -1;
+                        private boolean extraPending = extraKey != null && table.columnIndex(extraKey) < 0;
+                        private Entry<String, String> next = advance();
+
+                        private Entry<String, String> advance() {
+                            while (++col < table.columns.size()) {
+                                String column = table.columns.get(col);
+                                String value = column.equals(extraKey) ? extraValue : table.get(row, col);
+                                if (value != null) {
+                                    return new SimpleImmutableEntry<>(column, value);
+                                }
+                            }
+                            if (extraPending) {
+                                extraPending = false;
+                                return extraValue != null ? new SimpleImmutableEntry<>(extraKey, extraValue) : null;
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, String> current = next;
+                            next = advance();
+                            return current;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int count = 0;
+                    for (Iterator<Entry<String, String>> it = iterator(); it.hasNext(); it.next()) {
+                        count++;
+                    }
+                    return count;
+                }
+            };
+        }
+    }
+}
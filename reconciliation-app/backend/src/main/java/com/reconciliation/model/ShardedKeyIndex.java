@@ -0,0 +1,200 @@
+package com.reconciliation.model;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+/**
+ * Index clé -> valeur partitionné en shards, construit en parallèle sans verrou global.
+ *
+ * Chaque thread indexe une plage contiguë de lignes dans ses propres maps partielles (une par shard), puis
+ * chaque shard fusionne les maps partielles dans l'ordre des plages. Le résultat est donc déterministe et
+ * identique à une construction séquentielle dans l'ordre des lignes (ex: "dernier écrivain gagne").
+ *
+ * Sur un seul thread (peu de lignes ou un seul cœur disponible), l'index est une unique HashMap sans fusion.
+ *
+ * Lecture seule une fois construit (lectures concurrentes possibles).
+ */
+public final class ShardedKeyIndex<V> extends AbstractMap<String, V> {
+
+    private static final int SHARD_BITS = 6;
+    private static final int SHARD_COUNT = 1 << SHARD_BITS;
+    /** En dessous de ce nombre de lignes, la construction reste mono-thread */
+    private static final int MIN_ROWS_PER_THREAD = 20000;
+
+    private final List<Map<String, V>> shards;
+    private final int shardBits;
+    private final int size;
+    private final int indexedRowCount;
+
+    private ShardedKeyIndex(List<Map<String, V>> shards, int shardBits, int indexedRowCount) {
+        this.shards = shards;
+        this.shardBits = shardBits;
+        this.indexedRowCount = indexedRowCount;
+        int total = 0;
+        for (Map<String, V> shard : shards) {
+            total += shard.size();
+        }
+        this.size = total;
+    }
+
+    /**
+     * Index clé -> index de ligne ; en cas de clé dupliquée, la dernière ligne gagne
+     */
+    public static ShardedKeyIndex<Integer> unique(int rowCount, IntFunction<String> keyOf,
+                                                  Executor executor, int parallelism) {
+        return build(rowCount, keyOf, row -> row, (previous, next) -> next, executor, parallelism);
+    }
+
+    /**
+     * Index clé -> lignes de même clé, dans l'ordre des lignes
+     */
+    public static <T> ShardedKeyIndex<List<T>> grouped(int rowCount, IntFunction<String> keyOf, IntFunction<T> rowOf,
+                                                       Executor executor, int parallelism) {
+        return build(rowCount, keyOf,
+            row -> {
+                List<T> rows = new ArrayList<>(2);
+                rows.add(rowOf.apply(row));
+                return rows;
+            },
+            (previous, next) -> {
+                previous.addAll(next);
+                return previous;
+            },
+            executor, parallelism);
+    }
+
+    /**
+     * Construction générique : {@code merge} est appliqué dans l'ordre des lignes (valeur précédente, nouvelle valeur)
+     */
+    public static <V> ShardedKeyIndex<V> build(int rowCount, IntFunction<String> keyOf, IntFunction<V> valueOf,
+                                               BinaryOperator<V> merge, Executor executor, int parallelism) {
+        // Au-delà du nombre de cœurs, les plages s'exécutent à tour de rôle et la fusion ne fait que s'ajouter
+        int threads = Math.max(1, Math.min(Math.min(parallelism, Runtime.getRuntime().availableProcessors()),
+            rowCount / MIN_ROWS_PER_THREAD));
+        int rowsPerThread = (rowCount + threads - 1) / Math.max(1, threads);
+
+        // 1. Maps partielles par plage de lignes (aucun état partagé)
+        List<CompletableFuture<Partial<V>>> partialFutures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int start = Math.min(rowCount, t * rowsPerThread);
+            int end = Math.min(rowCount, start + rowsPerThread);
+            if (threads == 1) {
+                partialFutures.add(CompletableFuture.completedFuture(indexRange(start, end, keyOf, valueOf, merge, 0)));
+            } else {
+                partialFutures.add(CompletableFuture.supplyAsync(() -> indexRange(start, end, keyOf, valueOf, merge, SHARD_BITS), executor));
+            }
+        }
+        List<Partial<V>> partials = new ArrayList<>(threads);
+        int indexedRowCount = 0;
+        for (CompletableFuture<Partial<V>> future : partialFutures) {
+            Partial<V> partial = future.join();
+            partials.add(partial);
+            indexedRowCount += partial.indexedRows;
+        }
+        if (threads == 1) {
+            return new ShardedKeyIndex<>(partials.get(0).shards, 0, indexedRowCount);
+        }
+
+        // 2. Fusion par shard, dans l'ordre des plages
+        List<CompletableFuture<Map<String, V>>> shardFutures = new ArrayList<>(SHARD_COUNT);
+        for (int s = 0; s < SHARD_COUNT; s++) {
+            final int shard = s;
+            shardFutures.add(CompletableFuture.supplyAsync(() -> {
+                Map<String, V> merged = partials.get(0).shards.get(shard);
+                for (int t = 1; t < partials.size(); t++) {
+                    for (Map.Entry<String, V> entry : partials.get(t).shards.get(shard).entrySet()) {
+                        merged.merge(entry.getKey(), entry.getValue(), merge);
+                    }
+                }
+                return merged;
+            }, executor));
+        }
+        List<Map<String, V>> shards = new ArrayList<>(SHARD_COUNT);
+        for (CompletableFuture<Map<String, V>> future : shardFutures) {
+            shards.add(future.join());
+        }
+        return new ShardedKeyIndex<>(shards, SHARD_BITS, indexedRowCount);
+    }
+
+    private static <V> Partial<V> indexRange(int start, int end, IntFunction<String> keyOf, IntFunction<V> valueOf,
+                                             BinaryOperator<V> merge, int shardBits) {
+        int shardCount = 1 << shardBits;
+        int expectedPerShard = Math.max(16, (end - start) / shardCount);
+        List<Map<String, V>> shards = new ArrayList<>(shardCount);
+        for (int s = 0; s < shardCount; s++) {
+            shards.add(new HashMap<>(expectedPerShard * 4 / 3 + 1));
+        }
+        int indexedRows = 0;
+        for (int row = start; row < end; row++) {
+            String key = keyOf.apply(row);
+            if (key != null) {
+                shards.get(shardOf(key, shardBits)).merge(key, valueOf.apply(row), merge);
+                indexedRows++;
+            }
+        }
+        return new Partial<>(shards, indexedRows);
+    }
+
+    /**
+     * Shard d'une clé : bits de poids fort d'un hachage multiplicatif, pour ne pas corréler le shard
+     * avec les bits de poids faible utilisés par les buckets des HashMap
+     */
+    private static int shardOf(String key, int shardBits) {
+        return shardBits == 0 ? 0 : (key.hashCode() * 0x9E3779B9) >>> (32 - shardBits);
+    }
+
+    /**
+     * Nombre de lignes indexées (lignes dont la clé n'est pas nulle)
+     */
+    public int getIndexedRowCount() {
+        return indexedRowCount;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        return shards.get(shardOf((String) key, shardBits)).get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && shards.get(shardOf((String) key, shardBits)).containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return shards.stream()
+                    .flatMap(shard -> Collections.unmodifiableMap(shard).entrySet().stream())
+                    .iterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static final class Partial<V> {
+        private final List<Map<String, V>> shards;
+        private final int indexedRows;
+
+        private Partial(List<Map<String, V>> shards, int indexedRows) {
+            this.shards = shards;
+            this.indexedRows = indexedRows;
+        }
+    }
+}
@@ -6,9 +6,36 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 
 public interface AgencySummaryRepository extends JpaRepository<AgencySummaryEntity, Long> {
+    
+    /**
+     * Opérations annulées/rejetées du même jour, agence et service qu'un résumé (alias a)
+     * Utilisée en anti-jointure (NOT EXISTS) par /api/agency-summary/all
+     */
+    String CANCELLED_OPERATIONS_OF_SUMMARY =
+        "SELECT 1 FROM operation o " +
+        "WHERE o.code_proprietaire = a.agency AND o.service <=> a.service " +
+        "AND o.date_operation >= a.date AND o.date_operation < DATE_ADD(a.date, INTERVAL 1 DAY) " +
+        "AND o.statut IN ('Annulée', 'Rejetée') " +
+        "AND o.type_operation IN ('total_paiement', 'total_cashin', 'Compense_client', 'Compense_fournisseur', " +
+        "'ajustement', 'Appro_client', 'Appro_fournisseur', 'nivellement', 'régularisation_solde', " +
+        "'FRAIS_TRANSACTION', 'annulation_bo', 'annulation_partenaire')";
+    
+    @Query(value = "SELECT a.* FROM agency_summary_entity a WHERE NOT EXISTS (" + CANCELLED_OPERATIONS_OF_SUMMARY + ") ORDER BY a.id",
+           nativeQuery = true)
+    List<AgencySummaryEntity> findAllNotCancelled();
+    
+    /**
+     * Résumés des pays autorisés, l'exclusion ne portant que sur les opérations de ces mêmes pays
+     */
+    @Query(value = "SELECT a.* FROM agency_summary_entity a WHERE a.country_code IN (:countryCodes) " +
+                   "AND NOT EXISTS (" + CANCELLED_OPERATIONS_OF_SUMMARY + " AND o.pays IN (:countryCodes)) ORDER BY a.id",
+           nativeQuery = true)
+    List<AgencySummaryEntity> findNotCancelledByCountryCodeIn(@Param("countryCodes") List<String> countryCodes);
+    
     @Query("SELECT a FROM AgencySummaryEntity a WHERE a.date = :date AND a.agency = :agency AND a.service = :service AND a.recordCount = :recordCount AND ABS(a.totalVolume - :totalVolume) < 0.01")
     List<AgencySummaryEntity> findDuplicates(
         @Param("date") String date,
@@ -18,6 +45,17 @@ public interface AgencySummaryRepository extends JpaRepository<AgencySummaryEnti
         @Param("recordCount") int recordCount
     );
     
+    /**
+     * Candidats doublons d'un lot de résumés (détection en mémoire par AgencySummaryBulkService)
+     */
+    @Query("SELECT a FROM AgencySummaryEntity a WHERE a.date IN :dates AND a.agency IN :agencies")
+    List<AgencySummaryEntity> findByDateInAndAgencyIn(
+        @Param("dates") Collection<String> dates,
+        @Param("agencies") Collection<String> agencies
+    );
+    
+    List<AgencySummaryEntity> findByDate(String date);
+    
     @Query("SELECT a FROM AgencySummaryEntity a WHERE a.service = :service AND a.date = :date")
     List<AgencySummaryEntity> findByServiceAndDate(
         @Param("service") String service,
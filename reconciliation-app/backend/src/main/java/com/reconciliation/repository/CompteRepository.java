@@ -14,6 +14,8 @@ import java.util.Optional;
 public interface CompteRepository extends JpaRepository<CompteEntity, Long> {
     
     Optional<CompteEntity> findByNumeroCompte(String numeroCompte);
+
+    List<CompteEntity> findByNumeroCompteIn(Collection<String> numerosCompte);
     
     List<CompteEntity> findByPays(String pays);
     
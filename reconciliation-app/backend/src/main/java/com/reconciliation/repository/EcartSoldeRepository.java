@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -88,4 +89,7 @@ public interface EcartSoldeRepository extends JpaRepository<EcartSoldeEntity, Lo
             @Param("dateFin") LocalDateTime dateFin);
     
     boolean existsByIdTransaction(String idTransaction);
+    
+    @Query("SELECT e.idTransaction FROM EcartSoldeEntity e WHERE e.idTransaction IN :idTransactions")
+    List<String> findExistingIdTransactions(@Param("idTransactions") Collection<String> idTransactions);
 } 
\ No newline at end of file
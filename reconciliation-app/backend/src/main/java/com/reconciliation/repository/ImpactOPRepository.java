@@ -2,11 +2,13 @@ package com.reconciliation.repository;
 
 import com.reconciliation.entity.ImpactOPEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -109,6 +111,34 @@ public interface ImpactOPRepository extends JpaRepository<ImpactOPEntity, Long>
     boolean existsByCodeProprietaireAndNumeroTransGUAndDateOperation(
             String codeProprietaire, String numeroTransGU, LocalDateTime dateOperation);
 
+    /**
+     * Impacts des numéros de transaction GU donnés (détection des doublons d'un lot)
+     */
+    List<ImpactOPEntity> findByNumeroTransGUIn(Collection<String> numerosTransGU);
+
+    /**
+     * IDs existants parmi ceux donnés
+     */
+    @Query("SELECT i.id FROM ImpactOPEntity i WHERE i.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Compter les impacts dont le type d'opération contient TSOP
+     */
+    @Query("SELECT COUNT(i) FROM ImpactOPEntity i WHERE UPPER(i.typeOperation) LIKE '%TSOP%'")
+    long countTsop();
+
+    /**
+     * Commentaire TSOP pour les types d'opération contenant TSOP, IMPACT J+1 pour les autres ;
+     * seules les lignes dont le commentaire change sont mises à jour
+     */
+    @Modifying
+    @Query("UPDATE ImpactOPEntity i SET i.commentaire = " +
+           "CASE WHEN UPPER(i.typeOperation) LIKE '%TSOP%' THEN 'TSOP' ELSE 'IMPACT J+1' END, i.updatedAt = :now " +
+           "WHERE i.commentaire IS NULL OR i.commentaire <> " +
+           "CASE WHEN UPPER(i.typeOperation) LIKE '%TSOP%' THEN 'TSOP' ELSE 'IMPACT J+1' END")
+    int updateCommentairesByTypeOperation(@Param("now") LocalDateTime now);
+
     /**
      * Trouver les impacts OP par code propriétaire et période de dates
      */
@@ -2,6 +2,7 @@ package com.reconciliation.repository;
 
 import com.reconciliation.entity.OperationBancaireEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -49,6 +50,11 @@ public interface OperationBancaireRepository extends JpaRepository<OperationBanc
     @Query("SELECT o FROM OperationBancaireEntity o WHERE o.operationId = :operationId ORDER BY o.dateOperation DESC")
     List<OperationBancaireEntity> findByOperationId(@Param("operationId") Long operationId);
     
+    // Synchroniser le statut des opérations bancaires liées à plusieurs opérations
+    @Modifying
+    @Query("UPDATE OperationBancaireEntity o SET o.statut = :statut WHERE o.operationId IN :operationIds")
+    int updateStatutByOperationIdIn(@Param("operationIds") List<Long> operationIds, @Param("statut") String statut);
+    
     // Filtrer les opérations bancaires avec plusieurs critères
     @Query("SELECT o FROM OperationBancaireEntity o WHERE " +
            "(:pays IS NULL OR o.pays = :pays) AND " +
@@ -2,15 +2,18 @@ package com.reconciliation.repository;
 
 import com.reconciliation.entity.OperationEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OperationRepository extends JpaRepository<OperationEntity, Long> {
+public interface OperationRepository extends JpaRepository<OperationEntity, Long>, OperationRepositoryCustom {
     
     @Query("SELECT o FROM OperationEntity o WHERE o.compte.id = :compteId " +
            "AND o.typeOperation NOT LIKE 'annulation_%' " +
@@ -31,6 +34,10 @@ public interface OperationRepository extends JpaRepository<OperationEntity, Long
     List<OperationEntity> findByDateOperationBetween(@Param("dateDebut") LocalDateTime dateDebut, 
                                                     @Param("dateFin") LocalDateTime dateFin);
     
+    @Query("SELECT o FROM OperationEntity o WHERE o.dateOperation >= :dateDebut AND o.dateOperation < :dateFin")
+    List<OperationEntity> findByDateOperationFrom(@Param("dateDebut") LocalDateTime dateDebut,
+                                                  @Param("dateFin") LocalDateTime dateFin);
+    
     @Query("SELECT o FROM OperationEntity o WHERE o.montant > :montantMin")
     List<OperationEntity> findByMontantSuperieurA(@Param("montantMin") Double montantMin);
     
@@ -158,6 +165,32 @@ public interface OperationRepository extends JpaRepository<OperationEntity, Long
     
     List<OperationEntity> findByCompteIdAndDateOperationAfterOrderByDateOperationAsc(Long compteId, LocalDateTime dateOperation);
 
+    // Soldes chaînés : requêtes servies par l'index (compte_id, date_operation, id)
+    Optional<OperationEntity> findFirstByCompteIdAndDateOperationBeforeOrderByDateOperationDescIdDesc(Long compteId, LocalDateTime dateOperation);
+
+    Optional<OperationEntity> findFirstByCompteIdOrderByDateOperationDescIdDesc(Long compteId);
+
+    // Colonnes nécessaires au recalcul des soldes des opérations postérieures (sans charger les entités)
+    @Query("SELECT o.id, o.typeOperation, o.montant, o.service, o.soldeAvant, o.soldeApres FROM OperationEntity o " +
+           "WHERE o.compte.id = :compteId AND o.dateOperation > :dateOperation " +
+           "ORDER BY o.dateOperation ASC, o.id ASC")
+    List<Object[]> findSoldeChainAfter(@Param("compteId") Long compteId, @Param("dateOperation") LocalDateTime dateOperation);
+
+    @Query("SELECT o.id, o.typeOperation, o.montant, o.service, o.soldeAvant, o.soldeApres, o.dateOperation FROM OperationEntity o " +
+           "WHERE o.compte.id = :compteId AND o.dateOperation >= :dateOperation " +
+           "ORDER BY o.dateOperation ASC, o.id ASC")
+    List<Object[]> findSoldeChainFrom(@Param("compteId") Long compteId, @Param("dateOperation") LocalDateTime dateOperation);
+
+    @Modifying
+    @Query("UPDATE OperationEntity o SET o.statut = :statut WHERE o.id IN :ids")
+    int updateStatutByIdIn(@Param("ids") List<Long> ids, @Param("statut") String statut);
+
+    @Modifying
+    @Query("UPDATE OperationEntity o SET o.soldeAvant = o.soldeAvant + :delta, o.soldeApres = o.soldeApres + :delta " +
+           "WHERE o.compte.id = :compteId AND o.dateOperation > :dateOperation")
+    int shiftSoldesAfter(@Param("compteId") Long compteId, @Param("dateOperation") LocalDateTime dateOperation,
+                         @Param("delta") double delta);
+
     List<OperationEntity> findByCompteIdAndTypeOperationContainingIgnoreCaseOrderByDateOperationDesc(Long compteId, String typeOperation);
     List<OperationEntity> findByCompteIdAndBanqueContainingIgnoreCaseOrderByDateOperationDesc(Long compteId, String banque);
     List<OperationEntity> findByCompteIdAndCodeProprietaireContainingIgnoreCaseOrderByDateOperationDesc(Long compteId, String codeProprietaire);
@@ -344,4 +377,17 @@ public interface OperationRepository extends JpaRepository<OperationEntity, Long
         @Param("service") String service,
         @Param("dateOperation") LocalDateTime dateOperation
     );
+
+    /**
+     * Clés de doublon (compte, type, montant, service, date) des opérations existantes d'un lot d'import
+     */
+    @Query("SELECT o.compte.id, o.typeOperation, o.montant, o.service, o.dateOperation FROM OperationEntity o " +
+           "WHERE o.compte.id IN :compteIds " +
+           "AND o.typeOperation IN :typesOperation " +
+           "AND o.dateOperation IN :datesOperation")
+    List<Object[]> findImportDuplicateKeys(
+        @Param("compteIds") Collection<Long> compteIds,
+        @Param("typesOperation") Collection<String> typesOperation,
+        @Param("datesOperation") Collection<LocalDateTime> datesOperation
+    );
 } 
\ No newline at end of file
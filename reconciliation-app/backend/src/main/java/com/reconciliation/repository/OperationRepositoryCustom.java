@@ -0,0 +1,19 @@
+package com.reconciliation.repository;
+
+import com.reconciliation.dto.OperationSearchCriteria;
+import com.reconciliation.entity.OperationEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Requêtes dynamiques sur les opérations, triées par (dateOperation, id)
+ */
+public interface OperationRepositoryCustom {
+
+    /**
+     * Page d'au plus {@code limit} opérations situées après le curseur (afterDate, afterId) dans l'ordre du tri ;
+     * curseur null pour la première page
+     */
+    List<OperationEntity> findPage(OperationSearchCriteria criteria, LocalDateTime afterDate, Long afterId, int limit);
+}
@@ -0,0 +1,101 @@
+package com.reconciliation.repository;
+
+import com.reconciliation.dto.OperationSearchCriteria;
+import com.reconciliation.entity.OperationEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implémentation de {@link OperationRepositoryCustom} : seuls les filtres renseignés sont ajoutés à la requête,
+ * afin que les index (compte_id, date_operation, id) et (date_operation, id) servent au tri et au curseur.
+ */
+public class OperationRepositoryImpl implements OperationRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OperationEntity> findPage(OperationSearchCriteria criteria, LocalDateTime afterDate, Long afterId, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder();
+        appendWhere(jpql, params, criteria);
+        if (afterDate != null && afterId != null) {
+            String cmp = criteria.isAscending() ? ">" : "<";
+            jpql.append(" AND (o.dateOperation ").append(cmp).append(" :afterDate")
+                .append(" OR (o.dateOperation = :afterDate AND o.id ").append(cmp).append(" :afterId))");
+            params.put("afterDate", afterDate);
+            params.put("afterId", afterId);
+        }
+        appendOrderBy(jpql, criteria);
+
+        TypedQuery<OperationEntity> query = createQuery(jpql, params);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    private TypedQuery<OperationEntity> createQuery(StringBuilder jpql, Map<String, Object> params) {
+        TypedQuery<OperationEntity> query = entityManager.createQuery(jpql.toString(), OperationEntity.class);
+        params.forEach(query::setParameter);
+        return query;
+    }
+
+    private void appendWhere(StringBuilder jpql, Map<String, Object> params, OperationSearchCriteria criteria) {
+        jpql.append("SELECT o FROM OperationEntity o");
+        if (criteria.getNumerosCompte() != null) {
+            jpql.append(" JOIN o.compte c");
+        }
+        jpql.append(" WHERE 1 = 1");
+        if (criteria.getCompteId() != null) {
+            jpql.append(" AND o.compte.id = :compteId");
+            params.put("compteId", criteria.getCompteId());
+        }
+        if (criteria.getNumerosCompte() != null) {
+            jpql.append(" AND c.numeroCompte IN :numerosCompte");
+            params.put("numerosCompte", criteria.getNumerosCompte());
+        }
+        if (criteria.getPaysAutorises() != null) {
+            jpql.append(" AND o.pays IN :paysAutorises");
+            params.put("paysAutorises", criteria.getPaysAutorises());
+        }
+        appendEquals(jpql, params, "typeOperation", criteria.getTypeOperation());
+        appendEquals(jpql, params, "pays", criteria.getPays());
+        appendEquals(jpql, params, "statut", criteria.getStatut());
+        appendEquals(jpql, params, "banque", criteria.getBanque());
+        appendEquals(jpql, params, "codeProprietaire", criteria.getCodeProprietaire());
+        appendEquals(jpql, params, "service", criteria.getService());
+        if (criteria.getNomBordereau() != null) {
+            jpql.append(" AND LOWER(o.nomBordereau) LIKE CONCAT('%', LOWER(:nomBordereau), '%')");
+            params.put("nomBordereau", criteria.getNomBordereau());
+        }
+        if (criteria.getMontantMin() != null) {
+            jpql.append(" AND o.montant > :montantMin");
+            params.put("montantMin", criteria.getMontantMin());
+        }
+        if (criteria.getDateDebut() != null) {
+            jpql.append(" AND o.dateOperation >= :dateDebut");
+            params.put("dateDebut", criteria.getDateDebut());
+        }
+        if (criteria.getDateFin() != null) {
+            jpql.append(" AND o.dateOperation <= :dateFin");
+            params.put("dateFin", criteria.getDateFin());
+        }
+    }
+
+    private void appendEquals(StringBuilder jpql, Map<String, Object> params, String field, String value) {
+        if (value != null) {
+            jpql.append(" AND o.").append(field).append(" = :").append(field);
+            params.put(field, value);
+        }
+    }
+
+    private void appendOrderBy(StringBuilder jpql, OperationSearchCriteria criteria) {
+        String direction = criteria.isAscending() ? "ASC" : "DESC";
+        jpql.append(" ORDER BY o.dateOperation ").append(direction).append(", o.id ").append(direction);
+    }
+}
@@ -3,5 +3,8 @@ package com.reconciliation.repository;
 import com.reconciliation.entity.ProfilPermissionEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface ProfilPermissionRepository extends JpaRepository<ProfilPermissionEntity, Long> {
+    List<ProfilPermissionEntity> findByProfilId(Long profilId);
 } 
\ No newline at end of file
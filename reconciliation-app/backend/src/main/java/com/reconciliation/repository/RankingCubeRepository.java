@@ -0,0 +1,71 @@
+package com.reconciliation.repository;
+
+import com.reconciliation.entity.RankingCubeEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Requêtes d'agrégation sur le cube des classements.
+ * Filtres optionnels : dates nulles = toute la période (jours inconnus inclus), pays null = tous les pays.
+ */
+@Repository
+public interface RankingCubeRepository extends JpaRepository<RankingCubeEntity, Long> {
+
+    /**
+     * Totaux par agence et par jour : [agence, jour, nb résumés, nb transactions, volume, nb opérations, frais]
+     */
+    @Query("SELECT c.agency, c.bucketDate, SUM(c.summaryCount), SUM(c.transactionCount), SUM(c.totalVolume), " +
+           "SUM(c.operationCount), SUM(c.totalFees) FROM RankingCubeEntity c " +
+           "WHERE (:startDate IS NULL OR c.bucketDate >= :startDate) AND (:endDate IS NULL OR c.bucketDate <= :endDate) " +
+           "AND (:countries IS NULL OR c.country IN :countries) " +
+           "GROUP BY c.agency, c.bucketDate")
+    List<Object[]> sumByAgencyAndDay(@Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate,
+                                     @Param("countries") List<String> countries);
+
+    /**
+     * Totaux par service et par jour : [service, jour, nb résumés, nb transactions, volume, nb opérations, frais]
+     */
+    @Query("SELECT c.service, c.bucketDate, SUM(c.summaryCount), SUM(c.transactionCount), SUM(c.totalVolume), " +
+           "SUM(c.operationCount), SUM(c.totalFees) FROM RankingCubeEntity c " +
+           "WHERE (:startDate IS NULL OR c.bucketDate >= :startDate) AND (:endDate IS NULL OR c.bucketDate <= :endDate) " +
+           "AND (:countries IS NULL OR c.country IN :countries) " +
+           "GROUP BY c.service, c.bucketDate")
+    List<Object[]> sumByServiceAndDay(@Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate,
+                                      @Param("countries") List<String> countries);
+
+    /**
+     * Pays des résumés de chaque agence : [agence, pays]
+     */
+    @Query("SELECT DISTINCT c.agency, c.country FROM RankingCubeEntity c WHERE c.summaryCount > 0 " +
+           "AND (:startDate IS NULL OR c.bucketDate >= :startDate) AND (:endDate IS NULL OR c.bucketDate <= :endDate) " +
+           "AND (:countries IS NULL OR c.country IN :countries)")
+    List<Object[]> findAgencyCountries(@Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate,
+                                       @Param("countries") List<String> countries);
+
+    /**
+     * Pays et agences des résumés de chaque service : [service, pays, agence]
+     */
+    @Query("SELECT DISTINCT c.service, c.country, c.agency FROM RankingCubeEntity c WHERE c.summaryCount > 0 " +
+           "AND (:startDate IS NULL OR c.bucketDate >= :startDate) AND (:endDate IS NULL OR c.bucketDate <= :endDate) " +
+           "AND (:countries IS NULL OR c.country IN :countries)")
+    List<Object[]> findServiceCountriesAndAgencies(@Param("startDate") LocalDate startDate,
+                                                   @Param("endDate") LocalDate endDate,
+                                                   @Param("countries") List<String> countries);
+
+    @Modifying
+    @Query("DELETE FROM RankingCubeEntity c WHERE c.bucketDate IN :days")
+    int deleteByBucketDateIn(@Param("days") List<LocalDate> days);
+
+    @Modifying
+    @Query("DELETE FROM RankingCubeEntity c")
+    int deleteAllCells();
+}
@@ -1,11 +1,15 @@
 package com.reconciliation.repository;
 
 import com.reconciliation.entity.ReconciliationJob;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +18,13 @@ public interface ReconciliationJobRepository extends JpaRepository<Reconciliatio
     
     Optional<ReconciliationJob> findByJobId(String jobId);
     
+    /**
+     * Job verrouillé jusqu'à la fin de la transaction (les transitions concurrentes attendent)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM ReconciliationJob j WHERE j.jobId = :jobId")
+    Optional<ReconciliationJob> findByJobIdForUpdate(@Param("jobId") String jobId);
+    
     List<ReconciliationJob> findByStatus(ReconciliationJob.JobStatus status);
     
     List<ReconciliationJob> findByClientId(String clientId);
@@ -26,4 +37,15 @@ public interface ReconciliationJobRepository extends JpaRepository<Reconciliatio
     
     @Query("SELECT j FROM ReconciliationJob j WHERE j.status IN ('PENDING', 'PREPARING', 'PROCESSING') ORDER BY j.createdAt ASC")
     List<ReconciliationJob> findActiveJobs();
+    
+    /**
+     * Change le statut d'un job uniquement s'il est dans l'un des statuts attendus (transition atomique)
+     * @return 1 si la transition a eu lieu, 0 sinon
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ReconciliationJob j SET j.status = :to, j.updatedAt = :now WHERE j.jobId = :jobId AND j.status IN :from")
+    int transitionStatus(@Param("jobId") String jobId,
+                         @Param("from") Collection<ReconciliationJob.JobStatus> from,
+                         @Param("to") ReconciliationJob.JobStatus to,
+                         @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,25 @@
+package com.reconciliation.repository;
+
+import com.reconciliation.entity.ReconciliationJobResultChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface ReconciliationJobResultChunkRepository extends JpaRepository<ReconciliationJobResultChunk, Long> {
+    
+    List<ReconciliationJobResultChunk> findByJobIdAndCategoryAndChunkIndexBetweenOrderByChunkIndexAsc(
+            String jobId, ReconciliationJobResultChunk.ResultCategory category, Integer fromIndex, Integer toIndex);
+    
+    List<ReconciliationJobResultChunk> findByJobIdAndCategoryOrderByChunkIndexAsc(
+            String jobId, ReconciliationJobResultChunk.ResultCategory category);
+    
+    boolean existsByJobId(String jobId);
+    
+    @Modifying
+    @Query("DELETE FROM ReconciliationJobResultChunk c WHERE c.jobId = :jobId")
+    int deleteByJobId(@Param("jobId") String jobId);
+}
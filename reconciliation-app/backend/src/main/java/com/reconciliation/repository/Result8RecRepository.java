@@ -16,6 +16,11 @@ public interface Result8RecRepository extends JpaRepository<Result8RecEntity, Lo
 
     @Query("SELECT r FROM Result8RecEntity r WHERE LOWER(r.country) IN :countries")
     List<Result8RecEntity> findByCountryCodes(@Param("countries") List<String> countries);
+
+    /**
+     * Cloisonnement : enregistrements des pays autorisés (colonne country_code indexée)
+     */
+    List<Result8RecEntity> findByCountryCodeInOrderByIdAsc(List<String> countryCodes);
 }
 
 
@@ -6,8 +6,10 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -67,6 +69,20 @@ public interface TrxSfRepository extends JpaRepository<TrxSfEntity, Long> {
     @Query("SELECT t FROM TrxSfEntity t WHERE t.agence = :agence AND t.numeroTransGu = :numeroTransGu")
     List<TrxSfEntity> findByAgenceAndNumeroTransGu(@Param("agence") String agence, @Param("numeroTransGu") String numeroTransGu);
     
+    /**
+     * Transactions (id, agence, numéro Trans GU, statut) des agences et numéros Trans GU donnés ;
+     * les couples exacts sont filtrés par l'appelant
+     */
+    @Query("SELECT t.id, t.agence, t.numeroTransGu, t.statut FROM TrxSfEntity t " +
+           "WHERE t.agence IN :agences AND t.numeroTransGu IN :numerosTransGu")
+    List<Object[]> findStatutsByAgenceInAndNumeroTransGuIn(@Param("agences") Collection<String> agences,
+                                                          @Param("numerosTransGu") Collection<String> numerosTransGu);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE TrxSfEntity t SET t.statut = :statut WHERE t.id IN :ids")
+    int updateStatutByIdIn(@Param("ids") Collection<Long> ids, @Param("statut") String statut);
+    
     @Query("SELECT t FROM TrxSfEntity t ORDER BY t.dateTransaction DESC")
     List<TrxSfEntity> findAllOrderByDateTransactionDesc();
     
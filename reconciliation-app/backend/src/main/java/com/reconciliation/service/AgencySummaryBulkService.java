@@ -0,0 +1,152 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.AgencySummaryEntity;
+import com.reconciliation.entity.RankingCubeListener;
+import com.reconciliation.model.AgencySummary;
+import com.reconciliation.repository.AgencySummaryRepository;
+import com.reconciliation.util.CountryCodeUtil;
+import com.reconciliation.util.JdbcBatchInserts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Enregistrement en masse des résumés d'agence (agency_summary_entity).
+ *
+ * Les doublons d'un lot sont recherchés en une seule requête (dates et agences du lot) puis détectés en mémoire ;
+ * les résumés retenus sont insérés par lots JDBC, avec un résultat par ligne ({@link JdbcBatchInserts}).
+ */
+@Service
+public class AgencySummaryBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgencySummaryBulkService.class);
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String INSERT_SQL =
+        "INSERT INTO agency_summary_entity (agency, service, country, country_code, date, total_volume, record_count, timestamp) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private AgencySummaryRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Résumés existants pouvant être des doublons des résumés du lot (mêmes dates et agences)
+     */
+    public DuplicateIndex loadDuplicateIndex(Collection<AgencySummary> summaries) {
+        Set<String> dates = new LinkedHashSet<>();
+        Set<String> agencies = new LinkedHashSet<>();
+        for (AgencySummary summary : summaries) {
+            if (summary.getDate() != null && summary.getAgency() != null && summary.getService() != null) {
+                dates.add(summary.getDate());
+                agencies.add(summary.getAgency());
+            }
+        }
+        if (dates.isEmpty()) {
+            return new DuplicateIndex(new ArrayList<>());
+        }
+        return new DuplicateIndex(repository.findByDateInAndAgencyIn(dates, agencies));
+    }
+
+    /**
+     * Insère les résumés par lots JDBC
+     * @return pour chaque résumé (même ordre), null si inséré, sinon le message d'erreur
+     */
+    public List<String> insertAll(List<AgencySummaryEntity> entities) {
+        List<String> errors = new ArrayList<>(entities.size());
+        Set<String> days = new LinkedHashSet<>();
+        for (int start = 0; start < entities.size(); start += INSERT_BATCH_SIZE) {
+            List<AgencySummaryEntity> chunk = entities.subList(start, Math.min(start + INSERT_BATCH_SIZE, entities.size()));
+            List<Object[]> rows = new ArrayList<>(chunk.size());
+            for (AgencySummaryEntity entity : chunk) {
+                rows.add(new Object[]{
+                    entity.getAgency(), entity.getService(), entity.getCountry(), CountryCodeUtil.toCountryCode(entity.getCountry()),
+                    entity.getDate(), entity.getTotalVolume(), entity.getRecordCount(), entity.getTimestamp()
+                });
+            }
+            List<String> chunkErrors = JdbcBatchInserts.insert(jdbcTemplate, INSERT_SQL, rows);
+            int failed = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                String error = chunkErrors.get(i);
+                errors.add(error);
+                if (error == null) {
+                    days.add(chunk.get(i).getDate());
+                } else {
+                    failed++;
+                }
+            }
+            if (failed > 0) {
+                logger.error("❌ {} résumé(s) d'agence non inséré(s) sur un lot de {}", failed, chunk.size());
+            }
+        }
+        // Les insertions JDBC ne passent pas par le listener JPA du cube des classements
+        for (String day : days) {
+            RankingCubeListener.markDirty(RankingCubeListener.parseDay(day));
+        }
+        return errors;
+    }
+
+    /**
+     * Résumés existants indexés par (date, agence, service), comparés sans tenir compte de la casse
+     * comme la collation de la base ; même critère que {@link AgencySummaryRepository#findDuplicates}
+     */
+    public static final class DuplicateIndex {
+        private final Map<List<String>, List<AgencySummaryEntity>> byKey = new HashMap<>();
+
+        public DuplicateIndex(List<AgencySummaryEntity> existing) {
+            for (AgencySummaryEntity entity : existing) {
+                add(entity);
+            }
+        }
+
+        /**
+         * Ajoute un résumé (ex: résumé du lot déjà retenu)
+         */
+        public void add(AgencySummaryEntity entity) {
+            List<String> key = key(entity.getDate(), entity.getAgency(), entity.getService());
+            if (key != null) {
+                byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(entity);
+            }
+        }
+
+        /**
+         * Résumés de même date, agence, service et nombre de transactions, au volume égal à 0,01 près
+         */
+        public List<AgencySummaryEntity> findDuplicates(String date, String agency, String service,
+                                                        double totalVolume, int recordCount) {
+            List<AgencySummaryEntity> duplicates = new ArrayList<>();
+            List<String> key = key(date, agency, service);
+            List<AgencySummaryEntity> candidates = key != null ? byKey.get(key) : null;
+            if (candidates != null) {
+                for (AgencySummaryEntity candidate : candidates) {
+                    if (candidate.getRecordCount() == recordCount && Math.abs(candidate.getTotalVolume() - totalVolume) < 0.01) {
+                        duplicates.add(candidate);
+                    }
+                }
+            }
+            return duplicates;
+        }
+
+        private static List<String> key(String date, String agency, String service) {
+            if (date == null || agency == null || service == null) {
+                // NULL ne correspond à rien en SQL
+                return null;
+            }
+            return Arrays.asList(date.toLowerCase(Locale.ROOT), agency.toLowerCase(Locale.ROOT), service.toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.reconciliation.service;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instantané immuable des droits d'un utilisateur : compte, profil, pays autorisés et permissions par module
+ * (un BitSet d'identifiants de permission par identifiant de module).
+ */
+public final class AuthorizationSnapshot {
+
+    private final long version;
+    private final String username;
+    private final String password;
+    private final boolean found;
+    private final Long profilId;
+    private final boolean profilAdministrateur;
+    private final List<String> allowedPaysCodes;
+    private final Map<Long, BitSet> permissionsByModule;
+
+    AuthorizationSnapshot(long version, String username, String password, boolean found, Long profilId,
+                          boolean profilAdministrateur, List<String> allowedPaysCodes, Map<Long, BitSet> permissionsByModule) {
+        this.version = version;
+        this.username = username;
+        this.password = password;
+        this.found = found;
+        this.profilId = profilId;
+        this.profilAdministrateur = profilAdministrateur;
+        this.allowedPaysCodes = allowedPaysCodes != null ? Collections.unmodifiableList(allowedPaysCodes) : null;
+        this.permissionsByModule = Collections.unmodifiableMap(permissionsByModule);
+    }
+
+    /**
+     * Instantané d'un utilisateur inexistant (mis en cache pour éviter de relire la base)
+     */
+    static AuthorizationSnapshot notFound(long version, String username) {
+        return new AuthorizationSnapshot(version, username, null, false, null, false, List.of(), Collections.emptyMap());
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public Long getProfilId() {
+        return profilId;
+    }
+
+    /**
+     * Profil ADMIN ou ADMINISTRATEUR (tous les droits, tous les pays)
+     */
+    public boolean isProfilAdministrateur() {
+        return profilAdministrateur;
+    }
+
+    /**
+     * Codes pays autorisés : null = tous les pays (GNL ou administrateur), liste vide = aucun
+     */
+    public List<String> getAllowedPaysCodes() {
+        return allowedPaysCodes;
+    }
+
+    public boolean hasPermission(Long moduleId, Long permissionId) {
+        BitSet permissions = permissionsByModule.get(moduleId);
+        return permissions != null && permissionId <= Integer.MAX_VALUE && permissions.get(permissionId.intValue());
+    }
+}
@@ -0,0 +1,212 @@
+package com.reconciliation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reconciliation.entity.AuthorizationChangeListener;
+import com.reconciliation.entity.ModuleEntity;
+import com.reconciliation.entity.PermissionEntity;
+import com.reconciliation.entity.ProfilPaysEntity;
+import com.reconciliation.entity.ProfilPermissionEntity;
+import com.reconciliation.entity.UserEntity;
+import com.reconciliation.repository.ModuleRepository;
+import com.reconciliation.repository.PermissionRepository;
+import com.reconciliation.repository.ProfilPaysRepository;
+import com.reconciliation.repository.ProfilPermissionRepository;
+import com.reconciliation.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache borné des instantanés d'autorisation par utilisateur.
+ *
+ * Un instantané est valable tant que la version des données d'autorisation n'a pas changé
+ * (voir {@link AuthorizationChangeListener}) : une requête authentifiée ne lit alors plus la base
+ * pour l'authentification, les pays autorisés ni les permissions.
+ */
+@Service
+public class AuthorizationSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorizationSnapshotService.class);
+
+    private final UserRepository userRepository;
+    private final ProfilPaysRepository profilPaysRepository;
+    private final ProfilPermissionRepository profilPermissionRepository;
+    private final ModuleRepository moduleRepository;
+    private final PermissionRepository permissionRepository;
+
+    private final Cache<String, AuthorizationSnapshot> snapshots;
+    private volatile Catalog catalog;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public AuthorizationSnapshotService(UserRepository userRepository,
+                                        ProfilPaysRepository profilPaysRepository,
+                                        ProfilPermissionRepository profilPermissionRepository,
+                                        ModuleRepository moduleRepository,
+                                        PermissionRepository permissionRepository,
+                                        @Value("${auth.snapshot-cache.max-size:1000}") long maxSize,
+                                        @Value("${auth.snapshot-cache.expire-minutes:30}") long expireMinutes) {
+        this.userRepository = userRepository;
+        this.profilPaysRepository = profilPaysRepository;
+        this.profilPermissionRepository = profilPermissionRepository;
+        this.moduleRepository = moduleRepository;
+        this.permissionRepository = permissionRepository;
+        this.snapshots = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Instantané d'autorisation d'un utilisateur (chargé depuis la base si absent ou périmé)
+     */
+    public AuthorizationSnapshot getSnapshot(String username) {
+        long version = AuthorizationChangeListener.currentVersion();
+        if (username == null) {
+            return AuthorizationSnapshot.notFound(version, null);
+        }
+        AuthorizationSnapshot snapshot = snapshots.getIfPresent(username);
+        if (snapshot != null && snapshot.getVersion() == version) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+        misses.incrementAndGet();
+        snapshot = load(username, version);
+        snapshots.put(username, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Vérifie une permission (nom de module, nom de permission) pour le profil de l'instantané
+     */
+    public boolean hasPermission(AuthorizationSnapshot snapshot, String moduleName, String permissionName) {
+        Catalog current = getCatalog();
+        Long moduleId = current.moduleIds.get(moduleName);
+        Long permissionId = current.permissionIds.get(permissionName);
+        return moduleId != null && permissionId != null && snapshot.hasPermission(moduleId, permissionId);
+    }
+
+    /**
+     * Vide le cache (ex: modification hors entités JPA)
+     */
+    public void invalidateAll() {
+        AuthorizationChangeListener.markChanged();
+        snapshots.invalidateAll();
+    }
+
+    /**
+     * Compteurs du cache des instantanés d'autorisation
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("size", snapshots.estimatedSize());
+        stats.put("evictions", snapshots.stats().evictionCount());
+        stats.put("version", AuthorizationChangeListener.currentVersion());
+        return stats;
+    }
+
+    private AuthorizationSnapshot load(String username, long version) {
+        UserEntity user = userRepository.findByUsername(username).orElse(null);
+        if (user == null) {
+            logger.debug("⚠️ Utilisateur non trouvé: {}", username);
+            return AuthorizationSnapshot.notFound(version, username);
+        }
+
+        Long profilId = user.getProfil() != null ? user.getProfil().getId() : null;
+        boolean profilAdministrateur = false;
+        if (user.getProfil() != null && user.getProfil().getNom() != null) {
+            String profilNom = user.getProfil().getNom().toUpperCase();
+            profilAdministrateur = profilNom.equals("ADMIN") || profilNom.equals("ADMINISTRATEUR");
+        }
+
+        Map<Long, BitSet> permissionsByModule = new HashMap<>();
+        if (profilId != null) {
+            for (ProfilPermissionEntity pp : profilPermissionRepository.findByProfilId(profilId)) {
+                if (pp.getModule() != null && pp.getModule().getId() != null
+                        && pp.getPermission() != null && pp.getPermission().getId() != null
+                        && pp.getPermission().getId() <= Integer.MAX_VALUE) {
+                    permissionsByModule.computeIfAbsent(pp.getModule().getId(), id -> new BitSet())
+                        .set(pp.getPermission().getId().intValue());
+                }
+            }
+        }
+
+        List<String> allowedPaysCodes = profilAdministrateur ? null : loadAllowedPaysCodes(profilId);
+        logger.info("🔐 Droits chargés pour {}: profil={}, pays={}, modules={}",
+            username, profilId, allowedPaysCodes == null ? "tous" : allowedPaysCodes, permissionsByModule.size());
+        return new AuthorizationSnapshot(version, user.getUsername(), user.getPassword(), true, profilId,
+            profilAdministrateur, allowedPaysCodes, permissionsByModule);
+    }
+
+    /**
+     * Codes pays du profil : null si GNL (tous les pays), liste vide si aucun pays ou pas de profil
+     */
+    private List<String> loadAllowedPaysCodes(Long profilId) {
+        if (profilId == null) {
+            return new ArrayList<>();
+        }
+        List<ProfilPaysEntity> profilPays = profilPaysRepository.findByProfilId(profilId);
+        List<String> codes = new ArrayList<>();
+        for (ProfilPaysEntity pp : profilPays) {
+            if (pp == null || pp.getPays() == null || pp.getPays().getCode() == null) {
+                continue;
+            }
+            if ("GNL".equals(pp.getPays().getCode())) {
+                return null;
+            }
+            codes.add(pp.getPays().getCode());
+        }
+        return codes;
+    }
+
+    private Catalog getCatalog() {
+        long version = AuthorizationChangeListener.currentVersion();
+        Catalog current = catalog;
+        if (current == null || current.version != version) {
+            current = new Catalog(version, moduleRepository.findAll(), permissionRepository.findAll());
+            catalog = current;
+        }
+        return current;
+    }
+
+    /**
+     * Identifiants des modules et des permissions par nom
+     */
+    private static final class Catalog {
+        private final long version;
+        private final Map<String, Long> moduleIds = new HashMap<>();
+        private final Map<String, Long> permissionIds = new HashMap<>();
+
+        private Catalog(long version, List<ModuleEntity> modules, List<PermissionEntity> permissions) {
+            this.version = version;
+            for (ModuleEntity module : modules) {
+                if (module.getNom() != null && module.getId() != null) {
+                    moduleIds.putIfAbsent(module.getNom(), module.getId());
+                }
+            }
+            for (PermissionEntity permission : permissions) {
+                if (permission.getNom() != null && permission.getId() != null) {
+                    permissionIds.putIfAbsent(permission.getNom(), permission.getId());
+                }
+            }
+        }
+    }
+}
@@ -87,7 +87,7 @@ public class AutoProcessingService {
     }
 
     @Transactional
-    @CacheEvict(value = "autoProcessingModels", allEntries = true)
+    @CacheEvict(value = {"autoProcessingModels", "compiledColumnRules"}, allEntries = true)
     public AutoProcessingModel createModel(AutoProcessingModel model) {
         // Normaliser le modèle avant la sauvegarde
         model = modelNormalizationService.normalizeModel(model);
@@ -109,7 +109,7 @@ public class AutoProcessingService {
     }
 
     @Transactional
-    @CacheEvict(value = "autoProcessingModels", allEntries = true)
+    @CacheEvict(value = {"autoProcessingModels", "compiledColumnRules"}, allEntries = true)
     public AutoProcessingModel updateModel(String id, AutoProcessingModel model) {
         Optional<AutoProcessingModel> existingModel = autoProcessingModelRepository.findByModelId(id);
         if (existingModel.isPresent()) {
@@ -141,7 +141,7 @@ public class AutoProcessingService {
     }
 
     @Transactional
-    @CacheEvict(value = "autoProcessingModels", allEntries = true)
+    @CacheEvict(value = {"autoProcessingModels", "compiledColumnRules"}, allEntries = true)
     public AutoProcessingModel updateModelById(Long id, AutoProcessingModel model) {
         Optional<AutoProcessingModel> existingModel = autoProcessingModelRepository.findById(id);
         if (existingModel.isPresent()) {
@@ -173,7 +173,7 @@ public class AutoProcessingService {
     }
 
     @Transactional
-    @CacheEvict(value = "autoProcessingModels", allEntries = true)
+    @CacheEvict(value = {"autoProcessingModels", "compiledColumnRules"}, allEntries = true)
     public boolean deleteModel(String id) {
         try {
             System.out.println("🔍 [DEBUG] AutoProcessingService.deleteModel() appelé avec ID: " + id);
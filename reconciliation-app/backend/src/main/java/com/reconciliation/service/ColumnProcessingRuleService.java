@@ -5,6 +5,8 @@ import com.reconciliation.entity.AutoProcessingModel;
 import com.reconciliation.repository.ColumnProcessingRuleRepository;
 import com.reconciliation.repository.AutoProcessingModelRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,7 +30,16 @@ public class ColumnProcessingRuleService {
         return columnProcessingRuleRepository.findByAutoProcessingModelIdOrderByRuleOrderAsc(modelId);
     }
 
+    /**
+     * Règles du modèle précompilées, mises en cache jusqu'à la prochaine modification des règles ou des modèles
+     */
+    @Cacheable(value = "compiledColumnRules", key = "#modelId")
+    public List<CompiledColumnRule> getCompiledRulesByModelId(String modelId) {
+        return CompiledColumnRule.compile(getRulesByModelId(modelId));
+    }
+
     @Transactional
+    @CacheEvict(value = "compiledColumnRules", allEntries = true)
     public ColumnProcessingRule createRule(ColumnProcessingRule rule, String modelId) {
         Optional<AutoProcessingModel> modelOpt = autoProcessingModelRepository.findByModelId(modelId);
         if (modelOpt.isPresent()) {
@@ -47,6 +58,7 @@ public class ColumnProcessingRuleService {
     }
 
     @Transactional
+    @CacheEvict(value = "compiledColumnRules", allEntries = true)
     public ColumnProcessingRule updateRule(Long ruleId, ColumnProcessingRule updatedRule) {
         Optional<ColumnProcessingRule> existingRuleOpt = columnProcessingRuleRepository.findById(ruleId);
         if (existingRuleOpt.isPresent()) {
@@ -71,6 +83,7 @@ public class ColumnProcessingRuleService {
     }
 
     @Transactional
+    @CacheEvict(value = "compiledColumnRules", allEntries = true)
     public boolean deleteRule(Long ruleId) {
         Optional<ColumnProcessingRule> ruleOpt = columnProcessingRuleRepository.findById(ruleId);
         if (ruleOpt.isPresent()) {
@@ -81,6 +94,7 @@ public class ColumnProcessingRuleService {
     }
 
     @Transactional
+    @CacheEvict(value = "compiledColumnRules", allEntries = true)
     public void deleteRulesByModelId(String modelId) {
         try {
             System.out.println("🔍 [DEBUG] ColumnProcessingRuleService.deleteRulesByModelId() appelé avec modelId: " + modelId);
@@ -104,11 +118,13 @@ public class ColumnProcessingRuleService {
     }
 
     @Transactional
+    @CacheEvict(value = "compiledColumnRules", allEntries = true)
     public void deleteRulesByModelId(Long modelId) {
         columnProcessingRuleRepository.deleteByAutoProcessingModelId(modelId);
     }
 
     @Transactional
+    @CacheEvict(value = "compiledColumnRules", allEntries = true)
     public List<ColumnProcessingRule> saveRulesForModel(String modelId, List<ColumnProcessingRule> rules) {
         // Supprimer les règles existantes
         deleteRulesByModelId(modelId);
@@ -1,14 +1,24 @@
 package com.reconciliation.service;
 
 import com.reconciliation.entity.ColumnProcessingRule;
+import com.reconciliation.model.RecordTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 @Service
 public class ColumnProcessingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ColumnProcessingService.class);
+
+    /** Taille des lots de lignes traités en parallèle */
+    private static final int PARALLEL_CHUNK_SIZE = 10000;
+
     @Autowired
     private ColumnProcessingRuleService columnProcessingRuleService;
 
@@ -19,50 +29,34 @@ public class ColumnProcessingService {
      * @return La ligne de données traitée
      */
     public Map<String, Object> processDataRow(String modelId, Map<String, Object> data) {
-        List<ColumnProcessingRule> rules = columnProcessingRuleService.getRulesByModelId(modelId);
+        List<CompiledColumnRule> rules = columnProcessingRuleService.getCompiledRulesByModelId(modelId);
         
-        // Log pour debug
         if (!rules.isEmpty()) {
-            System.out.println("🔧 [PROCESS] Application de " + rules.size() + " règle(s) pour le modèle: " + modelId);
-            System.out.println("  📋 Colonnes disponibles dans les données: " + String.join(", ", data.keySet()));
-            rules.forEach(rule -> {
-                System.out.println("  - Règle pour colonne: \"" + rule.getSourceColumn() + "\"" + 
-                                 ", stringToRemove: " + (rule.getStringToRemove() != null ? "\"" + rule.getStringToRemove() + "\"" : "null") +
-                                 ", removeSpecialChars: " + rule.isRemoveSpecialChars());
-            });
+            logger.debug("🔧 [PROCESS] Application de {} règle(s) pour le modèle: {} - colonnes: {}",
+                rules.size(), modelId, data.keySet());
         }
         
         Map<String, Object> processedData = new HashMap<>(data);
         
-        for (ColumnProcessingRule rule : rules) {
-            String sourceColumn = rule.getSourceColumn();
-            String targetColumn = rule.getTargetColumn();
-            
+        for (CompiledColumnRule rule : rules) {
             // Recherche flexible de la colonne avec normalisation
-            String actualColumnKey = findColumnKey(processedData, sourceColumn);
+            String actualColumnKey = findColumnKey(processedData, rule.getSourceColumn());
             
             if (actualColumnKey != null) {
                 Object value = processedData.get(actualColumnKey);
                 String originalValueStr = value != null ? value.toString() : null;
-                
-                Object processedValue = applyRule(value, rule);
-                String processedValueStr = processedValue != null ? processedValue.toString() : null;
+                String processedValueStr = rule.apply(originalValueStr);
                 
                 // Si targetColumn est vide ou null, mettre à jour la valeur dans sourceColumn
                 // Sinon, créer une nouvelle colonne targetColumn avec la valeur traitée
-                if (targetColumn == null || targetColumn.trim().isEmpty()) {
-                    processedData.put(actualColumnKey, processedValue);
-                    if (originalValueStr != null && !originalValueStr.equals(processedValueStr)) {
-                        System.out.println("✅ [PROCESS] Colonne \"" + actualColumnKey + "\": \"" + originalValueStr + "\" -> \"" + processedValueStr + "\"");
-                    }
-                } else {
-                    processedData.put(targetColumn, processedValue);
-                    if (originalValueStr != null && !originalValueStr.equals(processedValueStr)) {
-                        System.out.println("✅ [PROCESS] Colonne \"" + actualColumnKey + "\" -> \"" + targetColumn + "\": \"" + originalValueStr + "\" -> \"" + processedValueStr + "\"");
-                    }
+                String targetColumn = rule.getTargetColumn() != null ? rule.getTargetColumn() : actualColumnKey;
+                processedData.put(targetColumn, processedValueStr);
+                if (originalValueStr != null && !originalValueStr.equals(processedValueStr)) {
+                    logger.debug("✅ [PROCESS] Colonne \"{}\" -> \"{}\": \"{}\" -> \"{}\"",
+                        actualColumnKey, targetColumn, originalValueStr, processedValueStr);
                 }
             } else {
-                System.out.println("⚠️ [PROCESS] Colonne \"" + sourceColumn + "\" non trouvée dans les données");
+                logger.debug("⚠️ [PROCESS] Colonne \"{}\" non trouvée dans les données", rule.getSourceColumn());
             }
         }
         
@@ -74,8 +68,12 @@ public class ColumnProcessingService {
      * Gère les problèmes d'encodage et les différences de casse
      */
     private String findColumnKey(Map<String, Object> data, String sourceColumn) {
+        return findColumnKey(data.keySet(), sourceColumn);
+    }
+    
+    private String findColumnKey(Collection<String> columns, String sourceColumn) {
         // Recherche exacte d'abord
-        if (data.containsKey(sourceColumn)) {
+        if (columns.contains(sourceColumn)) {
             return sourceColumn;
         }
         
@@ -83,18 +81,18 @@ public class ColumnProcessingService {
         String normalizedSource = normalizeColumnName(sourceColumn);
         
         // Recherche avec normalisation
-        for (String key : data.keySet()) {
+        for (String key : columns) {
             String normalizedKey = normalizeColumnName(key);
             if (normalizedSource.equalsIgnoreCase(normalizedKey)) {
-                System.out.println("🔍 [PROCESS] Colonne trouvée avec normalisation: \"" + sourceColumn + "\" -> \"" + key + "\"");
+                logger.debug("🔍 [PROCESS] Colonne trouvée avec normalisation: \"{}\" -> \"{}\"", sourceColumn, key);
                 return key;
             }
         }
         
         // Recherche partielle (contient)
-        for (String key : data.keySet()) {
+        for (String key : columns) {
             if (key.contains(normalizedSource) || normalizedSource.contains(key)) {
-                System.out.println("🔍 [PROCESS] Colonne trouvée avec recherche partielle: \"" + sourceColumn + "\" -> \"" + key + "\"");
+                logger.debug("🔍 [PROCESS] Colonne trouvée avec recherche partielle: \"{}\" -> \"{}\"", sourceColumn, key);
                 return key;
             }
         }
@@ -128,213 +126,198 @@ public class ColumnProcessingService {
 
     /**
      * Applique les règles de traitement des colonnes à une liste de lignes de données
+     * Les règles compilées sont chargées une seule fois (cache) et les colonnes résolues sur l'en-tête de la
+     * première ligne ; les lignes sont traitées par lots en parallèle, dans l'ordre d'origine
      * @param modelId L'ID du modèle de traitement
      * @param dataList La liste des lignes de données à traiter
      * @return La liste des lignes de données traitées
      */
     public List<Map<String, Object>> processDataList(String modelId, List<Map<String, Object>> dataList) {
-        List<Map<String, Object>> processedDataList = new ArrayList<>();
-        
-        for (Map<String, Object> dataRow : dataList) {
-            Map<String, Object> processedRow = processDataRow(modelId, dataRow);
-            processedDataList.add(processedRow);
+        List<CompiledColumnRule> rules = columnProcessingRuleService.getCompiledRulesByModelId(modelId);
+        if (dataList.isEmpty()) {
+            return new ArrayList<>();
         }
         
-        return processedDataList;
-    }
-
-    /**
-     * Applique une règle de traitement à une valeur
-     * @param value La valeur à traiter
-     * @param rule La règle à appliquer
-     * @return La valeur traitée
-     */
-    private Object applyRule(Object value, ColumnProcessingRule rule) {
-        if (value == null) {
-            return null;
-        }
-        
-        String stringValue = value.toString();
-        
-        // Appliquer les transformations dans l'ordre optimal pour garantir une suppression correcte des caractères
-        // 1. Format type (nettoyage initial basé sur le type)
-        stringValue = applyFormatType(stringValue, rule.getFormatType());
-        
-        // 2. Suppression des accents AVANT la suppression des caractères spéciaux
-        //    (pour normaliser les caractères accentués avant qu'ils ne soient supprimés)
-        stringValue = applyAccentRemoval(stringValue, rule);
-        
-        // 3. Suppression de chaînes spécifiques (ex: -ENV_BET, _CM, _ML, etc.)
-        //    IMPORTANT: Doit être appliqué AVANT removeSpecialChars pour éviter que les caractères spéciaux
-        //    (comme le tiret dans "-ENV_BET") ne soient supprimés avant la recherche
-        stringValue = applyStringRemoval(stringValue, rule);
-        
-        // 4. Suppression des caractères spéciaux (après suppression des chaînes spécifiques)
-        stringValue = applySpecialCharTransformations(stringValue, rule);
-        
-        // 5. Transformations de casse (après nettoyage des caractères)
-        stringValue = applyCaseTransformations(stringValue, rule);
-        
-        // 6. Padding avec zéros (pour les valeurs numériques)
-        stringValue = applyPadding(stringValue, rule);
+        // Résolution des colonnes sources sur l'en-tête (une fois par règle)
+        String[] resolvedColumns = resolveColumns(rules, dataList.get(0).keySet());
         
-        // 7. Remplacement par regex (dernière transformation personnalisée)
-        stringValue = applyRegexReplace(stringValue, rule);
-        
-        // 8. Trim des espaces EN DERNIER pour nettoyer les espaces restants après toutes les suppressions
-        stringValue = applySpaceTransformations(stringValue, rule);
+        if (dataList.size() <= PARALLEL_CHUNK_SIZE) {
+            List<Map<String, Object>> processedDataList = new ArrayList<>(dataList.size());
+            for (Map<String, Object> dataRow : dataList) {
+                processedDataList.add(processRow(rules, resolvedColumns, dataRow));
+            }
+            return processedDataList;
+        }
         
-        return stringValue;
-    }
-
-    /**
-     * Applique le type de format
-     */
-    private String applyFormatType(String value, String formatType) {
-        if (formatType == null || formatType.isEmpty()) {
-            return value;
+        List<CompletableFuture<List<Map<String, Object>>>> chunkFutures = new ArrayList<>();
+        for (int start = 0; start < dataList.size(); start += PARALLEL_CHUNK_SIZE) {
+            List<Map<String, Object>> chunk = dataList.subList(start, Math.min(start + PARALLEL_CHUNK_SIZE, dataList.size()));
+            chunkFutures.add(CompletableFuture.supplyAsync(() -> {
+                List<Map<String, Object>> processedChunk = new ArrayList<>(chunk.size());
+                for (Map<String, Object> dataRow : chunk) {
+                    processedChunk.add(processRow(rules, resolvedColumns, dataRow));
+                }
+                return processedChunk;
+            }));
         }
         
-        switch (formatType.toLowerCase()) {
-            case "string":
-                return value;
-            case "numeric":
-                return value.replaceAll("[^0-9.-]", "");
-            case "date":
-                // Logique de formatage de date si nécessaire
-                return value;
-            case "boolean":
-                return Boolean.parseBoolean(value) ? "true" : "false";
-            default:
-                return value;
+        List<Map<String, Object>> processedDataList = new ArrayList<>(dataList.size());
+        for (CompletableFuture<List<Map<String, Object>>> future : chunkFutures) {
+            processedDataList.addAll(future.join());
         }
+        return processedDataList;
     }
 
     /**
-     * Applique les transformations de casse
+     * Compile les règles d'un modèle pour un flux de lignes de même en-tête : colonnes sources résolues une fois,
+     * puis règles appliquées à chaque ligne sans copie (voir {@link RowPipeline#apply(Map)})
+     * @param modelId L'ID du modèle de traitement
+     * @param headerColumns Colonnes de l'en-tête du flux
      */
-    private String applyCaseTransformations(String value, ColumnProcessingRule rule) {
-        if (rule.isToUpperCase()) {
-            value = value.toUpperCase();
-        }
-        if (rule.isToLowerCase()) {
-            value = value.toLowerCase();
-        }
-        return value;
+    public RowPipeline compileRowPipeline(String modelId, Collection<String> headerColumns) {
+        List<CompiledColumnRule> rules = columnProcessingRuleService.getCompiledRulesByModelId(modelId);
+        return new RowPipeline(rules, resolveColumns(rules, headerColumns));
     }
 
     /**
-     * Applique les transformations d'espaces
+     * Règles d'un modèle résolues sur l'en-tête d'un flux (immuable, partageable entre threads)
      */
-    private String applySpaceTransformations(String value, ColumnProcessingRule rule) {
-        if (rule.isTrimSpaces()) {
-            value = value.trim();
+    public final class RowPipeline {
+        private final List<CompiledColumnRule> rules;
+        private final String[] resolvedColumns;
+
+        private RowPipeline(List<CompiledColumnRule> rules, String[] resolvedColumns) {
+            this.rules = rules;
+            this.resolvedColumns = resolvedColumns;
+        }
+
+        /**
+         * Applique les règles à la ligne, modifiée en place (résolution flexible uniquement si la ligne
+         * n'a pas le schéma de l'en-tête)
+         * @return la ligne reçue
+         */
+        public Map<String, String> apply(Map<String, String> row) {
+            for (int i = 0; i < rules.size(); i++) {
+                CompiledColumnRule rule = rules.get(i);
+                String actualColumnKey = resolvedColumns[i];
+                if (actualColumnKey == null || !row.containsKey(actualColumnKey)) {
+                    actualColumnKey = findColumnKey(row.keySet(), rule.getSourceColumn());
+                    if (actualColumnKey == null) {
+                        continue;
+                    }
+                }
+                String processedValue = rule.apply(row.get(actualColumnKey));
+                row.put(rule.getTargetColumn() != null ? rule.getTargetColumn() : actualColumnKey, processedValue);
+            }
+            return row;
         }
-        return value;
     }
 
     /**
-     * Applique les transformations de caractères spéciaux
+     * Résout la colonne source de chaque règle sur l'en-tête (colonnes cibles des règles précédentes comprises)
      */
-    private String applySpecialCharTransformations(String value, ColumnProcessingRule rule) {
-        // D'abord appliquer le mapping de remplacement des caractères spéciaux
-        // (pour permettre de remplacer certains caractères spéciaux par des caractères alphanumériques)
-        Map<String, String> replacementMap = rule.getSpecialCharReplacementMap();
-        if (replacementMap != null && !replacementMap.isEmpty()) {
-            for (Map.Entry<String, String> entry : replacementMap.entrySet()) {
-                value = value.replace(entry.getKey(), entry.getValue());
+    private String[] resolveColumns(List<CompiledColumnRule> rules, Collection<String> headerColumns) {
+        Set<String> columns = new LinkedHashSet<>(headerColumns);
+        String[] resolvedColumns = new String[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            CompiledColumnRule rule = rules.get(i);
+            resolvedColumns[i] = findColumnKey(columns, rule.getSourceColumn());
+            if (rule.getTargetColumn() != null) {
+                columns.add(rule.getTargetColumn());
+            } else if (resolvedColumns[i] == null) {
+                logger.debug("⚠️ [PROCESS] Colonne \"{}\" non trouvée dans les données", rule.getSourceColumn());
             }
         }
-        
-        // Ensuite supprimer les caractères spéciaux restants (sauf les espaces)
-        if (rule.isRemoveSpecialChars()) {
-            // Supprimer tous les caractères qui ne sont pas des lettres, chiffres ou espaces
-            value = value.replaceAll("[^a-zA-Z0-9\\s]", "");
-        }
-        
-        return value;
+        return resolvedColumns;
     }
 
     /**
-     * Applique la suppression de chaînes spécifiques
+     * Applique les règles compilées à une ligne avec les colonnes pré-résolues
+     * (résolution flexible uniquement si la ligne n'a pas le schéma de l'en-tête)
      */
-    private String applyStringRemoval(String value, ColumnProcessingRule rule) {
-        String stringToRemove = rule.getStringToRemove();
-        if (stringToRemove != null && !stringToRemove.isEmpty()) {
-            String originalValue = value;
-            // Supprimer toutes les occurrences de la chaîne spécifiée (pas seulement la première)
-            // Échapper les caractères spéciaux pour éviter les problèmes avec les regex
-            String escapedString = stringToRemove.replace("\\", "\\\\")
-                                                 .replace(".", "\\.")
-                                                 .replace("*", "\\*")
-                                                 .replace("+", "\\+")
-                                                 .replace("?", "\\?")
-                                                 .replace("^", "\\^")
-                                                 .replace("$", "\\$")
-                                                 .replace("{", "\\{")
-                                                 .replace("}", "\\}")
-                                                 .replace("(", "\\(")
-                                                 .replace(")", "\\)")
-                                                 .replace("[", "\\[")
-                                                 .replace("]", "\\]")
-                                                 .replace("|", "\\|");
-            
-            // Remplacer toutes les occurrences (comme le frontend)
-            value = value.replaceAll(escapedString, "");
-            
-            // Log pour vérifier l'application de la règle
-            if (!originalValue.equals(value)) {
-                System.out.println("✅ [APPLY] stringToRemove appliqué pour colonne \"" + rule.getSourceColumn() + "\": \"" + stringToRemove + "\" sur \"" + originalValue + "\" -> \"" + value + "\"");
-            } else {
-                System.out.println("⚠️ [APPLY] stringToRemove \"" + stringToRemove + "\" non trouvé dans \"" + originalValue + "\" pour colonne \"" + rule.getSourceColumn() + "\"");
+    private Map<String, Object> processRow(List<CompiledColumnRule> rules, String[] resolvedColumns, Map<String, Object> data) {
+        Map<String, Object> processedData = new HashMap<>(data);
+        for (int i = 0; i < rules.size(); i++) {
+            CompiledColumnRule rule = rules.get(i);
+            String actualColumnKey = resolvedColumns[i];
+            if (actualColumnKey == null || !processedData.containsKey(actualColumnKey)) {
+                actualColumnKey = findColumnKey(processedData.keySet(), rule.getSourceColumn());
+                if (actualColumnKey == null) {
+                    continue;
+                }
             }
+            Object value = processedData.get(actualColumnKey);
+            String processedValue = rule.apply(value != null ? value.toString() : null);
+            processedData.put(rule.getTargetColumn() != null ? rule.getTargetColumn() : actualColumnKey, processedValue);
         }
-        return value;
+        return processedData;
     }
 
     /**
-     * Applique la suppression des accents
+     * Applique les règles de traitement des colonnes directement sur une table en colonnes
+     * Les colonnes sont résolues une seule fois par règle et chaque valeur distincte n'est transformée qu'une fois
+     * (transformations des valeurs distinctes en parallèle, encodage dans le dictionnaire sur le thread appelant)
+     * @param modelId L'ID du modèle de traitement
+     * @param table La table à traiter (modifiée en place)
      */
-    private String applyAccentRemoval(String value, ColumnProcessingRule rule) {
-        if (rule.isRemoveAccents()) {
-            // Normaliser les caractères Unicode et supprimer les accents
-            return java.text.Normalizer.normalize(value, java.text.Normalizer.Form.NFD)
-                    .replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
-        }
-        return value;
+    public void processTable(String modelId, RecordTable table) {
+        processTable(getCompiledRules(modelId), table);
     }
 
     /**
-     * Applique le padding avec des zéros
+     * Règles compilées d'un modèle, pour traiter plusieurs tables sans les relire (ex : lots BO d'un flux)
      */
-    private String applyPadding(String value, ColumnProcessingRule rule) {
-        if (rule.isPadZeros() && value.matches("\\d+")) {
-            // Ajouter des zéros en tête pour avoir au moins 8 chiffres
-            return String.format("%08d", Integer.parseInt(value));
-        }
-        return value;
+    public List<CompiledColumnRule> getCompiledRules(String modelId) {
+        return columnProcessingRuleService.getCompiledRulesByModelId(modelId);
     }
 
     /**
-     * Applique le remplacement par regex
+     * Applique des règles déjà compilées à une table en colonnes (modifiée en place)
      */
-    private String applyRegexReplace(String value, ColumnProcessingRule rule) {
-        String regexReplace = rule.getRegexReplace();
-        if (regexReplace != null && !regexReplace.isEmpty()) {
-            try {
-                // Format attendu: "pattern|replacement"
-                String[] parts = regexReplace.split("\\|", 2);
-                if (parts.length == 2) {
-                    String pattern = parts[0];
-                    String replacement = parts[1];
-                    return value.replaceAll(pattern, replacement);
+    public void processTable(List<CompiledColumnRule> rules, RecordTable table) {
+        RecordTable.Dictionary dictionary = table.getDictionary();
+        
+        for (CompiledColumnRule rule : rules) {
+            String actualColumnKey = findColumnKey(table.getColumns(), rule.getSourceColumn());
+            if (actualColumnKey == null) {
+                logger.debug("⚠️ [PROCESS] Colonne \"{}\" non trouvée dans les données", rule.getSourceColumn());
+                continue;
+            }
+            
+            int sourceCol = table.columnIndex(actualColumnKey);
+            int targetCol = rule.getTargetColumn() == null ? sourceCol : table.addColumn(rule.getTargetColumn());
+            
+            // Codes distincts de la colonne source
+            int dictionarySize = dictionary.size();
+            int[] transformedCodes = new int[dictionarySize];
+            Arrays.fill(transformedCodes, -1);
+            int[] distinctCodes = new int[Math.min(dictionarySize, table.size())];
+            int distinctCount = 0;
+            for (int row = 0; row < table.size(); row++) {
+                int code = table.code(row, sourceCol);
+                if (code != RecordTable.NULL_CODE && transformedCodes[code] == -1) {
+                    transformedCodes[code] = 0;
+                    distinctCodes[distinctCount++] = code;
                 }
-            } catch (Exception e) {
-                // En cas d'erreur, retourner la valeur originale
-                return value;
+            }
+            
+            // Transformation des valeurs distinctes (lecture seule du dictionnaire)
+            String[] transformedValues = new String[distinctCount];
+            IntStream indexes = IntStream.range(0, distinctCount);
+            if (distinctCount > PARALLEL_CHUNK_SIZE) {
+                indexes = indexes.parallel();
+            }
+            final int[] codes = distinctCodes;
+            indexes.forEach(i -> transformedValues[i] = rule.apply(dictionary.decode(codes[i])));
+            
+            for (int i = 0; i < distinctCount; i++) {
+                transformedCodes[distinctCodes[i]] = dictionary.encode(transformedValues[i]);
+            }
+            for (int row = 0; row < table.size(); row++) {
+                int code = table.code(row, sourceCol);
+                table.setCode(row, targetCol, code == RecordTable.NULL_CODE ? RecordTable.NULL_CODE : transformedCodes[code]);
             }
         }
-        return value;
     }
 
     /**
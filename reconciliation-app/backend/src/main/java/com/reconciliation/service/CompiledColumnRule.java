@@ -0,0 +1,162 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.ColumnProcessingRule;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Règle de traitement de colonne précompilée (patterns regex et paramètres résolus une seule fois)
+ * Immuable : partagée entre threads via le cache "compiledColumnRules"
+ */
+public final class CompiledColumnRule {
+
+    private static final Pattern NON_NUMERIC = Pattern.compile("[^0-9.-]");
+    private static final Pattern COMBINING_DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+    private static final Pattern SPECIAL_CHARS = Pattern.compile("[^a-zA-Z0-9\\s]");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    private final String sourceColumn;
+    private final String targetColumn;
+    private final String formatType;
+    private final boolean removeAccents;
+    private final String stringToRemove;
+    private final List<Map.Entry<String, String>> charReplacements;
+    private final boolean removeSpecialChars;
+    private final boolean toUpperCase;
+    private final boolean toLowerCase;
+    private final boolean padZeros;
+    private final Pattern regexPattern;
+    private final String regexReplacement;
+    private final boolean trimSpaces;
+
+    private CompiledColumnRule(ColumnProcessingRule rule) {
+        this.sourceColumn = rule.getSourceColumn();
+        this.targetColumn = rule.getTargetColumn() == null || rule.getTargetColumn().trim().isEmpty()
+            ? null : rule.getTargetColumn();
+        this.formatType = rule.getFormatType() != null ? rule.getFormatType().toLowerCase() : "";
+        this.removeAccents = rule.isRemoveAccents();
+        this.stringToRemove = rule.getStringToRemove() != null && !rule.getStringToRemove().isEmpty()
+            ? rule.getStringToRemove() : null;
+        Map<String, String> replacementMap = rule.getSpecialCharReplacementMap();
+        this.charReplacements = replacementMap != null && !replacementMap.isEmpty()
+            ? Collections.unmodifiableList(new ArrayList<>(replacementMap.entrySet())) : Collections.emptyList();
+        this.removeSpecialChars = rule.isRemoveSpecialChars();
+        this.toUpperCase = rule.isToUpperCase();
+        this.toLowerCase = rule.isToLowerCase();
+        this.padZeros = rule.isPadZeros();
+        this.trimSpaces = rule.isTrimSpaces();
+
+        // Format attendu: "pattern|replacement" ; un pattern invalide désactive le remplacement
+        Pattern pattern = null;
+        String replacement = null;
+        String regexReplace = rule.getRegexReplace();
+        if (regexReplace != null && !regexReplace.isEmpty()) {
+            String[] parts = regexReplace.split("\\|", 2);
+            if (parts.length == 2) {
+                try {
+                    pattern = Pattern.compile(parts[0]);
+                    replacement = parts[1];
+                } catch (PatternSyntaxException e) {
+                    pattern = null;
+                }
+            }
+        }
+        this.regexPattern = pattern;
+        this.regexReplacement = replacement;
+    }
+
+    /**
+     * Compile les règles d'un modèle (dans l'ordre des règles)
+     */
+    public static List<CompiledColumnRule> compile(List<ColumnProcessingRule> rules) {
+        List<CompiledColumnRule> compiled = new ArrayList<>(rules.size());
+        for (ColumnProcessingRule rule : rules) {
+            compiled.add(new CompiledColumnRule(rule));
+        }
+        return Collections.unmodifiableList(compiled);
+    }
+
+    public String getSourceColumn() {
+        return sourceColumn;
+    }
+
+    /**
+     * Colonne cible, ou null si la valeur traitée remplace la colonne source
+     */
+    public String getTargetColumn() {
+        return targetColumn;
+    }
+
+    /**
+     * Applique la règle à une valeur, dans le même ordre que {@link ColumnProcessingService}
+     */
+    public String apply(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        // 1. Format type
+        switch (formatType) {
+            case "numeric":
+                value = NON_NUMERIC.matcher(value).replaceAll("");
+                break;
+            case "boolean":
+                value = Boolean.parseBoolean(value) ? "true" : "false";
+                break;
+            default:
+                break;
+        }
+
+        // 2. Suppression des accents
+        if (removeAccents) {
+            value = COMBINING_DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        }
+
+        // 3. Suppression de chaînes spécifiques (littérale, toutes les occurrences)
+        if (stringToRemove != null) {
+            value = value.replace(stringToRemove, "");
+        }
+
+        // 4. Remplacement puis suppression des caractères spéciaux
+        for (Map.Entry<String, String> entry : charReplacements) {
+            value = value.replace(entry.getKey(), entry.getValue());
+        }
+        if (removeSpecialChars) {
+            value = SPECIAL_CHARS.matcher(value).replaceAll("");
+        }
+
+        // 5. Casse
+        if (toUpperCase) {
+            value = value.toUpperCase();
+        }
+        if (toLowerCase) {
+            value = value.toLowerCase();
+        }
+
+        // 6. Padding avec zéros
+        if (padZeros && DIGITS.matcher(value).matches()) {
+            value = String.format("%08d", Integer.parseInt(value));
+        }
+
+        // 7. Remplacement par regex
+        if (regexPattern != null) {
+            try {
+                value = regexPattern.matcher(value).replaceAll(regexReplacement);
+            } catch (RuntimeException e) {
+                // En cas d'erreur (référence de groupe invalide...), conserver la valeur
+            }
+        }
+
+        // 8. Trim des espaces en dernier
+        if (trimSpaces) {
+            value = value.trim();
+        }
+        return value;
+    }
+}
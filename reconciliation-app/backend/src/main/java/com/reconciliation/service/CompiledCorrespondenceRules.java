@@ -0,0 +1,177 @@
+package com.reconciliation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Règles de correspondance compilées en table d'actions indexée par nombre de correspondances partenaire.
+ *
+ * Conditions acceptées : {@code <opérande> <op> <opérande>} avec op parmi ==, !=, >=, <=, >, < et chaque opérande
+ * {@code partnerMatches} ou un entier. Les règles invalides sont écartées (avec un avertissement) à la compilation.
+ * La table est bornée à MAX_TABULATED_COUNT : au-delà, les conditions sont évaluées directement.
+ * Immuable : partagée entre les lots d'une réconciliation.
+ */
+public final class CompiledCorrespondenceRules {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledCorrespondenceRules.class);
+
+    public static final String DEFAULT_ACTION = "MARK_AS_BO_ONLY";
+    private static final String VARIABLE = "partnerMatches";
+    // Ordre de recherche des opérateurs (">=" avant ">", etc.)
+    private static final String[] OPERATORS = {"==", "!=", ">=", "<=", ">", "<"};
+    // Nombre maximal de correspondances tabulées (taille de la table d'actions)
+    static final int MAX_TABULATED_COUNT = 1024;
+
+    // actions[n] : action pour n correspondances ; si coversAllCounts, la dernière case vaut pour tout nombre supérieur
+    private final String[] actions;
+    private final boolean coversAllCounts;
+    // Règles valides, conservées pour les nombres au-delà de la table
+    private final List<Condition> conditions;
+    private final List<String> ruleActions;
+
+    private CompiledCorrespondenceRules(String[] actions, boolean coversAllCounts,
+                                        List<Condition> conditions, List<String> ruleActions) {
+        this.actions = actions;
+        this.coversAllCounts = coversAllCounts;
+        this.conditions = conditions;
+        this.ruleActions = ruleActions;
+    }
+
+    /**
+     * Compile les règles dans leur ordre de priorité (la première règle vérifiée l'emporte)
+     */
+    public static CompiledCorrespondenceRules compile(List<ConfigurableReconciliationService.CorrespondenceRule> rules) {
+        List<Condition> conditions = new ArrayList<>();
+        List<String> ruleActions = new ArrayList<>();
+        int maxLiteral = 0;
+        for (ConfigurableReconciliationService.CorrespondenceRule rule : rules) {
+            Condition condition = parse(rule.getCondition());
+            if (condition == null || rule.getAction() == null) {
+                logger.warn("⚠️ Règle de correspondance ignorée '{}': condition '{}' ou action '{}' invalide",
+                    rule.getName(), rule.getCondition(), rule.getAction());
+                continue;
+            }
+            conditions.add(condition);
+            ruleActions.add(rule.getAction());
+            maxLiteral = Math.max(maxLiteral, condition.maxLiteral());
+        }
+
+        // Au-delà du plus grand entier cité, toutes les comparaisons donnent le même résultat
+        boolean coversAllCounts = maxLiteral < MAX_TABULATED_COUNT;
+        String[] actions = new String[coversAllCounts ? maxLiteral + 2 : MAX_TABULATED_COUNT];
+        for (int count = 0; count < actions.length; count++) {
+            actions[count] = evaluate(conditions, ruleActions, count);
+            if (actions[count] == null) {
+                actions[count] = DEFAULT_ACTION;
+                logger.warn("⚠️ Aucune règle ne correspond pour {}{} correspondances, action par défaut: {}",
+                    count, coversAllCounts && count == actions.length - 1 ? " ou plus de" : "", DEFAULT_ACTION);
+            }
+        }
+        return new CompiledCorrespondenceRules(actions, coversAllCounts, conditions, ruleActions);
+    }
+
+    public String actionFor(int partnerMatchCount) {
+        int count = Math.max(partnerMatchCount, 0);
+        if (count < actions.length) {
+            return actions[count];
+        }
+        if (coversAllCounts) {
+            return actions[actions.length - 1];
+        }
+        String action = evaluate(conditions, ruleActions, count);
+        return action != null ? action : DEFAULT_ACTION;
+    }
+
+    // Action de la première règle vérifiée, ou null
+    private static String evaluate(List<Condition> conditions, List<String> ruleActions, int count) {
+        for (int r = 0; r < conditions.size(); r++) {
+            if (conditions.get(r).test(count)) {
+                return ruleActions.get(r);
+            }
+        }
+        return null;
+    }
+
+    private static Condition parse(String condition) {
+        if (condition == null || condition.trim().isEmpty()) {
+            return null;
+        }
+        for (String operator : OPERATORS) {
+            int position = condition.indexOf(operator);
+            if (position < 0) {
+                continue;
+            }
+            Operand left = parseOperand(condition.substring(0, position));
+            Operand right = parseOperand(condition.substring(position + operator.length()));
+            if (left == null || right == null) {
+                return null;
+            }
+            return new Condition(operator, left, right);
+        }
+        return null;
+    }
+
+    private static Operand parseOperand(String operand) {
+        String value = operand.trim();
+        if (VARIABLE.equals(value)) {
+            return new Operand(true, 0);
+        }
+        try {
+            return new Operand(false, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Opérande d'une condition : partnerMatches ou un entier
+     */
+    private static final class Operand {
+        final boolean variable;
+        final int value;
+
+        Operand(boolean variable, int value) {
+            this.variable = variable;
+            this.value = value;
+        }
+
+        int valueFor(int partnerMatchCount) {
+            return variable ? partnerMatchCount : value;
+        }
+    }
+
+    private static final class Condition {
+        private final String operator;
+        private final Operand left;
+        private final Operand right;
+
+        Condition(String operator, Operand left, Operand right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean test(int partnerMatchCount) {
+            int l = left.valueFor(partnerMatchCount);
+            int r = right.valueFor(partnerMatchCount);
+            switch (operator) {
+                case "==": return l == r;
+                case "!=": return l != r;
+                case ">=": return l >= r;
+                case "<=": return l <= r;
+                case ">": return l > r;
+                default: return l < r;
+            }
+        }
+
+        int maxLiteral() {
+            int max = 0;
+            if (!left.variable) max = Math.max(max, left.value);
+            if (!right.variable) max = Math.max(max, right.value);
+            return max;
+        }
+    }
+}
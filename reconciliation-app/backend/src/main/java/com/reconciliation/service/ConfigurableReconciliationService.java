@@ -7,6 +7,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -14,11 +16,15 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ConfigurableReconciliationService {
 
+    /**
+     * Nombre maximal de lignes parcourues pour détecter un marqueur (TRXBO, OPPART) dans les valeurs
+     */
+    public static final int MARKER_SAMPLE_SIZE = 1000;
+
     private final AutoProcessingService autoProcessingService;
-    
-    // Cache local pour éviter les appels multiples à getAllModels() dans la même requête
-    private AutoProcessingModel cachedPartnerModel = null;
-    private ReconciliationRequest cachedRequest = null;
+
+    // Index partagé entre les requêtes concurrentes, remplacé quand la liste des modèles change
+    private final AtomicReference<PartnerModelIndex> partnerModelIndex = new AtomicReference<>();
 
     /**
      * Détermine la logique de réconciliation à utiliser basée sur les modèles
@@ -72,86 +78,22 @@ public class ConfigurableReconciliationService {
     }
 
     /**
-     * Trouve un modèle partenaire correspondant aux fichiers
-     * Utilise un cache local pour éviter les appels multiples dans la même requête
+     * Trouve un modèle partenaire correspondant aux colonnes du fichier partenaire
+     * (index par empreinte d'en-têtes, reconstruit quand la liste des modèles en cache change)
      */
     private AutoProcessingModel findMatchingPartnerModel(ReconciliationRequest request) {
-        // Utiliser le cache si c'est la même requête
-        if (cachedPartnerModel != null && cachedRequest == request) {
-            return cachedPartnerModel;
-        }
-        
+        Set<String> partnerColumns = request.getPartnerFileContent().isEmpty() ?
+            Collections.emptySet() : request.getPartnerFileContent().get(0).keySet();
+        return findPartnerModel(partnerColumns);
+    }
+
+    /**
+     * Trouve le modèle partenaire correspondant à des en-têtes de fichier (ex: fichiers du watch-folder)
+     * @return le modèle, ou null si aucun modèle ne correspond
+     */
+    public AutoProcessingModel findPartnerModel(Collection<String> partnerColumns) {
         try {
-            // Récupérer tous les modèles depuis la base de données (avec cache Spring)
-            List<AutoProcessingModel> models = autoProcessingService.getAllModels();
-            log.info("📋 {} modèles récupérés depuis la base de données", models.size());
-            
-            // Récupérer les colonnes partenaires pour la détection
-            Set<String> partnerColumns = new HashSet<>();
-            if (!request.getPartnerFileContent().isEmpty()) {
-                partnerColumns = request.getPartnerFileContent().get(0).keySet();
-                log.info("📋 Colonnes partenaires disponibles: {}", partnerColumns);
-            }
-            
-            List<AutoProcessingModel> matchingModels = new ArrayList<>();
-            
-            for (AutoProcessingModel model : models) {
-                if (model.getFileType() == AutoProcessingModel.FileType.PARTNER) {
-                    log.info("🔍 Test du modèle partenaire: {} (pattern: {}, template: {})", 
-                            model.getName(), model.getFilePattern(), model.getTemplateFile());
-                    // Vérifier si le modèle correspond aux fichiers
-                    if (matchesFilePattern(request, model)) {
-                        matchingModels.add(model);
-                        log.info("✅ Modèle partenaire correspondant: {}", model.getName());
-                    }
-                }
-            }
-            
-            // Si plusieurs modèles correspondent, choisir le plus spécifique ou celui avec des règles
-            if (!matchingModels.isEmpty()) {
-                // Prioriser les modèles qui ont des règles de traitement
-                AutoProcessingModel bestModel = null;
-                int maxRules = -1;
-                
-                for (AutoProcessingModel model : matchingModels) {
-                    int ruleCount = 0;
-                    try {
-                        List<com.reconciliation.entity.ColumnProcessingRule> rules = 
-                            autoProcessingService.getModelByModelId(model.getModelId()).getColumnProcessingRules();
-                        if (rules != null) {
-                            ruleCount = rules.size();
-                        }
-                    } catch (Exception e) {
-                        log.debug("Erreur lors du comptage des règles pour le modèle {}: {}", model.getName(), e.getMessage());
-                    }
-                    
-                    log.info("  - Modèle {}: {} règle(s) de traitement", model.getName(), ruleCount);
-                    
-                    if (ruleCount > maxRules) {
-                        maxRules = ruleCount;
-                        bestModel = model;
-                    }
-                }
-                
-                if (bestModel != null) {
-                    log.info("✅ Modèle partenaire sélectionné: {} ({} règles)", bestModel.getName(), maxRules);
-                    cachedPartnerModel = bestModel;
-                    cachedRequest = request;
-                    return bestModel;
-                } else {
-                    // Si aucun modèle n'a de règles, prendre le premier
-                    log.info("✅ Modèle partenaire sélectionné (premier trouvé): {}", matchingModels.get(0).getName());
-                    cachedPartnerModel = matchingModels.get(0);
-                    cachedRequest = request;
-                    return matchingModels.get(0);
-                }
-            }
-            
-            log.warn("⚠️ Aucun modèle partenaire trouvé pour les fichiers");
-            // Mettre null en cache pour éviter de chercher à nouveau
-            cachedPartnerModel = null;
-            cachedRequest = request;
-            return null;
+            return partnerModelIndex().resolve(partnerColumns);
         } catch (Exception e) {
             log.error("❌ Erreur lors de la récupération des modèles: {}", e.getMessage());
             return null;
@@ -159,94 +101,46 @@ public class ConfigurableReconciliationService {
     }
 
     /**
-     * Vérifie si les fichiers correspondent au pattern du modèle
-     * Détection basée sur les colonnes présentes dans les données
+     * Index des modèles partenaires pour la liste de modèles actuellement en cache ;
+     * la liste change d'instance après chaque création, modification ou suppression de modèle
      */
-    private boolean matchesFilePattern(ReconciliationRequest request, AutoProcessingModel model) {
-        try {
-            String filePattern = model.getFilePattern();
-            log.info("🔍 Test pattern: '{}' pour le modèle {}", filePattern, model.getName());
-            
-            // Détection basée sur les colonnes présentes dans les données partenaires
-            if (!request.getPartnerFileContent().isEmpty()) {
-                Map<String, String> firstPartnerRecord = request.getPartnerFileContent().get(0);
-                Set<String> partnerColumns = firstPartnerRecord.keySet();
-                
-                // Récupérer le templateFile du modèle pour identifier le type de fichier
-                String templateFile = model.getTemplateFile();
-                if (templateFile != null && !templateFile.isEmpty()) {
-                    log.info("  - Template file du modèle: {}", templateFile);
-                    
-                    // Vérifier si le templateFile correspond aux colonnes présentes
-                    // CIMTNCM.xlsx a des colonnes spécifiques comme "External id", "From", "To", etc.
-                    if (templateFile.toLowerCase().contains("cimtncm")) {
-                        // Vérifier les colonnes spécifiques à CIMTNCM
-                        boolean hasExternalId = partnerColumns.contains("External id") || partnerColumns.stream().anyMatch(col -> col.equalsIgnoreCase("External id"));
-                        boolean hasFrom = partnerColumns.contains("From") || partnerColumns.stream().anyMatch(col -> col.equalsIgnoreCase("From"));
-                        boolean hasTo = partnerColumns.contains("To") || partnerColumns.stream().anyMatch(col -> col.equalsIgnoreCase("To"));
-                        
-                        if (hasExternalId && hasFrom && hasTo) {
-                            log.info("✅ Modèle CIMTNCM détecté par colonnes: External id, From, To");
-                            return true;
-                        }
-                    }
-                    
-                    // OPPART.xls a des colonnes spécifiques
-                    if (templateFile.toLowerCase().contains("oppart")) {
-                        boolean hasIdOperation = partnerColumns.contains("ID Opération") || partnerColumns.stream().anyMatch(col -> col.equalsIgnoreCase("ID Opération"));
-                        boolean hasTypeOperation = partnerColumns.contains("Type Opération") || partnerColumns.stream().anyMatch(col -> col.equalsIgnoreCase("Type Opération"));
-                        
-                        if (hasIdOperation && hasTypeOperation) {
-                            log.info("✅ Modèle OPPART détecté par colonnes: ID Opération, Type Opération");
-                            return true;
-                        }
-                    }
-                    
-                    // Autres modèles partenaires - vérifier avec le pattern si défini
-                    // Si le templateFile ne correspond à aucun pattern connu, vérifier le filePattern
-                    if (filePattern != null && !filePattern.isEmpty()) {
-                        // Vérifier si le pattern correspond vraiment aux colonnes présentes
-                        // Par exemple, si le pattern contient "CIMTNCM" et qu'on a les colonnes CIMTNCM
-                        String lowerPattern = filePattern.toLowerCase();
-                        if (lowerPattern.contains("cimtncm")) {
-                            boolean hasExternalId = partnerColumns.contains("External id") || 
-                                                   partnerColumns.stream().anyMatch(col -> col.equalsIgnoreCase("External id"));
-                            if (hasExternalId) {
-                                log.info("✅ Modèle détecté par pattern et colonnes: {} (pattern: {}, colonne: External id)", model.getName(), filePattern);
-                                return true;
-                            }
-                        }
-                        
-                        log.info("⚠️ Pattern '{}' du modèle {} ne correspond pas aux colonnes présentes", filePattern, model.getName());
-                        return false;
-                    }
-                    
-                    // Si pas de templateFile ni de pattern spécifique, ne pas accepter par défaut
-                    log.info("⚠️ Modèle {} n'a ni templateFile spécifique ni pattern vérifiable, ignoré", model.getName());
-                    return false;
-                }
-            }
-            
-            // Fallback: accepter le modèle si aucun autre critère n'a été vérifié
-            return false;
-        } catch (Exception e) {
-            log.error("❌ Erreur lors de la vérification du pattern: {}", e.getMessage());
-            return false;
+    private PartnerModelIndex partnerModelIndex() {
+        List<AutoProcessingModel> models = autoProcessingService.getAllModels();
+        PartnerModelIndex current = partnerModelIndex.get();
+        if (current != null && current.isBuiltFrom(models)) {
+            return current;
         }
+        PartnerModelIndex rebuilt = PartnerModelIndex.build(models);
+        partnerModelIndex.set(rebuilt);
+        log.info("📋 Index des modèles partenaires reconstruit: {} modèle(s) partenaire(s) sur {}", rebuilt.size(), models.size());
+        return rebuilt;
     }
 
     /**
      * Détection automatique du contenu TRXBO/OPPART
      */
     public boolean detectTRXBOOPPARTContent(ReconciliationRequest request) {
+        Set<String> boColumns = request.getBoFileContent().isEmpty() ?
+            Collections.emptySet() : request.getBoFileContent().get(0).keySet();
+        Set<String> partnerColumns = request.getPartnerFileContent().isEmpty() ?
+            Collections.emptySet() : request.getPartnerFileContent().get(0).keySet();
+        return detectTRXBOOPPARTContent(boColumns, partnerColumns,
+            () -> containsMarkerValue(request.getBoFileContent(), "TRXBO"),
+            () -> containsMarkerValue(request.getPartnerFileContent(), "OPPART"));
+    }
+
+    /**
+     * Détection automatique du contenu TRXBO/OPPART à partir des colonnes et d'un test de valeurs différé
+     * (utilisé par la réconciliation en flux, où les lignes BO ne sont pas en mémoire)
+     */
+    public boolean detectTRXBOOPPARTContent(Set<String> boColumns, Set<String> partnerColumns,
+                                            BooleanSupplier boValuesContainMarker,
+                                            BooleanSupplier partnerValuesContainMarker) {
         log.info("🔍 Début de la détection TRXBO/OPPART");
         
         // EXCLUSION EXPLICITE DE USSDPART
         // Détecter USSDPART par ses colonnes spécifiques
-        if (!request.getPartnerFileContent().isEmpty()) {
-            Map<String, String> firstPartnerRecord = request.getPartnerFileContent().get(0);
-            Set<String> partnerColumns = firstPartnerRecord.keySet();
-            
+        if (!partnerColumns.isEmpty()) {
             // USSDPART a des colonnes spécifiques comme "Token", "Code PIXI", "Code de Proxy"
             boolean hasToken = partnerColumns.contains("Token");
             boolean hasCodePixi = partnerColumns.contains("Code PIXI");
@@ -262,51 +156,24 @@ public class ConfigurableReconciliationService {
         boolean hasTRXBO = false;
         boolean hasOPPART = false;
         
-        // 1. Vérifier dans les valeurs des données BO
-        for (Map<String, String> boRecord : request.getBoFileContent()) {
-            for (String value : boRecord.values()) {
-                if (value != null && value.toUpperCase().contains("TRXBO")) {
-                    hasTRXBO = true;
-                    log.info("🔍 TRXBO détecté dans les valeurs: {}", value);
-                    break;
-                }
-            }
-            if (hasTRXBO) break;
-        }
-        
-        // 2. Vérifier dans les valeurs des données Partenaire
-        for (Map<String, String> partnerRecord : request.getPartnerFileContent()) {
-            for (String value : partnerRecord.values()) {
-                if (value != null && value.toUpperCase().contains("OPPART")) {
-                    hasOPPART = true;
-                    log.info("🔍 OPPART détecté dans les valeurs: {}", value);
-                    break;
-                }
-            }
-            if (hasOPPART) break;
-        }
-        
-        // 3. Vérifier dans les noms de colonnes BO
-        if (!hasTRXBO && !request.getBoFileContent().isEmpty()) {
-            Set<String> boColumns = request.getBoFileContent().get(0).keySet();
+        // 1. Vérifier dans les noms de colonnes BO
+        if (!boColumns.isEmpty()) {
             hasTRXBO = boColumns.stream().anyMatch(col -> col.toUpperCase().contains("TRXBO"));
             if (hasTRXBO) {
                 log.info("🔍 TRXBO détecté dans les colonnes BO");
             }
         }
         
-        // 4. Vérifier dans les noms de colonnes Partenaire
-        if (!hasOPPART && !request.getPartnerFileContent().isEmpty()) {
-            Set<String> partnerColumns = request.getPartnerFileContent().get(0).keySet();
+        // 2. Vérifier dans les noms de colonnes Partenaire
+        if (!partnerColumns.isEmpty()) {
             hasOPPART = partnerColumns.stream().anyMatch(col -> col.toUpperCase().contains("OPPART"));
             if (hasOPPART) {
                 log.info("🔍 OPPART détecté dans les colonnes Partenaire");
             }
         }
         
-        // 5. Détection par colonnes spécifiques TRXBO
-        if (!hasTRXBO && !request.getBoFileContent().isEmpty()) {
-            Set<String> boColumns = request.getBoFileContent().get(0).keySet();
+        // 3. Détection par colonnes spécifiques TRXBO
+        if (!hasTRXBO && !boColumns.isEmpty()) {
             boolean hasIDTransaction = boColumns.contains("IDTransaction") || boColumns.contains("ID Transaction");
             boolean hasTelephoneClient = boColumns.contains("téléphone client") || boColumns.contains("telephone client");
             boolean hasMontant = boColumns.contains("montant") || boColumns.contains("Montant");
@@ -327,10 +194,8 @@ public class ConfigurableReconciliationService {
             }
         }
         
-        // 6. Détection par colonnes spécifiques OPPART
-        if (!hasOPPART && !request.getPartnerFileContent().isEmpty()) {
-            Map<String, String> firstPartnerRecord = request.getPartnerFileContent().get(0);
-            Set<String> partnerColumns = firstPartnerRecord.keySet();
+        // 4. Détection par colonnes spécifiques OPPART
+        if (!hasOPPART && !partnerColumns.isEmpty()) {
             boolean hasTypeOperation = partnerColumns.contains("Type Opération") || partnerColumns.contains("Type Operation");
             boolean hasMontant = partnerColumns.contains("Montant") || partnerColumns.contains("montant");
             boolean hasSoldeAvant = partnerColumns.contains("Solde avant") || partnerColumns.contains("Solde avant");
@@ -351,10 +216,57 @@ public class ConfigurableReconciliationService {
             }
         }
         
+        // 5. Vérifier dans les valeurs (échantillon borné, uniquement si les colonnes n'ont pas suffi)
+        if (!hasTRXBO) {
+            hasTRXBO = boValuesContainMarker.getAsBoolean();
+        }
+        if (!hasOPPART) {
+            hasOPPART = partnerValuesContainMarker.getAsBoolean();
+        }
+        
         log.info("🔍 Détection TRXBO/OPPART - TRXBO: {}, OPPART: {}", hasTRXBO, hasOPPART);
         return hasTRXBO && hasOPPART;
     }
 
+    /**
+     * Vérifie si une valeur des MARKER_SAMPLE_SIZE premiers enregistrements contient le marqueur (insensible à la casse)
+     */
+    public boolean containsMarkerValue(Iterable<Map<String, String>> records, String marker) {
+        int sampled = 0;
+        for (Map<String, String> record : records) {
+            if (sampled++ >= MARKER_SAMPLE_SIZE) {
+                break;
+            }
+            if (containsMarkerValue(record, marker)) {
+                log.info("🔍 {} détecté dans les valeurs", marker);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Vérifie si une valeur d'un enregistrement contient le marqueur (insensible à la casse)
+     */
+    public boolean containsMarkerValue(Map<String, String> record, String marker) {
+        for (String value : record.values()) {
+            if (value != null && containsIgnoreCase(value, marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Recherche sans copie de la valeur en majuscules
+    private static boolean containsIgnoreCase(String value, String marker) {
+        for (int start = 0; start <= value.length() - marker.length(); start++) {
+            if (value.regionMatches(true, start, marker, 0, marker.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Récupère les règles de correspondance configurées
      */
@@ -367,7 +279,21 @@ public class ConfigurableReconciliationService {
         }
         
         // Règles par défaut
-        return getDefaultCorrespondenceRules(request);
+        return getDefaultCorrespondenceRules(detectTRXBOOPPARTContent(request));
+    }
+
+    /**
+     * Récupère les règles de correspondance configurées lorsque la détection TRXBO/OPPART est déjà connue
+     * (la requête n'a besoin que des données partenaires pour la recherche du modèle)
+     */
+    public List<CorrespondenceRule> getCorrespondenceRules(ReconciliationRequest request, boolean isTRXBOOPPART) {
+        AutoProcessingModel partnerModel = findMatchingPartnerModel(request);
+        
+        if (partnerModel != null && partnerModel.getCorrespondenceRules() != null) {
+            return parseCorrespondenceRules(partnerModel.getCorrespondenceRules());
+        }
+        
+        return getDefaultCorrespondenceRules(isTRXBOOPPART);
     }
 
     /**
@@ -396,12 +322,9 @@ public class ConfigurableReconciliationService {
     /**
      * Règles de correspondance par défaut
      */
-    private List<CorrespondenceRule> getDefaultCorrespondenceRules(ReconciliationRequest request) {
+    private List<CorrespondenceRule> getDefaultCorrespondenceRules(boolean isTRXBOOPPART) {
         List<CorrespondenceRule> rules = new ArrayList<>();
         
-        // Détecter si c'est une réconciliation TRXBO/OPPART
-        boolean isTRXBOOPPART = detectTRXBOOPPARTContent(request);
-        
         if (isTRXBOOPPART) {
             // Pour TRXBO/OPPART: une transaction doit correspondre à exactement 2 opérations
             CorrespondenceRule perfectMatch = new CorrespondenceRule();
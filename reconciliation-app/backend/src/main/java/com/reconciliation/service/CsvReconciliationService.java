@@ -3,16 +3,22 @@ package com.reconciliation.service;
 import com.reconciliation.dto.ReconciliationRequest;
 import com.reconciliation.dto.ReconciliationResponse;
 import com.reconciliation.dto.ColumnComparison;
+import com.reconciliation.model.RecordTable;
+import com.reconciliation.model.ShardedKeyIndex;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.DisposableBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
 
 // Classe pour stocker les résultats d'un batch de traitement
 class ReconciliationBatchResult {
@@ -59,8 +65,37 @@ public class CsvReconciliationService implements DisposableBean {
         return t;
     });
 
+    /**
+     * Suivi d'une réconciliation exécutée en tâche de fond : étapes publiées et demande d'annulation
+     */
+    public interface ProgressListener {
+        ProgressListener NONE = new ProgressListener() {
+            @Override
+            public void onStage(String step, int percentage) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        };
+
+        void onStage(String step, int percentage);
+
+        boolean isCancelled();
+    }
+
     public ReconciliationResponse reconcile(ReconciliationRequest request) {
+        return reconcile(request, ProgressListener.NONE);
+    }
+
+    /**
+     * Réconciliation avec publication de la progression par étape (règles, indexation, appariement, partenaire uniquement)
+     * et arrêt entre les étapes / lots si le listener signale une annulation ({@link CancellationException})
+     */
+    public ReconciliationResponse reconcile(ReconciliationRequest request, ProgressListener listener) {
         long startTime = System.currentTimeMillis();
+        listener.onStage("Application des règles de traitement", 5);
         
         // Début de la réconciliation
         logger.info("Début de la réconciliation - BO: {} lignes, Partenaire: {} lignes", 
@@ -91,62 +126,67 @@ public class CsvReconciliationService implements DisposableBean {
             logger.info("⚠️ Utilisation du modelId général (BO) comme fallback: {}", partnerModelId);
         }
         
-        // Appliquer les règles avec les modèles appropriés
-        List<Map<String, String>> processedBoData = applyColumnProcessingRules(request.getBoFileContent(), "bo", boModelId);
-        List<Map<String, String>> processedPartnerData = applyColumnProcessingRules(request.getPartnerFileContent(), "partner", partnerModelId);
+        // Encodage en colonnes (dictionnaire partagé BO/partenaire) puis application des règles avec les modèles appropriés
+        RecordTable.Dictionary dictionary = new RecordTable.Dictionary();
+        RecordTable boTable = applyColumnProcessingRules(
+            RecordTable.fromRows(request.getBoFileContent(), dictionary), "bo", boModelId);
+        RecordTable partnerTable = applyColumnProcessingRules(
+            RecordTable.fromRows(request.getPartnerFileContent(), dictionary), "partner", partnerModelId);
+        checkCancelled(listener);
         
                     // DEBUG: Afficher quelques exemples de valeurs (après traitement)
-            if (!processedBoData.isEmpty()) {
-                Map<String, String> firstBoRecord = processedBoData.get(0);
+            if (boTable.size() > 0) {
+                Map<String, String> firstBoRecord = boTable.rowView(0);
                 String boKeyValue = firstBoRecord.get(request.getBoKeyColumn());
                 logger.debug("Exemple clé BO: {} -> {}", request.getBoKeyColumn(), boKeyValue);
             }
             
-            if (!processedPartnerData.isEmpty()) {
-                Map<String, String> firstPartnerRecord = processedPartnerData.get(0);
+            if (partnerTable.size() > 0) {
+                Map<String, String> firstPartnerRecord = partnerTable.rowView(0);
                 String partnerKeyValue = firstPartnerRecord.get(request.getPartnerKeyColumn());
                 logger.debug("Exemple clé Partenaire: {} -> {}", request.getPartnerKeyColumn(), partnerKeyValue);
             }
         
                     // DEBUG: Afficher toutes les colonnes disponibles (après traitement)
-            if (!processedBoData.isEmpty()) {
-                logger.debug("Colonnes BO disponibles: {}", processedBoData.get(0).keySet());
+            if (boTable.size() > 0) {
+                logger.debug("Colonnes BO disponibles: {}", boTable.getColumns());
             }
-            if (!processedPartnerData.isEmpty()) {
-                logger.debug("Colonnes Partenaire disponibles: {}", processedPartnerData.get(0).keySet());
+            if (partnerTable.size() > 0) {
+                logger.debug("Colonnes Partenaire disponibles: {}", partnerTable.getColumns());
             }
         
         logger.info("🚀 Début de la réconciliation optimisée");
-        logger.info("📊 Données BO: {} lignes", processedBoData.size());
-        logger.info("📊 Données Partenaire: {} lignes", processedPartnerData.size());
+        logger.info("📊 Données BO: {} lignes", boTable.size());
+        logger.info("📊 Données Partenaire: {} lignes", partnerTable.size());
         logger.info("🔑 Clé BO: '{}'", request.getBoKeyColumn());
         logger.info("🔑 Clé Partenaire: '{}'", request.getPartnerKeyColumn());
         
         // DEBUG: Afficher quelques exemples de valeurs (APRÈS traitement)
-        if (!processedBoData.isEmpty()) {
-            Map<String, String> firstBoRecord = processedBoData.get(0);
+        if (boTable.size() > 0) {
+            Map<String, String> firstBoRecord = boTable.rowView(0);
             String boKeyValue = firstBoRecord.get(request.getBoKeyColumn());
             logger.info("🔍 Exemple clé BO (après traitement): '{}' -> '{}'", request.getBoKeyColumn(), boKeyValue);
         }
         
-        if (!processedPartnerData.isEmpty()) {
-            Map<String, String> firstPartnerRecord = processedPartnerData.get(0);
+        if (partnerTable.size() > 0) {
+            Map<String, String> firstPartnerRecord = partnerTable.rowView(0);
             String partnerKeyValue = firstPartnerRecord.get(request.getPartnerKeyColumn());
             logger.info("🔍 Exemple clé Partenaire (après traitement): '{}' -> '{}'", request.getPartnerKeyColumn(), partnerKeyValue);
         }
         
         // DEBUG: Afficher toutes les colonnes disponibles (après traitement)
-        if (!processedBoData.isEmpty()) {
-            logger.info("📋 Colonnes BO disponibles: {}", processedBoData.get(0).keySet());
+        if (boTable.size() > 0) {
+            logger.info("📋 Colonnes BO disponibles: {}", boTable.getColumns());
         }
-        if (!processedPartnerData.isEmpty()) {
-            logger.info("📋 Colonnes Partenaire disponibles: {}", processedPartnerData.get(0).keySet());
+        if (partnerTable.size() > 0) {
+            logger.info("📋 Colonnes Partenaire disponibles: {}", partnerTable.getColumns());
         }
         
         try {
             logger.info("🚀 Début de la réconciliation optimisée pour performance");
-            logger.info("📊 Nombre d'enregistrements BO: {}", processedBoData.size());
-            logger.info("📊 Nombre d'enregistrements Partenaire: {}", processedPartnerData.size());
+            logger.info("📊 Nombre d'enregistrements BO: {}", boTable.size());
+            logger.info("📊 Nombre d'enregistrements Partenaire: {}", partnerTable.size());
+            logger.info("📊 Dictionnaire de valeurs: {} valeurs distinctes", dictionary.size());
             logger.info("⚡ Threads parallèles: {}", PARALLEL_THREADS);
             
             // Détection de la logique de réconciliation à utiliser (CONFIGURABLE)
@@ -194,14 +234,15 @@ public class CsvReconciliationService implements DisposableBean {
             if (logicType == ConfigurableReconciliationService.ReconciliationLogicType.SPECIAL_RATIO) {
                 logger.info("🔄 Utilisation de la méthode de réconciliation SPECIAL_RATIO pour TRXBO/OPPART");
                 // Utiliser les données originales pour la réconciliation spéciale
-                request.setBoFileContent(processedBoData);
-                request.setPartnerFileContent(processedPartnerData);
-                return reconcileWithSpecialRatio(request, startTime);
+                request.setBoFileContent(boTable.rows());
+                request.setPartnerFileContent(partnerTable.rows());
+                listener.onStage("Appariement TRXBO/OPPART", 30);
+                return reconcileWithSpecialRatio(request, startTime, listener);
             }
             
             // Appliquer les filtres BO si présents (sur les données traitées)
-            List<Map<String, String>> filteredBoRecords = applyBOFilters(processedBoData, request.getBoColumnFilters());
-            logger.info("✅ Nombre d'enregistrements BO après filtrage: {}", filteredBoRecords.size());
+            int[] filteredBoRows = applyBOFilters(boTable, request.getBoColumnFilters());
+            logger.info("✅ Nombre d'enregistrements BO après filtrage: {}", filteredBoRows.length);
             
             // Initialise la réponse
             ReconciliationResponse response = new ReconciliationResponse();
@@ -210,9 +251,8 @@ public class CsvReconciliationService implements DisposableBean {
             response.setPartnerOnly(new ArrayList<>());
             response.setMismatches(new ArrayList<>());
 
-            // Création optimisée de l'index partenaire avec HashMap au lieu de HashMap avec List
+            // Création optimisée de l'index partenaire : clé -> index de ligne dans la table partenaire
             logger.info("🔍 Création de l'index optimisé des enregistrements partenaire...");
-            Map<String, Map<String, String>> partnerIndex = new HashMap<>();
             
             // Vérifier que l'ExecutorService est disponible
             if (executorService.isShutdown()) {
@@ -228,59 +268,40 @@ public class CsvReconciliationService implements DisposableBean {
             logger.info("  BO Key: '{}' -> '{}'", request.getBoKeyColumn(), normalizedBoKeyColumn);
             logger.info("  Partner Key: '{}' -> '{}'", request.getPartnerKeyColumn(), normalizedPartnerKeyColumn);
             
-            // Traitement parallèle de l'indexation partenaire
-            int partnerChunkSize = processedPartnerData.size() / PARALLEL_THREADS;
-            List<CompletableFuture<Void>> partnerIndexFutures = new ArrayList<>();
-            
-            for (int i = 0; i < PARALLEL_THREADS; i++) {
-                final int startIndex = i * partnerChunkSize;
-                final int endIndex = (i == PARALLEL_THREADS - 1) ? processedPartnerData.size() : (i + 1) * partnerChunkSize;
-                
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                    for (int j = startIndex; j < endIndex; j++) {
-                        Map<String, String> partnerRecord = processedPartnerData.get(j);
-                        // Chercher la clé avec normalisation
-                        String partnerKey = findKeyWithNormalization(partnerRecord, normalizedPartnerKeyColumn);
-                        if (partnerKey != null) {
-                            synchronized (partnerIndex) {
-                                partnerIndex.put(partnerKey, partnerRecord);
-                            }
-                        }
-                    }
-                }, executorService);
-                
-                partnerIndexFutures.add(future);
-            }
-            
-            // Attendre la fin de l'indexation
-            CompletableFuture.allOf(partnerIndexFutures.toArray(new CompletableFuture[0])).join();
+            // Indexation parallèle partitionnée, sans verrou global (dernière ligne gagne en cas de clé dupliquée)
+            listener.onStage("Indexation des enregistrements partenaire", 25);
+            int partnerKeyCol = partnerTable.columnIndex(normalizedPartnerKeyColumn);
+            ShardedKeyIndex<Integer> partnerIndex = ShardedKeyIndex.unique(partnerTable.size(),
+                row -> partnerTable.get(row, partnerKeyCol), executorService, PARALLEL_THREADS);
             logger.info("✅ Index partenaire optimisé créé avec {} clés", partnerIndex.size());
+            checkCancelled(listener);
+            listener.onStage("Appariement des enregistrements", 35);
 
             // Traitement parallèle des enregistrements BO
             logger.info("🔄 Début du traitement parallèle par lots (taille: {})", BATCH_SIZE);
             
             Set<String> processedBoKeys = Collections.newSetFromMap(new ConcurrentHashMap<>());
-            int totalRecords = filteredBoRecords.size();
+            int totalRecords = filteredBoRows.length;
             int processedRecords = 0;
             
-            // Diviser les données BO en chunks pour traitement parallèle
-            List<List<Map<String, String>>> boChunks = new ArrayList<>();
-            for (int i = 0; i < filteredBoRecords.size(); i += BATCH_SIZE) {
-                int endIndex = Math.min(i + BATCH_SIZE, filteredBoRecords.size());
-                boChunks.add(filteredBoRecords.subList(i, endIndex));
-            }
-            
-            // Traitement parallèle des chunks
+            // Traitement parallèle des chunks (plages d'index de lignes BO)
             List<CompletableFuture<ReconciliationBatchResult>> batchFutures = new ArrayList<>();
             
-            for (List<Map<String, String>> chunk : boChunks) {
+            for (int i = 0; i < filteredBoRows.length; i += BATCH_SIZE) {
+                final int from = i;
+                final int to = Math.min(i + BATCH_SIZE, filteredBoRows.length);
                 CompletableFuture<ReconciliationBatchResult> future = CompletableFuture.supplyAsync(() -> 
-                    processBatchOptimized(chunk, partnerIndex, request, processedBoKeys, normalizedBoKeyColumn), executorService);
+                    processBatchOptimized(boTable, filteredBoRows, from, to, partnerTable, partnerIndex,
+                        request, processedBoKeys, normalizedBoKeyColumn), executorService);
                 batchFutures.add(future);
             }
             
             // Collecter les résultats
             for (CompletableFuture<ReconciliationBatchResult> future : batchFutures) {
+                if (listener.isCancelled()) {
+                    batchFutures.forEach(pending -> pending.cancel(false));
+                    checkCancelled(listener);
+                }
                 ReconciliationBatchResult result = future.get();
                 response.getMatches().addAll(result.getMatches());
                 response.getBoOnly().addAll(result.getBoOnly());
@@ -295,20 +316,23 @@ public class CsvReconciliationService implements DisposableBean {
                 
                 logger.info("📊 Progression: {}% ({}/{} enregistrements) - Vitesse: {} rec/s - Temps: {} ms", 
                     String.format("%.2f", progress), processedRecords, totalRecords, String.format("%.0f", recordsPerSecond), elapsedTime);
+                listener.onStage("Appariement des enregistrements", 35 + (int) (progress * 0.55));
             }
+            checkCancelled(listener);
 
             // Recherche optimisée des enregistrements uniquement dans le fichier partenaire
             logger.info("🔍 Recherche optimisée des enregistrements uniquement partenaire...");
+            listener.onStage("Recherche des enregistrements uniquement partenaire", 90);
             int partnerOnlyCount = 0;
             
             // Utilisation d'un Set pour une recherche O(1) au lieu de O(n)
             Set<String> processedBoKeysSet = new HashSet<>(processedBoKeys);
             
-            // Utiliser processedPartnerData (données transformées) au lieu de request.getPartnerFileContent()
-            for (Map<String, String> partnerRecord : processedPartnerData) {
-                String partnerKey = findKeyWithNormalization(partnerRecord, normalizedPartnerKeyColumn);
+            // Utiliser la table partenaire (données transformées) au lieu de request.getPartnerFileContent()
+            for (int j = 0; j < partnerTable.size(); j++) {
+                String partnerKey = partnerTable.get(j, partnerKeyCol);
                 if (partnerKey != null && !processedBoKeysSet.contains(partnerKey)) {
-                    response.getPartnerOnly().add(partnerRecord);
+                    response.getPartnerOnly().add(partnerTable.rowView(j));
                     partnerOnlyCount++;
                     
                     if (partnerOnlyCount <= 10) {
@@ -320,8 +344,8 @@ public class CsvReconciliationService implements DisposableBean {
             logger.info("✅ Nombre total d'enregistrements uniquement partenaire: {}", partnerOnlyCount);
 
             // Calcule les totaux (utiliser les données traitées)
-            response.setTotalBoRecords(filteredBoRecords.size());
-            response.setTotalPartnerRecords(processedPartnerData.size());
+            response.setTotalBoRecords(filteredBoRows.length);
+            response.setTotalPartnerRecords(partnerTable.size());
             response.setTotalMatches(response.getMatches().size());
             response.setTotalMismatches(response.getMismatches().size());
             response.setTotalBoOnly(response.getBoOnly().size());
@@ -351,6 +375,9 @@ public class CsvReconciliationService implements DisposableBean {
             
             return response;
 
+        } catch (CancellationException e) {
+            logger.info("⏹️ Réconciliation annulée après {} ms", System.currentTimeMillis() - startTime);
+            throw e;
         } catch (Exception e) {
             long totalTime = System.currentTimeMillis() - startTime;
             logger.error("❌ Erreur lors de la réconciliation après {} ms: {}", totalTime, e.getMessage(), e);
@@ -362,6 +389,306 @@ public class CsvReconciliationService implements DisposableBean {
         }
     }
 
+    /**
+     * Réconciliation en flux à partir des fichiers bruts BO/partenaire (mode multipart)
+     * Seuls les enregistrements partenaires sont matérialisés (index par clé) ; les lignes BO sont lues,
+     * traitées et appariées au fil de l'eau. Le résultat est identique aux chemins 1-1 et SPECIAL_RATIO de {@link #reconcile}.
+     *
+     * @param boSource Source ré-ouvrable des lignes BO (une passe de détection TRXBO peut précéder l'appariement)
+     * @param partnerSource Source des lignes partenaires
+     * @param request Paramètres de réconciliation (clés, colonnes de comparaison, filtres, modèle) sans contenu de fichier
+     */
+    public ReconciliationResponse reconcileStreaming(TabularFileReader.RowSource boSource,
+                                                     TabularFileReader.RowSource partnerSource,
+                                                     ReconciliationRequest request) throws IOException {
+        return reconcileStreaming(boSource, partnerSource, request, ProgressListener.NONE);
+    }
+
+    /**
+     * Réconciliation en flux avec publication de la progression et arrêt sur annulation du listener
+     */
+    public ReconciliationResponse reconcileStreaming(TabularFileReader.RowSource boSource,
+                                                     TabularFileReader.RowSource partnerSource,
+                                                     ReconciliationRequest request,
+                                                     ProgressListener listener) throws IOException {
+        long startTime = System.currentTimeMillis();
+        
+        if (request.getComparisonColumns() == null) {
+            request.setComparisonColumns(new ArrayList<>());
+        }
+        
+        // 1. Lecture des lignes partenaires brutes en table (nécessaires à la détection du modèle et à l'index)
+        RecordTable rawPartnerTable = new RecordTable(new RecordTable.Dictionary());
+        try (TabularFileReader.RowCursor cursor = partnerSource.open()) {
+            while (cursor.hasNext()) {
+                rawPartnerTable.appendRow(cursor.next());
+            }
+        }
+        List<Map<String, String>> rawPartnerData = rawPartnerTable.rows();
+        
+        // Colonnes BO (première ligne) sans charger le fichier
+        Set<String> boColumns = Collections.emptySet();
+        try (TabularFileReader.RowCursor cursor = boSource.open()) {
+            if (cursor.hasNext()) {
+                boColumns = cursor.next().keySet();
+            }
+        }
+        
+        logger.info("🌊 Début de la réconciliation en flux - Partenaire: {} lignes, colonnes BO: {}", 
+            rawPartnerData.size(), boColumns);
+        
+        // Requête de détection : seules les données partenaires sont nécessaires à la recherche du modèle
+        ReconciliationRequest detectionRequest = new ReconciliationRequest();
+        detectionRequest.setBoFileContent(Collections.emptyList());
+        detectionRequest.setPartnerFileContent(rawPartnerData);
+        detectionRequest.setBoKeyColumn(request.getBoKeyColumn());
+        detectionRequest.setPartnerKeyColumn(request.getPartnerKeyColumn());
+        detectionRequest.setModelId(request.getModelId());
+        detectionRequest.setBoColumnFilters(request.getBoColumnFilters());
+        
+        String boModelId = request.getModelId();
+        if (boModelId == null && request.getBoColumnFilters() != null && !request.getBoColumnFilters().isEmpty()) {
+            boModelId = request.getBoColumnFilters().get(0).getModelId();
+        }
+        String partnerModelId = configurableReconciliationService.getPartnerModelId(detectionRequest);
+        if (partnerModelId == null || partnerModelId.isEmpty()) {
+            logger.warn("⚠️ Aucun modèle partenaire spécifique trouvé, utilisation du modelId BO: {}", boModelId);
+            partnerModelId = boModelId;
+        }
+        
+        // Détection TRXBO/OPPART : les valeurs BO ne sont parcourues (en flux) que si les colonnes ne suffisent pas
+        Set<String> partnerColumns = new HashSet<>(rawPartnerTable.getColumns());
+        boolean isTRXBOOPPART = configurableReconciliationService.detectTRXBOOPPARTContent(boColumns, partnerColumns,
+            () -> scanForMarker(boSource, "TRXBO"),
+            () -> configurableReconciliationService.containsMarkerValue(rawPartnerData, "OPPART"));
+        
+        RecordTable partnerTable = applyColumnProcessingRules(rawPartnerTable, "partner", partnerModelId);
+        detectionRequest.setPartnerFileContent(partnerTable.rows());
+        
+        if (isTRXBOOPPART) {
+            logger.info("🔍 Réconciliation TRXBO/OPPART détectée - Utilisation de la logique SPECIAL_RATIO en flux");
+            listener.onStage("Appariement TRXBO/OPPART", 30);
+            return reconcileStreamingWithSpecialRatio(boSource, partnerTable, detectionRequest, request,
+                boModelId, startTime, listener);
+        }
+        listener.onStage("Appariement des enregistrements", 35);
+        return reconcileStreamingStandard(boSource, partnerTable, request, boModelId, startTime, listener);
+    }
+
+    /**
+     * Chemin 1-1 en flux : index partenaire unique, lots BO appariés en parallèle et fusionnés dans l'ordre du fichier
+     */
+    private ReconciliationResponse reconcileStreamingStandard(TabularFileReader.RowSource boSource,
+                                                              RecordTable partnerTable,
+                                                              ReconciliationRequest request, String boModelId,
+                                                              long startTime, ProgressListener listener) throws IOException {
+        int partnerKeyCol = partnerTable.columnIndex(request.getPartnerKeyColumn());
+        
+        ShardedKeyIndex<Integer> partnerIndex = ShardedKeyIndex.unique(partnerTable.size(),
+            row -> partnerTable.get(row, partnerKeyCol), executorService, PARALLEL_THREADS);
+        logger.info("✅ Index partenaire (flux) créé avec {} clés", partnerIndex.size());
+        
+        ReconciliationResponse response = new ReconciliationResponse();
+        response.setMatches(new ArrayList<>());
+        response.setBoOnly(new ArrayList<>());
+        response.setPartnerOnly(new ArrayList<>());
+        response.setMismatches(new ArrayList<>());
+        
+        Set<String> processedBoKeys = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        Deque<CompletableFuture<ReconciliationBatchResult>> pendingBatches = new ArrayDeque<>();
+        int maxPendingBatches = PARALLEL_THREADS * 2;
+        int totalRecords = 0;
+        UnaryOperator<RecordTable> boRules = columnProcessingRulesForBatches(boModelId);
+        
+        try (TabularFileReader.RowCursor cursor = boSource.open()) {
+            // Chaque lot BO a son propre dictionnaire : il est construit sur le thread de lecture pendant
+            // que les lots précédents sont appariés
+            RecordTable batch = new RecordTable(new RecordTable.Dictionary(), BATCH_SIZE);
+            while (cursor.hasNext()) {
+                batch.appendRow(cursor.next());
+                if (batch.size() >= BATCH_SIZE) {
+                    checkCancelled(listener);
+                    totalRecords += submitStreamingBatch(batch, boRules, partnerTable, partnerIndex, request,
+                        processedBoKeys, pendingBatches);
+                    batch = new RecordTable(new RecordTable.Dictionary(), BATCH_SIZE);
+                    // Borne le nombre de lots en vol pour garder une mémoire constante côté BO
+                    while (pendingBatches.size() >= maxPendingBatches) {
+                        mergeBatchResult(response, pendingBatches.removeFirst().join());
+                    }
+                }
+            }
+            if (batch.size() > 0) {
+                totalRecords += submitStreamingBatch(batch, boRules, partnerTable, partnerIndex, request,
+                    processedBoKeys, pendingBatches);
+            }
+            while (!pendingBatches.isEmpty()) {
+                mergeBatchResult(response, pendingBatches.removeFirst().join());
+            }
+        }
+        
+        checkCancelled(listener);
+        listener.onStage("Recherche des enregistrements uniquement partenaire", 90);
+        for (int j = 0; j < partnerTable.size(); j++) {
+            String partnerKey = partnerTable.get(j, partnerKeyCol);
+            if (partnerKey != null && !processedBoKeys.contains(partnerKey)) {
+                response.getPartnerOnly().add(partnerTable.rowView(j));
+            }
+        }
+        
+        response.setTotalBoRecords(totalRecords);
+        response.setTotalPartnerRecords(partnerTable.size());
+        response.setTotalMatches(response.getMatches().size());
+        response.setTotalMismatches(response.getMismatches().size());
+        response.setTotalBoOnly(response.getBoOnly().size());
+        response.setTotalPartnerOnly(response.getPartnerOnly().size());
+        
+        long totalTime = System.currentTimeMillis() - startTime;
+        response.setExecutionTimeMs(totalTime);
+        response.setProcessedRecords(totalRecords);
+        response.setProgressPercentage(100.0);
+        
+        logger.info("🎯 Réconciliation en flux terminée en {} ms - {} correspondances, {} BO uniquement, {} partenaire uniquement",
+            totalTime, response.getTotalMatches(), response.getTotalBoOnly(), response.getTotalPartnerOnly());
+        return response;
+    }
+
+    /**
+     * Traite un lot BO lu en flux (règles du modèle appliquées sur place puis filtres) et soumet son appariement
+     * @return Nombre de lignes BO retenues après filtrage
+     */
+    private int submitStreamingBatch(RecordTable batch, UnaryOperator<RecordTable> boRules,
+                                     RecordTable partnerTable, ShardedKeyIndex<Integer> partnerIndex,
+                                     ReconciliationRequest request, Set<String> processedBoKeys,
+                                     Deque<CompletableFuture<ReconciliationBatchResult>> pendingBatches) {
+        RecordTable processedBatch = boRules.apply(batch);
+        int[] rows = filterBORows(processedBatch, request.getBoColumnFilters());
+        pendingBatches.addLast(CompletableFuture.supplyAsync(() ->
+            processBatchOptimized(processedBatch, rows, 0, rows.length, partnerTable, partnerIndex,
+                request, processedBoKeys, request.getBoKeyColumn()), executorService));
+        return rows.length;
+    }
+
+    /**
+     * Chemin SPECIAL_RATIO (TRXBO/OPPART) en flux : index partenaire groupé par clé, lignes BO classées au fil de l'eau
+     */
+    private ReconciliationResponse reconcileStreamingWithSpecialRatio(TabularFileReader.RowSource boSource,
+                                                                      RecordTable partnerTable,
+                                                                      ReconciliationRequest detectionRequest,
+                                                                      ReconciliationRequest request, String boModelId,
+                                                                      long startTime, ProgressListener listener) throws IOException {
+        List<ConfigurableReconciliationService.CorrespondenceRule> correspondenceRules =
+            configurableReconciliationService.getCorrespondenceRules(detectionRequest, true);
+        if (correspondenceRules.isEmpty()) {
+            correspondenceRules = createDefaultTRXBOOPPARTRules();
+        }
+        CompiledCorrespondenceRules compiledRules = CompiledCorrespondenceRules.compile(correspondenceRules);
+        
+        String boKeyColumn = request.getBoKeyColumn();
+        String partnerKeyColumn = request.getPartnerKeyColumn();
+        
+        List<Map<String, String>> partnerRecords = partnerTable.rows();
+        int partnerKeyCol = partnerTable.columnIndex(partnerKeyColumn);
+        ShardedKeyIndex<List<Map<String, String>>> partnerIndex = ShardedKeyIndex.grouped(partnerTable.size(),
+            row -> partnerTable.get(row, partnerKeyCol), partnerTable::rowView, executorService, PARALLEL_THREADS);
+        logger.info("✅ Index OPPART (flux) créé avec {} clés uniques", partnerIndex.size());
+        
+        ReconciliationResponse response = new ReconciliationResponse();
+        response.setMatches(new ArrayList<>());
+        response.setBoOnly(new ArrayList<>());
+        response.setPartnerOnly(new ArrayList<>());
+        response.setMismatches(new ArrayList<>());
+        
+        // Nombre de TRXBO correspondant à chaque OPPART, cumulé pendant la passe BO
+        RatioBatchResult batch = new RatioBatchResult();
+        
+        int readCount = 0;
+        try (TabularFileReader.RowCursor cursor = boSource.open()) {
+            UnaryOperator<Map<String, String>> boRowProcessor = columnProcessingRulesForRows(boModelId, cursor.getHeaders());
+            while (cursor.hasNext()) {
+                // Le volume BO n'est pas connu en flux : vérification de l'annulation toutes les BATCH_SIZE lignes lues
+                if (++readCount % BATCH_SIZE == 0) {
+                    checkCancelled(listener);
+                    listener.onStage("Appariement TRXBO/OPPART (" + readCount + " lignes BO)", 30);
+                }
+                Map<String, String> boRecord = boRowProcessor.apply(cursor.next());
+                if (!matchesBOFilters(boRecord, request.getBoColumnFilters())) {
+                    continue;
+                }
+                batch.processedCount++;
+                
+                String boKey = boRecord.get(boKeyColumn);
+                if (boKey == null) {
+                    batch.boOnly.add(boRecord);
+                    continue;
+                }
+                
+                List<Map<String, String>> matchingPartnerRecords = partnerIndex.get(boKey);
+                int partnerMatchCount = matchingPartnerRecords != null ? matchingPartnerRecords.size() : 0;
+                if (partnerMatchCount > 0) {
+                    batch.partnerMatchCounts.merge(boKey, partnerMatchCount, Integer::sum);
+                }
+                
+                String action = compiledRules.actionFor(partnerMatchCount);
+                applyRatioAction(action, boKey, boRecord, matchingPartnerRecords, partnerMatchCount, batch);
+            }
+        }
+        
+        Set<String> processedPartnerKeys = new HashSet<>();
+        Map<String, Integer> partnerMatchCountMap = new HashMap<>();
+        mergeRatioBatch(response, batch, processedPartnerKeys, partnerMatchCountMap);
+        int processedCount = batch.processedCount;
+        
+        checkCancelled(listener);
+        listener.onStage("Recherche des enregistrements uniquement partenaire", 90);
+        addUnprocessedRatioPartners(partnerRecords, partnerKeyColumn, processedPartnerKeys, partnerMatchCountMap, response);
+        
+        response.setTotalBoRecords(processedCount);
+        response.setTotalPartnerRecords(partnerTable.size());
+        response.setTotalMatches(response.getMatches().size());
+        response.setTotalMismatches(response.getMismatches().size());
+        response.setTotalBoOnly(response.getBoOnly().size());
+        response.setTotalPartnerOnly(response.getPartnerOnly().size());
+        
+        long totalTime = System.currentTimeMillis() - startTime;
+        response.setExecutionTimeMs(totalTime);
+        response.setProcessedRecords(processedCount);
+        response.setProgressPercentage(100.0);
+        
+        logger.info("🎯 Réconciliation TRXBO/OPPART en flux terminée en {} ms - {} correspondances, {} écarts, {} BO uniquement, {} partenaire uniquement",
+            totalTime, response.getTotalMatches(), response.getTotalMismatches(), response.getTotalBoOnly(), response.getTotalPartnerOnly());
+        return response;
+    }
+
+    /**
+     * Parcourt les premières valeurs d'une source en flux à la recherche d'un marqueur (sans conserver les lignes)
+     */
+    private boolean scanForMarker(TabularFileReader.RowSource source, String marker) {
+        try (TabularFileReader.RowCursor cursor = source.open()) {
+            int sampled = 0;
+            while (cursor.hasNext() && sampled++ < ConfigurableReconciliationService.MARKER_SAMPLE_SIZE) {
+                if (configurableReconciliationService.containsMarkerValue(cursor.next(), marker)) {
+                    logger.info("🔍 {} détecté dans les valeurs", marker);
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return false;
+    }
+
+    private void checkCancelled(ProgressListener listener) {
+        if (listener.isCancelled()) {
+            throw new CancellationException("Réconciliation annulée");
+        }
+    }
+
+    private void mergeBatchResult(ReconciliationResponse response, ReconciliationBatchResult result) {
+        response.getMatches().addAll(result.getMatches());
+        response.getBoOnly().addAll(result.getBoOnly());
+        response.getMismatches().addAll(result.getMismatches());
+    }
+
     /**
      * Détecte si c'est une réconciliation spéciale TRXBO/OPPART (DÉPRÉCIÉ - Utilise maintenant la logique configurable)
      */
@@ -573,7 +900,8 @@ public class CsvReconciliationService implements DisposableBean {
      * Réconciliation avec logique de ratio spéciale configurable
      * Utilise les règles de correspondance configurées dans les modèles
      */
-    private ReconciliationResponse reconcileWithSpecialRatio(ReconciliationRequest request, long startTime) {
+    private ReconciliationResponse reconcileWithSpecialRatio(ReconciliationRequest request, long startTime,
+                                                             ProgressListener listener) {
         logger.info("🔄 Début de la réconciliation avec logique de ratio spéciale configurable");
         
         // Récupérer les règles de correspondance configurées
@@ -597,19 +925,13 @@ public class CsvReconciliationService implements DisposableBean {
         response.setMismatches(new ArrayList<>());
         
         // Créer un index des enregistrements OPPART groupés par clé
-        Map<String, List<Map<String, String>>> partnerIndex = new HashMap<>();
-        
         logger.info("🔍 DEBUG - Création de l'index Partner avec colonne clé: '{}'", request.getPartnerKeyColumn());
         
-        int partnerKeysWithNull = 0;
-        for (Map<String, String> partnerRecord : request.getPartnerFileContent()) {
-            String partnerKey = partnerRecord.get(request.getPartnerKeyColumn());
-            if (partnerKey != null) {
-                partnerIndex.computeIfAbsent(partnerKey, k -> new ArrayList<>()).add(partnerRecord);
-            } else {
-                partnerKeysWithNull++;
-            }
-        }
+        List<Map<String, String>> partnerRecords = request.getPartnerFileContent();
+        String partnerKeyColumn = request.getPartnerKeyColumn();
+        ShardedKeyIndex<List<Map<String, String>>> partnerIndex = ShardedKeyIndex.grouped(partnerRecords.size(),
+            row -> partnerRecords.get(row).get(partnerKeyColumn), partnerRecords::get, executorService, PARALLEL_THREADS);
+        int partnerKeysWithNull = partnerRecords.size() - partnerIndex.getIndexedRowCount();
         
         logger.info("✅ Index OPPART créé avec {} clés uniques ({} enregistrements avec clé null)", 
             partnerIndex.size(), partnerKeysWithNull);
@@ -626,48 +948,29 @@ public class CsvReconciliationService implements DisposableBean {
             }
         }
         
-        // Traiter chaque enregistrement TRXBO
-        Set<String> processedPartnerKeys = new HashSet<>();
-        int processedCount = 0;
-        int boKeysWithNull = 0;
-        int boKeysNotFound = 0;
-        Set<String> sampleBoKeys = new HashSet<>();
-        Set<String> samplePartnerKeys = new HashSet<>();
+        // Quelques clés BO examinées avant l'appariement (diagnostic des clés non trouvées)
+        String boKeyColumn = request.getBoKeyColumn();
+        Set<String> sampleBoKeys = new LinkedHashSet<>();
+        Set<String> samplePartnerKeys = new LinkedHashSet<>();
         
-        logger.info("🔍 DEBUG - Traitement des enregistrements BO avec colonne clé: '{}'", request.getBoKeyColumn());
+        logger.info("🔍 DEBUG - Traitement des enregistrements BO avec colonne clé: '{}'", boKeyColumn);
         
-        for (Map<String, String> boRecord : filteredBoRecords) {
-            String boKey = boRecord.get(request.getBoKeyColumn());
+        for (int i = 0; i < Math.min(10, filteredBoRecords.size()); i++) {
+            String boKey = filteredBoRecords.get(i).get(boKeyColumn);
             if (boKey == null) {
-                boKeysWithNull++;
-                response.getBoOnly().add(boRecord);
-                processedCount++;
                 continue;
             }
-            
-            // Collecter quelques exemples de clés BO pour debug
             if (sampleBoKeys.size() < 5) {
                 sampleBoKeys.add(boKey);
             }
-            
             List<Map<String, String>> matchingPartnerRecords = partnerIndex.get(boKey);
             int partnerMatchCount = matchingPartnerRecords != null ? matchingPartnerRecords.size() : 0;
+            logger.info("🔍 DEBUG - TRXBO key[{}]: '{}' (longueur: {}) -> {} correspondances OPPART", 
+                i, boKey, boKey.length(), partnerMatchCount);
             
-            if (partnerMatchCount == 0) {
-                boKeysNotFound++;
-            }
-            
-            // Log pour debug des premières correspondances
-            if (processedCount < 10) {
-                logger.info("🔍 DEBUG - TRXBO key[{}]: '{}' (longueur: {}) -> {} correspondances OPPART", 
-                    processedCount, boKey, boKey != null ? boKey.length() : 0, partnerMatchCount);
-            }
-            
-            // DEBUG: Vérifier si la clé existe dans l'index (avec différentes variantes)
-            if (processedCount < 5 && partnerMatchCount == 0) {
-                // Vérifier avec trim
-                String trimmedBoKey = boKey != null ? boKey.trim() : null;
-                boolean foundWithTrim = trimmedBoKey != null && partnerIndex.containsKey(trimmedBoKey);
+            // DEBUG: Vérifier si la clé existe dans l'index (avec trim)
+            if (i < 5 && partnerMatchCount == 0) {
+                boolean foundWithTrim = partnerIndex.containsKey(boKey.trim());
                 
                 // Vérifier quelques clés Partner pour comparaison
                 if (samplePartnerKeys.size() < 5 && !partnerIndex.isEmpty()) {
@@ -682,137 +985,56 @@ public class CsvReconciliationService implements DisposableBean {
                     logger.warn("  ⚠️ PROBLÈME DÉTECTÉ: Les clés nécessitent un trim()!");
                 }
             }
-            
-            // Appliquer les règles de correspondance configurées
-            String action = determineActionFromRules(correspondenceRules, partnerMatchCount);
-            
-            switch (action) {
-                case "MARK_AS_MATCH":
-                    logger.debug("✅ CORRESPONDANCE PARFAITE: {} correspondances pour key: {}", partnerMatchCount, boKey);
-                    
-                    // Créer un match avec les enregistrements partenaires
-                    ReconciliationResponse.Match match = new ReconciliationResponse.Match();
-                    match.setKey(boKey);
-                    match.setBoData(boRecord);
-                    
-                    // Combiner les enregistrements partenaires
-                    Map<String, String> combinedPartnerData = new HashMap<>();
-                    if (matchingPartnerRecords != null) {
-                        for (int i = 0; i < matchingPartnerRecords.size(); i++) {
-                        Map<String, String> partnerRecord = matchingPartnerRecords.get(i);
-                        for (Map.Entry<String, String> entry : partnerRecord.entrySet()) {
-                            String key = entry.getKey();
-                            String value = entry.getValue();
-                            // Ajouter un suffixe pour distinguer les enregistrements
-                            combinedPartnerData.put(key + "_PARTNER_" + (i + 1), value);
-                        }
-                        }
-                    }
-                    match.setPartnerData(combinedPartnerData);
-                    match.setDifferences(new ArrayList<>());
-                    
-                    response.getMatches().add(match);
-                    processedPartnerKeys.add(boKey);
-                    break;
-                    
-                case "MARK_AS_MISMATCH_TRXSF":
-                    // Transaction avec une seule correspondance (TRXSF)
-                    logger.debug("⚠️ TRXSF: {} correspondance pour key: {}", partnerMatchCount, boKey);
-                    Map<String, String> boRecordTRXSF = new HashMap<>(boRecord);
-                    boRecordTRXSF.put("Commentaire", "TRXSF");
-                    response.getBoOnly().add(boRecordTRXSF);
-                    if (matchingPartnerRecords != null) {
-                        for (Map<String, String> partnerRecord : matchingPartnerRecords) {
-                            Map<String, String> partnerRecordTRXSF = new HashMap<>(partnerRecord);
-                            partnerRecordTRXSF.put("Commentaire", "TRXSF");
-                            response.getPartnerOnly().add(partnerRecordTRXSF);
-                        }
-                    }
-                    processedPartnerKeys.add(boKey);
-                    break;
-                    
-                case "MARK_AS_MISMATCH":
-                    // Écart générique (>=3 correspondances)
-                    logger.debug("❌ ÉCART: {} correspondances pour key: {} (condition non respectée)", partnerMatchCount, boKey);
-                    Map<String, String> boRecordEcart = new HashMap<>(boRecord);
-                    boRecordEcart.put("Commentaire", "Ecart");
-                    response.getMismatches().add(boRecordEcart);
-                    if (matchingPartnerRecords != null) {
-                        for (Map<String, String> partnerRecord : matchingPartnerRecords) {
-                            Map<String, String> partnerRecordEcart = new HashMap<>(partnerRecord);
-                            partnerRecordEcart.put("Commentaire", "Ecart");
-                            response.getPartnerOnly().add(partnerRecordEcart);
-                        }
-                    }
-                    processedPartnerKeys.add(boKey);
-                    break;
-                    
-                case "MARK_AS_BO_ONLY_TSOP":
-                    // Transaction sans correspondance (TSOP)
-                    logger.debug("📈 TSOP: {} correspondances pour key: {}", partnerMatchCount, boKey);
-                    Map<String, String> boRecordTSOP = new HashMap<>(boRecord);
-                    boRecordTSOP.put("Commentaire", "TSOP");
-                    response.getBoOnly().add(boRecordTSOP);
-                    break;
-                    
-                case "MARK_AS_BO_ONLY":
-                default:
-                    // Par défaut: BO uniquement sans commentaire spécifique
-                    logger.debug("📈 BO UNIQUEMENT: {} correspondances pour key: {}", partnerMatchCount, boKey);
-                    response.getBoOnly().add(boRecord);
-                    break;
-            }
-            
-            processedCount++;
-            
-            // Log de progression
-            if (processedCount % 1000 == 0) {
-                double progress = (double) processedCount / filteredBoRecords.size() * 100;
-                logger.info("📊 Progression TRXBO/OPPART: {}% ({}/{} enregistrements)", 
-                    String.format("%.2f", progress), processedCount, filteredBoRecords.size());
-            }
         }
         
-        // Identifier les enregistrements OPPART non utilisés
-        // Créer un index inverse pour compter combien de TRXBO correspondent à chaque OPPART
-        Map<String, Integer> partnerMatchCountMap = new HashMap<>();
-        for (Map<String, String> boRecord : filteredBoRecords) {
-            String boKey = boRecord.get(request.getBoKeyColumn());
-            if (boKey != null) {
-                List<Map<String, String>> matchingPartnerRecords = partnerIndex.get(boKey);
-                if (matchingPartnerRecords != null) {
-                    for (Map<String, String> partnerRecord : matchingPartnerRecords) {
-                        String partnerKey = partnerRecord.get(request.getPartnerKeyColumn());
-                        if (partnerKey != null) {
-                            partnerMatchCountMap.put(partnerKey, partnerMatchCountMap.getOrDefault(partnerKey, 0) + 1);
-                        }
-                    }
+        // Traiter les enregistrements TRXBO par lots parallèles, fusionnés dans l'ordre des lots
+        CompiledCorrespondenceRules compiledRules = CompiledCorrespondenceRules.compile(correspondenceRules);
+        List<RatioBatchResult> batches = processRatioBatches(filteredBoRecords.size(), "TRXBO/OPPART", listener, (from, to) -> {
+            RatioBatchResult batch = new RatioBatchResult();
+            for (int i = from; i < to; i++) {
+                Map<String, String> boRecord = filteredBoRecords.get(i);
+                batch.processedCount++;
+                String boKey = boRecord.get(boKeyColumn);
+                if (boKey == null) {
+                    batch.boKeysWithNull++;
+                    batch.boOnly.add(boRecord);
+                    continue;
                 }
-            }
-        }
-        
-        // Classifier les OPPART non utilisés
-        for (Map<String, String> partnerRecord : request.getPartnerFileContent()) {
-            String partnerKey = partnerRecord.get(request.getPartnerKeyColumn());
-            if (partnerKey != null && !processedPartnerKeys.contains(partnerKey)) {
-                Map<String, String> partnerRecordWithComment = new HashMap<>(partnerRecord);
-                int boMatchCount = partnerMatchCountMap.getOrDefault(partnerKey, 0);
                 
-                if (boMatchCount == 0) {
-                    // Opération sans correspondance
-                    partnerRecordWithComment.put("Commentaire", "Ecart");
-                } else if (boMatchCount == 1) {
-                    // Opération avec une seule correspondance
-                    partnerRecordWithComment.put("Commentaire", "TRXSF");
+                List<Map<String, String>> matchingPartnerRecords = partnerIndex.get(boKey);
+                int partnerMatchCount = matchingPartnerRecords != null ? matchingPartnerRecords.size() : 0;
+                if (partnerMatchCount == 0) {
+                    batch.boKeysNotFound++;
                 } else {
-                    // Opération avec plusieurs correspondances (anormal)
-                    partnerRecordWithComment.put("Commentaire", "Ecart");
+                    // Nombre de TRXBO correspondant à chaque OPPART (clé partenaire = clé BO)
+                    batch.partnerMatchCounts.merge(boKey, partnerMatchCount, Integer::sum);
                 }
                 
-                response.getPartnerOnly().add(partnerRecordWithComment);
+                // Appliquer les règles de correspondance configurées
+                String action = compiledRules.actionFor(partnerMatchCount);
+                applyRatioAction(action, boKey, boRecord, matchingPartnerRecords, partnerMatchCount, batch);
             }
+            return batch;
+        });
+        
+        Set<String> processedPartnerKeys = new HashSet<>();
+        Map<String, Integer> partnerMatchCountMap = new HashMap<>();
+        int processedCount = 0;
+        int boKeysWithNull = 0;
+        int boKeysNotFound = 0;
+        for (RatioBatchResult batch : batches) {
+            mergeRatioBatch(response, batch, processedPartnerKeys, partnerMatchCountMap);
+            processedCount += batch.processedCount;
+            boKeysWithNull += batch.boKeysWithNull;
+            boKeysNotFound += batch.boKeysNotFound;
         }
         
+        // Classifier les OPPART non utilisés
+        checkCancelled(listener);
+        listener.onStage("Recherche des enregistrements uniquement partenaire", 90);
+        addUnprocessedRatioPartners(request.getPartnerFileContent(), request.getPartnerKeyColumn(),
+            processedPartnerKeys, partnerMatchCountMap, response);
+        
         // 🔍 DEBUG: Résumé des statistiques de correspondance
         logger.info("🔍 DEBUG - Résumé de la réconciliation:");
         logger.info("  - Enregistrements BO traités: {}", processedCount);
@@ -873,6 +1095,174 @@ public class CsvReconciliationService implements DisposableBean {
         return response;
     }
 
+    /**
+     * Applique l'action issue des règles de correspondance à un enregistrement BO (logique de ratio)
+     */
+    private void applyRatioAction(String action, String boKey, Map<String, String> boRecord,
+                                  List<Map<String, String>> matchingPartnerRecords, int partnerMatchCount,
+                                  RatioBatchResult batch) {
+        switch (action) {
+            case "MARK_AS_MATCH":
+                logger.debug("✅ CORRESPONDANCE PARFAITE: {} correspondances pour key: {}", partnerMatchCount, boKey);
+                
+                // Créer un match avec les enregistrements partenaires
+                ReconciliationResponse.Match match = new ReconciliationResponse.Match();
+                match.setKey(boKey);
+                match.setBoData(boRecord);
+                
+                // Combiner les enregistrements partenaires
+                Map<String, String> combinedPartnerData = new HashMap<>();
+                if (matchingPartnerRecords != null) {
+                    for (int i = 0; i < matchingPartnerRecords.size(); i++) {
+                    Map<String, String> partnerRecord = matchingPartnerRecords.get(i);
+                    for (Map.Entry<String, String> entry : partnerRecord.entrySet()) {
+                        String key = entry.getKey();
+                        String value = entry.getValue();
+                        // Ajouter un suffixe pour distinguer les enregistrements
+                        combinedPartnerData.put(key + "_PARTNER_" + (i + 1), value);
+                    }
+                    }
+                }
+                match.setPartnerData(combinedPartnerData);
+                match.setDifferences(new ArrayList<>());
+                
+                batch.matches.add(match);
+                batch.processedPartnerKeys.add(boKey);
+                break;
+                
+            case "MARK_AS_MISMATCH_TRXSF":
+                // Transaction avec une seule correspondance (TRXSF)
+                logger.debug("⚠️ TRXSF: {} correspondance pour key: {}", partnerMatchCount, boKey);
+                batch.boOnly.add(withComment(boRecord, "TRXSF"));
+                if (matchingPartnerRecords != null) {
+                    for (Map<String, String> partnerRecord : matchingPartnerRecords) {
+                        batch.partnerOnly.add(withComment(partnerRecord, "TRXSF"));
+                    }
+                }
+                batch.processedPartnerKeys.add(boKey);
+                break;
+                
+            case "MARK_AS_MISMATCH":
+                // Écart générique (>=3 correspondances)
+                logger.debug("❌ ÉCART: {} correspondances pour key: {} (condition non respectée)", partnerMatchCount, boKey);
+                batch.mismatches.add(withComment(boRecord, "Ecart"));
+                if (matchingPartnerRecords != null) {
+                    for (Map<String, String> partnerRecord : matchingPartnerRecords) {
+                        batch.partnerOnly.add(withComment(partnerRecord, "Ecart"));
+                    }
+                }
+                batch.processedPartnerKeys.add(boKey);
+                break;
+                
+            case "MARK_AS_BO_ONLY_TSOP":
+                // Transaction sans correspondance (TSOP)
+                logger.debug("📈 TSOP: {} correspondances pour key: {}", partnerMatchCount, boKey);
+                batch.boOnly.add(withComment(boRecord, "TSOP"));
+                break;
+                
+            case "MARK_AS_BO_ONLY":
+            default:
+                // Par défaut: BO uniquement sans commentaire spécifique
+                logger.debug("📈 BO UNIQUEMENT: {} correspondances pour key: {}", partnerMatchCount, boKey);
+                batch.boOnly.add(boRecord);
+                break;
+        }
+    }
+
+    /**
+     * Ajoute les enregistrements partenaires non utilisés, commentés selon le nombre de BO correspondants
+     */
+    private void addUnprocessedRatioPartners(List<Map<String, String>> partnerRecords, String partnerKeyColumn,
+                                             Set<String> processedPartnerKeys, Map<String, Integer> partnerMatchCountMap,
+                                             ReconciliationResponse response) {
+        for (Map<String, String> partnerRecord : partnerRecords) {
+            String partnerKey = partnerRecord.get(partnerKeyColumn);
+            if (partnerKey != null && !processedPartnerKeys.contains(partnerKey)) {
+                int boMatchCount = partnerMatchCountMap.getOrDefault(partnerKey, 0);
+                
+                // Une seule correspondance : TRXSF ; aucune ou plusieurs (anormal) : écart
+                String comment = boMatchCount == 1 ? "TRXSF" : "Ecart";
+                response.getPartnerOnly().add(withComment(partnerRecord, comment));
+            }
+        }
+    }
+
+    /**
+     * Lot BO de la logique de ratio : tampons propres au lot, fusionnés dans l'ordre des lots
+     */
+    private static final class RatioBatchResult {
+        final List<ReconciliationResponse.Match> matches = new ArrayList<>();
+        final List<Map<String, String>> boOnly = new ArrayList<>();
+        final List<Map<String, String>> mismatches = new ArrayList<>();
+        final List<Map<String, String>> partnerOnly = new ArrayList<>();
+        final Set<String> processedPartnerKeys = new HashSet<>();
+        // Nombre de BO correspondant à chaque clé partenaire
+        final Map<String, Integer> partnerMatchCounts = new HashMap<>();
+        int processedCount;
+        int boKeysWithNull;
+        int boKeysNotFound;
+    }
+
+    /**
+     * Traite les lignes BO [0, total) par lots de {@link #BATCH_SIZE} sur l'executor ; la progression de l'appariement
+     * (30 à 85%) est publiée à chaque lot fusionné et une annulation abandonne les lots restants
+     * @return les résultats des lots, dans l'ordre des lignes BO
+     */
+    private List<RatioBatchResult> processRatioBatches(int total, String label, ProgressListener listener,
+                                                       java.util.function.BiFunction<Integer, Integer, RatioBatchResult> batchProcessor) {
+        if (executorService.isShutdown()) {
+            throw new RuntimeException("ExecutorService non disponible");
+        }
+        List<CompletableFuture<RatioBatchResult>> futures = new ArrayList<>();
+        for (int i = 0; i < total; i += BATCH_SIZE) {
+            final int from = i;
+            final int to = Math.min(i + BATCH_SIZE, total);
+            futures.add(CompletableFuture.supplyAsync(() -> batchProcessor.apply(from, to), executorService));
+        }
+        
+        List<RatioBatchResult> results = new ArrayList<>(futures.size());
+        int processedCount = 0;
+        for (CompletableFuture<RatioBatchResult> future : futures) {
+            if (listener.isCancelled()) {
+                futures.forEach(pending -> pending.cancel(false));
+                checkCancelled(listener);
+            }
+            RatioBatchResult result = future.join();
+            results.add(result);
+            processedCount += result.processedCount;
+            double progress = (double) processedCount / total;
+            listener.onStage("Appariement " + label, 30 + (int) (progress * 55));
+            logger.debug("📊 Progression {}: {}% ({}/{} enregistrements)", 
+                label, String.format("%.2f", progress * 100), processedCount, total);
+        }
+        return results;
+    }
+
+    /**
+     * Ajoute un lot à la réponse et cumule ses clés partenaires traitées et ses compteurs de correspondances
+     */
+    private void mergeRatioBatch(ReconciliationResponse response, RatioBatchResult batch,
+                                 Set<String> processedPartnerKeys, Map<String, Integer> partnerMatchCountMap) {
+        response.getMatches().addAll(batch.matches);
+        response.getBoOnly().addAll(batch.boOnly);
+        response.getMismatches().addAll(batch.mismatches);
+        response.getPartnerOnly().addAll(batch.partnerOnly);
+        processedPartnerKeys.addAll(batch.processedPartnerKeys);
+        batch.partnerMatchCounts.forEach((key, count) -> partnerMatchCountMap.merge(key, count, Integer::sum));
+    }
+
+    /**
+     * Enregistrement avec la colonne "Commentaire" : vue sans copie pour une ligne de table, copie sinon
+     */
+    private static Map<String, String> withComment(Map<String, String> record, String comment) {
+        if (record instanceof RecordTable.RowView) {
+            return ((RecordTable.RowView) record).with("Commentaire", comment);
+        }
+        Map<String, String> copy = new HashMap<>(record);
+        copy.put("Commentaire", comment);
+        return copy;
+    }
+
     /**
      * Réconciliation avec types paramétrables (1-1, 1-2, 1-3, 1-4, 1-5)
      * Gère les correspondances multiples selon le type sélectionné
@@ -891,15 +1281,11 @@ public class CsvReconciliationService implements DisposableBean {
         response.setPartnerOnly(new ArrayList<>());
         response.setMismatches(new ArrayList<>());
         
-        // Créer un index des enregistrements partenaire groupés par clé
-        Map<String, List<Map<String, String>>> partnerIndex = new HashMap<>();
-        
-        for (Map<String, String> partnerRecord : request.getPartnerFileContent()) {
-            String partnerKey = partnerRecord.get(request.getPartnerKeyColumn());
-            if (partnerKey != null) {
-                partnerIndex.computeIfAbsent(partnerKey, k -> new ArrayList<>()).add(partnerRecord);
-            }
-        }
+        // Créer un index des enregistrements partenaire groupés par clé (construction parallèle partitionnée)
+        List<Map<String, String>> partnerRecords = request.getPartnerFileContent();
+        String partnerKeyColumn = request.getPartnerKeyColumn();
+        ShardedKeyIndex<List<Map<String, String>>> partnerIndex = ShardedKeyIndex.grouped(partnerRecords.size(),
+            row -> partnerRecords.get(row).get(partnerKeyColumn), partnerRecords::get, executorService, PARALLEL_THREADS);
         
         logger.info("✅ Index partenaire créé avec {} clés uniques", partnerIndex.size());
         
@@ -1039,8 +1425,13 @@ public class CsvReconciliationService implements DisposableBean {
         }
     }
 
-    private ReconciliationBatchResult processBatchOptimized(List<Map<String, String>> batch, 
-                            Map<String, Map<String, String>> partnerIndex,
+    /**
+     * Apparie une plage de lignes BO (index dans {@code boRows}) avec l'index partenaire
+     * Les colonnes de comparaison sont résolues une seule fois par lot
+     */
+    private ReconciliationBatchResult processBatchOptimized(RecordTable boTable, int[] boRows, int from, int to,
+                            RecordTable partnerTable,
+                            ShardedKeyIndex<Integer> partnerIndex,
                             ReconciliationRequest request,
                             Set<String> processedBoKeys,
                             String normalizedBoKeyColumn) {
@@ -1050,36 +1441,43 @@ public class CsvReconciliationService implements DisposableBean {
         List<Map<String, String>> mismatches = new ArrayList<>();
         int processedCount = 0;
 
-        for (Map<String, String> boRecord : batch) {
-            // Utiliser la normalisation pour trouver la clé BO
-            String boKey = findKeyWithNormalization(boRecord, normalizedBoKeyColumn);
+        int boKeyCol = boTable.columnIndex(normalizedBoKeyColumn);
+        List<ColumnComparison> comparisons = request.getComparisonColumns();
+        int[] boComparisonCols = new int[comparisons.size()];
+        int[] partnerComparisonCols = new int[comparisons.size()];
+        for (int c = 0; c < comparisons.size(); c++) {
+            boComparisonCols[c] = boTable.columnIndex(comparisons.get(c).getBoColumn());
+            partnerComparisonCols[c] = partnerTable.columnIndex(comparisons.get(c).getPartnerColumn());
+        }
+
+        for (int i = from; i < to; i++) {
+            int boRow = boRows[i];
+            String boKey = boTable.get(boRow, boKeyCol);
             if (boKey == null) {
-                boOnly.add(boRecord);
+                boOnly.add(boTable.rowView(boRow));
                 processedCount++;
                 continue;
             }
 
             processedBoKeys.add(boKey);
-            Map<String, String> partnerRecord = partnerIndex.get(boKey);
+            Integer partnerRow = partnerIndex.get(boKey);
 
-            if (partnerRecord == null) {
-                boOnly.add(boRecord);
+            if (partnerRow == null) {
+                boOnly.add(boTable.rowView(boRow));
                 processedCount++;
             } else {
                 // Comparaison optimisée - une seule correspondance par clé
                 List<ReconciliationResponse.Difference> differences = new ArrayList<>();
                 boolean isMatch = true;
 
-                for (ColumnComparison comparison : request.getComparisonColumns()) {
-                    String boValue = boRecord.get(comparison.getBoColumn());
-                    String partnerValue = partnerRecord.get(comparison.getPartnerColumn());
-                    
-                    if (!Objects.equals(boValue, partnerValue)) {
+                for (int c = 0; c < comparisons.size(); c++) {
+                    if (!RecordTable.valueEquals(boTable, boRow, boComparisonCols[c], partnerTable, partnerRow, partnerComparisonCols[c])) {
+                        ColumnComparison comparison = comparisons.get(c);
                         ReconciliationResponse.Difference difference = new ReconciliationResponse.Difference();
                         difference.setBoColumn(comparison.getBoColumn());
                         difference.setPartnerColumn(comparison.getPartnerColumn());
-                        difference.setBoValue(boValue);
-                        difference.setPartnerValue(partnerValue);
+                        difference.setBoValue(boTable.get(boRow, boComparisonCols[c]));
+                        difference.setPartnerValue(partnerTable.get(partnerRow, partnerComparisonCols[c]));
                         difference.setDifferent(true);
                         
                         differences.add(difference);
@@ -1090,12 +1488,12 @@ public class CsvReconciliationService implements DisposableBean {
                 if (isMatch) {
                     ReconciliationResponse.Match match = new ReconciliationResponse.Match();
                     match.setKey(boKey);
-                    match.setBoData(boRecord);
-                    match.setPartnerData(partnerRecord);
+                    match.setBoData(boTable.rowView(boRow));
+                    match.setPartnerData(partnerTable.rowView(partnerRow));
                     match.setDifferences(differences);
                     matches.add(match);
                 } else {
-                    mismatches.add(boRecord);
+                    mismatches.add(boTable.rowView(boRow));
                 }
                 processedCount++;
             }
@@ -1144,22 +1542,10 @@ public class CsvReconciliationService implements DisposableBean {
         int excludedCount = 0;
         
         for (Map<String, String> record : boRecords) {
-            boolean shouldInclude = true;
-            
-            for (ReconciliationRequest.BOColumnFilter filter : filters) {
-                String columnValue = record.get(filter.getColumnName());
-                
-                if (columnValue == null || !filter.getSelectedValues().contains(columnValue)) {
-                    shouldInclude = false;
-                    logger.debug("Enregistrement exclu par le filtre {}: valeur '{}' non trouvée dans {}", 
-                        filter.getColumnName(), columnValue, filter.getSelectedValues());
-                    excludedCount++;
-                    break;
-                }
-            }
-            
-            if (shouldInclude) {
+            if (matchesBOFilters(record, filters)) {
                 filteredRecords.add(record);
+            } else {
+                excludedCount++;
             }
         }
         
@@ -1174,6 +1560,73 @@ public class CsvReconciliationService implements DisposableBean {
         return filteredRecords;
     }
 
+    /**
+     * Applique les filtres BO sur la table BO et retourne les index des lignes conservées
+     */
+    private int[] applyBOFilters(RecordTable boTable, List<ReconciliationRequest.BOColumnFilter> filters) {
+        if (filters == null || filters.isEmpty()) {
+            logger.info("Aucun filtre BO à appliquer");
+        } else {
+            logger.info("Application de {} filtres BO", filters.size());
+            for (ReconciliationRequest.BOColumnFilter filter : filters) {
+                logger.info("Filtre: colonne='{}', valeurs sélectionnées={}", 
+                    filter.getColumnName(), filter.getSelectedValues());
+            }
+        }
+        
+        int[] keptRows = filterBORows(boTable, filters);
+        logger.info("Filtrage terminé: {} enregistrements conservés sur {} ({} exclus)", 
+            keptRows.length, boTable.size(), boTable.size() - keptRows.length);
+        return keptRows;
+    }
+
+    /**
+     * Index des lignes de la table satisfaisant tous les filtres BO (colonnes et valeurs résolues une seule fois)
+     */
+    private int[] filterBORows(RecordTable boTable, List<ReconciliationRequest.BOColumnFilter> filters) {
+        int filterCount = filters != null ? filters.size() : 0;
+        int[] filterCols = new int[filterCount];
+        List<Set<String>> selectedValues = new ArrayList<>(filterCount);
+        for (int f = 0; f < filterCount; f++) {
+            ReconciliationRequest.BOColumnFilter filter = filters.get(f);
+            filterCols[f] = boTable.columnIndex(filter.getColumnName());
+            selectedValues.add(filter.getSelectedValues() != null ? new HashSet<>(filter.getSelectedValues()) : Collections.emptySet());
+        }
+        
+        int[] keptRows = new int[boTable.size()];
+        int keptCount = 0;
+        for (int row = 0; row < boTable.size(); row++) {
+            boolean kept = true;
+            for (int f = 0; f < filterCount && kept; f++) {
+                String columnValue = boTable.get(row, filterCols[f]);
+                kept = columnValue != null && selectedValues.get(f).contains(columnValue);
+            }
+            if (kept) {
+                keptRows[keptCount++] = row;
+            }
+        }
+        return keptCount == keptRows.length ? keptRows : Arrays.copyOf(keptRows, keptCount);
+    }
+
+    /**
+     * Indique si un enregistrement BO satisfait tous les filtres BO
+     */
+    private boolean matchesBOFilters(Map<String, String> record, List<ReconciliationRequest.BOColumnFilter> filters) {
+        if (filters == null) {
+            return true;
+        }
+        for (ReconciliationRequest.BOColumnFilter filter : filters) {
+            String columnValue = record.get(filter.getColumnName());
+            
+            if (columnValue == null || !filter.getSelectedValues().contains(columnValue)) {
+                logger.debug("Enregistrement exclu par le filtre {}: valeur '{}' non trouvée dans {}", 
+                    filter.getColumnName(), columnValue, filter.getSelectedValues());
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void destroy() throws Exception {
         logger.info("🧹 Nettoyage de l'ExecutorService...");
@@ -1227,52 +1680,6 @@ public class CsvReconciliationService implements DisposableBean {
         return normalizedRecord;
     }
 
-    /**
-     * Trouve une clé dans un enregistrement avec normalisation
-     */
-    private String findKeyWithNormalization(Map<String, String> record, String normalizedKeyColumn) {
-        if (record == null || normalizedKeyColumn == null) return null;
-        
-        // Essayer d'abord la clé exacte
-        String value = record.get(normalizedKeyColumn);
-        if (value != null) {
-            logger.debug("🔍 Clé exacte trouvée: '{}' -> '{}'", normalizedKeyColumn, value);
-            return value;
-        }
-        
-        // Essayer avec normalisation pour chaque clé de l'enregistrement
-        for (Map.Entry<String, String> entry : record.entrySet()) {
-            String normalizedEntryKey = entry.getKey();
-            if (normalizedKeyColumn.equals(normalizedEntryKey)) {
-                logger.debug("🔍 Clé normalisée trouvée: '{}' (original: '{}') -> '{}'", 
-                    normalizedEntryKey, entry.getKey(), entry.getValue());
-                return entry.getValue();
-            }
-        }
-        
-        // Debug: afficher toutes les clés disponibles si aucune correspondance
-        logger.debug("❌ Aucune correspondance trouvée pour '{}'. Clés disponibles: {}", 
-            normalizedKeyColumn, record.keySet());
-        
-        return null;
-    }
-
-    /**
-     * Détermine l'action à effectuer basée sur les règles de correspondance configurées
-     */
-    private String determineActionFromRules(List<ConfigurableReconciliationService.CorrespondenceRule> rules, int partnerMatchCount) {
-        for (ConfigurableReconciliationService.CorrespondenceRule rule : rules) {
-            boolean conditionMet = evaluateCondition(rule.getCondition(), partnerMatchCount);
-            if (conditionMet) {
-                return rule.getAction();
-            }
-        }
-        
-        // Action par défaut si aucune règle ne correspond
-        logger.warn("⚠️ Aucune règle ne correspond pour {} correspondances, action par défaut: MARK_AS_BO_ONLY", partnerMatchCount);
-        return "MARK_AS_BO_ONLY";
-    }
-
     /**
      * Crée les règles TRXBO/OPPART par défaut avec classification fine des écarts
      */
@@ -1319,183 +1726,132 @@ public class CsvReconciliationService implements DisposableBean {
     }
 
     /**
-     * Évalue une condition de règle
+     * Applique les règles de traitement des colonnes à une table
+     * Les règles du modèle sont appliquées sur une copie ; en cas d'erreur, la table d'origine reçoit les règles hardcodées
      */
-    private boolean evaluateCondition(String condition, int partnerMatchCount) {
-        if (condition == null || condition.trim().isEmpty()) {
-            logger.warn("⚠️ Condition est null ou vide");
-            return false;
+    private RecordTable applyColumnProcessingRules(RecordTable table, String fileType, String modelId) {
+        if (modelId != null && !modelId.isEmpty()) {
+            try {
+                logger.info("🔧 Application des règles du modèle {} pour le type {}", modelId, fileType);
+                RecordTable processedTable = table.copy();
+                columnProcessingService.processTable(modelId, processedTable);
+                logger.info("✅ Règles du modèle {} appliquées à {} lignes", modelId, processedTable.size());
+                return processedTable;
+            } catch (Exception e) {
+                logger.error("❌ Erreur lors de l'application des règles du modèle {}: {}", modelId, e.getMessage(), e);
+                logger.warn("⚠️ Utilisation des règles hardcodées en fallback");
+            }
         }
         
-        // Remplacer les variables dans la condition
-        String evaluatedCondition = condition.replace("partnerMatches", String.valueOf(partnerMatchCount));
-        
-        // Normaliser les espaces
-        evaluatedCondition = evaluatedCondition.trim();
-        
-        // Évaluer les conditions simples
-        if (evaluatedCondition.contains("==")) {
-            // Utiliser split avec limite pour éviter les problèmes
-            String[] parts = evaluatedCondition.split("==", 2);
-            if (parts.length == 2) {
-                try {
-                    String leftStr = parts[0].trim();
-                    String rightStr = parts[1].trim();
-                    int leftValue = Integer.parseInt(leftStr);
-                    int rightValue = Integer.parseInt(rightStr);
-                    return leftValue == rightValue;
-                } catch (NumberFormatException e) {
-                    logger.error("❌ Impossible de parser les nombres dans la condition: {} (gauche: '{}', droite: '{}')", 
-                        condition, parts[0].trim(), parts.length > 1 ? parts[1].trim() : "N/A");
-                }
-            } else {
-                logger.error("❌ Split '==' a produit {} parties au lieu de 2 pour la condition: {}", parts.length, condition);
-            }
-        } else if (evaluatedCondition.contains("!=")) {
-            String[] parts = evaluatedCondition.split("!=", 2);
-            if (parts.length == 2) {
-                try {
-                    String rightStr = parts[1].trim();
-                    int expectedCount = Integer.parseInt(rightStr);
-                    return partnerMatchCount != expectedCount;
-                } catch (NumberFormatException e) {
-                    logger.error("❌ Impossible de parser le nombre dans la condition: {}", condition);
-                }
-            } else {
-                logger.error("❌ Split '!=' a produit {} parties au lieu de 2 pour la condition: {}", parts.length, condition);
-            }
-        } else if (evaluatedCondition.contains(">=")) {
-            String[] parts = evaluatedCondition.split(">=");
-            if (parts.length == 2) {
-                try {
-                    int expectedCount = Integer.parseInt(parts[1].trim());
-                    return partnerMatchCount >= expectedCount;
-                } catch (NumberFormatException e) {
-                    logger.warn("⚠️ Impossible de parser le nombre dans la condition: {}", condition);
-                }
-            }
-        } else if (evaluatedCondition.contains("<=")) {
-            String[] parts = evaluatedCondition.split("<=");
-            if (parts.length == 2) {
-                try {
-                    int expectedCount = Integer.parseInt(parts[1].trim());
-                    return partnerMatchCount <= expectedCount;
-                } catch (NumberFormatException e) {
-                    logger.warn("⚠️ Impossible de parser le nombre dans la condition: {}", condition);
-                }
-            }
-        } else if (evaluatedCondition.contains(">")) {
-            String[] parts = evaluatedCondition.split(">");
-            if (parts.length == 2) {
-                try {
-                    int expectedCount = Integer.parseInt(parts[1].trim());
-                    return partnerMatchCount > expectedCount;
-                } catch (NumberFormatException e) {
-                    logger.warn("⚠️ Impossible de parser le nombre dans la condition: {}", condition);
-                }
+        logger.debug("Utilisation des règles hardcodées (fallback)");
+        applyHardcodedRules(table);
+        return table;
+    }
+
+    /**
+     * Règles hardcodées sur une table : suppression du suffixe _CM, une seule fois par valeur distincte
+     */
+    private void applyHardcodedRules(RecordTable table) {
+        RecordTable.Dictionary dictionary = table.getDictionary();
+        for (String column : new String[]{"IDTransaction", "Numéro Trans GU"}) {
+            int col = table.columnIndex(column);
+            if (col < 0) {
+                continue;
             }
-        } else if (evaluatedCondition.contains("<")) {
-            String[] parts = evaluatedCondition.split("<");
-            if (parts.length == 2) {
-                try {
-                    int expectedCount = Integer.parseInt(parts[1].trim());
-                    return partnerMatchCount < expectedCount;
-                } catch (NumberFormatException e) {
-                    logger.warn("⚠️ Impossible de parser le nombre dans la condition: {}", condition);
+            Map<Integer, Integer> transformedCodes = new HashMap<>();
+            for (int row = 0; row < table.size(); row++) {
+                int code = table.code(row, col);
+                if (code == RecordTable.NULL_CODE) {
+                    continue;
                 }
+                table.setCode(row, col, transformedCodes.computeIfAbsent(code, c -> {
+                    String value = dictionary.decode(c);
+                    return value.endsWith("_CM") ? dictionary.encode(value.substring(0, value.length() - 3)) : c;
+                }));
             }
         }
-        
-        logger.warn("⚠️ Condition non reconnue: {}", condition);
-        return false;
     }
-    
+
     /**
-     * Applique les règles de traitement des colonnes aux données
-     * Utilise les règles configurées dans le modèle si un modelId est fourni
+     * Règles de traitement des colonnes pour les lots BO d'un flux : règles du modèle lues une fois pour tous les lots
+     * et appliquées sur place (chaque lot est une table neuve, sans copie), sinon règles hardcodées
      */
-    private List<Map<String, String>> applyColumnProcessingRules(List<Map<String, String>> data, String fileType, String modelId) {
-        logger.debug("Application des règles de traitement pour le type: {}, modelId: {}", fileType, modelId);
-        
-        // Si un modelId est fourni, utiliser le ColumnProcessingService pour appliquer les règles du modèle
+    private UnaryOperator<RecordTable> columnProcessingRulesForBatches(String modelId) {
         if (modelId != null && !modelId.isEmpty()) {
             try {
-                logger.info("🔧 Application des règles du modèle {} pour le type {}", modelId, fileType);
-                
-                // Convertir List<Map<String, String>> en List<Map<String, Object>> pour le ColumnProcessingService
-                List<Map<String, Object>> dataAsObject = new ArrayList<>();
-                for (Map<String, String> row : data) {
-                    Map<String, Object> rowAsObject = new HashMap<>(row);
-                    dataAsObject.add(rowAsObject);
-                }
-                
-                // Appliquer les règles du modèle
-                List<Map<String, Object>> processedDataAsObject = columnProcessingService.processDataList(modelId, dataAsObject);
-                
-                // Convertir de nouveau en List<Map<String, String>>
-                List<Map<String, String>> processedData = new ArrayList<>();
-                for (Map<String, Object> row : processedDataAsObject) {
-                    Map<String, String> rowAsString = new HashMap<>();
-                    for (Map.Entry<String, Object> entry : row.entrySet()) {
-                        rowAsString.put(entry.getKey(), entry.getValue() != null ? entry.getValue().toString() : null);
+                List<CompiledColumnRule> rules = columnProcessingService.getCompiledRules(modelId);
+                logger.info("🔧 Règles du modèle {} chargées pour les lots BO ({} règle(s))", modelId, rules.size());
+                return batch -> {
+                    try {
+                        columnProcessingService.processTable(rules, batch);
+                    } catch (Exception e) {
+                        logger.error("❌ Erreur lors de l'application des règles du modèle {} sur un lot: {}", modelId, e.getMessage(), e);
+                        applyHardcodedRules(batch);
                     }
-                    processedData.add(rowAsString);
-                }
-                
-                logger.info("✅ Règles du modèle {} appliquées à {} lignes", modelId, processedData.size());
-                
-                // Log quelques exemples de transformations pour debug
-                if (!processedData.isEmpty() && !data.isEmpty()) {
-                    Map<String, String> firstOriginal = data.get(0);
-                    Map<String, String> firstProcessed = processedData.get(0);
-                    for (String key : firstOriginal.keySet()) {
-                        String originalValue = firstOriginal.get(key);
-                        String processedValue = firstProcessed.get(key);
-                        if (originalValue != null && processedValue != null && !originalValue.equals(processedValue)) {
-                            logger.debug("Transformation {}: '{}' → '{}'", key, originalValue, processedValue);
-                        }
+                    return batch;
+                };
+            } catch (Exception e) {
+                logger.error("❌ Erreur lors du chargement des règles du modèle {}: {}", modelId, e.getMessage(), e);
+                logger.warn("⚠️ Utilisation des règles hardcodées en fallback");
+            }
+        }
+        return batch -> {
+            applyHardcodedRules(batch);
+            return batch;
+        };
+    }
+
+    /**
+     * Règles de traitement des colonnes pour les lignes d'un flux (réconciliation en flux), compilées une fois sur
+     * l'en-tête et appliquées à chaque ligne sur place. Même logique que
+     * {@link #applyColumnProcessingRules(RecordTable, String, String)} : règles du modèle, sinon règles hardcodées
+     */
+    private UnaryOperator<Map<String, String>> columnProcessingRulesForRows(String modelId, List<String> headers) {
+        if (modelId != null && !modelId.isEmpty()) {
+            try {
+                ColumnProcessingService.RowPipeline pipeline = columnProcessingService.compileRowPipeline(modelId, headers);
+                return row -> {
+                    try {
+                        return pipeline.apply(row);
+                    } catch (Exception e) {
+                        logger.debug("Erreur lors de l'application des règles du modèle {} sur une ligne: {}", modelId, e.getMessage());
+                        return applyHardcodedRules(row);
                     }
-                }
-                
-                return processedData;
+                };
             } catch (Exception e) {
-                logger.error("❌ Erreur lors de l'application des règles du modèle {}: {}", modelId, e.getMessage(), e);
+                logger.error("❌ Erreur lors du chargement des règles du modèle {}: {}", modelId, e.getMessage(), e);
                 logger.warn("⚠️ Utilisation des règles hardcodées en fallback");
-                // En cas d'erreur, continuer avec les règles hardcodées
             }
         }
-        
-        // Fallback: règles hardcodées si aucun modelId ou en cas d'erreur
-        logger.debug("Utilisation des règles hardcodées (fallback)");
-        List<Map<String, String>> processedData = new ArrayList<>();
-        
-        for (Map<String, String> row : data) {
-            Map<String, String> processedRow = new HashMap<>(row);
-            
-            // Règle spécifique pour IDTransaction : supprimer _CM
-            if (processedRow.containsKey("IDTransaction")) {
-                String originalValue = processedRow.get("IDTransaction");
-                if (originalValue != null && originalValue.endsWith("_CM")) {
-                    String newValue = originalValue.substring(0, originalValue.length() - 3);
-                    processedRow.put("IDTransaction", newValue);
-                    logger.debug("Transformation IDTransaction: {} → {}", originalValue, newValue);
-                }
+        return this::applyHardcodedRules;
+    }
+
+    /**
+     * Règles hardcodées (fallback) : suppression du suffixe _CM sur les identifiants de transaction
+     */
+    private Map<String, String> applyHardcodedRules(Map<String, String> row) {
+        Map<String, String> processedRow = new HashMap<>(row);
+        
+        // Règle spécifique pour IDTransaction : supprimer _CM
+        if (processedRow.containsKey("IDTransaction")) {
+            String originalValue = processedRow.get("IDTransaction");
+            if (originalValue != null && originalValue.endsWith("_CM")) {
+                String newValue = originalValue.substring(0, originalValue.length() - 3);
+                processedRow.put("IDTransaction", newValue);
+                logger.debug("Transformation IDTransaction: {} → {}", originalValue, newValue);
             }
-            
-            // Règle pour Numéro Trans GU : supprimer _CM aussi
-            if (processedRow.containsKey("Numéro Trans GU")) {
-                String originalValue = processedRow.get("Numéro Trans GU");
-                if (originalValue != null && originalValue.endsWith("_CM")) {
-                    String newValue = originalValue.substring(0, originalValue.length() - 3);
-                    processedRow.put("Numéro Trans GU", newValue);
-                    logger.debug("Transformation Numéro Trans GU: {} → {}", originalValue, newValue);
-                }
+        }
+        
+        // Règle pour Numéro Trans GU : supprimer _CM aussi
+        if (processedRow.containsKey("Numéro Trans GU")) {
+            String originalValue = processedRow.get("Numéro Trans GU");
+            if (originalValue != null && originalValue.endsWith("_CM")) {
+                String newValue = originalValue.substring(0, originalValue.length() - 3);
+                processedRow.put("Numéro Trans GU", newValue);
+                logger.debug("Transformation Numéro Trans GU: {} → {}", originalValue, newValue);
             }
-            
-            processedData.add(processedRow);
         }
         
-        logger.debug("Règles appliquées à {} lignes", processedData.size());
-        return processedData;
+        return processedRow;
     }
-} 
\ No newline at end of file
+}
@@ -1,7 +1,5 @@
 package com.reconciliation.service;
 
-import com.reconciliation.entity.UserEntity;
-import com.reconciliation.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,12 +17,17 @@ import java.util.ArrayList;
 public class CustomUserDetailsService implements UserDetailsService {
 
     @Autowired
-    private UserRepository userRepository;
+    private AuthorizationSnapshotService authorizationSnapshotService;
 
+    /**
+     * Détails de l'utilisateur depuis l'instantané d'autorisation en cache (pas de lecture en base si à jour)
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        UserEntity user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé: " + username));
+        AuthorizationSnapshot user = authorizationSnapshotService.getSnapshot(username);
+        if (!user.isFound()) {
+            throw new UsernameNotFoundException("Utilisateur non trouvé: " + username);
+        }
 
         // Construire les autorités basées sur le profil
         // Pour le moment, on utilise un rôle simple basé sur le username
@@ -42,4 +45,3 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .build();
     }
 }
-
@@ -0,0 +1,144 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.EcartSoldeEntity;
+import com.reconciliation.model.EcartSolde;
+import com.reconciliation.repository.EcartSoldeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Enregistrement en masse des écarts de solde (table ecart_solde).
+ *
+ * Les IDTransaction déjà présents sont recherchés par requêtes IN découpées en lots (index idx_ecart_solde_id_transaction)
+ * puis détectés en mémoire ; les écarts retenus sont insérés par lots JDBC.
+ */
+@Service
+public class EcartSoldeBulkService {
+
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String INSERT_SQL =
+        "INSERT INTO ecart_solde (id_transaction, telephone_client, montant, service, agence, date_transaction, " +
+        "numero_trans_gu, pays, date_import, statut, commentaire) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private EcartSoldeRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * IDTransaction existants parmi ceux des écarts du lot
+     */
+    public DuplicateIndex loadDuplicateIndex(Collection<EcartSolde> ecartSoldes) {
+        Set<String> idTransactions = new LinkedHashSet<>();
+        for (EcartSolde ecartSolde : ecartSoldes) {
+            if (!isBlank(ecartSolde.getIdTransaction())) {
+                idTransactions.add(ecartSolde.getIdTransaction());
+            }
+        }
+        DuplicateIndex index = new DuplicateIndex();
+        List<String> ids = new ArrayList<>(idTransactions);
+        for (int start = 0; start < ids.size(); start += LOOKUP_BATCH_SIZE) {
+            for (String existing : repository.findExistingIdTransactions(ids.subList(start, Math.min(start + LOOKUP_BATCH_SIZE, ids.size())))) {
+                index.add(existing);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Insère les écarts par lots JDBC et renseigne leurs identifiants générés
+     */
+    public void insertAll(List<EcartSoldeEntity> entities) {
+        for (int start = 0; start < entities.size(); start += INSERT_BATCH_SIZE) {
+            List<EcartSoldeEntity> chunk = entities.subList(start, Math.min(start + INSERT_BATCH_SIZE, entities.size()));
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        EcartSoldeEntity entity = chunk.get(i);
+                        ps.setString(1, entity.getIdTransaction());
+                        ps.setString(2, entity.getTelephoneClient());
+                        ps.setObject(3, entity.getMontant());
+                        ps.setString(4, entity.getService());
+                        ps.setString(5, entity.getAgence());
+                        ps.setTimestamp(6, entity.getDateTransaction() != null ? Timestamp.valueOf(entity.getDateTransaction()) : null);
+                        ps.setString(7, entity.getNumeroTransGu());
+                        ps.setString(8, entity.getPays());
+                        ps.setTimestamp(9, entity.getDateImport() != null ? Timestamp.valueOf(entity.getDateImport()) : null);
+                        ps.setString(10, entity.getStatut());
+                        ps.setString(11, entity.getCommentaire());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                },
+                keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (keys.size() != chunk.size()) {
+                throw new IllegalStateException("Identifiants générés incomplets: " + keys.size() + "/" + chunk.size());
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            }
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * IDTransaction connus (base et écarts du lot déjà retenus), comparés sans tenir compte de la casse
+     * comme la collation de la base
+     */
+    public static final class DuplicateIndex {
+        private final Set<String> idTransactions = new HashSet<>();
+
+        /**
+         * Ajoute un écart retenu : les occurrences suivantes du même IDTransaction dans le lot seront des doublons
+         */
+        public void add(EcartSolde ecartSolde) {
+            add(ecartSolde.getIdTransaction());
+        }
+
+        /**
+         * Doublon si l'IDTransaction est déjà connu ; un IDTransaction vide n'est jamais un doublon
+         */
+        public boolean isDuplicate(EcartSolde ecartSolde) {
+            return !isBlank(ecartSolde.getIdTransaction()) && idTransactions.contains(key(ecartSolde.getIdTransaction()));
+        }
+
+        private void add(String idTransaction) {
+            if (!isBlank(idTransaction)) {
+                idTransactions.add(key(idTransaction));
+            }
+        }
+
+        private static String key(String idTransaction) {
+            return idTransaction.toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -8,8 +8,8 @@ import com.reconciliation.model.EcartSolde;
 import com.reconciliation.repository.EcartSoldeRepository;
 import com.reconciliation.repository.OperationRepository;
 import com.reconciliation.repository.CompteRepository;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,9 +29,16 @@ import java.util.Map;
 @Service
 public class EcartSoldeService {
     
+    private static final Logger logger = LoggerFactory.getLogger(EcartSoldeService.class);
+    
+    private static final String DEFAULT_COMMENTAIRE = "IMPACT J+1";
+    
     @Autowired
     private EcartSoldeRepository ecartSoldeRepository;
     
+    @Autowired
+    private EcartSoldeBulkService ecartSoldeBulkService;
+    
     @Autowired
     private FraisTransactionService fraisTransactionService;
     
@@ -40,6 +47,9 @@ public class EcartSoldeService {
     
     @Autowired
     private CompteRepository compteRepository;
+
+    @Autowired
+    private TabularFileReader tabularFileReader;
     
     public List<EcartSolde> getAllEcartSoldes() {
         return ecartSoldeRepository.findAllOrderByDateTransactionDesc().stream()
@@ -155,53 +165,38 @@ public class EcartSoldeService {
     
     @Transactional
     public List<EcartSolde> createMultipleEcartSoldes(List<EcartSolde> ecartSoldes) {
+        return saveNewEcartSoldes(ecartSoldes);
+    }
+    
+    /**
+     * Enregistre les écarts dont l'IDTransaction n'existe ni en base ni plus haut dans le lot
+     * @return les écarts enregistrés, avec leur identifiant
+     */
+    private List<EcartSolde> saveNewEcartSoldes(List<EcartSolde> ecartSoldes) {
+        EcartSoldeBulkService.DuplicateIndex duplicateIndex = ecartSoldeBulkService.loadDuplicateIndex(ecartSoldes);
         List<EcartSoldeEntity> entitiesToSave = new ArrayList<>();
-        List<EcartSolde> savedEcartSoldes = new ArrayList<>();
         int duplicatesCount = 0;
-        int newRecordsCount = 0;
-        
-        System.out.println("=== DÉBUT createMultipleEcartSoldes ===");
-        System.out.println("DEBUG: Nombre d'écarts de solde à traiter: " + ecartSoldes.size());
         
         for (EcartSolde ecartSolde : ecartSoldes) {
-            // Vérifier si c'est un doublon
-            if (ecartSolde.getIdTransaction() != null && !ecartSolde.getIdTransaction().trim().isEmpty()) {
-                if (ecartSoldeRepository.existsByIdTransaction(ecartSolde.getIdTransaction())) {
-                    System.out.println("DEBUG: Doublon détecté pour ID: " + ecartSolde.getIdTransaction());
-                    duplicatesCount++;
-                    continue; // Ignorer ce doublon
-                }
+            if (duplicateIndex.isDuplicate(ecartSolde)) {
+                duplicatesCount++;
+                continue; // Ignorer ce doublon
             }
+            duplicateIndex.add(ecartSolde);
             
             // Ajouter le commentaire par défaut si aucun commentaire n'est défini
             if (ecartSolde.getCommentaire() == null || ecartSolde.getCommentaire().trim().isEmpty()) {
-                ecartSolde.setCommentaire("IMPACT J+1");
-                System.out.println("DEBUG: Commentaire par défaut ajouté pour ID: " + ecartSolde.getIdTransaction());
+                ecartSolde.setCommentaire(DEFAULT_COMMENTAIRE);
             }
-            
-            // Convertir en entité et ajouter à la liste à sauvegarder
-            EcartSoldeEntity entity = convertToEntity(ecartSolde);
-            entitiesToSave.add(entity);
-            newRecordsCount++;
-            System.out.println("DEBUG: Nouvel enregistrement préparé pour ID: " + ecartSolde.getIdTransaction());
-        }
-        
-        System.out.println("DEBUG: Résultats de la vérification:");
-        System.out.println("  - Doublons ignorés: " + duplicatesCount);
-        System.out.println("  - Nouveaux enregistrements à sauvegarder: " + newRecordsCount);
-        
-        // Sauvegarder seulement les nouveaux enregistrements
-        if (!entitiesToSave.isEmpty()) {
-            List<EcartSoldeEntity> savedEntities = ecartSoldeRepository.saveAll(entitiesToSave);
-            savedEcartSoldes = savedEntities.stream()
-                    .map(this::convertToModel)
-                    .collect(Collectors.toList());
-            
-            System.out.println("DEBUG: Enregistrements sauvegardés avec succès: " + savedEcartSoldes.size());
+            entitiesToSave.add(convertToEntity(ecartSolde));
         }
         
-        System.out.println("=== FIN createMultipleEcartSoldes ===");
-        return savedEcartSoldes;
+        ecartSoldeBulkService.insertAll(entitiesToSave);
+        logger.info("✅ Écarts de solde: {} reçu(s), {} enregistré(s), {} doublon(s) ignoré(s)",
+            ecartSoldes.size(), entitiesToSave.size(), duplicatesCount);
+        return entitiesToSave.stream()
+                .map(this::convertToModel)
+                .collect(Collectors.toList());
     }
     
     @Transactional
@@ -306,9 +301,6 @@ public class EcartSoldeService {
         
         String fileName = file.getOriginalFilename().toLowerCase();
         
-        System.out.println("=== DÉBUT uploadCsvFile ===");
-        System.out.println("DEBUG: Nom du fichier: " + fileName);
-        
         if (fileName.endsWith(".csv")) {
             // Traitement des fichiers CSV
             try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
@@ -321,7 +313,6 @@ public class EcartSoldeService {
                     if (isFirstLine) {
                         // Ignorer l'en-tête
                         isFirstLine = false;
-                        System.out.println("DEBUG: En-tête ignoré: " + line);
                         continue;
                     }
                     
@@ -330,115 +321,54 @@ public class EcartSoldeService {
                     if (values.length >= 9) {
                         try {
                             EcartSolde ecartSolde = parseEcartSoldeFromValues(values, formatter);
-                            
-                            // Ajouter le commentaire par défaut si aucun commentaire n'est défini
-                            if (ecartSolde.getCommentaire() == null || ecartSolde.getCommentaire().trim().isEmpty()) {
-                                ecartSolde.setCommentaire("IMPACT J+1");
-                                System.out.println("DEBUG: Commentaire par défaut ajouté pour ID: " + ecartSolde.getIdTransaction());
-                            }
-                            
                             ecartSoldes.add(ecartSolde);
-                            System.out.println("DEBUG: Ligne " + lineNumber + " parsée avec succès pour ID: " + ecartSolde.getIdTransaction());
                         } catch (Exception e) {
                             // Ignorer les lignes avec des erreurs de parsing
-                            System.err.println("Erreur lors du parsing de la ligne CSV " + lineNumber + ": " + line + " - " + e.getMessage());
+                            logger.warn("⚠️ Ligne CSV {} ignorée: {}", lineNumber, e.getMessage());
                         }
                     } else {
-                        System.err.println("Ligne " + lineNumber + " ignorée - nombre de colonnes insuffisant: " + values.length);
+                        logger.warn("⚠️ Ligne CSV {} ignorée - nombre de colonnes insuffisant: {}", lineNumber, values.length);
                     }
                 }
             }
         } else {
             // Traitement des fichiers Excel
-            try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-                Sheet sheet = workbook.getSheetAt(0); // Première feuille
-                System.out.println("DEBUG: Nombre de lignes dans la feuille: " + sheet.getLastRowNum());
-                
-                for (int i = 1; i <= sheet.getLastRowNum(); i++) { // Commencer à 1 pour ignorer l'en-tête
-                    Row row = sheet.getRow(i);
-                    if (row != null) {
-                        try {
-                            EcartSolde ecartSolde = parseEcartSoldeFromExcelRow(row, formatter);
-                            
-                            // Ajouter le commentaire par défaut si aucun commentaire n'est défini
-                            if (ecartSolde.getCommentaire() == null || ecartSolde.getCommentaire().trim().isEmpty()) {
-                                ecartSolde.setCommentaire("IMPACT J+1");
-                                System.out.println("DEBUG: Commentaire par défaut ajouté pour ID: " + ecartSolde.getIdTransaction());
-                            }
-                            
-                            ecartSoldes.add(ecartSolde);
-                            System.out.println("DEBUG: Ligne " + (i + 1) + " parsée avec succès pour ID: " + ecartSolde.getIdTransaction());
-                        } catch (Exception e) {
-                            // Ignorer les lignes avec des erreurs de parsing
-                            System.err.println("Erreur lors du parsing de la ligne Excel " + (i + 1) + " - " + e.getMessage());
-                        }
-                    }
+            // Première feuille lue en flux, dates au format du fichier CSV
+            try (TabularFileReader.RawRowCursor rows = tabularFileReader.openRaw(file.getInputStream(), fileName, formatter)) {
+                if (rows.hasNext()) {
+                    rows.next(); // Ignorer l'en-tête
                 }
-            }
-        }
-        
-        System.out.println("DEBUG: Nombre total d'écarts de solde parsés: " + ecartSoldes.size());
-        
-        // Filtrer les doublons et sauvegarder
-        List<EcartSoldeEntity> entitiesToSave = new ArrayList<>();
-        int duplicatesCount = 0;
-        int newRecordsCount = 0;
-        
-        for (EcartSolde ecartSolde : ecartSoldes) {
-            // Vérifier si c'est un doublon
-            if (ecartSolde.getIdTransaction() != null && !ecartSolde.getIdTransaction().trim().isEmpty()) {
-                if (ecartSoldeRepository.existsByIdTransaction(ecartSolde.getIdTransaction())) {
-                    System.out.println("DEBUG: Doublon détecté pour ID: " + ecartSolde.getIdTransaction());
-                    duplicatesCount++;
-                    continue; // Ignorer ce doublon
+                while (rows.hasNext()) {
+                    TabularFileReader.RawRow row = rows.next();
+                    try {
+                        EcartSolde ecartSolde = parseEcartSoldeFromExcelRow(row, formatter);
+                        ecartSoldes.add(ecartSolde);
+                    } catch (Exception e) {
+                        // Ignorer les lignes avec des erreurs de parsing
+                        logger.warn("⚠️ Ligne Excel {} ignorée: {}", row.getRowNumber(), e.getMessage());
+                    }
                 }
             }
-            
-            // Convertir en entité et ajouter à la liste à sauvegarder
-            EcartSoldeEntity entity = convertToEntity(ecartSolde);
-            entitiesToSave.add(entity);
-            newRecordsCount++;
-            System.out.println("DEBUG: Nouvel enregistrement préparé pour ID: " + ecartSolde.getIdTransaction());
         }
         
-        System.out.println("DEBUG: Résultats de la vérification:");
-        System.out.println("  - Doublons ignorés: " + duplicatesCount);
-        System.out.println("  - Nouveaux enregistrements à sauvegarder: " + newRecordsCount);
-        
-        // Sauvegarder seulement les nouveaux enregistrements
-        List<EcartSolde> savedEcartSoldes = new ArrayList<>();
-        if (!entitiesToSave.isEmpty()) {
-            List<EcartSoldeEntity> savedEntities = ecartSoldeRepository.saveAll(entitiesToSave);
-            savedEcartSoldes = savedEntities.stream()
-                    .map(this::convertToModel)
-                    .collect(Collectors.toList());
-            
-            System.out.println("DEBUG: Enregistrements sauvegardés avec succès: " + savedEcartSoldes.size());
-        }
-        
-        System.out.println("=== FIN uploadCsvFile ===");
-        return savedEcartSoldes;
+        return saveNewEcartSoldes(ecartSoldes);
     }
     
     public Map<String, Object> validateFile(MultipartFile file) throws IOException {
         List<EcartSolde> ecartSoldes = new ArrayList<>();
+        List<Long> lineNumbers = new ArrayList<>();
         List<String> errors = new ArrayList<>();
         int validLines = 0;
         int errorLines = 0;
         int duplicates = 0;
         int newRecords = 0;
         
-        System.out.println("=== DÉBUT validateFile ===");
-        System.out.println("DEBUG: Nom du fichier: " + file.getOriginalFilename());
-        System.out.println("DEBUG: Taille du fichier: " + file.getSize() + " bytes");
-        
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.S");
         String fileName = file.getOriginalFilename().toLowerCase();
         
         try {
             if (fileName.endsWith(".csv")) {
                 // Validation des fichiers CSV
-                System.out.println("DEBUG: Traitement fichier CSV");
                 try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
                     String line;
                     boolean isFirstLine = true;
@@ -448,95 +378,67 @@ public class EcartSoldeService {
                         lineNumber++;
                         if (isFirstLine) {
                             isFirstLine = false;
-                            System.out.println("DEBUG: En-tête ignoré: " + line);
                             continue;
                         }
                         
                         try {
                             String[] values = line.split(";");
-                            System.out.println("DEBUG: Ligne " + lineNumber + " - Colonnes: " + values.length);
-                            System.out.println("DEBUG: Ligne " + lineNumber + " - Contenu brut: '" + line + "'");
-                            System.out.println("DEBUG: Ligne " + lineNumber + " - Valeurs parsées:");
-                            for (int i = 0; i < Math.min(values.length, 10); i++) {
-                                System.out.println("  [" + i + "] = '" + values[i] + "'");
-                            }
-                            
                             if (values.length >= 9) {
-                                EcartSolde ecartSolde = parseEcartSoldeFromValues(values, formatter);
-                                
-                                // Vérifier les doublons
-                                if (isDuplicate(ecartSolde)) {
-                                    duplicates++;
-                                    errors.add("Ligne " + lineNumber + ": Doublon détecté pour ID " + ecartSolde.getIdTransaction());
-                                    System.out.println("DEBUG: Doublon détecté pour ID: " + ecartSolde.getIdTransaction());
-                                } else {
-                                    newRecords++;
-                                    ecartSoldes.add(ecartSolde);
-                                    System.out.println("DEBUG: Nouvel enregistrement ajouté pour ID: " + ecartSolde.getIdTransaction());
-                                }
+                                ecartSoldes.add(parseEcartSoldeFromValues(values, formatter));
+                                lineNumbers.add((long) lineNumber);
                                 validLines++;
                             } else {
                                 errorLines++;
                                 errors.add("Ligne " + lineNumber + ": Nombre de colonnes insuffisant (" + values.length + " au lieu de 9)");
-                                System.out.println("DEBUG: Erreur ligne " + lineNumber + " - Colonnes insuffisantes");
                             }
                         } catch (Exception e) {
                             errorLines++;
                             errors.add("Ligne " + lineNumber + ": " + e.getMessage());
-                            System.out.println("DEBUG: Exception ligne " + lineNumber + ": " + e.getMessage());
-                            e.printStackTrace();
                         }
                     }
                 }
             } else if (fileName.endsWith(".xlsx") || fileName.endsWith(".xls")) {
                 // Validation des fichiers Excel
-                System.out.println("DEBUG: Traitement fichier Excel");
-                try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-                    Sheet sheet = workbook.getSheetAt(0);
-                    System.out.println("DEBUG: Nombre de lignes dans la feuille: " + sheet.getLastRowNum());
-                    
-                    for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                        Row row = sheet.getRow(i);
-                        if (row != null) {
-                            try {
-                                EcartSolde ecartSolde = parseEcartSoldeFromExcelRow(row, formatter);
-                                
-                                // Vérifier les doublons
-                                if (isDuplicate(ecartSolde)) {
-                                    duplicates++;
-                                    errors.add("Ligne " + (i + 1) + ": Doublon détecté pour ID " + ecartSolde.getIdTransaction());
-                                    System.out.println("DEBUG: Doublon détecté pour ID: " + ecartSolde.getIdTransaction());
-                                } else {
-                                    newRecords++;
-                                    ecartSoldes.add(ecartSolde);
-                                    System.out.println("DEBUG: Nouvel enregistrement ajouté pour ID: " + ecartSolde.getIdTransaction());
-                                }
-                                validLines++;
-                            } catch (Exception e) {
-                                errorLines++;
-                                errors.add("Ligne " + (i + 1) + ": " + e.getMessage());
-                                System.out.println("DEBUG: Exception ligne " + (i + 1) + ": " + e.getMessage());
-                                e.printStackTrace();
-                            }
+                try (TabularFileReader.RawRowCursor rows = tabularFileReader.openRaw(file.getInputStream(), fileName, formatter)) {
+                    if (rows.hasNext()) {
+                        rows.next(); // Ignorer l'en-tête
+                    }
+                    while (rows.hasNext()) {
+                        TabularFileReader.RawRow row = rows.next();
+                        long lineNumber = row.getRowNumber();
+                        try {
+                            ecartSoldes.add(parseEcartSoldeFromExcelRow(row, formatter));
+                            lineNumbers.add(lineNumber);
+                            validLines++;
+                        } catch (Exception e) {
+                            errorLines++;
+                            errors.add("Ligne " + lineNumber + ": " + e.getMessage());
                         }
                     }
                 }
             } else {
                 errors.add("Format de fichier non supporté: " + fileName);
-                System.out.println("DEBUG: Format non supporté: " + fileName);
+            }
+            
+            // Vérifier les doublons (base et lignes précédentes du fichier) en une passe
+            EcartSoldeBulkService.DuplicateIndex duplicateIndex = ecartSoldeBulkService.loadDuplicateIndex(ecartSoldes);
+            for (int i = 0; i < ecartSoldes.size(); i++) {
+                EcartSolde ecartSolde = ecartSoldes.get(i);
+                if (duplicateIndex.isDuplicate(ecartSolde)) {
+                    duplicates++;
+                    errors.add("Ligne " + lineNumbers.get(i) + ": Doublon détecté pour ID " + ecartSolde.getIdTransaction());
+                } else {
+                    duplicateIndex.add(ecartSolde);
+                    newRecords++;
+                }
             }
         } catch (Exception e) {
-            System.out.println("DEBUG: Exception générale dans validateFile: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("❌ Erreur générale lors de la validation du fichier {}: {}", file.getOriginalFilename(), e.getMessage(), e);
             errors.add("Erreur générale lors de la validation: " + e.getMessage());
         }
         
-        System.out.println("DEBUG: Résultats finaux:");
-        System.out.println("  - Lignes valides: " + validLines);
-        System.out.println("  - Lignes avec erreurs: " + errorLines);
-        System.out.println("  - Doublons: " + duplicates);
-        System.out.println("  - Nouveaux enregistrements: " + newRecords);
-        System.out.println("=== FIN validateFile ===");
+        logger.info("📊 Validation écarts de solde: {} ligne(s) valide(s), {} erreur(s), {} doublon(s), {} nouveau(x)",
+            validLines, errorLines, duplicates, newRecords);
         
         return Map.of(
             "validLines", validLines,
@@ -548,174 +450,80 @@ public class EcartSoldeService {
         );
     }
     
-    private boolean isDuplicate(EcartSolde ecartSolde) {
-        // Vérifier si un enregistrement avec le même IDTransaction existe déjà
-        if (ecartSolde.getIdTransaction() == null || ecartSolde.getIdTransaction().trim().isEmpty()) {
-            System.out.println("DEBUG: IDTransaction null ou vide, pas de vérification de doublon");
-            return false;
-        }
+    private EcartSolde parseEcartSoldeFromValues(String[] values, DateTimeFormatter formatter) {
+        EcartSolde ecartSolde = new EcartSolde();
         
-        try {
-            boolean exists = ecartSoldeRepository.existsByIdTransaction(ecartSolde.getIdTransaction());
-            System.out.println("DEBUG: Vérification doublon pour ID " + ecartSolde.getIdTransaction() + " -> " + exists);
-            return exists;
-        } catch (Exception e) {
-            System.out.println("DEBUG: Erreur lors de la vérification de doublon: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+        // Vérifier que nous avons assez de colonnes
+        if (values.length < 9) {
+            throw new IllegalArgumentException("Nombre de colonnes insuffisant: " + values.length + " (attendu: 9)");
         }
-    }
-    
-    private EcartSolde parseEcartSoldeFromValues(String[] values, DateTimeFormatter formatter) {
-        try {
-            EcartSolde ecartSolde = new EcartSolde();
-            
-            System.out.println("DEBUG: === DÉBUT parseEcartSoldeFromValues ===");
-            System.out.println("DEBUG: Nombre de colonnes reçues: " + values.length);
-            
-            // Vérifier que nous avons assez de colonnes
-            if (values.length < 9) {
-                throw new IllegalArgumentException("Nombre de colonnes insuffisant: " + values.length + " (attendu: 9)");
-            }
-            
-            System.out.println("DEBUG: Mapping des colonnes:");
-            System.out.println("  [1] IDTransaction = '" + values[1] + "'");
-            System.out.println("  [2] Téléphone = '" + values[2] + "'");
-            System.out.println("  [3] Service = '" + values[3] + "'");
-            System.out.println("  [4] Agence = '" + values[4] + "'");
-            System.out.println("  [5] Date = '" + values[5] + "'");
-            System.out.println("  [6] Numéro Trans GU = '" + values[6] + "'");
-            System.out.println("  [7] Pays = '" + values[7] + "'");
-            System.out.println("  [8] Statut = '" + values[8] + "'");
-            
-            ecartSolde.setIdTransaction(values[1] != null ? values[1].trim() : "");
-            ecartSolde.setTelephoneClient(values[2] != null ? values[2].trim() : "");
-            
-            // Le montant n'est pas dans ce fichier, on le définit à 0.0
-            ecartSolde.setMontant(0.0);
-            System.out.println("DEBUG: Montant non disponible dans ce fichier, défini à 0.0");
-            
-            ecartSolde.setService(values[3] != null ? values[3].trim() : "");
-            ecartSolde.setAgence(values[4] != null ? values[4].trim() : "");
-            
-            // Parser la date
-            if (values[5] != null && !values[5].trim().isEmpty()) {
-                try {
-                    String dateStr = values[5].trim();
-                    LocalDateTime dateTransaction;
-                    
-                    // Gérer le format avec .0 à la fin
-                    if (dateStr.endsWith(".0")) {
-                        dateStr = dateStr.substring(0, dateStr.length() - 2);
-                        // Utiliser le formatter sans millisecondes
-                        DateTimeFormatter formatterWithoutMs = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                        dateTransaction = LocalDateTime.parse(dateStr, formatterWithoutMs);
-                    } else {
-                        // Utiliser le formatter avec millisecondes
-                        dateTransaction = LocalDateTime.parse(dateStr, formatter);
-                    }
-                    
-                    ecartSolde.setDateTransaction(dateTransaction);
-                    System.out.println("DEBUG: Date parsée avec succès: " + dateTransaction);
-                } catch (Exception e) {
-                    System.out.println("DEBUG: ERREUR parsing date - Valeur: '" + values[5] + "' - Exception: " + e.getMessage());
-                    throw new IllegalArgumentException("Date invalide: " + values[5] + " - " + e.getMessage());
+        
+        ecartSolde.setIdTransaction(values[1] != null ? values[1].trim() : "");
+        ecartSolde.setTelephoneClient(values[2] != null ? values[2].trim() : "");
+        
+        // Le montant n'est pas dans ce fichier, on le définit à 0.0
+        ecartSolde.setMontant(0.0);
+        
+        ecartSolde.setService(values[3] != null ? values[3].trim() : "");
+        ecartSolde.setAgence(values[4] != null ? values[4].trim() : "");
+        
+        // Parser la date
+        if (values[5] != null && !values[5].trim().isEmpty()) {
+            try {
+                String dateStr = values[5].trim();
+                LocalDateTime dateTransaction;
+                
+                // Gérer le format avec .0 à la fin
+                if (dateStr.endsWith(".0")) {
+                    dateStr = dateStr.substring(0, dateStr.length() - 2);
+                    // Utiliser le formatter sans millisecondes
+                    DateTimeFormatter formatterWithoutMs = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+                    dateTransaction = LocalDateTime.parse(dateStr, formatterWithoutMs);
+                } else {
+                    // Utiliser le formatter avec millisecondes
+                    dateTransaction = LocalDateTime.parse(dateStr, formatter);
                 }
-            } else {
-                ecartSolde.setDateTransaction(LocalDateTime.now());
-                System.out.println("DEBUG: Date vide, définie à maintenant");
+                
+                ecartSolde.setDateTransaction(dateTransaction);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Date invalide: " + values[5] + " - " + e.getMessage());
             }
-            
-            ecartSolde.setNumeroTransGu(values[6] != null ? values[6].trim() : "");
-            ecartSolde.setPays(values[7] != null ? values[7].trim() : "");
-            ecartSolde.setStatut("EN_ATTENTE");
-            ecartSolde.setDateImport(LocalDateTime.now());
-            
-            System.out.println("DEBUG: Entité EcartSolde créée avec succès:");
-            System.out.println("  - IDTransaction: " + ecartSolde.getIdTransaction());
-            System.out.println("  - Téléphone: " + ecartSolde.getTelephoneClient());
-            System.out.println("  - Montant: " + ecartSolde.getMontant());
-            System.out.println("  - Service: " + ecartSolde.getService());
-            System.out.println("  - Agence: " + ecartSolde.getAgence());
-            System.out.println("  - Date: " + ecartSolde.getDateTransaction());
-            System.out.println("  - Numéro Trans GU: " + ecartSolde.getNumeroTransGu());
-            System.out.println("  - Pays: " + ecartSolde.getPays());
-            System.out.println("DEBUG: === FIN parseEcartSoldeFromValues ===");
-            
-            return ecartSolde;
-        } catch (Exception e) {
-            System.out.println("DEBUG: Erreur parsing valeurs: " + e.getMessage());
-            throw e;
+        } else {
+            ecartSolde.setDateTransaction(LocalDateTime.now());
         }
+        
+        ecartSolde.setNumeroTransGu(values[6] != null ? values[6].trim() : "");
+        ecartSolde.setPays(values[7] != null ? values[7].trim() : "");
+        ecartSolde.setStatut("EN_ATTENTE");
+        ecartSolde.setDateImport(LocalDateTime.now());
+        
+        return ecartSolde;
     }
     
-    private EcartSolde parseEcartSoldeFromExcelRow(Row row, DateTimeFormatter formatter) {
+    private EcartSolde parseEcartSoldeFromExcelRow(TabularFileReader.RawRow row, DateTimeFormatter formatter) {
         EcartSolde ecartSolde = new EcartSolde();
         
         // Lire les cellules Excel (commencer à l'index 1 pour ignorer la première colonne)
-        ecartSolde.setIdTransaction(getCellValueAsString(row.getCell(1))); // IDTransaction
-        ecartSolde.setTelephoneClient(getCellValueAsString(row.getCell(2))); // téléphone client
-        ecartSolde.setMontant(getCellValueAsDouble(row.getCell(3))); // montant
-        ecartSolde.setService(getCellValueAsString(row.getCell(4))); // Service
-        ecartSolde.setAgence(getCellValueAsString(row.getCell(5))); // Agence
-        
-        // Parser la date
-        String dateStr = getCellValueAsString(row.getCell(6));
+        ecartSolde.setIdTransaction(row.get(1)); // IDTransaction
+        ecartSolde.setTelephoneClient(row.get(2)); // téléphone client
+        Double montant = row.getDouble(3);
+        ecartSolde.setMontant(montant != null ? montant : 0.0); // montant
+        ecartSolde.setService(row.get(4)); // Service
+        ecartSolde.setAgence(row.get(5)); // Agence
+        
+        // Parser la date (les cellules date sont lues au format du formatter)
+        String dateStr = row.get(6);
         LocalDateTime dateTransaction = LocalDateTime.parse(dateStr, formatter);
         ecartSolde.setDateTransaction(dateTransaction);
         
-        ecartSolde.setNumeroTransGu(getCellValueAsString(row.getCell(7))); // Numéro Trans GU
-        ecartSolde.setPays(getCellValueAsString(row.getCell(8))); // PAYS
+        ecartSolde.setNumeroTransGu(row.get(7)); // Numéro Trans GU
+        ecartSolde.setPays(row.get(8)); // PAYS
         ecartSolde.setStatut("EN_ATTENTE");
         ecartSolde.setDateImport(LocalDateTime.now());
         
         return ecartSolde;
     }
     
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
-        
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getLocalDateTimeCellValue().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.S"));
-                } else {
-                    return String.valueOf((long) cell.getNumericCellValue());
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return "";
-        }
-    }
-    
-    private Double getCellValueAsDouble(Cell cell) {
-        if (cell == null) return 0.0;
-        
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return cell.getNumericCellValue();
-            case STRING:
-                try {
-                    return Double.parseDouble(cell.getStringCellValue().trim());
-                } catch (NumberFormatException e) {
-                    return 0.0;
-                }
-            case FORMULA:
-                try {
-                    return cell.getNumericCellValue();
-                } catch (Exception e) {
-                    return 0.0;
-                }
-            default:
-                return 0.0;
-        }
-    }
-    
     /**
      * SUPPRIMÉ: Création automatique des frais de transaction pour un écart de solde
      * Cette méthode a été supprimée car les frais ne doivent pas être générés automatiquement
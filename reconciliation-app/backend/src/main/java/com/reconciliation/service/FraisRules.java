@@ -0,0 +1,110 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.FraisTransactionEntity;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Table immuable des frais de transaction actifs indexés par (service, agence)
+ * Partagée entre threads via le cache "fraisRules" (invalidé par {@link FraisTransactionService})
+ */
+public final class FraisRules {
+
+    private final Map<String, Rule> rules;
+
+    private FraisRules(Map<String, Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Construit la table à partir des frais actifs ; un couple (service, agence) présent plusieurs fois
+     * n'a pas de frais applicable (comme la requête unitaire, qui échoue sur un résultat non unique)
+     */
+    public static FraisRules of(List<FraisTransactionEntity> fraisActifs) {
+        Map<String, Rule> rules = new HashMap<>();
+        Set<String> duplicates = new HashSet<>();
+        for (FraisTransactionEntity frais : fraisActifs) {
+            String key = key(frais.getService(), frais.getAgence());
+            if (rules.put(key, new Rule(frais)) != null) {
+                duplicates.add(key);
+            }
+        }
+        rules.keySet().removeAll(duplicates);
+        return new FraisRules(Collections.unmodifiableMap(rules));
+    }
+
+    /**
+     * Frais applicable pour un service et une agence
+     */
+    public Optional<Rule> find(String service, String agence) {
+        return Optional.ofNullable(rules.get(key(service, agence)));
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    private static String key(String service, String agence) {
+        return service + '\u0000' + agence;
+    }
+
+    /**
+     * Frais applicable (copie immuable de l'entité)
+     */
+    public static final class Rule {
+        private final String typeCalcul;
+        private final Double pourcentage;
+        private final Double montantFrais;
+        private final String description;
+
+        private Rule(FraisTransactionEntity frais) {
+            this.typeCalcul = frais.getTypeCalcul();
+            this.pourcentage = frais.getPourcentage();
+            this.montantFrais = frais.getMontantFrais();
+            this.description = frais.getDescription();
+        }
+
+        public String getTypeCalcul() {
+            return typeCalcul;
+        }
+
+        public Double getPourcentage() {
+            return pourcentage;
+        }
+
+        public Double getMontantFrais() {
+            return montantFrais;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Frais en pourcentage du volume (sinon frais fixe par transaction)
+         */
+        public boolean isPourcentage() {
+            return "POURCENTAGE".equals(typeCalcul) && pourcentage != null;
+        }
+
+        /**
+         * Montant des frais en pourcentage : Volume Total × Pourcentage
+         */
+        public double montantPourcentage(double volume) {
+            return volume * (pourcentage / 100.0);
+        }
+
+        /**
+         * Montant des frais fixes : Valeur fixe × Nombre de transactions
+         */
+        public double montantFixe(int nombreTransactions) {
+            return montantFrais * nombreTransactions;
+        }
+    }
+}
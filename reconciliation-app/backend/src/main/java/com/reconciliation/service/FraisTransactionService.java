@@ -1,9 +1,12 @@
 package com.reconciliation.service;
 
 import com.reconciliation.entity.FraisTransactionEntity;
+import com.reconciliation.entity.RankingCubeListener;
 import com.reconciliation.repository.FraisTransactionRepository;
 import com.reconciliation.dto.FraisTransactionRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,7 +25,10 @@ public class FraisTransactionService {
      * Créer un nouveau frais de transaction
      */
     @Transactional
+    @CacheEvict(value = "fraisRules", allEntries = true)
     public FraisTransactionEntity createFraisTransaction(FraisTransactionRequest request) {
+        // Les frais des opérations changent : cube des classements à recalculer
+        RankingCubeListener.markAllDirty();
         // Vérifier s'il existe déjà un frais pour ce service et cette agence
         Optional<FraisTransactionEntity> existingFrais = fraisTransactionRepository.findFraisApplicable(request.getService(), request.getAgence());
         if (existingFrais.isPresent()) {
@@ -47,7 +53,9 @@ public class FraisTransactionService {
      * Mettre à jour un frais de transaction existant
      */
     @Transactional
+    @CacheEvict(value = "fraisRules", allEntries = true)
     public FraisTransactionEntity updateFraisTransaction(Long id, FraisTransactionRequest request) {
+        RankingCubeListener.markAllDirty();
         FraisTransactionEntity frais = fraisTransactionRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Frais de transaction non trouvé avec ID: " + id));
         
@@ -113,6 +121,15 @@ public class FraisTransactionService {
         return fraisTransactionRepository.findFraisApplicable(service, agence);
     }
     
+    /**
+     * Table des frais actifs par (service, agence), chargée une fois et partagée entre les appels
+     * (invalidée à chaque création, modification, suppression ou activation d'un frais)
+     */
+    @Cacheable("fraisRules")
+    public FraisRules getFraisRules() {
+        return FraisRules.of(fraisTransactionRepository.findByActifTrueOrderByDateModificationDesc());
+    }
+    
     /**
      * Récupérer tous les services uniques
      */
@@ -148,7 +165,9 @@ public class FraisTransactionService {
      * Supprimer un frais de transaction (suppression physique de la base de données)
      */
     @Transactional
+    @CacheEvict(value = "fraisRules", allEntries = true)
     public boolean deleteFraisTransaction(Long id) {
+        RankingCubeListener.markAllDirty();
         Optional<FraisTransactionEntity> frais = fraisTransactionRepository.findById(id);
         if (frais.isPresent()) {
             fraisTransactionRepository.deleteById(id);
@@ -161,7 +180,9 @@ public class FraisTransactionService {
      * Activer/désactiver un frais de transaction
      */
     @Transactional
+    @CacheEvict(value = "fraisRules", allEntries = true)
     public boolean toggleFraisTransaction(Long id) {
+        RankingCubeListener.markAllDirty();
         Optional<FraisTransactionEntity> frais = fraisTransactionRepository.findById(id);
         if (frais.isPresent()) {
             FraisTransactionEntity entity = frais.get();
@@ -0,0 +1,171 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.ImpactOPEntity;
+import com.reconciliation.repository.ImpactOPRepository;
+import com.reconciliation.util.JdbcBatchInserts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Enregistrement en masse des impacts OP (table impact_op).
+ *
+ * Les doublons d'un lot sont recherchés en une seule requête (numéros de transaction GU du lot) puis détectés
+ * en mémoire ; les impacts retenus sont insérés par lots JDBC, avec un résultat par ligne ({@link JdbcBatchInserts}).
+ */
+@Service
+public class ImpactOPBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImpactOPBulkService.class);
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String INSERT_SQL =
+        "INSERT INTO impact_op (type_operation, montant, solde_avant, solde_apres, code_proprietaire, date_operation, " +
+        "numero_trans_gu, groupe_reseau, statut, commentaire, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Nombre maximal d'impacts par numéro de transaction GU
+    private static final int MAX_IMPACTS_PER_NUMERO_TRANS_GU = 2;
+
+    @Autowired
+    private ImpactOPRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Impacts existants pouvant être des doublons des impacts du lot (mêmes numéros de transaction GU)
+     */
+    public DuplicateIndex loadDuplicateIndex(Collection<ImpactOPEntity> impacts) {
+        Set<String> numeros = new LinkedHashSet<>();
+        for (ImpactOPEntity impact : impacts) {
+            if (impact.getNumeroTransGU() != null) {
+                numeros.add(impact.getNumeroTransGU());
+            }
+        }
+        if (numeros.isEmpty()) {
+            return new DuplicateIndex(new ArrayList<>());
+        }
+        return new DuplicateIndex(repository.findByNumeroTransGUIn(numeros));
+    }
+
+    /**
+     * Insère les impacts par lots JDBC
+     * @return pour chaque impact (même ordre), null si inséré, sinon le message d'erreur
+     */
+    public List<String> insertAll(List<ImpactOPEntity> impacts) {
+        List<String> errors = new ArrayList<>(impacts.size());
+        for (int start = 0; start < impacts.size(); start += INSERT_BATCH_SIZE) {
+            List<ImpactOPEntity> chunk = impacts.subList(start, Math.min(start + INSERT_BATCH_SIZE, impacts.size()));
+            List<Object[]> rows = new ArrayList<>(chunk.size());
+            for (ImpactOPEntity impact : chunk) {
+                rows.add(new Object[]{
+                    impact.getTypeOperation(), impact.getMontant(), impact.getSoldeAvant(), impact.getSoldeApres(),
+                    impact.getCodeProprietaire(), impact.getDateOperation(), impact.getNumeroTransGU(), impact.getGroupeReseau(),
+                    impact.getStatut() != null ? impact.getStatut().name() : null, impact.getCommentaire(),
+                    impact.getCreatedAt(), impact.getUpdatedAt()
+                });
+            }
+            List<String> chunkErrors = JdbcBatchInserts.insert(jdbcTemplate, INSERT_SQL, rows);
+            long failed = chunkErrors.stream().filter(Objects::nonNull).count();
+            if (failed > 0) {
+                logger.error("❌ {} impact(s) OP non inséré(s) sur un lot de {}", failed, chunk.size());
+            }
+            errors.addAll(chunkErrors);
+        }
+        return errors;
+    }
+
+    /**
+     * Impacts existants indexés par numéro de transaction GU, comparé sans tenir compte de la casse
+     * comme la collation de la base
+     */
+    public static final class DuplicateIndex {
+        private final Map<String, List<ImpactOPEntity>> byNumeroTransGU = new HashMap<>();
+
+        public DuplicateIndex(List<ImpactOPEntity> existing) {
+            for (ImpactOPEntity impact : existing) {
+                add(impact);
+            }
+        }
+
+        /**
+         * Ajoute un impact (ex: impact du lot déjà retenu)
+         */
+        public void add(ImpactOPEntity impact) {
+            String key = key(impact.getNumeroTransGU());
+            if (key != null) {
+                byNumeroTransGU.computeIfAbsent(key, k -> new ArrayList<>()).add(impact);
+            }
+        }
+
+        /**
+         * Doublon si le numéro de transaction GU a déjà 2 impacts, ou si un impact a toutes les mêmes valeurs
+         */
+        public boolean isDuplicate(ImpactOPEntity impact) {
+            List<ImpactOPEntity> candidates = candidates(impact);
+            if (candidates.size() >= MAX_IMPACTS_PER_NUMERO_TRANS_GU) {
+                return true;
+            }
+            for (ImpactOPEntity candidate : candidates) {
+                if (hasSameKey(candidate, impact)
+                        && sameAmount(candidate.getMontant(), impact.getMontant())
+                        && sameAmount(candidate.getSoldeAvant(), impact.getSoldeAvant())
+                        && sameAmount(candidate.getSoldeApres(), impact.getSoldeApres())
+                        && Objects.equals(candidate.getTypeOperation(), impact.getTypeOperation())
+                        && Objects.equals(candidate.getGroupeReseau(), impact.getGroupeReseau())
+                        && Objects.equals(Objects.toString(candidate.getCommentaire(), ""), Objects.toString(impact.getCommentaire(), ""))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Un impact de même (code propriétaire, numéro de transaction GU, date d'opération) existe :
+         * l'insertion violerait l'index unique idx_unique_impact
+         */
+        public boolean hasSameUniqueKey(ImpactOPEntity impact) {
+            for (ImpactOPEntity candidate : candidates(impact)) {
+                if (hasSameKey(candidate, impact)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private List<ImpactOPEntity> candidates(ImpactOPEntity impact) {
+            String key = key(impact.getNumeroTransGU());
+            List<ImpactOPEntity> candidates = key != null ? byNumeroTransGU.get(key) : null;
+            return candidates != null ? candidates : List.of();
+        }
+
+        private static boolean hasSameKey(ImpactOPEntity candidate, ImpactOPEntity impact) {
+            return candidate.getCodeProprietaire() != null
+                && candidate.getCodeProprietaire().equalsIgnoreCase(impact.getCodeProprietaire())
+                && Objects.equals(candidate.getDateOperation(), impact.getDateOperation());
+        }
+
+        // Comparaison numérique : la base stocke les montants avec 3 décimales
+        private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+            return a == null ? b == null : b != null && a.compareTo(b) == 0;
+        }
+
+        private static String key(String numeroTransGU) {
+            return numeroTransGU != null ? numeroTransGU.toLowerCase(Locale.ROOT) : null;
+        }
+    }
+}
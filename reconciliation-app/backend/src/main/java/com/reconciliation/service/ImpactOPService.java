@@ -4,8 +4,11 @@ import com.reconciliation.entity.ImpactOPEntity;
 import com.reconciliation.repository.ImpactOPRepository;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
@@ -18,9 +21,22 @@ import java.util.*;
 @Service
 public class ImpactOPService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ImpactOPService.class);
+
+    // Lignes lues avant recherche des doublons et insertion en lot
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+    // Fréquence des traces de progression de l'import
+    private static final int PROGRESS_LOG_INTERVAL = 5000;
+
     @Autowired
     private ImpactOPRepository impactOPRepository;
 
+    @Autowired
+    private TabularFileReader tabularFileReader;
+
+    @Autowired
+    private ImpactOPBulkService impactOPBulkService;
+
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final DateTimeFormatter DATE_FORMATTER_WITH_MS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.S");
 
@@ -139,17 +155,19 @@ public class ImpactOPService {
             return result;
         }
 
-        for (Long id : ids) {
-            try {
-                if (impactOPRepository.existsById(id)) {
-                    impactOPRepository.deleteById(id);
-                    deletedCount++;
-                } else {
+        try {
+            Set<Long> existingIds = new HashSet<>(impactOPRepository.findExistingIds(new LinkedHashSet<>(ids)));
+            for (Long id : new LinkedHashSet<>(ids)) {
+                if (!existingIds.contains(id)) {
                     errors.add("Impact OP ID " + id + " non trouvé");
                 }
-            } catch (Exception e) {
-                errors.add("Erreur lors de la suppression de l'impact OP ID " + id + ": " + e.getMessage());
             }
+            if (!existingIds.isEmpty()) {
+                impactOPRepository.deleteAllByIdInBatch(existingIds);
+                deletedCount = existingIds.size();
+            }
+        } catch (Exception e) {
+            errors.add("Erreur lors de la suppression des impacts OP: " + e.getMessage());
         }
 
         result.put("success", errors.isEmpty() || deletedCount > 0);
@@ -161,43 +179,22 @@ public class ImpactOPService {
     /**
      * Mettre à jour tous les commentaires des impacts OP existants
      */
+    @Transactional
     public Map<String, Object> updateAllComments() {
         Map<String, Object> result = new HashMap<>();
-        int updatedCount = 0;
-        int tsopCount = 0;
-        int impactJ1Count = 0;
         
         try {
-            // Récupérer tous les impacts OP
-            List<ImpactOPEntity> allImpacts = impactOPRepository.findAll();
-            
-            for (ImpactOPEntity impact : allImpacts) {
-                String typeOperation = impact.getTypeOperation();
-                String newComment = "";
-                
-                // Définir le commentaire selon le type d'opération
-                if (typeOperation != null && typeOperation.toUpperCase().contains("TSOP")) {
-                    newComment = "TSOP";
-                    tsopCount++;
-                } else {
-                    newComment = "IMPACT J+1";
-                    impactJ1Count++;
-                }
-                
-                // Mettre à jour le commentaire seulement s'il est différent
-                if (!newComment.equals(impact.getCommentaire())) {
-                    impact.setCommentaire(newComment);
-                    impactOPRepository.save(impact);
-                    updatedCount++;
-                }
-            }
+            // Une seule requête UPDATE : TSOP ou IMPACT J+1 selon le type d'opération
+            int updatedCount = impactOPRepository.updateCommentairesByTypeOperation(LocalDateTime.now());
+            long totalImpacts = impactOPRepository.count();
+            long tsopCount = impactOPRepository.countTsop();
             
             result.put("success", true);
             result.put("message", "✅ Mise à jour terminée : " + updatedCount + " commentaires mis à jour");
-            result.put("totalImpacts", allImpacts.size());
+            result.put("totalImpacts", totalImpacts);
             result.put("updatedCount", updatedCount);
             result.put("tsopCount", tsopCount);
-            result.put("impactJ1Count", impactJ1Count);
+            result.put("impactJ1Count", totalImpacts - tsopCount);
             
         } catch (Exception e) {
             result.put("success", false);
@@ -230,18 +227,14 @@ public class ImpactOPService {
         int newRecords = 0;
         int excludedLines = 0; // Compteur pour les lignes exclues
 
-        try {
-            List<Map<String, String>> data = parseFile(file);
-            
-            // Debug: afficher les en-têtes trouvés
-            if (!data.isEmpty()) {
-                System.out.println("En-têtes trouvés: " + data.get(0).keySet());
-                System.out.println("Première ligne: " + data.get(0));
-            }
+        try (TabularFileReader.RowCursor cursor = openRows(file)) {
+            logger.info("Validation impacts OP {} - en-têtes trouvés: {}", file.getOriginalFilename(), cursor.getHeaders());
             
-            for (int i = 0; i < data.size(); i++) {
-                Map<String, String> row = data.get(i);
-                int lineNumber = i + 2; // +2 car l'index commence à 0 et on a un header
+            // Impacts valides en attente de la recherche des doublons (une requête par lot)
+            List<ImpactOPEntity> pending = new ArrayList<>();
+            while (cursor.hasNext()) {
+                Map<String, String> row = nextRow(cursor);
+                int lineNumber = (int) cursor.getRowNumber();
                 
                 try {
                     // Vérifier si le type d'opération doit être exclu
@@ -249,23 +242,17 @@ public class ImpactOPService {
                     String typeOperation = row.get(typeOperationField);
                     
                     if (shouldExcludeTypeOperation(typeOperation)) {
-                        System.out.println("Ligne " + lineNumber + " EXCLUE - Type d'opération: " + typeOperation);
                         excludedLines++;
                         continue; // Passer à la ligne suivante
                     }
                     
                     // Valider les données
+                    int errorCount = errors.size();
                     validateRow(row, lineNumber, errors);
                     
-                    if (errors.stream().noneMatch(error -> error.contains("Ligne " + lineNumber))) {
+                    if (errors.size() == errorCount) {
+                        pending.add(createImpactFromRow(row));
                         validLines++;
-                        
-                        // Vérifier les doublons
-                        if (isDuplicate(row)) {
-                            duplicates++;
-                        } else {
-                            newRecords++;
-                        }
                     } else {
                         errorLines++;
                     }
@@ -273,6 +260,19 @@ public class ImpactOPService {
                     errors.add("Ligne " + lineNumber + ": Erreur de validation - " + e.getMessage());
                     errorLines++;
                 }
+                
+                if (pending.size() >= IMPORT_CHUNK_SIZE) {
+                    int chunkDuplicates = countDuplicates(pending);
+                    duplicates += chunkDuplicates;
+                    newRecords += pending.size() - chunkDuplicates;
+                    pending.clear();
+                }
+            }
+            
+            if (!pending.isEmpty()) {
+                int chunkDuplicates = countDuplicates(pending);
+                duplicates += chunkDuplicates;
+                newRecords += pending.size() - chunkDuplicates;
             }
         } catch (Exception e) {
             errors.add("Erreur lors de la lecture du fichier: " + e.getMessage());
@@ -291,6 +291,9 @@ public class ImpactOPService {
 
     /**
      * Uploader un fichier d'impacts OP
+     * 
+     * Les lignes sont lues en flux et traitées par lots de {@link #IMPORT_CHUNK_SIZE} : une requête pour
+     * les doublons du lot, puis insertion JDBC par lots des impacts retenus.
      */
     public Map<String, Object> uploadFile(MultipartFile file) {
         Map<String, Object> result = new HashMap<>();
@@ -300,84 +303,61 @@ public class ImpactOPService {
         int totalReceived = 0;
         int excludedLines = 0; // Compteur pour les lignes exclues
 
-        System.out.println("=== DÉBUT uploadFile Impact OP ===");
-        System.out.println("DEBUG: Nom du fichier: " + (file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown"));
-        System.out.println("DEBUG: Taille du fichier: " + file.getSize() + " bytes");
-        System.out.println("DEBUG: Type MIME: " + file.getContentType());
+        logger.info("📥 Début de l'import des impacts OP - fichier: {}, taille: {} octets",
+            file.getOriginalFilename(), file.getSize());
 
-        try {
-            List<Map<String, String>> data = parseFile(file);
-            totalReceived = data.size();
-            System.out.println("DEBUG: Nombre total de lignes parsées: " + totalReceived);
+        try (TabularFileReader.RowCursor cursor = openRows(file)) {
+            logger.info("📥 En-têtes trouvés: {}", cursor.getHeaders());
             
-            if (!data.isEmpty()) {
-                System.out.println("DEBUG: En-têtes trouvés: " + data.get(0).keySet());
-                System.out.println("DEBUG: Première ligne: " + data.get(0));
-            }
-            
-            for (int i = 0; i < data.size(); i++) {
-                Map<String, String> row = data.get(i);
-                int lineNumber = i + 2; // +2 car l'index commence à 0 et on a un header
-                
-                System.out.println("DEBUG: Traitement ligne " + lineNumber + "/" + data.size() + " - Progression: " + Math.round((i * 100.0) / data.size()) + "%");
-                System.out.println("DEBUG: Ligne " + lineNumber + " - Contenu: " + row);
+            List<ImpactOPEntity> pending = new ArrayList<>();
+            List<Integer> pendingLines = new ArrayList<>();
+            while (cursor.hasNext()) {
+                Map<String, String> row = nextRow(cursor);
+                int lineNumber = (int) cursor.getRowNumber();
+                totalReceived++;
                 
                 try {
                     // Vérifier si le type d'opération doit être exclu
                     String typeOperationField = findFieldIgnoreAccents(row, "Type Opération");
-                    System.out.println("DEBUG: Ligne " + lineNumber + " - Champ Type Opération trouvé: " + typeOperationField);
                     
                     if (typeOperationField == null) {
-                        System.out.println("DEBUG: Ligne " + lineNumber + " - ERREUR: Champ 'Type Opération' non trouvé");
                         errors.add("Ligne " + lineNumber + ": Champ 'Type Opération' non trouvé");
-                        continue;
-                    }
-                    
-                    String typeOperation = row.get(typeOperationField);
-                    System.out.println("DEBUG: Ligne " + lineNumber + " - Type d'opération: " + typeOperation);
-                    
-                    if (shouldExcludeTypeOperation(typeOperation)) {
-                        System.out.println("DEBUG: Ligne " + lineNumber + " - EXCLUE - Type d'opération: " + typeOperation);
+                    } else if (shouldExcludeTypeOperation(row.get(typeOperationField))) {
                         excludedLines++;
-                        continue; // Passer à la ligne suivante
-                    }
-                    
-                    System.out.println("DEBUG: Ligne " + lineNumber + " - Création de l'entité...");
-                    ImpactOPEntity impact = createImpactFromRow(row);
-                    System.out.println("DEBUG: Ligne " + lineNumber + " - Entité créée avec succès - ID: " + impact.getId());
-                    
-                    // Vérifier les doublons
-                    System.out.println("DEBUG: Ligne " + lineNumber + " - Vérification des doublons...");
-                    if (!isDuplicate(row)) {
-                        System.out.println("DEBUG: Ligne " + lineNumber + " - Pas de doublon, sauvegarde...");
-                        impactOPRepository.save(impact);
-                        count++;
-                        System.out.println("DEBUG: Ligne " + lineNumber + " - Sauvegardé avec succès");
                     } else {
-                        System.out.println("DEBUG: Ligne " + lineNumber + " - DOUBLON DÉTECTÉ, ignoré");
-                        duplicates++;
+                        pending.add(createImpactFromRow(row));
+                        pendingLines.add(lineNumber);
                     }
                 } catch (Exception e) {
-                    System.out.println("DEBUG: Ligne " + lineNumber + " - ERREUR: " + e.getMessage());
-                    System.out.println("DEBUG: Stack trace:");
-                    e.printStackTrace();
                     errors.add("Ligne " + lineNumber + ": " + e.getMessage());
                 }
+                
+                if (pending.size() >= IMPORT_CHUNK_SIZE) {
+                    ChunkResult chunkResult = importChunk(pending, pendingLines, errors);
+                    count += chunkResult.inserted;
+                    duplicates += chunkResult.duplicates;
+                    pending.clear();
+                    pendingLines.clear();
+                }
+                
+                if (totalReceived % PROGRESS_LOG_INTERVAL == 0) {
+                    logger.info("📥 Import impacts OP : {} lignes lues, {} importées, {} doublons, {} exclues, {} erreurs",
+                        totalReceived, count, duplicates, excludedLines, errors.size());
+                }
+            }
+            
+            if (!pending.isEmpty()) {
+                ChunkResult chunkResult = importChunk(pending, pendingLines, errors);
+                count += chunkResult.inserted;
+                duplicates += chunkResult.duplicates;
             }
         } catch (Exception e) {
-            System.out.println("DEBUG: ERREUR CRITIQUE lors de la lecture du fichier: " + e.getMessage());
-            System.out.println("DEBUG: Stack trace:");
-            e.printStackTrace();
+            logger.error("❌ Erreur lors de la lecture du fichier d'impacts OP: {}", e.getMessage(), e);
             errors.add("Erreur lors de la lecture du fichier: " + e.getMessage());
         }
 
-        System.out.println("DEBUG: === RÉSUMÉ DU TRAITEMENT ===");
-        System.out.println("DEBUG: Total de lignes reçues: " + totalReceived);
-        System.out.println("DEBUG: Lignes traitées avec succès: " + count);
-        System.out.println("DEBUG: Doublons détectés: " + duplicates);
-        System.out.println("DEBUG: Lignes exclues: " + excludedLines);
-        System.out.println("DEBUG: Erreurs: " + errors.size());
-        System.out.println("DEBUG: === FIN RÉSUMÉ ===");
+        logger.info("✅ Fin de l'import des impacts OP : {} lignes reçues, {} importées, {} doublons, {} exclues, {} erreurs",
+            totalReceived, count, duplicates, excludedLines, errors.size());
 
         String message = errors.isEmpty() ? 
             "✅ " + count + " enregistrements importés avec succès" + 
@@ -391,10 +371,68 @@ public class ImpactOPService {
         result.put("totalReceived", totalReceived);
         result.put("excludedLines", excludedLines); // Ajouter le compteur des lignes exclues
 
-        System.out.println("=== FIN uploadFile Impact OP ===");
         return result;
     }
 
+    /**
+     * Résultat de l'import d'un lot
+     */
+    private static final class ChunkResult {
+        private int inserted;
+        private int duplicates;
+    }
+
+    /**
+     * Filtrer les doublons d'un lot (une seule requête) puis insérer les impacts retenus par lots JDBC
+     */
+    private ChunkResult importChunk(List<ImpactOPEntity> impacts, List<Integer> lineNumbers, List<String> errors) {
+        ChunkResult chunkResult = new ChunkResult();
+        ImpactOPBulkService.DuplicateIndex index = impactOPBulkService.loadDuplicateIndex(impacts);
+        List<ImpactOPEntity> accepted = new ArrayList<>();
+        List<Integer> acceptedLines = new ArrayList<>();
+        for (int i = 0; i < impacts.size(); i++) {
+            ImpactOPEntity impact = impacts.get(i);
+            if (index.isDuplicate(impact)) {
+                chunkResult.duplicates++;
+            } else if (index.hasSameUniqueKey(impact)) {
+                errors.add("Ligne " + lineNumbers.get(i) + ": Un impact existe déjà pour le code propriétaire " +
+                    impact.getCodeProprietaire() + ", le numéro de transaction GU " + impact.getNumeroTransGU() +
+                    " et la date " + impact.getDateOperation());
+            } else {
+                // Les impacts retenus comptent pour les lignes suivantes du fichier
+                index.add(impact);
+                accepted.add(impact);
+                acceptedLines.add(lineNumbers.get(i));
+            }
+        }
+
+        List<String> insertErrors = impactOPBulkService.insertAll(accepted);
+        for (int i = 0; i < insertErrors.size(); i++) {
+            if (insertErrors.get(i) == null) {
+                chunkResult.inserted++;
+            } else {
+                errors.add("Ligne " + acceptedLines.get(i) + ": " + insertErrors.get(i));
+            }
+        }
+        return chunkResult;
+    }
+
+    /**
+     * Compter les doublons d'un lot (une seule requête), en tenant compte des lignes précédentes du lot
+     */
+    private int countDuplicates(List<ImpactOPEntity> impacts) {
+        ImpactOPBulkService.DuplicateIndex index = impactOPBulkService.loadDuplicateIndex(impacts);
+        int duplicates = 0;
+        for (ImpactOPEntity impact : impacts) {
+            if (index.isDuplicate(impact)) {
+                duplicates++;
+            } else {
+                index.add(impact);
+            }
+        }
+        return duplicates;
+    }
+
     /**
      * Mettre à jour le statut d'un impact OP
      */
@@ -558,120 +596,26 @@ public class ImpactOPService {
     }
 
     /**
-     * Parser un fichier (CSV ou Excel)
+     * Ouvrir un curseur sur un fichier (CSV ou Excel) ; la première ligne est l'en-tête.
+     * Les lignes sont lues au fil de l'eau, sans charger le classeur en mémoire.
      */
-    private List<Map<String, String>> parseFile(MultipartFile file) throws IOException {
-        List<Map<String, String>> data = new ArrayList<>();
-        
-        if (file.getOriginalFilename().toLowerCase().endsWith(".csv")) {
-            data = parseCsvFile(file);
-        } else {
-            data = parseExcelFile(file);
-        }
-        
-        return data;
-    }
-
-    /**
-     * Parse un fichier CSV
-     * 
-     * Cette méthode gère :
-     * - ENCODAGE : Lecture du fichier en UTF-8 et détection du séparateur
-     * - NORMALISATION : Nettoyage des en-têtes et des données
-     * - TYPAGE : Conversion des données vers le format standardisé
-     * 
-     * @param file Le fichier CSV à parser
-     * @return La liste des enregistrements parsés et normalisés
-     * @throws IOException En cas d'erreur de lecture du fichier
-     */
-    private List<Map<String, String>> parseCsvFile(MultipartFile file) throws IOException {
-        List<Map<String, String>> data = new ArrayList<>();
-        String content = new String(file.getBytes(), "UTF-8");
-        String[] lines = content.split("\n");
-        
-        if (lines.length < 2) {
+    private TabularFileReader.RowCursor openRows(MultipartFile file) throws IOException {
+        TabularFileReader.RowCursor cursor = tabularFileReader.open(file.getInputStream(), file.getOriginalFilename(),
+            DATE_FORMATTER, null, 0);
+        if (cursor.getHeaders().isEmpty()) {
+            cursor.close();
             throw new RuntimeException("Fichier vide ou format invalide");
         }
-
-        // Détecter automatiquement le séparateur
-        String separator = detectSeparator(lines[0]);
-
-        // En-têtes
-        String[] headers = lines[0].split(separator);
-        for (int i = 0; i < headers.length; i++) {
-            headers[i] = headers[i].trim();
-        }
-        
-        // Données
-        for (int i = 1; i < lines.length; i++) {
-            if (lines[i].trim().isEmpty()) continue;
-            
-            String[] values = lines[i].split(separator);
-            Map<String, String> row = new HashMap<>();
-            
-            for (int j = 0; j < Math.min(headers.length, values.length); j++) {
-                row.put(headers[j], values[j].trim());
-            }
-            
-            data.add(row);
-        }
-        
-        return data;
+        return cursor;
     }
 
     /**
-     * Parser un fichier Excel
+     * Ligne suivante, valeurs nettoyées des espaces
      */
-    private List<Map<String, String>> parseExcelFile(MultipartFile file) throws IOException {
-        List<Map<String, String>> data = new ArrayList<>();
-        
-        try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            Row headerRow = sheet.getRow(0);
-            if (headerRow == null) {
-                throw new RuntimeException("Fichier vide ou format invalide");
-            }
-
-            // En-têtes
-            List<String> headers = new ArrayList<>();
-            for (int i = 0; i < headerRow.getLastCellNum(); i++) {
-                Cell cell = headerRow.getCell(i);
-                headers.add(cell != null ? cell.toString().trim() : "Colonne" + i);
-            }
-
-            // Données
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row != null) {
-                    Map<String, String> rowData = new HashMap<>();
-                    for (int j = 0; j < headers.size(); j++) {
-                        Cell cell = row.getCell(j);
-                        String value = "";
-                        if (cell != null) {
-                            switch (cell.getCellType()) {
-                                case STRING:
-                                    value = cell.getStringCellValue();
-                                    break;
-                                case NUMERIC:
-                                    if (DateUtil.isCellDateFormatted(cell)) {
-                                        value = cell.getLocalDateTimeCellValue().format(DATE_FORMATTER);
-                                    } else {
-                                        value = String.valueOf(cell.getNumericCellValue());
-                                    }
-                                    break;
-                                default:
-                                    value = cell.toString();
-                            }
-                        }
-                        rowData.put(headers.get(j), value.trim());
-                    }
-                    data.add(rowData);
-                }
-            }
-        }
-        
-        return data;
+    private Map<String, String> nextRow(TabularFileReader.RowCursor cursor) {
+        Map<String, String> row = cursor.next();
+        row.replaceAll((header, value) -> value != null ? value.trim() : "");
+        return row;
     }
 
     /**
@@ -718,7 +662,6 @@ public class ImpactOPService {
         try {
             String dateField = findFieldIgnoreAccents(row, "Date opération");
             String dateStr = row.get(dateField);
-            System.out.println("📅 Validation date ligne " + lineNumber + ": " + dateStr);
             if (dateStr.contains("T")) {
                 LocalDateTime.parse(dateStr); // Format ISO
             } else if (dateStr.contains(".")) {
@@ -728,7 +671,6 @@ public class ImpactOPService {
             }
         } catch (Exception e) {
             String dateValue = row.get("Date opération") != null ? row.get("Date opération") : "valeur manquante";
-            System.out.println("❌ Erreur date ligne " + lineNumber + ": " + e.getMessage());
             errors.add("❌ Ligne " + lineNumber + ": Date invalide → '" + dateValue + "' (formats acceptés: yyyy-MM-dd HH:mm:ss, yyyy-MM-ddTHH:mm:ss, yyyy-MM-dd HH:mm:ss.S)");
         }
     }
@@ -755,34 +697,10 @@ public class ImpactOPService {
                 .toLowerCase();
     }
 
-    /**
-     * Détecter automatiquement le séparateur CSV
-     */
-    private String detectSeparator(String headerLine) {
-        // Compter les occurrences de chaque séparateur possible
-        int commaCount = headerLine.length() - headerLine.replace(",", "").length();
-        int semicolonCount = headerLine.length() - headerLine.replace(";", "").length();
-        int tabCount = headerLine.length() - headerLine.replace("\t", "").length();
-        
-        System.out.println("DEBUG: Détection séparateur - Virgules: " + commaCount + ", Point-virgules: " + semicolonCount + ", Tabs: " + tabCount);
-        
-        // Retourner le séparateur le plus fréquent
-        if (semicolonCount >= commaCount && semicolonCount >= tabCount) {
-            return ";";
-        } else if (tabCount >= commaCount && tabCount >= semicolonCount) {
-            return "\t";
-        } else {
-            return ",";
-        }
-    }
-
     /**
      * Créer un ImpactOPEntity à partir d'une ligne de données
      */
     private ImpactOPEntity createImpactFromRow(Map<String, String> row) {
-        System.out.println("DEBUG: === DÉBUT createImpactFromRow ===");
-        System.out.println("DEBUG: En-têtes disponibles: " + row.keySet());
-        
         String montantField = findFieldIgnoreAccents(row, "Montant");
         String soldeAvantField = findFieldIgnoreAccents(row, "Solde avant");
         String soldeApresField = findFieldIgnoreAccents(row, "Solde après");
@@ -792,16 +710,6 @@ public class ImpactOPService {
         String numeroTransGUField = findFieldIgnoreAccents(row, "Numéro Trans GU");
         String groupeReseauField = findFieldIgnoreAccents(row, "Groupe de réseau");
         
-        System.out.println("DEBUG: Champs trouvés:");
-        System.out.println("  - Montant: " + montantField + " -> " + (montantField != null ? row.get(montantField) : "NULL"));
-        System.out.println("  - Solde avant: " + soldeAvantField + " -> " + (soldeAvantField != null ? row.get(soldeAvantField) : "NULL"));
-        System.out.println("  - Solde après: " + soldeApresField + " -> " + (soldeApresField != null ? row.get(soldeApresField) : "NULL"));
-        System.out.println("  - Date opération: " + dateField + " -> " + (dateField != null ? row.get(dateField) : "NULL"));
-        System.out.println("  - Type Opération: " + typeOperationField + " -> " + (typeOperationField != null ? row.get(typeOperationField) : "NULL"));
-        System.out.println("  - Code propriétaire: " + codeProprietaireField + " -> " + (codeProprietaireField != null ? row.get(codeProprietaireField) : "NULL"));
-        System.out.println("  - Numéro Trans GU: " + numeroTransGUField + " -> " + (numeroTransGUField != null ? row.get(numeroTransGUField) : "NULL"));
-        System.out.println("  - Groupe de réseau: " + groupeReseauField + " -> " + (groupeReseauField != null ? row.get(groupeReseauField) : "NULL"));
-        
         // Vérifier que tous les champs requis sont présents
         if (montantField == null) throw new RuntimeException("Champ 'Montant' non trouvé");
         if (soldeAvantField == null) throw new RuntimeException("Champ 'Solde avant' non trouvé");
@@ -818,17 +726,13 @@ public class ImpactOPService {
         
         // Parser la date selon le format
         String dateStr = row.get(dateField);
-        System.out.println("DEBUG: Date brute: '" + dateStr + "'");
         LocalDateTime dateOperation;
         if (dateStr.contains("T")) {
             dateOperation = LocalDateTime.parse(dateStr); // Format ISO
-            System.out.println("DEBUG: Date parsée (ISO): " + dateOperation);
         } else if (dateStr.contains(".")) {
             dateOperation = LocalDateTime.parse(dateStr, DATE_FORMATTER_WITH_MS); // Format avec millisecondes
-            System.out.println("DEBUG: Date parsée (avec ms): " + dateOperation);
         } else {
             dateOperation = LocalDateTime.parse(dateStr, DATE_FORMATTER); // Format avec espace
-            System.out.println("DEBUG: Date parsée (standard): " + dateOperation);
         }
 
         // Créer l'entité avec le commentaire par défaut selon le type d'opération
@@ -851,97 +755,6 @@ public class ImpactOPService {
             impact.setCommentaire("IMPACT J+1");
         }
         
-        System.out.println("DEBUG: Entité créée avec succès");
-        System.out.println("DEBUG: === FIN createImpactFromRow ===");
-        
         return impact;
     }
-
-    /**
-     * Vérifier si un impact est un doublon
-     */
-    private boolean isDuplicate(Map<String, String> row) {
-        try {
-            String dateField = findFieldIgnoreAccents(row, "Date opération");
-            String codeProprietaireField = findFieldIgnoreAccents(row, "Code propriétaire");
-            String numeroTransGUField = findFieldIgnoreAccents(row, "Numéro Trans GU");
-            String montantField = findFieldIgnoreAccents(row, "Montant");
-            String soldeAvantField = findFieldIgnoreAccents(row, "Solde avant");
-            String soldeApresField = findFieldIgnoreAccents(row, "Solde après");
-            String typeOperationField = findFieldIgnoreAccents(row, "Type Opération");
-            String groupeReseauField = findFieldIgnoreAccents(row, "Groupe de réseau");
-            String commentaireField = findFieldIgnoreAccents(row, "Commentaire");
-            
-            String codeProprietaire = row.get(codeProprietaireField);
-            String numeroTransGU = row.get(numeroTransGUField);
-            String dateStr = row.get(dateField);
-            String montantStr = row.get(montantField);
-            String soldeAvantStr = row.get(soldeAvantField);
-            String soldeApresStr = row.get(soldeApresField);
-            String typeOperation = row.get(typeOperationField);
-            String groupeReseau = row.get(groupeReseauField);
-            String commentaire = commentaireField != null ? row.get(commentaireField) : "";
-            
-            System.out.println("Vérification doublon - Code: " + codeProprietaire + ", Numéro: " + numeroTransGU + 
-                             ", Date: " + dateStr + ", Montant: " + montantStr + ", Type: " + typeOperation);
-            
-            LocalDateTime dateOperation;
-            if (dateStr.contains("T")) {
-                dateOperation = LocalDateTime.parse(dateStr); // Format ISO
-            } else if (dateStr.contains(".")) {
-                dateOperation = LocalDateTime.parse(dateStr, DATE_FORMATTER_WITH_MS); // Format avec millisecondes
-            } else {
-                dateOperation = LocalDateTime.parse(dateStr, DATE_FORMATTER); // Format avec espace
-            }
-            
-            // 1. Vérifier la limite de 2 enregistrements par numéro de transaction GU
-            List<ImpactOPEntity> existingByNumeroTransGU = impactOPRepository.findByNumeroTransGU(numeroTransGU);
-            if (existingByNumeroTransGU.size() >= 2) {
-                System.out.println("❌ DOUBLON DÉTECTÉ - Limite de 2 enregistrements atteinte pour le numéro de transaction GU: " + numeroTransGU);
-                System.out.println("   → Déjà " + existingByNumeroTransGU.size() + " enregistrements existants avec ce numéro");
-                return true;
-            }
-            
-            // 2. Vérifier si un enregistrement avec TOUTES les mêmes valeurs existe (vrai doublon)
-            List<ImpactOPEntity> existing = impactOPRepository.findByCodeProprietaire(codeProprietaire);
-            existing = existing.stream()
-                .filter(e -> e.getNumeroTransGU().equals(numeroTransGU) && 
-                           e.getDateOperation().equals(dateOperation))
-                .toList();
-            
-            if (!existing.isEmpty()) {
-                BigDecimal newMontant = new BigDecimal(montantStr.replace(",", ""));
-                BigDecimal newSoldeAvant = new BigDecimal(soldeAvantStr.replace(",", ""));
-                BigDecimal newSoldeApres = new BigDecimal(soldeApresStr.replace(",", ""));
-                
-                for (ImpactOPEntity existingEntity : existing) {
-                    boolean isExactDuplicate = existingEntity.getMontant().equals(newMontant) &&
-                                             existingEntity.getSoldeAvant().equals(newSoldeAvant) &&
-                                             existingEntity.getSoldeApres().equals(newSoldeApres) &&
-                                             existingEntity.getTypeOperation().equals(typeOperation) &&
-                                             existingEntity.getGroupeReseau().equals(groupeReseau) &&
-                                             (existingEntity.getCommentaire() == null ? "" : existingEntity.getCommentaire()).equals(commentaire);
-                    
-                    if (isExactDuplicate) {
-                        System.out.println("❌ DOUBLON EXACT DÉTECTÉ - Toutes les valeurs sont identiques");
-                        System.out.println("   → Numéro Trans GU: " + numeroTransGU);
-                        System.out.println("   → Code propriétaire: " + codeProprietaire);
-                        System.out.println("   → Date: " + dateStr);
-                        System.out.println("   → Montant: " + montantStr);
-                        System.out.println("   → Type opération: " + typeOperation);
-                        System.out.println("   → Groupe réseau: " + groupeReseau);
-                        System.out.println("   → Commentaire: " + commentaire);
-                        return true;
-                    }
-                }
-            }
-            
-            System.out.println("✅ ENREGISTREMENT AUTORISÉ - Pas de doublon détecté");
-            System.out.println("   → Numéro Trans GU: " + numeroTransGU + " (enregistrements existants: " + existingByNumeroTransGU.size() + ")");
-            return false;
-        } catch (Exception e) {
-            System.out.println("❌ ERREUR lors de la vérification doublon: " + e.getMessage());
-            return false;
-        }
-    }
-} 
\ No newline at end of file
+}
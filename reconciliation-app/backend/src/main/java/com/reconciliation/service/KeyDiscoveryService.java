@@ -1,5 +1,6 @@
 package com.reconciliation.service;
 
+import com.reconciliation.util.HyperLogLog;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -16,6 +17,33 @@ public class KeyDiscoveryService {
     private static final double NAME_SIMILARITY_WEIGHT = 0.30; // 30% - Similarité du nom
     private static final double FORMAT_COMPATIBILITY_WEIGHT = 0.20; // 20% - Compatibilité des formats
 
+    // Valeurs BO distinctes testées par colonne et valeurs lues pour le profil de format
+    private static final int CONTENT_SAMPLE_SIZE = 100;
+    private static final int FORMAT_SAMPLE_SIZE = 100;
+
+    // Candidats dont la qualité des données est recalculée exactement sur toutes les valeurs
+    private static final int VERIFIED_CANDIDATES = 10;
+
+    // Traitements testés sur le contenu ; le premier est la valeur brute
+    private static final List<DataTreatment> TREATMENTS = Arrays.asList(
+        new DataTreatment("none", val -> val),
+        new DataTreatment("trim", String::trim),
+        new DataTreatment("toLowerCase", String::toLowerCase),
+        new DataTreatment("trim+toLowerCase", val -> val.trim().toLowerCase()),
+        new DataTreatment("removeSpecialChars", KeyDiscoveryService::removeSpecialChars),
+        new DataTreatment("normalizeNumbers", KeyDiscoveryService::normalizeNumbers),
+        new DataTreatment("removeSuffix_CM", val -> removeSuffix(val, "_CM")),
+        new DataTreatment("removeSuffix_FR", val -> removeSuffix(val, "_FR")),
+        new DataTreatment("removeSuffix_US", val -> removeSuffix(val, "_US")),
+        new DataTreatment("removeSuffixPattern", KeyDiscoveryService::removeSuffixPattern),
+        new DataTreatment("trim+toLowerCase+removeSpecialChars", 
+            val -> removeSpecialChars(val.trim().toLowerCase())),
+        new DataTreatment("trim+toLowerCase+normalizeNumbers", 
+            val -> normalizeNumbers(val.trim().toLowerCase())),
+        new DataTreatment("trim+removeSuffixPattern", 
+            val -> removeSuffixPattern(val.trim()))
+    );
+
     /**
      * Découvre automatiquement les meilleures clés de réconciliation entre deux ensembles de données
      */
@@ -25,17 +53,25 @@ public class KeyDiscoveryService {
         log.info("📊 Données Partenaire: {} enregistrements", partnerData.size());
 
         // Extraire les colonnes des deux ensembles de données
-        Set<String> boColumns = boData.isEmpty() ? new HashSet<>() : boData.get(0).keySet();
-        Set<String> partnerColumns = partnerData.isEmpty() ? new HashSet<>() : partnerData.get(0).keySet();
+        List<String> boColumns = boData.isEmpty() ? new ArrayList<>() : new ArrayList<>(boData.get(0).keySet());
+        List<String> partnerColumns = partnerData.isEmpty() ? new ArrayList<>() : new ArrayList<>(partnerData.get(0).keySet());
 
         log.info("🔑 Colonnes BO: {}", boColumns);
         log.info("🔑 Colonnes Partenaire: {}", partnerColumns);
 
+        // Profiler chaque colonne en une lecture des données
+        long start = System.currentTimeMillis();
+        Map<String, ColumnProfile> boProfiles = profileBoColumns(boData, boColumns);
+        List<Map<String, Integer>> probeIds = buildProbeIds(boProfiles.values());
+        Map<String, ColumnProfile> partnerProfiles = profilePartnerColumns(partnerData, partnerColumns, probeIds);
+        log.info("⏱️ Profilage de {} colonne(s) BO et {} colonne(s) partenaire en {} ms",
+            boColumns.size(), partnerColumns.size(), System.currentTimeMillis() - start);
+
         // Analyser les correspondances avec analyse de contenu
-        List<ColumnMatch> columnMatches = analyzeColumnMatchesWithContent(boData, partnerData);
+        List<ColumnMatch> columnMatches = analyzeColumnMatchesWithContent(boProfiles, partnerProfiles);
         
         // Analyser la qualité des données pour chaque correspondance
-        List<KeyCandidate> keyCandidates = analyzeDataQuality(boData, partnerData, columnMatches);
+        List<KeyCandidate> keyCandidates = analyzeDataQuality(boData, partnerData, columnMatches, boProfiles, partnerProfiles);
         
         // Sélectionner les meilleures clés
         KeyDiscoveryResult result = selectBestKeys(keyCandidates);
@@ -45,49 +81,84 @@ public class KeyDiscoveryService {
     }
 
     /**
-     * Analyse les correspondances potentielles avec analyse de contenu
+     * Profils des colonnes BO : cardinalité, format et échantillon des premières valeurs distinctes
      */
-    private List<ColumnMatch> analyzeColumnMatchesWithContent(List<Map<String, String>> boData, List<Map<String, String>> partnerData) {
-        List<ColumnMatch> matches = new ArrayList<>();
-        
-        Set<String> boColumns = boData.isEmpty() ? new HashSet<>() : boData.get(0).keySet();
-        Set<String> partnerColumns = partnerData.isEmpty() ? new HashSet<>() : partnerData.get(0).keySet();
-        
-        for (String boColumn : boColumns) {
-            for (String partnerColumn : partnerColumns) {
-                // Score de similarité du nom (15% du score final)
-                double nameSimilarity = calculateColumnSimilarity(boColumn, partnerColumn);
-                
-                // Score de contenu (60% du score final)
-                ContentAnalysisResult contentAnalysis = analyzeContentMatch(boData, partnerData, boColumn, partnerColumn);
-                
-                // Score d'unicité (25% du score final)
-                double uniquenessScore = calculateUniquenessScore(boData, partnerData, boColumn, partnerColumn);
-                
-                // Score de compatibilité des formats
-                double formatCompatibility = calculateFormatCompatibility(boData, partnerData, boColumn, partnerColumn);
-                
-                // Score global pondéré (adapté du mode assisté)
-                double overallScore = (nameSimilarity * NAME_SIMILARITY_WEIGHT) +
-                                    (contentAnalysis.confidence * CONTENT_SCORE_WEIGHT) +
-                                    (uniquenessScore * UNIQUENESS_SCORE_WEIGHT) +
-                                    (formatCompatibility * FORMAT_COMPATIBILITY_WEIGHT);
-                
-                // Log détaillé pour toutes les colonnes
-                log.info("🔍 Analyse: {} ↔ {} (nom: {}, contenu: {}, unicité: {}, global: {})", 
-                    boColumn, partnerColumn, String.format("%.3f", nameSimilarity), String.format("%.3f", contentAnalysis.confidence), String.format("%.3f", uniquenessScore), String.format("%.3f", overallScore));
-                
-                if (overallScore > 0.05) { // Seuil minimum de score global (très réduit pour debug)
-                    matches.add(new ColumnMatch(boColumn, partnerColumn, overallScore, contentAnalysis));
-                    log.info("✅ Correspondance trouvée: {} ↔ {} (score: {})", boColumn, partnerColumn, String.format("%.3f", overallScore));
+    private Map<String, ColumnProfile> profileBoColumns(List<Map<String, String>> boData, List<String> columns) {
+        return columns.parallelStream()
+                .map(column -> {
+                    ColumnProfile profile = new ColumnProfile(boData.size());
+                    for (Map<String, String> row : boData) {
+                        String value = row.get(column);
+                        if (profile.add(value) && profile.sample.size() < CONTENT_SAMPLE_SIZE) {
+                            profile.sample.add(value);
+                        }
+                    }
+                    return Map.entry(column, profile);
+                })
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Numérote, pour chaque traitement, les valeurs traitées des échantillons BO et
+     * enregistre dans chaque profil BO les numéros de son échantillon
+     */
+    private List<Map<String, Integer>> buildProbeIds(Collection<ColumnProfile> boProfiles) {
+        List<Map<String, Integer>> probeIds = new ArrayList<>();
+        for (int t = 0; t < TREATMENTS.size(); t++) {
+            Map<String, Integer> ids = new HashMap<>();
+            for (ColumnProfile profile : boProfiles) {
+                for (String value : profile.sample) {
+                    Integer id = ids.computeIfAbsent(TREATMENTS.get(t).apply(value), k -> ids.size());
+                    profile.probes[t].set(id);
                 }
             }
+            probeIds.add(ids);
         }
+        return probeIds;
+    }
+
+    /**
+     * Profils des colonnes partenaire : cardinalité, format et valeurs des échantillons BO rencontrées après chaque traitement
+     */
+    private Map<String, ColumnProfile> profilePartnerColumns(List<Map<String, String>> partnerData, List<String> columns,
+                                                             List<Map<String, Integer>> probeIds) {
+        return columns.parallelStream()
+                .map(column -> {
+                    ColumnProfile profile = new ColumnProfile(partnerData.size());
+                    for (Map<String, String> row : partnerData) {
+                        String value = row.get(column);
+                        if (!profile.add(value)) {
+                            continue;
+                        }
+                        for (int t = 0; t < TREATMENTS.size(); t++) {
+                            Map<String, Integer> ids = probeIds.get(t);
+                            if (!ids.isEmpty()) {
+                                Integer id = ids.get(TREATMENTS.get(t).apply(value));
+                                if (id != null) {
+                                    profile.probes[t].set(id);
+                                }
+                            }
+                        }
+                    }
+                    return Map.entry(column, profile);
+                })
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Analyse les correspondances potentielles avec analyse de contenu, à partir des profils de colonnes
+     */
+    private List<ColumnMatch> analyzeColumnMatchesWithContent(Map<String, ColumnProfile> boProfiles, Map<String, ColumnProfile> partnerProfiles) {
+        List<ColumnMatch> matches = boProfiles.keySet().parallelStream()
+                .flatMap(boColumn -> partnerProfiles.keySet().stream()
+                        .map(partnerColumn -> scoreColumnPair(boColumn, boProfiles.get(boColumn), partnerColumn, partnerProfiles.get(partnerColumn))))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
         
         // Trier par score global décroissant
         matches.sort((a, b) -> Double.compare(b.similarity, a.similarity));
         
-        log.info("🔍 Correspondances trouvées: {}", matches);
+        log.info("🔍 Correspondances trouvées: {}", matches.size());
         
         // Log détaillé des meilleures correspondances
         if (!matches.isEmpty()) {
@@ -105,97 +176,59 @@ public class KeyDiscoveryService {
     }
 
     /**
-     * Analyse la correspondance de contenu entre deux colonnes avec tests de traitements
+     * Score global pondéré d'une paire de colonnes, ou null sous le seuil minimum
      */
-    private ContentAnalysisResult analyzeContentMatch(List<Map<String, String>> boData, List<Map<String, String>> partnerData, 
-                                                    String boColumn, String partnerColumn) {
-        if (boData.isEmpty() || partnerData.isEmpty()) {
-            return new ContentAnalysisResult(0.0, new ArrayList<>(), "Données vides");
+    private ColumnMatch scoreColumnPair(String boColumn, ColumnProfile boProfile, String partnerColumn, ColumnProfile partnerProfile) {
+        double nameSimilarity = calculateColumnSimilarity(boColumn, partnerColumn);
+        ContentAnalysisResult contentAnalysis = analyzeContentMatch(boProfile, partnerProfile);
+        double uniquenessScore = calculateUniquenessScore(boProfile, partnerProfile);
+        double formatCompatibility = calculateFormatCompatibility(boProfile, partnerProfile);
+        
+        // Score global pondéré (adapté du mode assisté)
+        double overallScore = (nameSimilarity * NAME_SIMILARITY_WEIGHT) +
+                            (contentAnalysis.confidence * CONTENT_SCORE_WEIGHT) +
+                            (uniquenessScore * UNIQUENESS_SCORE_WEIGHT) +
+                            (formatCompatibility * FORMAT_COMPATIBILITY_WEIGHT);
+        
+        if (log.isDebugEnabled()) {
+            log.debug("🔍 Analyse: {} ↔ {} (nom: {}, contenu: {}, unicité: {}, global: {})", 
+                boColumn, partnerColumn, String.format("%.3f", nameSimilarity), String.format("%.3f", contentAnalysis.confidence), String.format("%.3f", uniquenessScore), String.format("%.3f", overallScore));
         }
+        
+        if (overallScore > 0.05) { // Seuil minimum de score global
+            return new ColumnMatch(boColumn, partnerColumn, overallScore, contentAnalysis);
+        }
+        return null;
+    }
 
-        // Extraire les valeurs des colonnes
-        List<String> boValues = boData.stream()
-                .map(row -> row.get(boColumn))
-                .filter(Objects::nonNull)
-                .filter(val -> !val.trim().isEmpty())
-                .collect(Collectors.toList());
-                
-        List<String> partnerValues = partnerData.stream()
-                .map(row -> row.get(partnerColumn))
-                .filter(Objects::nonNull)
-                .filter(val -> !val.trim().isEmpty())
-                .collect(Collectors.toList());
-
-        if (boValues.isEmpty() || partnerValues.isEmpty()) {
+    /**
+     * Analyse la correspondance de contenu entre deux colonnes avec tests de traitements :
+     * part des valeurs traitées de l'échantillon BO présentes dans la colonne partenaire traitée
+     */
+    private ContentAnalysisResult analyzeContentMatch(ColumnProfile boProfile, ColumnProfile partnerProfile) {
+        if (boProfile.nonBlankCount == 0 || partnerProfile.nonBlankCount == 0) {
             return new ContentAnalysisResult(0.0, new ArrayList<>(), "Colonnes vides");
         }
 
-        // Prendre un échantillon de 100 valeurs uniques de la colonne BO
-        Set<String> boSample = boValues.stream()
-                .distinct()
-                .limit(100)
-                .collect(Collectors.toSet());
-
-        // Tester différents traitements
-        List<DataTreatment> treatments = Arrays.asList(
-            new DataTreatment("none", val -> val),
-            new DataTreatment("trim", String::trim),
-            new DataTreatment("toLowerCase", String::toLowerCase),
-            new DataTreatment("trim+toLowerCase", val -> val.trim().toLowerCase()),
-            new DataTreatment("removeSpecialChars", this::removeSpecialChars),
-            new DataTreatment("normalizeNumbers", this::normalizeNumbers),
-            new DataTreatment("removeSuffix_CM", val -> removeSuffix(val, "_CM")),
-            new DataTreatment("removeSuffix_FR", val -> removeSuffix(val, "_FR")),
-            new DataTreatment("removeSuffix_US", val -> removeSuffix(val, "_US")),
-            new DataTreatment("removeSuffixPattern", this::removeSuffixPattern),
-            new DataTreatment("trim+toLowerCase+removeSpecialChars", 
-                val -> removeSpecialChars(val.trim().toLowerCase())),
-            new DataTreatment("trim+toLowerCase+normalizeNumbers", 
-                val -> normalizeNumbers(val.trim().toLowerCase())),
-            new DataTreatment("trim+removeSuffixPattern", 
-                val -> removeSuffixPattern(val.trim()))
-        );
-
         double bestConfidence = 0.0;
         List<String> bestTreatments = new ArrayList<>();
         String bestReason = "";
 
-        for (DataTreatment treatment : treatments) {
-            // Appliquer le traitement à l'échantillon BO
-            Set<String> treatedBoSample = boSample.stream()
-                    .map(treatment::apply)
-                    .collect(Collectors.toSet());
-
-            // Appliquer le traitement à toutes les valeurs partenaire
-            Set<String> treatedPartnerValues = partnerValues.stream()
-                    .map(treatment::apply)
-                    .collect(Collectors.toSet());
-
-            // Calculer le pourcentage de correspondances
-            long matches = treatedBoSample.stream()
-                    .filter(treatedPartnerValues::contains)
-                    .count();
-
-            double confidence = treatedBoSample.isEmpty() ? 0.0 : (double) matches / treatedBoSample.size();
-
-            // Log détaillé pour les colonnes importantes
-            if (boColumn.toLowerCase().contains("id") || boColumn.toLowerCase().contains("transaction") ||
-                partnerColumn.toLowerCase().contains("id") || partnerColumn.toLowerCase().contains("transaction")) {
-                log.info("🔍 Test traitement '{}' pour {} ↔ {}: {}% ({}/{})", 
-                    treatment.name, boColumn, partnerColumn, String.format("%.1f", confidence * 100), matches, treatedBoSample.size());
-                
-                if (confidence > 0.1) { // Log des échantillons si confiance > 10%
-                    log.info("   Échantillons BO traités: {}", treatedBoSample.stream().limit(5).collect(Collectors.toList()));
-                    log.info("   Échantillons Partner traités: {}", treatedPartnerValues.stream().limit(5).collect(Collectors.toList()));
-                }
-            }
+        for (int t = 0; t < TREATMENTS.size(); t++) {
+            BitSet treatedBoSample = boProfile.probes[t];
+            BitSet common = (BitSet) treatedBoSample.clone();
+            common.and(partnerProfile.probes[t]);
+            int sampleSize = treatedBoSample.cardinality();
+            int matches = common.cardinality();
+
+            double confidence = sampleSize == 0 ? 0.0 : (double) matches / sampleSize;
 
             if (confidence > bestConfidence) {
                 bestConfidence = confidence;
                 bestTreatments = new ArrayList<>();
-                bestTreatments.add(treatment.name);
+                bestTreatments.add(TREATMENTS.get(t).name);
                 bestReason = String.format("Confiance de %.1f%% sur le contenu avec traitement '%s'. %d correspondances trouvées sur %d échantillons.", 
-                    confidence * 100, treatment.name, matches, treatedBoSample.size());
+                    confidence * 100, TREATMENTS.get(t).name, matches, sampleSize);
             }
         }
 
@@ -203,49 +236,19 @@ public class KeyDiscoveryService {
     }
 
     /**
-     * Calcule la compatibilité des formats entre deux colonnes
+     * Calcule la compatibilité des formats entre deux colonnes (premières valeurs non vides)
      */
-    private double calculateFormatCompatibility(List<Map<String, String>> boData, List<Map<String, String>> partnerData, 
-                                              String boColumn, String partnerColumn) {
-        if (boData.isEmpty() || partnerData.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Extraire les valeurs des colonnes
-        List<String> boValues = boData.stream()
-                .map(row -> row.get(boColumn))
-                .filter(Objects::nonNull)
-                .filter(val -> !val.trim().isEmpty())
-                .limit(100) // Limiter pour les performances
-                .collect(Collectors.toList());
-                
-        List<String> partnerValues = partnerData.stream()
-                .map(row -> row.get(partnerColumn))
-                .filter(Objects::nonNull)
-                .filter(val -> !val.trim().isEmpty())
-                .limit(100) // Limiter pour les performances
-                .collect(Collectors.toList());
-        
-        if (boValues.isEmpty() || partnerValues.isEmpty()) {
+    private double calculateFormatCompatibility(ColumnProfile boProfile, ColumnProfile partnerProfile) {
+        if (boProfile.formatSampleSize == 0 || partnerProfile.formatSampleSize == 0) {
             return 0.0;
         }
         
-        // Analyser les patterns de format
-        boolean boHasNumbers = boValues.stream().anyMatch(val -> val.matches(".*\\d+.*"));
-        boolean partnerHasNumbers = partnerValues.stream().anyMatch(val -> val.matches(".*\\d+.*"));
-        
-        boolean boHasLetters = boValues.stream().anyMatch(val -> val.matches(".*[a-zA-Z]+.*"));
-        boolean partnerHasLetters = partnerValues.stream().anyMatch(val -> val.matches(".*[a-zA-Z]+.*"));
-        
-        boolean boHasSpecialChars = boValues.stream().anyMatch(val -> val.matches(".*[^a-zA-Z0-9\\s]+.*"));
-        boolean partnerHasSpecialChars = partnerValues.stream().anyMatch(val -> val.matches(".*[^a-zA-Z0-9\\s]+.*"));
-        
         // Calculer la compatibilité
         double compatibility = 0.0;
         
-        if (boHasNumbers == partnerHasNumbers) compatibility += 0.4;
-        if (boHasLetters == partnerHasLetters) compatibility += 0.3;
-        if (boHasSpecialChars == partnerHasSpecialChars) compatibility += 0.3;
+        if (boProfile.hasFormat(ColumnProfile.DIGITS) == partnerProfile.hasFormat(ColumnProfile.DIGITS)) compatibility += 0.4;
+        if (boProfile.hasFormat(ColumnProfile.LETTERS) == partnerProfile.hasFormat(ColumnProfile.LETTERS)) compatibility += 0.3;
+        if (boProfile.hasFormat(ColumnProfile.SPECIAL_CHARS) == partnerProfile.hasFormat(ColumnProfile.SPECIAL_CHARS)) compatibility += 0.3;
         
         return compatibility;
     }
@@ -253,29 +256,9 @@ public class KeyDiscoveryService {
     /**
      * Calcule le score d'unicité pour une paire de colonnes
      */
-    private double calculateUniquenessScore(List<Map<String, String>> boData, List<Map<String, String>> partnerData, 
-                                          String boColumn, String partnerColumn) {
-        if (boData.isEmpty() || partnerData.isEmpty()) {
-            return 0.0;
-        }
-
-        // Extraire les valeurs uniques
-        Set<String> boUniqueValues = boData.stream()
-                .map(row -> row.get(boColumn))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-                
-        Set<String> partnerUniqueValues = partnerData.stream()
-                .map(row -> row.get(partnerColumn))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        // Calculer le ratio d'unicité
-        double boUniqueness = boData.isEmpty() ? 0.0 : (double) boUniqueValues.size() / boData.size();
-        double partnerUniqueness = partnerData.isEmpty() ? 0.0 : (double) partnerUniqueValues.size() / partnerData.size();
-
+    private double calculateUniquenessScore(ColumnProfile boProfile, ColumnProfile partnerProfile) {
         // Score moyen pondéré (une clé partagée doit avoir une forte unicité dans les deux fichiers)
-        return (boUniqueness + partnerUniqueness) / 2.0;
+        return (boProfile.uniqueness() + partnerProfile.uniqueness()) / 2.0;
     }
 
     /**
@@ -371,39 +354,72 @@ public class KeyDiscoveryService {
     }
 
     /**
-     * Analyse la qualité des données pour chaque correspondance
+     * Analyse la qualité des données pour chaque correspondance : estimée d'après les profils,
+     * puis recalculée sur toutes les valeurs pour les meilleurs candidats
      */
-    private List<KeyCandidate> analyzeDataQuality(List<Map<String, String>> boData, List<Map<String, String>> partnerData, List<ColumnMatch> matches) {
+    private List<KeyCandidate> analyzeDataQuality(List<Map<String, String>> boData, List<Map<String, String>> partnerData, List<ColumnMatch> matches,
+                                                  Map<String, ColumnProfile> boProfiles, Map<String, ColumnProfile> partnerProfiles) {
         List<KeyCandidate> candidates = new ArrayList<>();
         
         for (ColumnMatch match : matches) {
-            double dataQuality = calculateDataQuality(boData, partnerData, match);
+            double dataQuality = estimateDataQuality(boProfiles.get(match.boColumn), partnerProfiles.get(match.partnerColumn));
             candidates.add(new KeyCandidate(match.boColumn, match.partnerColumn, match.similarity, dataQuality, match.contentAnalysis));
         }
+        candidates.sort((a, b) -> Double.compare(b.getOverallScore(), a.getOverallScore()));
+        
+        // Vérification exacte des meilleurs candidats
+        for (int i = 0; i < Math.min(VERIFIED_CANDIDATES, candidates.size()); i++) {
+            KeyCandidate candidate = candidates.get(i);
+            double dataQuality = calculateDataQuality(boData, partnerData, candidate.boColumn, candidate.partnerColumn);
+            candidates.set(i, new KeyCandidate(candidate.boColumn, candidate.partnerColumn, candidate.nameSimilarity, dataQuality, candidate.contentAnalysis));
+        }
         
         // Trier par score global décroissant
         candidates.sort((a, b) -> Double.compare(b.getOverallScore(), a.getOverallScore()));
         
-        log.info("📊 Candidats analysés: {}", candidates);
+        log.info("📊 Candidats analysés: {}", candidates.subList(0, Math.min(VERIFIED_CANDIDATES, candidates.size())));
         return candidates;
     }
 
+    /**
+     * Estime la qualité des données d'une correspondance : part de l'échantillon BO brut présente côté partenaire,
+     * rapportée aux cardinalités des deux colonnes
+     */
+    private double estimateDataQuality(ColumnProfile boProfile, ColumnProfile partnerProfile) {
+        BitSet rawSample = boProfile.probes[0];
+        int sampleSize = rawSample.cardinality();
+        if (sampleSize == 0) {
+            return 0.0;
+        }
+        BitSet common = (BitSet) rawSample.clone();
+        common.and(partnerProfile.probes[0]);
+        double boCoverage = (double) common.cardinality() / sampleSize;
+        
+        long partnerDistinct = partnerProfile.distinctValues.estimate();
+        double commonValues = boCoverage * boProfile.distinctValues.estimate();
+        double partnerCoverage = partnerDistinct == 0 ? 0 : Math.min(1.0, commonValues / partnerDistinct);
+        
+        // Score moyen pondéré
+        return (boCoverage + partnerCoverage) / 2.0;
+    }
+
     /**
      * Calcule la qualité des données pour une correspondance
      */
-    private double calculateDataQuality(List<Map<String, String>> boData, List<Map<String, String>> partnerData, ColumnMatch match) {
+    private double calculateDataQuality(List<Map<String, String>> boData, List<Map<String, String>> partnerData,
+                                        String boColumn, String partnerColumn) {
         if (boData.isEmpty() || partnerData.isEmpty()) {
             return 0.0;
         }
         
         // Extraire les valeurs uniques
         Set<String> boValues = boData.stream()
-                .map(row -> row.get(match.boColumn))
+                .map(row -> row.get(boColumn))
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
                 
         Set<String> partnerValues = partnerData.stream()
-                .map(row -> row.get(match.partnerColumn))
+                .map(row -> row.get(partnerColumn))
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
         
@@ -433,47 +449,136 @@ public class KeyDiscoveryService {
         return new KeyDiscoveryResult(bestCandidates, confidence);
     }
 
-    // Fonctions de traitement des données
-    private String removeSpecialChars(String value) {
-        return value.replaceAll("[^a-zA-Z0-9]", "");
+    // Fonctions de traitement des données (sans expression régulière : appliquées à chaque valeur partenaire)
+    private static String removeSpecialChars(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isAsciiLetterOrDigit(c)) {
+                result.append(c);
+            }
+        }
+        return result.length() == value.length() ? value : result.toString();
     }
 
-    private String normalizeNumbers(String value) {
-        return value.replaceAll("^0+", ""); // Supprime les zéros non significatifs au début
+    private static String normalizeNumbers(String value) {
+        // Supprime les zéros non significatifs au début
+        int start = 0;
+        while (start < value.length() && value.charAt(start) == '0') {
+            start++;
+        }
+        return start == 0 ? value : value.substring(start);
     }
     
-    private String removeSuffix(String value, String suffix) {
+    private static String removeSuffix(String value, String suffix) {
         if (value != null && value.endsWith(suffix)) {
             return value.substring(0, value.length() - suffix.length());
         }
         return value;
     }
     
-    private String removeSuffixPattern(String value) {
+    private static String removeSuffixPattern(String value) {
         if (value == null) return value;
         
         // Patterns courants pour les suffixes
-        String[] patterns = {
-            "_CM", "_FR", "_US", "_UK", "_DE", "_IT", "_ES", "_CA", "_AU", "_BR",
-            "_01", "_02", "_03", "_04", "_05", "_06", "_07", "_08", "_09", "_10",
-            "_CM1", "_FR1", "_US1", "_UK1", "_DE1", "_IT1", "_ES1", "_CA1", "_AU1", "_BR1"
-        };
-        
-        for (String pattern : patterns) {
+        for (String pattern : SUFFIX_PATTERNS) {
             if (value.endsWith(pattern)) {
                 return value.substring(0, value.length() - pattern.length());
             }
         }
         
-        // Pattern générique pour les suffixes de 2-5 caractères commençant par _
-        if (value.matches(".*_[A-Z0-9]{2,5}$")) {
-            return value.replaceAll("_[A-Z0-9]{2,5}$", "");
+        // Suffixe générique de 2-5 caractères [A-Z0-9] précédé de _
+        int underscore = value.lastIndexOf('_');
+        int suffixLength = value.length() - underscore - 1;
+        if (underscore >= 0 && suffixLength >= 2 && suffixLength <= 5) {
+            for (int i = underscore + 1; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (!((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                    return value;
+                }
+            }
+            return value.substring(0, underscore);
         }
         
         return value;
     }
 
+    private static final String[] SUFFIX_PATTERNS = {
+        "_CM", "_FR", "_US", "_UK", "_DE", "_IT", "_ES", "_CA", "_AU", "_BR",
+        "_01", "_02", "_03", "_04", "_05", "_06", "_07", "_08", "_09", "_10",
+        "_CM1", "_FR1", "_US1", "_UK1", "_DE1", "_IT1", "_ES1", "_CA1", "_AU1", "_BR1"
+    };
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
     // Classes internes
+
+    /**
+     * Profil d'une colonne construit en une lecture : cardinalité (HyperLogLog), histogramme des formats
+     * des premières valeurs non vides et, par traitement, valeurs des échantillons BO (numérotées) présentes
+     */
+    private static final class ColumnProfile {
+        static final int DIGITS = 0;
+        static final int LETTERS = 1;
+        static final int SPECIAL_CHARS = 2;
+
+        final int rowCount;
+        final HyperLogLog distinctValues = new HyperLogLog();
+        final int[] formatHistogram = new int[3];
+        final Set<String> sample = new LinkedHashSet<>();
+        final BitSet[] probes = new BitSet[TREATMENTS.size()];
+        int nonBlankCount;
+        int formatSampleSize;
+
+        ColumnProfile(int rowCount) {
+            this.rowCount = rowCount;
+            for (int t = 0; t < probes.length; t++) {
+                probes[t] = new BitSet();
+            }
+        }
+
+        /**
+         * Prend en compte une valeur ; retourne true si elle est non vide
+         */
+        boolean add(String value) {
+            if (value == null) {
+                return false;
+            }
+            distinctValues.add(value);
+            if (value.trim().isEmpty()) {
+                return false;
+            }
+            nonBlankCount++;
+            if (formatSampleSize < FORMAT_SAMPLE_SIZE) {
+                formatSampleSize++;
+                boolean digits = false, letters = false, special = false;
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c >= '0' && c <= '9') {
+                        digits = true;
+                    } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                        letters = true;
+                    } else if (" \t\n\u000B\f\r".indexOf(c) < 0) { // hors blancs \s
+                        special = true;
+                    }
+                }
+                if (digits) formatHistogram[DIGITS]++;
+                if (letters) formatHistogram[LETTERS]++;
+                if (special) formatHistogram[SPECIAL_CHARS]++;
+            }
+            return true;
+        }
+
+        boolean hasFormat(int format) {
+            return formatHistogram[format] > 0;
+        }
+
+        double uniqueness() {
+            return rowCount == 0 ? 0.0 : Math.min(1.0, (double) distinctValues.estimate() / rowCount);
+        }
+    }
     public static class ColumnMatch {
         public final String boColumn;
         public final String partnerColumn;
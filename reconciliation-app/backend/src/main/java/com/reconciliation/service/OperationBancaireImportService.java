@@ -2,7 +2,6 @@ package com.reconciliation.service;
 
 import com.reconciliation.entity.OperationBancaireEntity;
 import com.reconciliation.repository.OperationBancaireRepository;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,7 +9,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -22,6 +20,9 @@ public class OperationBancaireImportService {
     @Autowired
     private OperationBancaireRepository repository;
 
+    @Autowired
+    private TabularFileReader tabularFileReader;
+
     public static class ImportResult {
         public int totalRead;
         public int saved;
@@ -31,20 +32,19 @@ public class OperationBancaireImportService {
     public ImportResult importFile(MultipartFile file) throws Exception {
         String orig = file.getOriginalFilename();
         String filename = orig != null ? orig.toLowerCase() : "";
-        try (InputStream is = file.getInputStream(); Workbook wb = createWorkbook(filename, is)) {
-            Sheet sheet = wb.getSheetAt(0);
+        if (!(filename.endsWith(".xlsx") || filename.endsWith(".xlsm") || filename.endsWith(".xls") || filename.endsWith(".csv"))) {
+            throw new IllegalArgumentException("Format non supporté: " + filename);
+        }
+        // Lecture en flux de la première feuille (ou du CSV), sans charger le classeur
+        try (TabularFileReader.RowCursor cursor = tabularFileReader.open(file.getInputStream(), filename)) {
             ImportResult result = new ImportResult();
-            if (sheet == null) return result;
 
-            // Expect header row as first row (0)
-            Row header = sheet.getRow(0);
-            Map<String, Integer> idx = mapHeaders(header);
+            // Expect header row as first row
+            Map<String, String> idx = mapHeaders(cursor.getHeaders());
 
             List<OperationBancaireEntity> toSave = new ArrayList<>();
-            int last = sheet.getLastRowNum();
-            for (int r = 1; r <= last; r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) continue;
+            while (cursor.hasNext()) {
+                Map<String, String> row = cursor.next();
                 result.totalRead++;
                 try {
                     OperationBancaireEntity e = new OperationBancaireEntity();
@@ -66,7 +66,7 @@ public class OperationBancaireImportService {
                     e.setStatut((statut == null || statut.isBlank()) ? "En attente" : statut);
                     toSave.add(e);
                 } catch (Exception ex) {
-                    result.errors.add("Ligne " + (r + 1) + ": " + ex.getMessage());
+                    result.errors.add("Ligne " + cursor.getRowNumber() + ": " + ex.getMessage());
                 }
             }
             if (!toSave.isEmpty()) {
@@ -77,43 +77,11 @@ public class OperationBancaireImportService {
         }
     }
 
-    private static Workbook createWorkbook(String filename, InputStream is) throws Exception {
-        if (filename.endsWith(".xlsx") || filename.endsWith(".xlsm")) {
-            return new XSSFWorkbook(is);
-        } else if (filename.endsWith(".xls")) {
-            return new HSSFWorkbook(is);
-        } else if (filename.endsWith(".csv")) {
-            // Simple CSV to workbook conversion; caller will close the returned workbook
-            java.util.List<String> lines;
-            try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.InputStreamReader(is))) {
-                lines = br.lines().toList();
-            }
-            Workbook wb = new XSSFWorkbook();
-            Sheet sheet = wb.createSheet();
-            int r = 0;
-            for (String line : lines) {
-                Row row = sheet.createRow(r++);
-                String[] parts = line.split(",");
-                for (int i = 0; i < parts.length; i++) {
-                    Cell cell = row.createCell(i, CellType.STRING);
-                    cell.setCellValue(parts[i]);
-                }
-            }
-            return wb;
-        } else {
-            throw new IllegalArgumentException("Format non supporté: " + filename);
-        }
-    }
-
-    private static Map<String, Integer> mapHeaders(Row headerRow) {
-        Map<String, Integer> map = new HashMap<>();
-        if (headerRow == null) return map;
-        for (int i = headerRow.getFirstCellNum(); i < headerRow.getLastCellNum(); i++) {
-            Cell c = headerRow.getCell(i);
-            String raw = (c != null) ? c.toString() : null;
-            if (raw == null) continue;
-            String key = normalize(raw);
-            map.put(key, i);
+    private static Map<String, String> mapHeaders(List<String> headers) {
+        Map<String, String> map = new HashMap<>();
+        for (String raw : headers) {
+            if (raw == null || raw.isEmpty()) continue;
+            map.put(normalize(raw), raw);
         }
         return map;
     }
@@ -129,49 +97,34 @@ public class OperationBancaireImportService {
         return n;
     }
 
-    private static String getString(Row row, Integer col) {
+    private static String getString(Map<String, String> row, String col) {
         if (row == null || col == null) return null;
-        Cell c = row.getCell(col);
-        if (c == null) return null;
-        if (c.getCellType() == CellType.STRING) return c.getStringCellValue().trim();
-        if (c.getCellType() == CellType.NUMERIC) return String.valueOf((long)c.getNumericCellValue());
-        if (c.getCellType() == CellType.BOOLEAN) return Boolean.toString(c.getBooleanCellValue());
-        return c.toString().trim();
+        String value = row.get(col);
+        return value != null ? value.trim() : null;
     }
 
-    private static Double getDouble(Row row, Integer col) {
-        if (row == null || col == null) return null;
-        Cell c = row.getCell(col);
-        if (c == null) return null;
-        if (c.getCellType() == CellType.NUMERIC) return c.getNumericCellValue();
-        try { return Double.parseDouble(c.toString().trim().replace(" ", "").replace("\u00A0","")); } catch (Exception e) { return null; }
+    private static Double getDouble(Map<String, String> row, String col) {
+        String s = getString(row, col);
+        if (s == null) return null;
+        try { return Double.parseDouble(s.replace(" ", "").replace("\u00A0","")); } catch (Exception e) { return null; }
     }
 
-    private static LocalDateTime getLocalDateTime(Row row, Integer col) {
-        if (row == null || col == null) return null;
-        Cell c = row.getCell(col);
-        if (c == null) return null;
+    private static LocalDateTime getLocalDateTime(Map<String, String> row, String col) {
+        String s = getString(row, col);
+        if (s == null || s.isEmpty()) return null;
         try {
-            if (DateUtil.isCellDateFormatted(c)) {
-                return c.getLocalDateTimeCellValue();
+            // ISO yyyy-MM-dd, yyyy-MM-ddTHH:mm:ss (cellules date Excel) ou yyyy-MM-dd HH:mm:ss
+            LocalDateTime parsed = TabularFileReader.toDateTime(s);
+            if (parsed != null) {
+                return parsed;
             }
-            if (c.getCellType() == CellType.NUMERIC) {
-                double v = c.getNumericCellValue();
+            // Numéro de série Excel saisi dans une cellule non formatée en date
+            if (s.matches("\\d+(\\.\\d+)?")) {
+                double v = Double.parseDouble(s);
                 if (DateUtil.isValidExcelDate(v)) {
-                    java.util.Date d = DateUtil.getJavaDate(v);
-                    return d.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
+                    return DateUtil.getLocalDateTime(v);
                 }
             }
-            String s = c.toString().trim();
-            if (s.isEmpty()) return null;
-            // Try ISO yyyy-MM-dd or yyyy-MM-ddTHH:mm:ss
-            if (s.matches("\\d{4}-\\d{2}-\\d{2}$")) {
-                LocalDate ld = LocalDate.parse(s, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                return ld.atStartOfDay();
-            }
-            if (s.matches("\\d{4}-\\d{2}-\\d{2}T.*")) {
-                return LocalDateTime.parse(s);
-            }
             // Try dd/MM/yyyy
             if (s.matches("\\d{2}/\\d{2}/\\d{4}")) {
                 LocalDate ld = LocalDate.parse(s, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
@@ -0,0 +1,389 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.CompteEntity;
+import com.reconciliation.entity.RankingCubeListener;
+import com.reconciliation.repository.CompteRepository;
+import com.reconciliation.repository.OperationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Import en masse des opérations transaction_cree / annulation_bo (logique des 4 opérations).
+ *
+ * Comptes et doublons sont chargés en quelques requêtes ensemblistes ; les opérations nominales (agence et service)
+ * et leurs frais sont calculés en mémoire, compte par compte dans l'ordre chronologique, puis insérés par lots JDBC
+ * avec une seule mise à jour de solde par compte. Résultats identiques à
+ * {@link OperationService#createOperationWithFourOperations} appelé ligne par ligne.
+ */
+@Service
+public class OperationBulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperationBulkImportService.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_SQL =
+        "INSERT INTO operation (compte_id, type_operation, date_operation, code_proprietaire, service, montant, " +
+        "solde_avant, solde_apres, nom_bordereau, banque, statut, pays, record_count) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_PARENT_SQL = "UPDATE operation SET parent_operation_id = ? WHERE id = ?";
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private OperationRepository operationRepository;
+
+    @Autowired
+    private OperationService operationService;
+
+    @Autowired
+    private FraisTransactionService fraisTransactionService;
+
+    @Autowired
+    private CompteRegroupementService compteRegroupementService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ligne du fichier à importer (champs déjà lus et normalisés)
+     */
+    public static class ImportLine {
+        public long lineNumber;
+        public String numeroCompte;
+        public String typeOperation;
+        public double montant;
+        public String banque;
+        public String service;
+        public LocalDateTime dateOperation;
+        public Integer recordCount;
+        /** Erreur de validation de la ligne, signalée si le compte existe */
+        public String error;
+    }
+
+    /**
+     * Comptes agence et comptes service du lot, chargés en une requête et indexés sans tenir compte
+     * de la casse comme la collation de la base
+     */
+    private Map<String, CompteEntity> loadComptes(List<ImportLine> lines) {
+        Set<String> numerosCompte = new HashSet<>();
+        for (ImportLine line : lines) {
+            numerosCompte.add(line.numeroCompte);
+            if (line.service != null) {
+                numerosCompte.add(line.service);
+            }
+        }
+        Map<String, CompteEntity> comptes = new HashMap<>();
+        if (numerosCompte.isEmpty()) {
+            return comptes;
+        }
+        for (CompteEntity compte : compteRepository.findByNumeroCompteIn(numerosCompte)) {
+            comptes.put(compteKey(compte.getNumeroCompte()), compte);
+        }
+        return comptes;
+    }
+
+    /**
+     * Importe les lignes lues du fichier
+     * @param errors erreurs par numéro de ligne (compte introuvable, erreur de lecture, doublon)
+     * @return nombre de lignes enregistrées
+     */
+    @Transactional
+    public int importLines(List<ImportLine> lines, Map<Long, String> errors) {
+        Map<String, CompteEntity> comptes = loadComptes(lines);
+        List<ImportLine> valid = new ArrayList<>(lines.size());
+        for (ImportLine line : lines) {
+            // Même ordre de contrôle que l'import unitaire : compte d'abord, puis champs de la ligne
+            if (!comptes.containsKey(compteKey(line.numeroCompte))) {
+                errors.put(line.lineNumber, "Compte introuvable: " + line.numeroCompte);
+            } else if (line.error != null) {
+                errors.put(line.lineNumber, line.error);
+            } else {
+                valid.add(line);
+            }
+        }
+        List<ImportLine> accepted = filterDuplicates(valid, comptes, errors);
+        if (accepted.isEmpty()) {
+            return 0;
+        }
+        // Chaînage des soldes dans l'ordre chronologique (tri stable : ordre du fichier à date égale)
+        accepted.sort(Comparator.comparing(line -> line.dateOperation));
+
+        FraisRules fraisRules = fraisTransactionService.getFraisRules();
+        Map<Long, CompteEntity> touched = new LinkedHashMap<>();
+        Map<Long, Double> soldes = new HashMap<>();
+        List<PendingOperation> operations = new ArrayList<>(accepted.size() * 4);
+        Set<LocalDate> days = new LinkedHashSet<>();
+
+        for (ImportLine line : accepted) {
+            CompteEntity agenceCompte = comptes.get(compteKey(line.numeroCompte));
+            String agence = agenceCompte.getNumeroCompte();
+            CompteEntity serviceCompte = getOrCreateServiceCompte(comptes, line.service, agence, agenceCompte.getPays());
+            String dateStr = line.dateOperation.toLocalDate().toString();
+
+            // Opération nominale agence puis opération nominale service (l'agence devient le service)
+            PendingOperation agenceOperation = addNominal(operations, soldes, agenceCompte, line, line.service,
+                "AGENCY_SUMMARY_" + dateStr + "_" + agence);
+            addFrais(operations, soldes, fraisRules, agenceOperation, line.service, agence);
+            PendingOperation serviceOperation = addNominal(operations, soldes, serviceCompte, line, agence,
+                "SERVICE_SUMMARY_" + dateStr + "_" + line.service);
+            addFrais(operations, soldes, fraisRules, serviceOperation, serviceCompte.getNumeroCompte(), agence);
+
+            touched.put(agenceCompte.getId(), agenceCompte);
+            touched.put(serviceCompte.getId(), serviceCompte);
+            days.add(line.dateOperation.toLocalDate());
+        }
+
+        insertAll(operations);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (CompteEntity compte : touched.values()) {
+            compte.setSolde(soldes.get(compte.getId()));
+            compte.setDateDerniereMaj(now);
+        }
+        compteRepository.saveAll(touched.values());
+        compteRepository.flush();
+
+        // Une seule synchronisation par compte consolidé concerné
+        Set<Long> consolides = new LinkedHashSet<>();
+        for (Long compteId : touched.keySet()) {
+            for (CompteEntity consolide : compteRegroupementService.getComptesConsolidesDependants(compteId)) {
+                consolides.add(consolide.getId());
+            }
+        }
+        for (Long consolideId : consolides) {
+            compteRegroupementService.synchroniserSoldeCompteConsolide(consolideId);
+        }
+
+        // Les insertions JDBC ne passent pas par le listener JPA du cube des classements
+        for (LocalDate day : days) {
+            RankingCubeListener.markDirty(day);
+        }
+        logger.info("✅ Import en masse: {} ligne(s), {} opération(s) créée(s), {} compte(s) mis à jour",
+            accepted.size(), operations.size(), touched.size());
+        return accepted.size();
+    }
+
+    /**
+     * Écarte les doublons (même compte, type, montant, service, date) de la base et du fichier,
+     * recherchés en une seule requête
+     */
+    private List<ImportLine> filterDuplicates(List<ImportLine> lines, Map<String, CompteEntity> comptes, Map<Long, String> errors) {
+        Set<Long> compteIds = new HashSet<>();
+        Set<String> types = new HashSet<>();
+        Set<LocalDateTime> dates = new HashSet<>();
+        for (ImportLine line : lines) {
+            compteIds.add(comptes.get(compteKey(line.numeroCompte)).getId());
+            types.add(line.typeOperation);
+            dates.add(line.dateOperation);
+        }
+        Set<List<Object>> existing = new HashSet<>();
+        if (!lines.isEmpty()) {
+            for (Object[] row : operationRepository.findImportDuplicateKeys(compteIds, types, dates)) {
+                if (row[3] == null) {
+                    continue; // NULL ne correspond à rien en SQL
+                }
+                existing.add(duplicateKey((Long) row[0], (String) row[1], (Double) row[2], (String) row[3], (LocalDateTime) row[4]));
+            }
+        }
+        List<ImportLine> accepted = new ArrayList<>(lines.size());
+        for (ImportLine line : lines) {
+            Long compteId = comptes.get(compteKey(line.numeroCompte)).getId();
+            if (!existing.add(duplicateKey(compteId, line.typeOperation, line.montant, line.service, line.dateOperation))) {
+                errors.put(line.lineNumber, "Doublon détecté (même compte, type, montant, service, date)");
+            } else {
+                accepted.add(line);
+            }
+        }
+        return accepted;
+    }
+
+    private static List<Object> duplicateKey(Long compteId, String type, Double montant, String service, LocalDateTime date) {
+        // type et service comparés sans tenir compte de la casse, comme la collation de la base
+        return Arrays.asList(compteId, type.toLowerCase(Locale.ROOT), montant, service.toLowerCase(Locale.ROOT), date);
+    }
+
+    /**
+     * Même règle que la création unitaire : le compte service porte le nom du service et hérite du pays de l'agence
+     */
+    private CompteEntity getOrCreateServiceCompte(Map<String, CompteEntity> comptes, String serviceName, String agence, String pays) {
+        CompteEntity serviceCompte = comptes.get(compteKey(serviceName));
+        if (serviceCompte != null) {
+            return serviceCompte;
+        }
+        logger.info("➕ Création d'un nouveau compte service: {}", serviceName);
+        CompteEntity newServiceCompte = new CompteEntity();
+        newServiceCompte.setNumeroCompte(serviceName);
+        newServiceCompte.setPays(pays != null ? pays : "CM");
+        newServiceCompte.setCodeProprietaire(serviceName);
+        newServiceCompte.setAgence(agence);
+        newServiceCompte.setSolde(0.0);
+        newServiceCompte.setDateDerniereMaj(LocalDateTime.now());
+        serviceCompte = compteRepository.save(newServiceCompte);
+        comptes.put(compteKey(serviceName), serviceCompte);
+        return serviceCompte;
+    }
+
+    private PendingOperation addNominal(List<PendingOperation> operations, Map<Long, Double> soldes, CompteEntity compte,
+                                        ImportLine line, String service, String nomBordereau) {
+        PendingOperation operation = new PendingOperation();
+        operation.compteId = compte.getId();
+        operation.typeOperation = line.typeOperation;
+        operation.dateOperation = line.dateOperation;
+        operation.codeProprietaire = compte.getNumeroCompte();
+        operation.service = service;
+        operation.montant = line.montant;
+        operation.nomBordereau = nomBordereau;
+        operation.banque = line.banque;
+        operation.pays = compte.getPays();
+        operation.recordCount = line.recordCount;
+        operation.soldeAvant = soldes.computeIfAbsent(compte.getId(), id -> compte.getSolde());
+        operation.soldeApres = operation.soldeAvant + operationService.calculateImpact(line.typeOperation, line.montant, service);
+        soldes.put(compte.getId(), operation.soldeApres);
+        operations.add(operation);
+        return operation;
+    }
+
+    /**
+     * Frais de transaction de l'opération nominale, même règle que {@link OperationService#createFraisTransactionAutomatique}
+     * (frais fixe compté pour 1 transaction pour transaction_cree et annulation_bo)
+     */
+    private void addFrais(List<PendingOperation> operations, Map<Long, Double> soldes, FraisRules fraisRules,
+                          PendingOperation parent, String servicePourFrais, String agencePourFrais) {
+        Optional<FraisRules.Rule> fraisOpt = fraisRules.find(servicePourFrais, agencePourFrais);
+        if (fraisOpt.isEmpty()) {
+            return;
+        }
+        FraisRules.Rule frais = fraisOpt.get();
+        double montantFrais = Math.abs(frais.isPourcentage() ? frais.montantPourcentage(parent.montant) : frais.montantFixe(1));
+
+        PendingOperation operation = new PendingOperation();
+        operation.parent = parent;
+        operation.compteId = parent.compteId;
+        operation.typeOperation = "FRAIS_TRANSACTION";
+        operation.dateOperation = parent.dateOperation;
+        operation.codeProprietaire = parent.codeProprietaire;
+        operation.service = parent.service;
+        operation.montant = montantFrais;
+        operation.nomBordereau = "FEES_SUMMARY_" + parent.dateOperation.toLocalDate() + "_" + parent.codeProprietaire;
+        operation.banque = "SYSTEM";
+        operation.pays = parent.pays != null ? parent.pays : "CM";
+        operation.soldeAvant = parent.soldeApres;
+        String service = parent.service.toLowerCase();
+        boolean credit = "annulation_bo".equals(parent.typeOperation) && (service.contains("cashin") || service.contains("paiement"));
+        operation.soldeApres = credit ? operation.soldeAvant + montantFrais : operation.soldeAvant - montantFrais;
+        soldes.put(parent.compteId, operation.soldeApres);
+        operations.add(operation);
+    }
+
+    /**
+     * Insère les opérations par lots JDBC dans l'ordre de calcul, puis rattache les frais à leur opération nominale
+     */
+    private void insertAll(List<PendingOperation> operations) {
+        for (int start = 0; start < operations.size(); start += BATCH_SIZE) {
+            List<PendingOperation> chunk = operations.subList(start, Math.min(start + BATCH_SIZE, operations.size()));
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        chunk.get(i).bind(ps);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                },
+                keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (keys.size() != chunk.size()) {
+                throw new IllegalStateException("Identifiants générés incomplets: " + keys.size() + "/" + chunk.size());
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).id = ((Number) keys.get(i).values().iterator().next()).longValue();
+            }
+        }
+
+        List<Object[]> parents = new ArrayList<>();
+        for (PendingOperation operation : operations) {
+            if (operation.parent != null) {
+                parents.add(new Object[]{operation.parent.id, operation.id});
+            }
+        }
+        for (int start = 0; start < parents.size(); start += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(UPDATE_PARENT_SQL, parents.subList(start, Math.min(start + BATCH_SIZE, parents.size())));
+        }
+    }
+
+    private static String compteKey(String numeroCompte) {
+        return numeroCompte.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Opération calculée en mémoire, en attente d'insertion
+     */
+    private static final class PendingOperation {
+        private Long id;
+        private PendingOperation parent;
+        private Long compteId;
+        private String typeOperation;
+        private LocalDateTime dateOperation;
+        private String codeProprietaire;
+        private String service;
+        private double montant;
+        private double soldeAvant;
+        private double soldeApres;
+        private String nomBordereau;
+        private String banque;
+        private String pays;
+        private Integer recordCount;
+
+        private void bind(PreparedStatement ps) throws SQLException {
+            ps.setLong(1, compteId);
+            ps.setString(2, typeOperation);
+            ps.setTimestamp(3, Timestamp.valueOf(dateOperation));
+            ps.setString(4, codeProprietaire);
+            ps.setString(5, service);
+            ps.setDouble(6, montant);
+            ps.setDouble(7, soldeAvant);
+            ps.setDouble(8, soldeApres);
+            ps.setString(9, nomBordereau);
+            ps.setString(10, banque);
+            ps.setString(11, "Validée");
+            ps.setString(12, pays);
+            if (recordCount != null) {
+                ps.setInt(13, recordCount);
+            } else {
+                ps.setNull(13, Types.INTEGER);
+            }
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.reconciliation.service;
 import com.reconciliation.dto.OperationCreateRequest;
 import com.reconciliation.entity.CompteEntity;
 import com.reconciliation.repository.CompteRepository;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,7 +10,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -26,6 +24,10 @@ public class OperationImportService {
     private CompteRepository compteRepository;
     @Autowired
     private com.reconciliation.repository.OperationRepository operationRepository;
+    @Autowired
+    private OperationBulkImportService operationBulkImportService;
+    @Autowired
+    private TabularFileReader tabularFileReader;
 
     public static class ImportResult {
         public int totalRead;
@@ -34,49 +36,17 @@ public class OperationImportService {
     }
 
     public ImportResult importFile(MultipartFile file) throws Exception {
-        String orig = file.getOriginalFilename();
-        String filename = orig != null ? orig.toLowerCase() : "";
-        try (InputStream is = file.getInputStream(); Workbook wb = createWorkbook(filename, is)) {
-            Sheet sheet = wb.getSheetAt(0);
-            ImportResult result = new ImportResult();
-            if (sheet == null) return result;
-
-            Row header = sheet.getRow(0);
-            Map<String, Integer> idx = mapHeaders(header);
+        ImportResult result = new ImportResult();
+        try (TabularFileReader.RowCursor cursor = openCursor(file)) {
+            Map<String, String> idx = mapHeaders(cursor.getHeaders());
             System.out.println("DEBUG: En-têtes détectés: " + idx.keySet());
-            System.out.println("DEBUG: Mapping des colonnes: " + idx);
 
-            int last = sheet.getLastRowNum();
-            System.out.println("DEBUG: Dernière ligne détectée: " + last);
-            
-            // Approche simplifiée : traiter toutes les lignes jusqu'à la dernière détectée
-            for (int r = 1; r <= last; r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) {
-                    System.out.println("DEBUG: Ligne " + r + " est null, ignorée");
-                    continue;
-                }
-                
-                // Vérifier si la ligne a du contenu (au moins une cellule non vide)
-                boolean hasContent = false;
-                for (int j = 0; j < row.getLastCellNum(); j++) {
-                    Cell cell = row.getCell(j);
-                    if (cell != null && !cell.toString().trim().isEmpty()) {
-                        hasContent = true;
-                        break;
-                    }
-                }
-                
-                if (!hasContent) {
-                    System.out.println("DEBUG: Ligne " + r + " est vide, ignorée");
-                    continue;
-                }
-                
-                System.out.println("DEBUG: Traitement ligne " + r);
+            while (cursor.hasNext()) {
+                Map<String, String> row = cursor.next();
+                long r = cursor.getRowNumber();
                 result.totalRead++;
                 try {
                     String numeroCompte = getString(row, idx.get("numero_compte"));
-                    System.out.println("DEBUG: Ligne " + r + " - numero_compte: " + numeroCompte);
                     if (numeroCompte == null || numeroCompte.isBlank()) {
                         throw new IllegalArgumentException("numero_compte manquant");
                     }
@@ -86,25 +56,20 @@ public class OperationImportService {
                     }
 
                     String typeOperation = normalizeType(getString(row, idx.get("type_operation")));
-                    System.out.println("DEBUG: Ligne " + r + " - type_operation: " + typeOperation);
                     if (!"transaction_cree".equals(typeOperation) && !"annulation_bo".equals(typeOperation)) {
                         throw new IllegalArgumentException("type_operation invalide (autorisé: transaction_cree, annulation_bo)");
                     }
 
                     Double montant = getDouble(row, idx.get("montant"));
                     if (montant == null) montant = 0.0;
-                    System.out.println("DEBUG: Ligne " + r + " - montant: " + montant);
                     String banque = getString(row, idx.get("banque"));
                     String service = getString(row, idx.get("service"));
-                    System.out.println("DEBUG: Ligne " + r + " - service: " + service);
                     if (service == null || service.isBlank()) {
                         throw new IllegalArgumentException("service manquant (obligatoire pour générer la logique des 4 opérations)");
                     }
                     String nomBordereau = getString(row, idx.get("nom_bordereau"));
-                    String dateOpStr = getString(row, idx.get("date_operation"));
                     Integer recordCount = getInteger(row, idx.get("record_count"));
-
-                    String isoDate = resolveIsoDate(row, idx.get("date_operation"), dateOpStr);
+                    String isoDate = resolveIsoDate(getString(row, idx.get("date_operation")));
 
                     OperationCreateRequest req = new OperationCreateRequest();
                     req.setCompteId(compteOpt.get().getId());
@@ -118,16 +83,14 @@ public class OperationImportService {
 
                     // Vérifier les doublons avant de créer l'opération
                     if (isDuplicate(req)) {
-                        result.errors.add("Ligne " + (r + 1) + ": Doublon détecté (même compte, type, montant, service, date)");
-                        System.out.println("DEBUG: Doublon détecté pour ligne " + r);
+                        result.errors.add("Ligne " + r + ": Doublon détecté (même compte, type, montant, service, date)");
                         continue;
                     }
 
                     operationService.createOperation(req);
                     result.saved++;
-                    System.out.println("DEBUG: Opération créée avec succès pour ligne " + r);
                 } catch (Exception ex) {
-                    result.errors.add("Ligne " + (r + 1) + ": " + ex.getMessage());
+                    result.errors.add("Ligne " + r + ": " + ex.getMessage());
                     System.out.println("DEBUG: Erreur ligne " + r + ": " + ex.getMessage());
                 }
             }
@@ -136,50 +99,82 @@ public class OperationImportService {
         }
     }
 
-    private static Workbook createWorkbook(String filename, InputStream is) throws Exception {
-        if (filename.endsWith(".xlsx") || filename.endsWith(".xlsm")) {
-            return new XSSFWorkbook(is);
-        } else if (filename.endsWith(".xls")) {
-            return new HSSFWorkbook(is);
-        } else if (filename.endsWith(".csv")) {
-            List<String> lines;
-            try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.InputStreamReader(is))) {
-                lines = br.lines().toList();
-            }
-            Workbook wb = new XSSFWorkbook();
-            Sheet sheet = wb.createSheet();
-            int r = 0;
-            for (String line : lines) {
-                Row row = sheet.createRow(r++);
-                // Essayer d'abord le point-virgule, puis la virgule comme fallback
-                String[] parts;
-                if (line.contains(";")) {
-                    parts = line.split(";");
-                    System.out.println("DEBUG: Parsing CSV avec point-virgule: " + line);
-                } else {
-                    parts = line.split(",");
-                    System.out.println("DEBUG: Parsing CSV avec virgule: " + line);
-                }
-                for (int i = 0; i < parts.length; i++) {
-                    Cell cell = row.createCell(i, CellType.STRING);
-                    cell.setCellValue(parts[i].trim());
+    /**
+     * Import en masse : lecture du fichier en flux, comptes et doublons résolus en quelques requêtes,
+     * opérations calculées en mémoire et insérées par lots (voir {@link OperationBulkImportService}).
+     * Mêmes contrôles et mêmes messages d'erreur par ligne que {@link #importFile}.
+     */
+    public ImportResult importFileBulk(MultipartFile file) throws Exception {
+        ImportResult result = new ImportResult();
+        List<OperationBulkImportService.ImportLine> lines = new ArrayList<>();
+        Map<Long, String> errors = new TreeMap<>();
+        try (TabularFileReader.RowCursor cursor = openCursor(file)) {
+            Map<String, String> idx = mapHeaders(cursor.getHeaders());
+            while (cursor.hasNext()) {
+                Map<String, String> row = cursor.next();
+                long lineNumber = cursor.getRowNumber();
+                result.totalRead++;
+                try {
+                    String numeroCompte = getString(row, idx.get("numero_compte"));
+                    if (numeroCompte == null || numeroCompte.isBlank()) {
+                        throw new IllegalArgumentException("numero_compte manquant");
+                    }
+                    OperationBulkImportService.ImportLine line = new OperationBulkImportService.ImportLine();
+                    line.lineNumber = lineNumber;
+                    line.numeroCompte = numeroCompte.trim();
+                    line.typeOperation = normalizeType(getString(row, idx.get("type_operation")));
+                    line.service = getString(row, idx.get("service"));
+                    if (!"transaction_cree".equals(line.typeOperation) && !"annulation_bo".equals(line.typeOperation)) {
+                        line.error = "type_operation invalide (autorisé: transaction_cree, annulation_bo)";
+                    } else if (line.service == null || line.service.isBlank()) {
+                        line.error = "service manquant (obligatoire pour générer la logique des 4 opérations)";
+                    }
+                    Double montant = getDouble(row, idx.get("montant"));
+                    line.montant = montant != null ? montant : 0.0;
+                    line.banque = getString(row, idx.get("banque"));
+                    line.recordCount = getInteger(row, idx.get("record_count"));
+                    line.dateOperation = LocalDateTime.parse(resolveIsoDate(getString(row, idx.get("date_operation"))));
+                    lines.add(line);
+                } catch (Exception ex) {
+                    errors.put(lineNumber, ex.getMessage());
                 }
             }
-            return wb;
-        } else {
+        }
+
+        try {
+            result.saved = operationBulkImportService.importLines(lines, errors);
+        } catch (Exception ex) {
+            // Tout le lot est annulé : les lignes retenues sont signalées en erreur
+            for (OperationBulkImportService.ImportLine line : lines) {
+                errors.putIfAbsent(line.lineNumber, ex.getMessage());
+            }
+            result.saved = 0;
+        }
+        for (Map.Entry<Long, String> error : errors.entrySet()) {
+            result.errors.add("Ligne " + error.getKey() + ": " + error.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Curseur sur la première feuille (XLSX, XLS) ou le fichier CSV, lu en flux
+     */
+    private TabularFileReader.RowCursor openCursor(MultipartFile file) throws Exception {
+        String orig = file.getOriginalFilename();
+        String filename = orig != null ? orig.toLowerCase() : "";
+        if (!filename.endsWith(".xlsx") && !filename.endsWith(".xlsm") && !filename.endsWith(".xls") && !filename.endsWith(".csv")) {
             throw new IllegalArgumentException("Format non supporté: " + filename);
         }
+        return tabularFileReader.open(file.getInputStream(), filename);
     }
 
-    private static Map<String, Integer> mapHeaders(Row headerRow) {
-        Map<String, Integer> map = new HashMap<>();
-        if (headerRow == null) return map;
-        for (int i = headerRow.getFirstCellNum(); i < headerRow.getLastCellNum(); i++) {
-            Cell c = headerRow.getCell(i);
-            String raw = (c != null) ? c.toString() : null;
-            if (raw == null) continue;
-            String key = normalize(raw);
-            map.put(key, i);
+    /**
+     * En-tête normalisé -> nom de colonne du fichier
+     */
+    private static Map<String, String> mapHeaders(List<String> headers) {
+        Map<String, String> map = new HashMap<>();
+        for (String header : headers) {
+            map.put(normalize(header), header);
         }
         return map;
     }
@@ -200,50 +195,35 @@ public class OperationImportService {
         return v;
     }
 
-    private static String getString(Row row, Integer idx) {
-        if (idx == null) return null;
-        Cell cell = row.getCell(idx);
-        if (cell == null) return null;
-        if (cell.getCellType() == CellType.NUMERIC) {
-            double v = cell.getNumericCellValue();
-            long lv = (long) v;
-            if (Math.abs(v - lv) < 1e-9) return Long.toString(lv);
-            return Double.toString(v);
-        }
-        return cell.toString().trim();
+    private static String getString(Map<String, String> row, String column) {
+        if (column == null) return null;
+        String value = row.get(column);
+        return value == null || value.isEmpty() ? null : value;
     }
 
-    private static Double getDouble(Row row, Integer idx) {
-        if (idx == null) return null;
-        Cell cell = row.getCell(idx);
-        if (cell == null) return null;
-        if (cell.getCellType() == CellType.NUMERIC) return cell.getNumericCellValue();
-        try { return Double.parseDouble(cell.toString().trim().replace(" ", "").replace(",", ".")); } catch (Exception ignored) { return null; }
+    private static Double getDouble(Map<String, String> row, String column) {
+        String value = getString(row, column);
+        if (value == null) return null;
+        try { return Double.parseDouble(value.trim().replace(" ", "").replace(",", ".")); } catch (Exception ignored) { return null; }
     }
 
-    private static Integer getInteger(Row row, Integer idx) {
-        if (idx == null) return null;
-        Cell cell = row.getCell(idx);
-        if (cell == null) return null;
-        if (cell.getCellType() == CellType.NUMERIC) return (int) cell.getNumericCellValue();
-        try { return Integer.parseInt(cell.toString().trim()); } catch (Exception ignored) { return null; }
+    private static Integer getInteger(Map<String, String> row, String column) {
+        Double value = getDouble(row, column);
+        return value != null ? value.intValue() : null;
     }
 
-    private static String resolveIsoDate(Row row, Integer idx, String fallback) {
-        // Try Excel numeric date
-        if (idx != null) {
-            Cell cell = row.getCell(idx);
-            if (cell != null && cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
-                java.util.Date d = cell.getDateCellValue();
-                return d.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate().toString() + "T00:00:00";
-            }
-        }
+    private static String resolveIsoDate(String fallback) {
+        // Les cellules date Excel sont lues au format ISO
         if (fallback != null && !fallback.isBlank()) {
             String s = fallback.trim();
             try {
                 if (s.length() == 10 && s.matches("\\d{4}-\\d{2}-\\d{2}")) {
                     return s + "T00:00:00";
                 }
+                if (s.matches("\\d{4}-\\d{2}-\\d{2}T.*")) {
+                    // Date Excel avec heure (lecture en flux) : seul le jour est retenu, comme pour une cellule date
+                    return s.substring(0, 10) + "T00:00:00";
+                }
                 if (s.matches("\\d{2}/\\d{2}/\\d{4}")) {
                     LocalDate ld = LocalDate.parse(s, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
                     return ld.toString() + "T00:00:00";
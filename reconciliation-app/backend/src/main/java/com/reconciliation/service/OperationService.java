@@ -2,26 +2,35 @@ package com.reconciliation.service;
 
 import com.reconciliation.entity.OperationEntity;
 import com.reconciliation.entity.CompteEntity;
+import com.reconciliation.entity.RankingCubeListener;
 import com.reconciliation.model.Operation;
 import com.reconciliation.repository.OperationRepository;
 import com.reconciliation.repository.CompteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.context.annotation.Lazy;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.Map;
 import java.util.HashMap;
 
 import com.reconciliation.dto.OperationUpdateRequest;
 import com.reconciliation.dto.OperationCreateRequest;
+import com.reconciliation.dto.OperationPage;
+import com.reconciliation.dto.OperationSearchCriteria;
 import com.reconciliation.entity.FraisTransactionEntity;
 import com.reconciliation.repository.AgencySummaryRepository;
 import com.reconciliation.entity.AgencySummaryEntity;
@@ -34,6 +43,8 @@ import org.slf4j.LoggerFactory;
 public class OperationService {
     
     private static final Logger logger = LoggerFactory.getLogger(OperationService.class);
+    /** Taille des pages lues par {@link #streamOperations} */
+    private static final int STREAM_PAGE_SIZE = 1000;
     
     @Autowired
     private OperationRepository operationRepository;
@@ -62,6 +73,12 @@ public class OperationService {
     
     @Autowired
     private PaysFilterService paysFilterService;
+
+    @Autowired
+    private RunningBalanceService runningBalanceService;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
     
     public List<Operation> getAllOperations() {
         return getAllOperations(null);
@@ -112,32 +129,26 @@ public class OperationService {
     }
     
     public List<Operation> getOperationsByCompte(String numeroCompte, LocalDateTime dateDebut, LocalDateTime dateFin, String typeOperation) {
-        // Vérifier si le compte est consolidé pour agréger les opérations des services sous-jacents
-        try {
-            CompteEntity compte = compteRepository.findByNumeroCompte(numeroCompte).orElse(null);
-            if (compte != null && compteRegroupementService != null && compteRegroupementService.isCompteConsolide(compte.getId())) {
-                // Compte consolidé : récupérer les services depuis codeProprietaire
-                String codeProprietaire = compte.getCodeProprietaire();
-                if (codeProprietaire != null && !codeProprietaire.trim().isEmpty()) {
-                    List<String> services = Arrays.asList(codeProprietaire.split(","));
-                    return operationRepository.findByCompteNumeroInAndFiltersOrderByDateOperationDesc(
-                            services, dateDebut, dateFin, typeOperation).stream()
-                            .map(this::convertToModel)
-                            .collect(Collectors.toList());
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Erreur lors de la vérification du compte consolidé pour {}: {}", numeroCompte, e.getMessage());
-        }
-        
-        // Compte normal ou erreur : comportement standard
-        return operationRepository.findByCompteNumeroCompteAndFiltersOrderByDateOperationDesc(
-                numeroCompte, dateDebut, dateFin, typeOperation).stream()
+        List<String> numerosCompte = resolveNumerosCompte(numeroCompte);
+        return operationRepository.findByCompteNumeroInAndFiltersOrderByDateOperationDesc(
+                numerosCompte, dateDebut, dateFin, typeOperation).stream()
                 .map(this::convertToModel)
                 .collect(Collectors.toList());
     }
     
     public List<Operation> getOperationsByCompteForReleve(String numeroCompte, LocalDateTime dateDebut, LocalDateTime dateFin, String typeOperation) {
+        List<String> numerosCompte = resolveNumerosCompte(numeroCompte);
+        return operationRepository.findByCompteNumeroInAndFiltersOrderByDateOperationAsc(
+                numerosCompte, dateDebut, dateFin, typeOperation).stream()
+                .map(this::convertToModel)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Numéros de compte dont les opérations composent le compte : les services sous-jacents
+     * (codeProprietaire) pour un compte consolidé, sinon le compte lui-même
+     */
+    public List<String> resolveNumerosCompte(String numeroCompte) {
         // Vérifier si le compte est consolidé pour agréger les opérations des services sous-jacents
         try {
             CompteEntity compte = compteRepository.findByNumeroCompte(numeroCompte).orElse(null);
@@ -145,11 +156,7 @@ public class OperationService {
                 // Compte consolidé : récupérer les services depuis codeProprietaire
                 String codeProprietaire = compte.getCodeProprietaire();
                 if (codeProprietaire != null && !codeProprietaire.trim().isEmpty()) {
-                    List<String> services = Arrays.asList(codeProprietaire.split(","));
-                    return operationRepository.findByCompteNumeroInAndFiltersOrderByDateOperationAsc(
-                            services, dateDebut, dateFin, typeOperation).stream()
-                            .map(this::convertToModel)
-                            .collect(Collectors.toList());
+                    return Arrays.asList(codeProprietaire.split(","));
                 }
             }
         } catch (Exception e) {
@@ -157,13 +164,7 @@ public class OperationService {
         }
         
         // Compte normal ou erreur : comportement standard
-        List<OperationEntity> operationsEntities = operationRepository.findByCompteNumeroCompteAndFiltersOrderByDateOperationAsc(
-                numeroCompte, dateDebut, dateFin, typeOperation);
-        
-        
-        return operationsEntities.stream()
-                .map(this::convertToModel)
-                .collect(Collectors.toList());
+        return List.of(numeroCompte);
     }
     
     public List<Operation> getOperationsByType(String typeOperation) {
@@ -230,6 +231,98 @@ public class OperationService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Page d'opérations triée par (dateOperation, id), reprise après le curseur de la page précédente
+     * @param cursor curseur renvoyé par la page précédente, null pour la première page
+     */
+    public OperationPage getOperationsPage(OperationSearchCriteria criteria, String cursor, int limit, boolean withFrais) {
+        if (criteria.getPaysAutorises() != null && criteria.getPaysAutorises().isEmpty()) {
+            // Aucun pays autorisé
+            return new OperationPage(new ArrayList<>(), null);
+        }
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = decodeCursor(cursor);
+            afterDate = LocalDateTime.parse(parts[0]);
+            afterId = Long.parseLong(parts[1]);
+        }
+        
+        // Une ligne de plus que demandé pour savoir s'il reste une page
+        List<OperationEntity> entities = operationRepository.findPage(criteria, afterDate, afterId, limit + 1);
+        boolean hasNext = entities.size() > limit;
+        if (hasNext) {
+            entities = entities.subList(0, limit);
+        }
+        
+        FraisRules fraisRules = withFrais ? fraisTransactionService.getFraisRules() : null;
+        List<Operation> operations = new ArrayList<>(entities.size());
+        for (OperationEntity entity : entities) {
+            Operation operation = convertToModel(entity);
+            operations.add(fraisRules != null ? enrichOperationWithFrais(operation, fraisRules) : operation);
+        }
+        
+        String nextCursor = null;
+        if (hasNext) {
+            OperationEntity last = entities.get(entities.size() - 1);
+            nextCursor = encodeCursor(last.getDateOperation(), last.getId());
+        }
+        return new OperationPage(operations, nextCursor);
+    }
+    
+    /**
+     * Parcourt toutes les opérations filtrées par pages de {@link #STREAM_PAGE_SIZE} reprises après la dernière
+     * opération (dateOperation, id) : chaque page est convertie, transmise au consommateur puis détachée, la mémoire
+     * utilisée reste donc constante. Aucun résultat n'est ouvert pendant l'enrichissement des frais, qui peut
+     * interroger agency_summary (frais fixes) comme l'endpoint /with-frais.
+     * @return nombre d'opérations transmises
+     */
+    @Transactional(readOnly = true)
+    public long streamOperations(OperationSearchCriteria criteria, boolean withFrais, Consumer<Operation> consumer) {
+        if (criteria.getPaysAutorises() != null && criteria.getPaysAutorises().isEmpty()) {
+            return 0;
+        }
+        FraisRules fraisRules = withFrais ? fraisTransactionService.getFraisRules() : null;
+        long count = 0;
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+        while (true) {
+            List<OperationEntity> entities = operationRepository.findPage(criteria, afterDate, afterId, STREAM_PAGE_SIZE);
+            if (entities.isEmpty()) {
+                return count;
+            }
+            OperationEntity last = entities.get(entities.size() - 1);
+            afterDate = last.getDateOperation();
+            afterId = last.getId();
+            List<Operation> operations = new ArrayList<>(entities.size());
+            for (OperationEntity entity : entities) {
+                operations.add(convertToModel(entity));
+            }
+            entityManager.clear();
+            for (Operation operation : operations) {
+                consumer.accept(fraisRules != null ? enrichOperationWithFrais(operation, fraisRules) : operation);
+                count++;
+            }
+            if (entities.size() < STREAM_PAGE_SIZE) {
+                return count;
+            }
+        }
+    }
+    
+    private static String encodeCursor(LocalDateTime dateOperation, Long id) {
+        String raw = dateOperation + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String[] decodeCursor(String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] parts = raw.split("\\|");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Curseur invalide: " + cursor);
+        }
+        return parts;
+    }
+    
     public List<String> getDistinctCodeProprietaire() {
         return operationRepository.findDistinctCodeProprietaire();
     }
@@ -580,6 +673,10 @@ public class OperationService {
         // Mettre à jour la date d'opération si fournie
         if (request.getDateOperation() != null && !request.getDateOperation().isEmpty()) {
             try {
+                // L'ancien jour doit aussi être recalculé dans le cube des classements
+                if (operationToUpdate.getDateOperation() != null) {
+                    RankingCubeListener.markDirty(operationToUpdate.getDateOperation().toLocalDate());
+                }
                 operationToUpdate.setDateOperation(java.time.LocalDate.parse(request.getDateOperation()).atStartOfDay());
             } catch (Exception e) {
                 System.out.println("DEBUG: Erreur parsing date de mise à jour: " + e.getMessage());
@@ -635,14 +732,8 @@ public class OperationService {
 
         double impactDifference = newImpact - oldImpact;
 
-        // Mettre à jour les opérations suivantes
-        List<OperationEntity> subsequentOps = operationRepository
-            .findByCompteIdAndDateOperationAfterOrderByDateOperationAsc(compte.getId(), operationToUpdate.getDateOperation());
-            
-        for (OperationEntity op : subsequentOps) {
-            op.setSoldeAvant(op.getSoldeAvant() + impactDifference);
-            op.setSoldeApres(op.getSoldeApres() + impactDifference);
-        }
+        // Mettre à jour les opérations suivantes (décalage en une seule requête)
+        runningBalanceService.decalerApres(compte.getId(), operationToUpdate.getDateOperation(), impactDifference);
         
         // Mettre à jour le solde du compte
         compte.setSolde(compte.getSolde() + impactDifference);
@@ -668,21 +759,12 @@ public class OperationService {
             CompteEntity compte = compteRepository.findById(compteId)
                 .orElseThrow(() -> new RuntimeException("Compte non trouvé: " + compteId));
             
-            // Récupérer toutes les opérations (incluant les annulations et tous les statuts)
-            // Utiliser findAll puis filtrer par compte pour éviter les filtres automatiques
-            List<OperationEntity> operationsValides = operationRepository
-                .findAll()
-                .stream()
-                .filter(op -> compteId.equals(op.getCompte().getId()))
-                .sorted((op1, op2) -> op1.getDateOperation().compareTo(op2.getDateOperation()))
-                .collect(Collectors.toList());
+            // Dernière opération du compte (incluant les annulations et tous les statuts)
+            Optional<OperationEntity> derniereOperation = runningBalanceService.getDerniereOperation(compteId);
             
-            
-            if (!operationsValides.isEmpty()) {
+            if (derniereOperation.isPresent()) {
                 // Le solde de clôture est le solde après de la dernière opération
-                double soldeCloture = operationsValides.get(operationsValides.size() - 1).getSoldeApres();
-                
-                
+                double soldeCloture = derniereOperation.get().getSoldeApres();
                 
                 // Mettre à jour le solde du compte avec le solde de clôture
                 compte.setSolde(soldeCloture);
@@ -732,19 +814,7 @@ public class OperationService {
                 // Déterminer le solde chronologique juste avant cette opération (pas le solde courant du compte)
                 double soldeAvantChronologique = 0.0;
                 try {
-                    List<OperationEntity> operationsPrecedentes = operationRepository
-                        .findAll()
-                        .stream()
-                        .filter(op -> op.getCompte() != null && op.getCompte().getId().equals(compte.getId()))
-                        .filter(op -> op.getDateOperation().isBefore(operation.getDateOperation()))
-                        .sorted((o1, o2) -> o1.getDateOperation().compareTo(o2.getDateOperation()))
-                        .collect(java.util.stream.Collectors.toList());
-                    if (!operationsPrecedentes.isEmpty()) {
-                        OperationEntity derniere = operationsPrecedentes.get(operationsPrecedentes.size() - 1);
-                        if (derniere.getSoldeApres() != null) {
-                            soldeAvantChronologique = derniere.getSoldeApres();
-                        }
-                    }
+                    soldeAvantChronologique = runningBalanceService.getSoldeAvant(compte.getId(), operation.getDateOperation());
                 } catch (Exception e) {
                     logger.warn("⚠️ Impossible de déterminer le solde chronologique avant l'opération {}: {}", id, e.getMessage());
                 }
@@ -764,21 +834,9 @@ public class OperationService {
                 // Synchroniser les comptes consolidés si ce compte est regroupé
                 synchroniserComptesConsolides(compte.getId());
                 
-                // Mettre à jour les soldes des opérations suivantes
-                List<OperationEntity> operationsSuivantes = operationRepository
-                    .findByCompteIdAndDateOperationAfterOrderByDateOperationAsc(compte.getId(), operation.getDateOperation());
-                
-                double soldeCourant = operation.getSoldeApres();
-                for (OperationEntity opSuivante : operationsSuivantes) {
-                    opSuivante.setSoldeAvant(soldeCourant);
-                    double impactOpSuivante = calculateImpact(opSuivante.getTypeOperation(), opSuivante.getMontant(), opSuivante.getService());
-                    soldeCourant += impactOpSuivante;
-                    opSuivante.setSoldeApres(soldeCourant);
-                }
-                
-                if (!operationsSuivantes.isEmpty()) {
-                    operationRepository.saveAll(operationsSuivantes);
-                }
+                // Mettre à jour les soldes des opérations suivantes (à partir de cette opération uniquement)
+                runningBalanceService.recalculerApres(compte.getId(), operation.getDateOperation(),
+                    operation.getSoldeApres(), this::calculateImpact);
                 
                 // Synchroniser les comptes consolidés si ce compte est regroupé
                 synchroniserComptesConsolides(compte.getId());
@@ -812,6 +870,7 @@ public class OperationService {
                 String agency = operation.getCodeProprietaire();
                 String service = operation.getService();
                 agencySummaryRepository.deleteByDateAndAgencyAndService(date, agency, service);
+                RankingCubeListener.markDirty(operation.getDateOperation().toLocalDate());
             }
 
             // Création d'une nouvelle ligne d'annulation si le statut devient "Annulée"
@@ -924,11 +983,88 @@ public class OperationService {
         return false;
     }
     
+    /**
+     * Mise à jour groupée du statut : les opérations sont regroupées par compte, les soldes de chaque compte
+     * sont recalculés une seule fois et chaque compte consolidé n'est synchronisé qu'une fois.
+     * Les annulations restent unitaires (chaque ligne d'annulation part du solde courant du compte).
+     */
     @Transactional
     public int bulkUpdateOperationStatut(List<Long> ids, String nouveauStatut) {
         if (ids == null || ids.isEmpty() || nouveauStatut == null || nouveauStatut.isEmpty()) {
             return 0;
         }
+        if ("Annulée".equals(nouveauStatut)) {
+            return bulkUpdateOperationStatutUnitaire(ids, nouveauStatut);
+        }
+        
+        List<OperationEntity> operations = operationRepository.findAllById(new java.util.LinkedHashSet<>(ids));
+        if (operations.isEmpty()) {
+            return 0;
+        }
+        
+        if ("Validée".equals(nouveauStatut)) {
+            Map<Long, List<OperationEntity>> operationsParCompte = new java.util.LinkedHashMap<>();
+            for (OperationEntity operation : operations) {
+                if (operation.getCompte() != null) {
+                    operationsParCompte.computeIfAbsent(operation.getCompte().getId(), k -> new ArrayList<>()).add(operation);
+                }
+            }
+            
+            java.util.Set<Long> comptesConsolides = new java.util.LinkedHashSet<>();
+            for (Map.Entry<Long, List<OperationEntity>> entry : operationsParCompte.entrySet()) {
+                CompteEntity compte = entry.getValue().get(0).getCompte();
+                double soldeCompte = runningBalanceService.recalculerValidations(entry.getKey(), entry.getValue(), this::calculateImpact);
+                compte.setSolde(soldeCompte);
+                compte.setDateDerniereMaj(LocalDateTime.now());
+                compteRepository.save(compte);
+                
+                try {
+                    for (CompteEntity compteConsolide : compteRegroupementService.getComptesConsolidesDependants(entry.getKey())) {
+                        comptesConsolides.add(compteConsolide.getId());
+                    }
+                } catch (Exception e) {
+                    logger.error("Erreur lors de la recherche des comptes consolidés pour le compte {}: {}", entry.getKey(), e.getMessage(), e);
+                }
+            }
+            for (Long compteConsolideId : comptesConsolides) {
+                try {
+                    compteRegroupementService.synchroniserSoldeCompteConsolide(compteConsolideId);
+                } catch (Exception e) {
+                    logger.error("Erreur lors de la synchronisation du compte consolidé {}: {}", compteConsolideId, e.getMessage(), e);
+                }
+            }
+        }
+        
+        List<Long> operationIds = operations.stream().map(OperationEntity::getId).collect(Collectors.toList());
+        operationRepository.updateStatutByIdIn(operationIds, nouveauStatut);
+        
+        // Synchroniser le statut sur les opérations bancaires liées
+        try {
+            operationBancaireRepository.updateStatutByOperationIdIn(operationIds, nouveauStatut);
+        } catch (Exception e) {
+            logger.warn("⚠️ Synchronisation statut opérations bancaires impossible: {}", e.getMessage());
+        }
+        
+        // Suppression dans agency_summary si statut Rejetée ET type concerné (une fois par date/agence/service)
+        if ("Rejetée".equals(nouveauStatut)) {
+            java.util.Set<List<String>> summaries = new java.util.LinkedHashSet<>();
+            for (OperationEntity operation : operations) {
+                if ("total_cashin".equals(operation.getTypeOperation()) || "total_paiement".equals(operation.getTypeOperation())) {
+                    summaries.add(Arrays.asList(operation.getDateOperation().toLocalDate().toString(),
+                        operation.getCodeProprietaire(), operation.getService()));
+                }
+            }
+            for (List<String> summary : summaries) {
+                agencySummaryRepository.deleteByDateAndAgencyAndService(summary.get(0), summary.get(1), summary.get(2));
+                RankingCubeListener.markDirty(LocalDate.parse(summary.get(0)));
+            }
+        }
+        
+        logger.info("✅ Statut \"{}\" appliqué à {} opération(s)", nouveauStatut, operationIds.size());
+        return operationIds.size();
+    }
+    
+    private int bulkUpdateOperationStatutUnitaire(List<Long> ids, String nouveauStatut) {
         int updated = 0;
         for (Long id : ids) {
             try {
@@ -974,7 +1110,10 @@ public class OperationService {
                "régularisation_solde".equals(typeOperation);
     }
     
-    private double calculateImpact(String typeOperation, double montant, String service) {
+    /**
+     * Impact (signé) d'une opération sur le solde du compte
+     */
+    public double calculateImpact(String typeOperation, double montant, String service) {
         // Traitement des opérations d'annulation
         if (typeOperation.startsWith("annulation_")) {
             // Extraire le type d'origine (enlever le préfixe 'annulation_')
@@ -1403,6 +1542,10 @@ public class OperationService {
      * NOUVELLE LOGIQUE : Gérer les opérations service avec les mêmes frais que les opérations agence
      */
     private Operation enrichOperationWithFrais(Operation operation) {
+        return enrichOperationWithFrais(operation, fraisTransactionService.getFraisRules());
+    }
+    
+    private Operation enrichOperationWithFrais(Operation operation, FraisRules fraisRules) {
         try {
             // Vérifier si l'opération a un service défini
             if (operation.getService() == null || operation.getService().trim().isEmpty()) {
@@ -1431,24 +1574,24 @@ public class OperationService {
                 agencePourFrais = numeroCompte;
             }
             
-            // Chercher le frais applicable pour cette configuration
-            Optional<FraisTransactionEntity> fraisOpt = fraisTransactionService.getFraisApplicable(servicePourFrais, agencePourFrais);
+            // Chercher le frais applicable pour cette configuration (table des frais en cache, sans requête)
+            Optional<FraisRules.Rule> fraisOpt = fraisRules.find(servicePourFrais, agencePourFrais);
             
             if (fraisOpt.isEmpty()) {
                 operation.setFraisApplicable(false);
                 return operation;
             }
             
-            FraisTransactionEntity frais = fraisOpt.get();
+            FraisRules.Rule frais = fraisOpt.get();
             operation.setFraisApplicable(true);
             operation.setTypeCalculFrais(frais.getTypeCalcul());
             operation.setPourcentageFrais(frais.getPourcentage());
             operation.setDescriptionFrais(frais.getDescription());
             
             // Calculer le montant des frais selon le type
-            if ("POURCENTAGE".equals(frais.getTypeCalcul()) && frais.getPourcentage() != null) {
+            if (frais.isPourcentage()) {
                 // Frais en pourcentage : Volume Total × Pourcentage
-                operation.setMontantFrais(operation.getMontant() * (frais.getPourcentage() / 100.0));
+                operation.setMontantFrais(frais.montantPourcentage(operation.getMontant()));
             } else {
                 // Frais fixe : Valeur fixe × Nombre de transactions estimé
                 int nombreTransactions;
@@ -1462,7 +1605,7 @@ public class OperationService {
                     nombreTransactions = estimateNombreTransactions(operation);
                 }
                 
-                operation.setMontantFrais(frais.getMontantFrais() * nombreTransactions);
+                operation.setMontantFrais(frais.montantFixe(nombreTransactions));
             }
             
         } catch (Exception e) {
@@ -1553,9 +1696,21 @@ public class OperationService {
             operations = operationRepository.findAllOrderByDateOperationDesc();
         }
         
+        FraisRules fraisRules = fraisTransactionService.getFraisRules();
         return operations.stream()
                 .map(this::convertToModel)
-                .map(this::enrichOperationWithFrais)
+                .map(operation -> enrichOperationWithFrais(operation, fraisRules))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Opérations d'une journée enrichies avec leurs frais (cube des classements)
+     */
+    public List<Operation> getOperationsWithFraisForDay(LocalDate day) {
+        FraisRules fraisRules = fraisTransactionService.getFraisRules();
+        return operationRepository.findByDateOperationFrom(day.atStartOfDay(), day.plusDays(1).atStartOfDay()).stream()
+                .map(this::convertToModel)
+                .map(operation -> enrichOperationWithFrais(operation, fraisRules))
                 .collect(Collectors.toList());
     }
     
@@ -1564,10 +1719,11 @@ public class OperationService {
      * Utilisé pour les relevés de compte et calculs de solde
      */
     public List<Operation> getAllOperationsWithFraisForAccountStatement() {
+        FraisRules fraisRules = fraisTransactionService.getFraisRules();
         return operationRepository.findAllOrderByDateOperationDesc().stream()
                 .filter(op -> op.getStatut() == null || !op.getStatut().equals("Annulée"))
                 .map(this::convertToModel)
-                .map(this::enrichOperationWithFrais)
+                .map(operation -> enrichOperationWithFrais(operation, fraisRules))
                 .collect(Collectors.toList());
     }
     
@@ -1584,9 +1740,10 @@ public class OperationService {
      * Récupérer les opérations par compte enrichies avec leurs frais
      */
     public List<Operation> getOperationsByCompteIdWithFrais(Long compteId) {
+        FraisRules fraisRules = fraisTransactionService.getFraisRules();
         return operationRepository.findByCompteIdOrderByDateOperationDesc(compteId).stream()
                 .map(this::convertToModel)
-                .map(this::enrichOperationWithFrais)
+                .map(operation -> enrichOperationWithFrais(operation, fraisRules))
                 .collect(Collectors.toList());
     }
     
@@ -0,0 +1,154 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.AutoProcessingModel;
+import com.reconciliation.entity.ColumnProcessingRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index de résolution des modèles partenaires à partir des en-têtes du fichier partenaire.
+ *
+ * Construit une fois par liste de modèles (cache "autoProcessingModels") : colonnes requises en minuscules et
+ * nombre de règles précalculés. Les en-têtes sont réduits à une empreinte (colonnes requises présentes, triées)
+ * et le modèle retenu pour chaque empreinte est mémorisé dans une table concurrente.
+ */
+public final class PartnerModelIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartnerModelIndex.class);
+
+    private static final List<String> CIMTNCM_COLUMNS = List.of("external id", "from", "to");
+    private static final List<String> OPPART_COLUMNS = List.of("id opération", "type opération");
+    private static final List<String> CIMTNCM_PATTERN_COLUMNS = List.of("external id");
+
+    private final List<AutoProcessingModel> source;
+    private final List<Candidate> candidates;
+    private final Set<String> indexedColumns = new HashSet<>();
+    private final Map<String, Optional<AutoProcessingModel>> byFingerprint = new ConcurrentHashMap<>();
+
+    private PartnerModelIndex(List<AutoProcessingModel> source, List<Candidate> candidates) {
+        this.source = source;
+        this.candidates = candidates;
+        for (Candidate candidate : candidates) {
+            for (List<String> columns : candidate.requiredColumns) {
+                indexedColumns.addAll(columns);
+            }
+        }
+    }
+
+    /**
+     * Construit l'index à partir des modèles (seuls les modèles partenaires avec un templateFile sont retenus)
+     */
+    public static PartnerModelIndex build(List<AutoProcessingModel> models) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (AutoProcessingModel model : models) {
+            if (model.getFileType() != AutoProcessingModel.FileType.PARTNER) {
+                continue;
+            }
+            List<List<String>> requiredColumns = requiredColumns(model);
+            if (requiredColumns.isEmpty()) {
+                logger.debug("Modèle {} sans templateFile ni pattern vérifiable, ignoré", model.getName());
+                continue;
+            }
+            List<ColumnProcessingRule> rules = model.getColumnProcessingRules();
+            candidates.add(new Candidate(model, requiredColumns, rules != null ? rules.size() : 0));
+        }
+        return new PartnerModelIndex(models, candidates);
+    }
+
+    /**
+     * Vrai si l'index a été construit à partir de cette liste de modèles (même instance en cache)
+     */
+    public boolean isBuiltFrom(List<AutoProcessingModel> models) {
+        return source == models;
+    }
+
+    public int size() {
+        return candidates.size();
+    }
+
+    /**
+     * Modèle partenaire correspondant aux colonnes, ou null ; en cas de correspondances multiples,
+     * celui qui a le plus de règles de traitement (le premier à égalité)
+     */
+    public AutoProcessingModel resolve(Collection<String> partnerColumns) {
+        Set<String> present = new TreeSet<>();
+        for (String column : partnerColumns) {
+            String normalized = column.toLowerCase(Locale.ROOT);
+            if (indexedColumns.contains(normalized)) {
+                present.add(normalized);
+            }
+        }
+        String fingerprint = String.join("|", present);
+        return byFingerprint.computeIfAbsent(fingerprint, key -> Optional.ofNullable(select(present))).orElse(null);
+    }
+
+    private AutoProcessingModel select(Set<String> present) {
+        Candidate best = null;
+        for (Candidate candidate : candidates) {
+            if (candidate.matches(present) && (best == null || candidate.ruleCount > best.ruleCount)) {
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            logger.warn("⚠️ Aucun modèle partenaire trouvé pour les colonnes {}", present);
+            return null;
+        }
+        logger.info("✅ Modèle partenaire sélectionné: {} ({} règles) pour les colonnes {}",
+            best.model.getName(), best.ruleCount, present);
+        return best.model;
+    }
+
+    // Jeux de colonnes dont un seul suffit : colonnes CIMTNCM ou OPPART selon le templateFile,
+    // sinon "External id" si le filePattern désigne CIMTNCM
+    private static List<List<String>> requiredColumns(AutoProcessingModel model) {
+        List<List<String>> requiredColumns = new ArrayList<>();
+        String templateFile = model.getTemplateFile();
+        if (templateFile == null || templateFile.isEmpty()) {
+            return requiredColumns;
+        }
+        String lowerTemplate = templateFile.toLowerCase(Locale.ROOT);
+        if (lowerTemplate.contains("cimtncm")) {
+            requiredColumns.add(CIMTNCM_COLUMNS);
+        }
+        if (lowerTemplate.contains("oppart")) {
+            requiredColumns.add(OPPART_COLUMNS);
+        }
+        String filePattern = model.getFilePattern();
+        if (filePattern != null && filePattern.toLowerCase(Locale.ROOT).contains("cimtncm")) {
+            requiredColumns.add(CIMTNCM_PATTERN_COLUMNS);
+        }
+        return requiredColumns;
+    }
+
+    private static final class Candidate {
+        final AutoProcessingModel model;
+        final List<List<String>> requiredColumns;
+        final int ruleCount;
+
+        Candidate(AutoProcessingModel model, List<List<String>> requiredColumns, int ruleCount) {
+            this.model = model;
+            this.requiredColumns = requiredColumns;
+            this.ruleCount = ruleCount;
+        }
+
+        boolean matches(Set<String> present) {
+            for (List<String> columns : requiredColumns) {
+                if (present.containsAll(columns)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
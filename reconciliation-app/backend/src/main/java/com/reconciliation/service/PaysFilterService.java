@@ -1,10 +1,6 @@
 package com.reconciliation.service;
 
-import com.reconciliation.entity.ProfilPaysEntity;
-import com.reconciliation.entity.UserEntity;
-import com.reconciliation.repository.ProfilPaysRepository;
 import com.reconciliation.repository.PaysRepository;
-import com.reconciliation.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -16,10 +12,7 @@ import java.util.stream.Collectors;
 public class PaysFilterService {
     
     @Autowired
-    private UserRepository userRepository;
-    
-    @Autowired
-    private ProfilPaysRepository profilPaysRepository;
+    private AuthorizationSnapshotService authorizationSnapshotService;
     
     @Autowired
     private PaysRepository paysRepository;
@@ -38,58 +31,19 @@ public class PaysFilterService {
             
             // Vérifier si c'est l'admin (accès à tout)
             if ("admin".equalsIgnoreCase(username)) {
-                System.out.println("✅ Admin détecté, accès à tous les pays");
                 return null; // null signifie tous les pays
             }
             
-            // Récupérer l'utilisateur
-            UserEntity user = userRepository.findByUsername(username).orElse(null);
-            if (user == null) {
+            // Droits de l'utilisateur depuis l'instantané en cache (profil, pays du profil, GNL)
+            AuthorizationSnapshot snapshot = authorizationSnapshotService.getSnapshot(username);
+            if (!snapshot.isFound()) {
                 System.out.println("⚠️ Utilisateur non trouvé: " + username);
                 return new ArrayList<>();
             }
             
-            // Vérifier si le profil est administrateur
-            if (user.getProfil() != null && user.getProfil().getNom() != null) {
-                String profilNom = user.getProfil().getNom().toUpperCase();
-                if (profilNom.equals("ADMIN") || profilNom.equals("ADMINISTRATEUR")) {
-                    System.out.println("✅ Profil administrateur détecté pour " + username + ", accès à tous les pays");
-                    return null; // null signifie tous les pays
-                }
-            }
-            
-            if (user.getProfil() == null || user.getProfil().getId() == null) {
-                System.out.println("⚠️ Utilisateur sans profil: " + username);
-                return new ArrayList<>();
-            }
-            
-            Long profilId = user.getProfil().getId();
-            
-            // Récupérer tous les pays associés au profil
-            List<ProfilPaysEntity> profilPays = profilPaysRepository.findByProfilId(profilId);
-            
-            if (profilPays == null || profilPays.isEmpty()) {
-                System.out.println("⚠️ Aucun pays associé au profil " + profilId);
-                return new ArrayList<>();
-            }
-            
-            // Vérifier si GNL est présent
-            boolean hasGNL = profilPays.stream()
-                .anyMatch(pp -> pp != null && pp.getPays() != null && "GNL".equals(pp.getPays().getCode()));
-            
-            if (hasGNL) {
-                System.out.println("✅ Utilisateur " + username + " a accès à GNL (tous les pays)");
-                return null; // null signifie tous les pays
-            }
-            
-            // Extraire les codes de pays
-            List<String> paysCodes = profilPays.stream()
-                .filter(pp -> pp != null && pp.getPays() != null && pp.getPays().getCode() != null)
-                .map(pp -> pp.getPays().getCode())
-                .collect(Collectors.toList());
-            
-            System.out.println("✅ Utilisateur " + username + " a accès aux pays: " + paysCodes);
-            return paysCodes;
+            // null signifie tous les pays (profil administrateur ou GNL)
+            List<String> paysCodes = snapshot.getAllowedPaysCodes();
+            return paysCodes != null ? new ArrayList<>(paysCodes) : null;
         } catch (Exception e) {
             System.err.println("❌ Erreur dans getAllowedPaysCodes pour username: " + username);
             e.printStackTrace();
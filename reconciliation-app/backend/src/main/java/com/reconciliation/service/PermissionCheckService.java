@@ -1,33 +1,13 @@
 package com.reconciliation.service;
 
-import com.reconciliation.entity.ProfilPermissionEntity;
-import com.reconciliation.entity.UserEntity;
-import com.reconciliation.entity.ModuleEntity;
-import com.reconciliation.entity.PermissionEntity;
-import com.reconciliation.repository.ProfilPermissionRepository;
-import com.reconciliation.repository.UserRepository;
-import com.reconciliation.repository.ModuleRepository;
-import com.reconciliation.repository.PermissionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
-
 @Service
 public class PermissionCheckService {
 
     @Autowired
-    private ProfilPermissionRepository profilPermissionRepository;
-
-    @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private ModuleRepository moduleRepository;
-
-    @Autowired
-    private PermissionRepository permissionRepository;
+    private AuthorizationSnapshotService authorizationSnapshotService;
 
     /**
      * Vérifie si un utilisateur a une permission spécifique pour un module spécifique
@@ -42,54 +22,23 @@ public class PermissionCheckService {
             return true;
         }
 
-        // Trouver l'utilisateur
-        Optional<UserEntity> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isEmpty()) {
+        // Droits de l'utilisateur depuis l'instantané en cache (aucune lecture en base s'il est à jour)
+        AuthorizationSnapshot snapshot = authorizationSnapshotService.getSnapshot(username);
+        if (!snapshot.isFound()) {
             return false;
         }
-
-        UserEntity user = userOpt.get();
         
         // Vérifier si le profil est administrateur
-        if (user.getProfil() != null && user.getProfil().getNom() != null) {
-            String profilNom = user.getProfil().getNom().toUpperCase();
-            if (profilNom.equals("ADMIN") || profilNom.equals("ADMINISTRATEUR")) {
-                return true;
-            }
+        if (snapshot.isProfilAdministrateur()) {
+            return true;
         }
         
-        if (user.getProfil() == null || user.getProfil().getId() == null) {
-            return false;
-        }
-
-        Long profilId = user.getProfil().getId();
-
-        // Trouver le module
-        ModuleEntity module = moduleRepository.findByNom(moduleName);
-        if (module == null || module.getId() == null) {
-            return false;
-        }
-
-        // Trouver la permission
-        PermissionEntity permission = permissionRepository.findByNom(permissionName);
-        if (permission == null || permission.getId() == null) {
+        if (snapshot.getProfilId() == null) {
             return false;
         }
 
         // Vérifier si l'association profil-module-permission existe
-        List<ProfilPermissionEntity> allPermissions = profilPermissionRepository.findAll();
-        return allPermissions.stream()
-            .anyMatch(pp -> 
-                pp.getProfil() != null && 
-                pp.getProfil().getId() != null &&
-                pp.getProfil().getId().equals(profilId) &&
-                pp.getModule() != null && 
-                pp.getModule().getId() != null &&
-                pp.getModule().getId().equals(module.getId()) &&
-                pp.getPermission() != null && 
-                pp.getPermission().getId() != null &&
-                pp.getPermission().getId().equals(permission.getId())
-            );
+        return authorizationSnapshotService.hasPermission(snapshot, moduleName, permissionName);
     }
 
     /**
@@ -106,15 +55,8 @@ public class PermissionCheckService {
         }
         
         // Vérifier si l'utilisateur a un profil administrateur
-        Optional<UserEntity> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isPresent()) {
-            UserEntity user = userOpt.get();
-            if (user.getProfil() != null && user.getProfil().getNom() != null) {
-                String profilNom = user.getProfil().getNom().toUpperCase();
-                if (profilNom.equals("ADMIN") || profilNom.equals("ADMINISTRATEUR")) {
-                    return true;
-                }
-            }
+        if (authorizationSnapshotService.getSnapshot(username).isProfilAdministrateur()) {
+            return true;
         }
 
         // Mapper le chemin API vers le module
@@ -0,0 +1,226 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.AgencySummaryEntity;
+import com.reconciliation.entity.RankingCubeListener;
+import com.reconciliation.model.Operation;
+import com.reconciliation.repository.AgencySummaryRepository;
+import com.reconciliation.repository.RankingCubeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintenance du cube des classements (ranking_cube).
+ *
+ * Les écritures sur agency_summary et operation marquent leur jour (voir {@link RankingCubeListener}) ;
+ * avant chaque lecture, seuls ces jours sont recalculés. Le recalcul complet ne se fait jamais pendant une lecture :
+ * au démarrage, chaque nuit (filet de sécurité pour les écritures hors entités) et en tâche de fond quand
+ * il est demandé (changement des frais, échec d'un recalcul).
+ */
+@Service
+public class RankingCubeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RankingCubeService.class);
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String INSERT_SQL =
+        "INSERT INTO ranking_cube (bucket_date, country, agency, service, summary_count, transaction_count, " +
+        "total_volume, operation_count, total_fees) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private RankingCubeRepository rankingCubeRepository;
+
+    @Autowired
+    private AgencySummaryRepository agencySummaryRepository;
+
+    @Autowired
+    private OperationService operationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Lazy
+    private RankingCubeService self; // Self-injection : chaque recalcul dans sa transaction, sous le verrou d'écriture
+
+    // Sérialise les écritures du cube (jours modifiés, recalcul complet) ; les lectures ne le prennent pas
+    private final Object rebuildLock = new Object();
+
+    /**
+     * Met à jour le cube avec les jours modifiés depuis le dernier appel (sans verrou si aucun jour n'a changé)
+     */
+    public void refresh() {
+        Set<LocalDate> days = RankingCubeListener.drainDirtyDays();
+        if (days.isEmpty()) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            try {
+                self.rebuildDays(new ArrayList<>(days));
+            } catch (RuntimeException e) {
+                // Transaction annulée : le cube sera entièrement recalculé en tâche de fond
+                RankingCubeListener.requestFullRebuild();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Recalcul complet au démarrage (les jours modifiés avant l'arrêt ne sont pas connus)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuildAll();
+    }
+
+    /**
+     * Recalcul complet nocturne
+     */
+    @Scheduled(cron = "${ranking.cube.rebuild-cron:0 30 2 * * *}")
+    public void scheduleFullRebuild() {
+        rebuildAll();
+    }
+
+    /**
+     * Recalcul complet demandé depuis le dernier passage (changement des frais, échec d'un recalcul)
+     */
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void processFullRebuildRequest() {
+        if (RankingCubeListener.isFullRebuildRequested()) {
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Recalcul complet du cube ; en cas d'échec, un nouveau recalcul est demandé
+     */
+    public void rebuildAll() {
+        synchronized (rebuildLock) {
+            // Les jours déjà marqués sont couverts par le recalcul complet
+            RankingCubeListener.startFullRebuild();
+            try {
+                self.rebuildAllCells();
+            } catch (RuntimeException e) {
+                RankingCubeListener.requestFullRebuild();
+                logger.error("❌ Échec du recalcul complet du cube des classements: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Recalcul complet dans une transaction (appelé via {@link #rebuildAll()})
+     */
+    @Transactional
+    public void rebuildAllCells() {
+        long start = System.currentTimeMillis();
+        Map<List<Object>, Cell> cells = new LinkedHashMap<>();
+        for (AgencySummaryEntity summary : agencySummaryRepository.findAll()) {
+            addSummary(cells, summary);
+        }
+        for (Operation operation : operationService.getAllOperationsWithFrais()) {
+            addOperation(cells, operation);
+        }
+        rankingCubeRepository.deleteAllCells();
+        insert(cells);
+        logger.info("📊 Cube des classements reconstruit: {} cellule(s) en {} ms", cells.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Recalcul des jours donnés dans une transaction (appelé via {@link #refresh()})
+     */
+    @Transactional
+    public void rebuildDays(List<LocalDate> days) {
+        long start = System.currentTimeMillis();
+        Map<List<Object>, Cell> cells = new LinkedHashMap<>();
+        for (LocalDate day : days) {
+            for (AgencySummaryEntity summary : agencySummaryRepository.findByDate(day.toString())) {
+                addSummary(cells, summary);
+            }
+            for (Operation operation : operationService.getOperationsWithFraisForDay(day)) {
+                addOperation(cells, operation);
+            }
+        }
+        rankingCubeRepository.deleteByBucketDateIn(days);
+        insert(cells);
+        logger.info("📊 Cube des classements mis à jour: {} jour(s), {} cellule(s) en {} ms",
+            days.size(), cells.size(), System.currentTimeMillis() - start);
+    }
+
+    private void addSummary(Map<List<Object>, Cell> cells, AgencySummaryEntity summary) {
+        Cell cell = cell(cells, RankingCubeListener.parseDay(summary.getDate()), summary.getCountry(),
+            summary.getAgency(), summary.getService());
+        cell.summaryCount++;
+        cell.transactionCount += summary.getRecordCount();
+        cell.totalVolume += summary.getTotalVolume();
+    }
+
+    private void addOperation(Map<List<Object>, Cell> cells, Operation operation) {
+        if (operation.getDateOperation() == null) {
+            return;
+        }
+        Cell cell = cell(cells, operation.getDateOperation().toLocalDate(), operation.getPays(),
+            operation.getCodeProprietaire(), operation.getService());
+        cell.operationCount++;
+        cell.totalFees += operation.getMontantFrais() != null ? operation.getMontantFrais() : 0.0;
+    }
+
+    private Cell cell(Map<List<Object>, Cell> cells, LocalDate day, String country, String agency, String service) {
+        String normalizedCountry = RankingService.normalizeCountryCode(country);
+        String agencyKey = agency != null ? agency : "";
+        String serviceKey = service != null ? service : "";
+        return cells.computeIfAbsent(Arrays.asList(day, normalizedCountry, agencyKey, serviceKey),
+            key -> new Cell(day, normalizedCountry, agencyKey, serviceKey));
+    }
+
+    private void insert(Map<List<Object>, Cell> cells) {
+        List<Object[]> rows = new ArrayList<>(cells.size());
+        for (Cell cell : cells.values()) {
+            rows.add(new Object[]{
+                cell.day != null ? Date.valueOf(cell.day) : null, cell.country, cell.agency, cell.service,
+                cell.summaryCount, cell.transactionCount, cell.totalVolume, cell.operationCount, cell.totalFees
+            });
+        }
+        for (int start = 0; start < rows.size(); start += INSERT_BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows.subList(start, Math.min(start + INSERT_BATCH_SIZE, rows.size())));
+        }
+    }
+
+    /**
+     * Cellule du cube en cours de calcul
+     */
+    private static final class Cell {
+        private final LocalDate day;
+        private final String country;
+        private final String agency;
+        private final String service;
+        private long summaryCount;
+        private long transactionCount;
+        private double totalVolume;
+        private long operationCount;
+        private double totalFees;
+
+        private Cell(LocalDate day, String country, String agency, String service) {
+            this.day = day;
+            this.country = country;
+            this.agency = agency;
+            this.service = service;
+        }
+    }
+}
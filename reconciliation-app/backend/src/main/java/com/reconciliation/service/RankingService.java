@@ -1,7 +1,7 @@
 package com.reconciliation.service;
 
-import com.reconciliation.model.Operation;
-import com.reconciliation.entity.AgencySummaryEntity;
+import com.reconciliation.repository.CompteRepository;
+import com.reconciliation.repository.RankingCubeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -12,17 +12,20 @@ import java.time.temporal.WeekFields;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Classements des agences et des services, calculés à partir du cube pré-agrégé (voir {@link RankingCubeService})
+ */
 @Service
 public class RankingService {
     
     @Autowired
-    private com.reconciliation.service.OperationService operationService;
+    private RankingCubeService rankingCubeService;
     
     @Autowired
-    private com.reconciliation.repository.AgencySummaryRepository agencySummaryRepository;
+    private RankingCubeRepository rankingCubeRepository;
     
     @Autowired
-    private com.reconciliation.repository.CompteRepository compteRepository;
+    private CompteRepository compteRepository;
     
     private static final Map<String, String> COUNTRY_KEYWORDS = initCountryKeywordMap();
     
@@ -30,54 +33,37 @@ public class RankingService {
      * Récupérer le classement des agences par nombre de transactions (via recordCount)
      */
     public List<Map<String, Object>> getAgencyRankingByTransactions(List<String> countries, String period, String startDate, String endDate) {
-        // Filtrer les données selon la période temporelle
-        List<AgencySummaryEntity> allSummaries = agencySummaryRepository.findAll();
-        List<AgencySummaryEntity> summaries = filterSummariesByPeriod(allSummaries, period, startDate, endDate);
-        
-        // Filtrer par pays si spécifié
-        if (countries != null && !countries.isEmpty()) {
-            summaries = summaries.stream().filter(s -> matchesCountryFilter(s.getCountry(), countries)).collect(Collectors.toList());
+        List<String> countryFilter = normalizeCountryFilter(countries);
+        if (countryFilter != null && countryFilter.isEmpty()) {
+            return new ArrayList<>();
         }
-        
-        List<Operation> allOperations = operationService.getAllOperationsWithFrais();
-        // Filtrer les opérations selon la période temporelle
-        allOperations = filterOperationsByPeriod(allOperations, period, startDate, endDate);
-        
-        // Filtrer par pays si spécifié
-        if (countries != null && !countries.isEmpty()) {
-            allOperations = allOperations.stream().filter(op -> matchesCountryFilter(op.getPays(), countries)).collect(Collectors.toList());
+        LocalDate[] range = resolvePeriod(period, startDate, endDate);
+        LocalDate start = range != null ? range[0] : null;
+        LocalDate end = range != null ? range[1] : null;
+        
+        rankingCubeService.refresh();
+        Map<String, RankingTotals> byAgency = sumByKey(rankingCubeRepository.sumByAgencyAndDay(start, end, countryFilter), period);
+        Map<String, Set<String>> countriesByAgency = new HashMap<>();
+        for (Object[] row : rankingCubeRepository.findAgencyCountries(start, end, countryFilter)) {
+            countriesByAgency.computeIfAbsent((String) row[0], k -> new TreeSet<>()).add((String) row[1]);
         }
-        // Grouper par agence
-        Map<String, List<AgencySummaryEntity>> byAgency = summaries.stream()
-                .filter(s -> s.getAgency() != null && !s.getAgency().isEmpty())
-                .collect(Collectors.groupingBy(AgencySummaryEntity::getAgency));
+        
         List<Map<String, Object>> ranking = new ArrayList<>();
-        for (Map.Entry<String, List<AgencySummaryEntity>> entry : byAgency.entrySet()) {
+        for (Map.Entry<String, RankingTotals> entry : byAgency.entrySet()) {
             String agency = entry.getKey();
-            List<AgencySummaryEntity> list = entry.getValue();
-            long transactionCount = list.stream().mapToLong(AgencySummaryEntity::getRecordCount).sum();
-            double totalVolume = list.stream().mapToDouble(AgencySummaryEntity::getTotalVolume).sum();
-            // Somme des frais pour cette agence
-            double totalFees = allOperations.stream()
-                .filter(op -> agency.equals(op.getCodeProprietaire()))
-                .mapToDouble(op -> op.getMontantFrais() != null ? op.getMontantFrais() : 0.0)
-                .sum();
-            
-            // Calcul des moyennes selon la période
-            double averageVolume = calculateAverageVolumeByPeriod(list, period);
-            double averageFees = calculateAverageFeesByPeriod(allOperations, agency, period);
-            
-            // Récupérer les pays distincts pour cette agence
-            String countryList = getDistinctCountries(list);
-            
+            RankingTotals totals = entry.getValue();
+            // Seules les agences présentes dans les résumés sont classées
+            if (agency.isEmpty() || totals.summaryCount == 0) {
+                continue;
+            }
             Map<String, Object> agencyData = new HashMap<>();
             agencyData.put("agency", agency);
-            agencyData.put("country", countryList);
-            agencyData.put("transactionCount", transactionCount);
-            agencyData.put("totalVolume", totalVolume);
-            agencyData.put("totalFees", totalFees);
-            agencyData.put("averageVolume", averageVolume);
-            agencyData.put("averageFees", averageFees);
+            agencyData.put("country", joinCountries(countriesByAgency.get(agency)));
+            agencyData.put("transactionCount", totals.transactionCount);
+            agencyData.put("totalVolume", totals.totalVolume);
+            agencyData.put("totalFees", totals.totalFees);
+            agencyData.put("averageVolume", average(totals.volumeByPeriod));
+            agencyData.put("averageFees", average(totals.feesByPeriod));
             ranking.add(agencyData);
         }
         // Trier par nombre de transactions (décroissant)
@@ -86,73 +72,39 @@ public class RankingService {
     }
     
     /**
-     * Calculer le volume moyen selon la période pour une agence
+     * Totaux par clé (agence ou service) à partir des lignes jour du cube, avec les sommes par période pour les moyennes
+     * Ligne : [clé, jour, nb résumés, nb transactions, volume, nb opérations, frais]
      */
-    private double calculateAverageVolumeByPeriod(List<AgencySummaryEntity> summaries, String period) {
-        if (summaries.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Grouper selon la période
-        Map<String, List<AgencySummaryEntity>> byPeriod = summaries.stream()
-            .filter(s -> s.getDate() != null && !s.getDate().isEmpty())
-            .collect(Collectors.groupingBy(s -> {
-                try {
-                    LocalDate date = LocalDate.parse(s.getDate(), DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                    return getPeriodKey(date, period);
-                } catch (Exception e) {
-                    return "unknown";
-                }
-            }));
-        
-        if (byPeriod.isEmpty()) {
-            return 0.0;
+    private Map<String, RankingTotals> sumByKey(List<Object[]> rows, String period) {
+        Map<String, RankingTotals> byKey = new HashMap<>();
+        for (Object[] row : rows) {
+            RankingTotals totals = byKey.computeIfAbsent((String) row[0], k -> new RankingTotals());
+            LocalDate day = (LocalDate) row[1];
+            long summaryCount = ((Number) row[2]).longValue();
+            double volume = ((Number) row[4]).doubleValue();
+            long operationCount = ((Number) row[5]).longValue();
+            double fees = ((Number) row[6]).doubleValue();
+            
+            totals.summaryCount += summaryCount;
+            totals.transactionCount += ((Number) row[3]).longValue();
+            totals.totalVolume += volume;
+            totals.totalFees += fees;
+            String periodKey = day != null ? getPeriodKey(day, period) : "unknown";
+            if (summaryCount > 0) {
+                totals.volumeByPeriod.merge(periodKey, volume, Double::sum);
+            }
+            if (operationCount > 0) {
+                totals.feesByPeriod.merge(periodKey, fees, Double::sum);
+            }
         }
-        
-        // Calculer le volume total par période
-        List<Double> periodVolumes = byPeriod.values().stream()
-            .map(periodSummaries -> periodSummaries.stream()
-                .mapToDouble(AgencySummaryEntity::getTotalVolume)
-                .sum())
-            .collect(Collectors.toList());
-        
-        // Retourner la moyenne des volumes par période
-        return periodVolumes.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        return byKey;
     }
     
     /**
-     * Calculer les frais moyens selon la période pour une agence
+     * Moyenne des montants par période (0 si aucune période)
      */
-    private double calculateAverageFeesByPeriod(List<Operation> allOperations, String agency, String period) {
-        // Filtrer les opérations de cette agence
-        List<Operation> agencyOperations = allOperations.stream()
-            .filter(op -> agency.equals(op.getCodeProprietaire()))
-            .collect(Collectors.toList());
-        
-        if (agencyOperations.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Grouper selon la période
-        Map<String, List<Operation>> byPeriod = agencyOperations.stream()
-            .filter(op -> op.getDateOperation() != null)
-            .collect(Collectors.groupingBy(op -> 
-                getPeriodKey(op.getDateOperation().toLocalDate(), period)
-            ));
-        
-        if (byPeriod.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Calculer les frais totaux par période
-        List<Double> periodFees = byPeriod.values().stream()
-            .map(periodOperations -> periodOperations.stream()
-                .mapToDouble(op -> op.getMontantFrais() != null ? op.getMontantFrais() : 0.0)
-                .sum())
-            .collect(Collectors.toList());
-        
-        // Retourner la moyenne des frais par période
-        return periodFees.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+    private double average(Map<String, Double> byPeriod) {
+        return byPeriod.values().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
     }
     
     /**
@@ -176,73 +128,56 @@ public class RankingService {
      * Récupérer le classement des agences par volume
      */
     public List<Map<String, Object>> getAgencyRankingByVolume(List<String> countries, String period, String startDate, String endDate) {
-        List<Map<String, Object>> ranking = getAgencyRankingByTransactions(countries, period, startDate, endDate);
-        ranking.sort((a, b) -> Double.compare((Double) b.get("totalVolume"), (Double) a.get("totalVolume")));
-        return ranking;
+        return sortDescending(getAgencyRankingByTransactions(countries, period, startDate, endDate), "totalVolume");
     }
     
     /**
      * Récupérer le classement des agences par frais
      */
     public List<Map<String, Object>> getAgencyRankingByFees(List<String> countries, String period, String startDate, String endDate) {
-        List<Map<String, Object>> ranking = getAgencyRankingByTransactions(countries, period, startDate, endDate);
-        ranking.sort((a, b) -> Double.compare((Double) b.get("totalFees"), (Double) a.get("totalFees")));
-        return ranking;
+        return sortDescending(getAgencyRankingByTransactions(countries, period, startDate, endDate), "totalFees");
     }
     
     /**
      * Récupérer le classement des services par nombre de transactions (via recordCount)
      */
     public List<Map<String, Object>> getServiceRankingByTransactions(List<String> countries, String period, String startDate, String endDate) {
-        // Filtrer les données selon la période temporelle
-        List<AgencySummaryEntity> allSummaries = agencySummaryRepository.findAll();
-        List<AgencySummaryEntity> summaries = filterSummariesByPeriod(allSummaries, period, startDate, endDate);
-        
-        // Filtrer par pays si spécifié
-        if (countries != null && !countries.isEmpty()) {
-            summaries = summaries.stream().filter(s -> matchesCountryFilter(s.getCountry(), countries)).collect(Collectors.toList());
+        List<String> countryFilter = normalizeCountryFilter(countries);
+        if (countryFilter != null && countryFilter.isEmpty()) {
+            return new ArrayList<>();
         }
-        
-        List<Operation> allOperations = operationService.getAllOperationsWithFrais();
-        // Filtrer les opérations selon la période temporelle
-        allOperations = filterOperationsByPeriod(allOperations, period, startDate, endDate);
-        
-        // Filtrer par pays si spécifié
-        if (countries != null && !countries.isEmpty()) {
-            allOperations = allOperations.stream().filter(op -> matchesCountryFilter(op.getPays(), countries)).collect(Collectors.toList());
+        LocalDate[] range = resolvePeriod(period, startDate, endDate);
+        LocalDate start = range != null ? range[0] : null;
+        LocalDate end = range != null ? range[1] : null;
+        
+        rankingCubeService.refresh();
+        Map<String, RankingTotals> byService = sumByKey(rankingCubeRepository.sumByServiceAndDay(start, end, countryFilter), period);
+        Map<String, Set<String>> countriesByService = new HashMap<>();
+        Map<String, Set<String>> agenciesByService = new HashMap<>();
+        for (Object[] row : rankingCubeRepository.findServiceCountriesAndAgencies(start, end, countryFilter)) {
+            countriesByService.computeIfAbsent((String) row[0], k -> new TreeSet<>()).add((String) row[1]);
+            agenciesByService.computeIfAbsent((String) row[0], k -> new HashSet<>()).add((String) row[2]);
         }
-        // Grouper par service
-        Map<String, List<AgencySummaryEntity>> byService = summaries.stream()
-                .filter(s -> s.getService() != null && !s.getService().isEmpty())
-                .collect(Collectors.groupingBy(AgencySummaryEntity::getService));
+        
         List<Map<String, Object>> ranking = new ArrayList<>();
-        for (Map.Entry<String, List<AgencySummaryEntity>> entry : byService.entrySet()) {
+        for (Map.Entry<String, RankingTotals> entry : byService.entrySet()) {
             String service = entry.getKey();
-            List<AgencySummaryEntity> list = entry.getValue();
-            long transactionCount = list.stream().mapToLong(AgencySummaryEntity::getRecordCount).sum();
-            double totalVolume = list.stream().mapToDouble(AgencySummaryEntity::getTotalVolume).sum();
-            double totalFees = allOperations.stream()
-                .filter(op -> service.equals(op.getService()))
-                .mapToDouble(op -> op.getMontantFrais() != null ? op.getMontantFrais() : 0.0)
-                .sum();
-            long uniqueAgencies = list.stream().map(AgencySummaryEntity::getAgency).distinct().count();
-            
-            // Calcul des moyennes selon la période
-            double averageVolume = calculateAverageVolumeByPeriodForService(list, period);
-            double averageFees = calculateAverageFeesByPeriodForService(allOperations, service, period);
-            
-            // Récupérer les pays distincts pour ce service
-            String countryList = getDistinctCountries(list);
+            RankingTotals totals = entry.getValue();
+            // Seuls les services présents dans les résumés sont classés
+            if (service.isEmpty() || totals.summaryCount == 0) {
+                continue;
+            }
+            Set<String> agencies = agenciesByService.get(service);
             
             Map<String, Object> serviceData = new HashMap<>();
             serviceData.put("service", service);
-            serviceData.put("country", countryList);
-            serviceData.put("transactionCount", transactionCount);
-            serviceData.put("totalVolume", totalVolume);
-            serviceData.put("totalFees", totalFees);
-            serviceData.put("uniqueAgencies", uniqueAgencies);
-            serviceData.put("averageVolume", averageVolume);
-            serviceData.put("averageFees", averageFees);
+            serviceData.put("country", joinCountries(countriesByService.get(service)));
+            serviceData.put("transactionCount", totals.transactionCount);
+            serviceData.put("totalVolume", totals.totalVolume);
+            serviceData.put("totalFees", totals.totalFees);
+            serviceData.put("uniqueAgencies", agencies != null ? (long) agencies.size() : 0L);
+            serviceData.put("averageVolume", average(totals.volumeByPeriod));
+            serviceData.put("averageFees", average(totals.feesByPeriod));
             ranking.add(serviceData);
         }
         // Trier par nombre de transactions (décroissant)
@@ -250,187 +185,47 @@ public class RankingService {
         return ranking;
     }
     
-    /**
-     * Calculer le volume moyen selon la période pour un service
-     */
-    private double calculateAverageVolumeByPeriodForService(List<AgencySummaryEntity> summaries, String period) {
-        if (summaries.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Grouper selon la période
-        Map<String, List<AgencySummaryEntity>> byPeriod = summaries.stream()
-            .filter(s -> s.getDate() != null && !s.getDate().isEmpty())
-            .collect(Collectors.groupingBy(s -> {
-                try {
-                    LocalDate date = LocalDate.parse(s.getDate(), DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                    return getPeriodKey(date, period);
-                } catch (Exception e) {
-                    return "unknown";
-                }
-            }));
-        
-        if (byPeriod.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Calculer le volume total par période
-        List<Double> periodVolumes = byPeriod.values().stream()
-            .map(periodSummaries -> periodSummaries.stream()
-                .mapToDouble(AgencySummaryEntity::getTotalVolume)
-                .sum())
-            .collect(Collectors.toList());
-        
-        // Retourner la moyenne des volumes par période
-        return periodVolumes.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-    }
-    
-    /**
-     * Calculer les frais moyens selon la période pour un service
-     */
-    private double calculateAverageFeesByPeriodForService(List<Operation> allOperations, String service, String period) {
-        // Filtrer les opérations de ce service
-        List<Operation> serviceOperations = allOperations.stream()
-            .filter(op -> service.equals(op.getService()))
-            .collect(Collectors.toList());
-        
-        if (serviceOperations.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Grouper selon la période
-        Map<String, List<Operation>> byPeriod = serviceOperations.stream()
-            .filter(op -> op.getDateOperation() != null)
-            .collect(Collectors.groupingBy(op -> 
-                getPeriodKey(op.getDateOperation().toLocalDate(), period)
-            ));
-        
-        if (byPeriod.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Calculer les frais totaux par période
-        List<Double> periodFees = byPeriod.values().stream()
-            .map(periodOperations -> periodOperations.stream()
-                .mapToDouble(op -> op.getMontantFrais() != null ? op.getMontantFrais() : 0.0)
-                .sum())
-            .collect(Collectors.toList());
-        
-        // Retourner la moyenne des frais par période
-        return periodFees.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-    }
-    
     /**
      * Récupérer le classement des services par volume
      */
     public List<Map<String, Object>> getServiceRankingByVolume(List<String> countries, String period, String startDate, String endDate) {
-        List<Map<String, Object>> ranking = getServiceRankingByTransactions(countries, period, startDate, endDate);
-        ranking.sort((a, b) -> Double.compare((Double) b.get("totalVolume"), (Double) a.get("totalVolume")));
-        return ranking;
+        return sortDescending(getServiceRankingByTransactions(countries, period, startDate, endDate), "totalVolume");
     }
     
     /**
      * Récupérer le classement des services par frais
      */
     public List<Map<String, Object>> getServiceRankingByFees(List<String> countries, String period, String startDate, String endDate) {
-        List<Map<String, Object>> ranking = getServiceRankingByTransactions(countries, period, startDate, endDate);
-        ranking.sort((a, b) -> Double.compare((Double) b.get("totalFees"), (Double) a.get("totalFees")));
-        return ranking;
+        return sortDescending(getServiceRankingByTransactions(countries, period, startDate, endDate), "totalFees");
     }
     
     /**
      * Récupérer tous les classements (agences et services)
+     * Chaque classement n'est calculé qu'une fois puis retrié par volume et par frais
      */
     public Map<String, Object> getAllRankings(String period) {
+        List<Map<String, Object>> agencies = getAgencyRankingByTransactions(null, period, null, null);
+        List<Map<String, Object>> services = getServiceRankingByTransactions(null, period, null, null);
+        
         Map<String, Object> rankings = new HashMap<>();
-        rankings.put("agenciesByTransactions", getAgencyRankingByTransactions(null, period, null, null));
-        rankings.put("agenciesByVolume", getAgencyRankingByVolume(null, period, null, null));
-        rankings.put("agenciesByFees", getAgencyRankingByFees(null, period, null, null));
-        rankings.put("servicesByTransactions", getServiceRankingByTransactions(null, period, null, null));
-        rankings.put("servicesByVolume", getServiceRankingByVolume(null, period, null, null));
-        rankings.put("servicesByFees", getServiceRankingByFees(null, period, null, null));
+        rankings.put("agenciesByTransactions", agencies);
+        rankings.put("agenciesByVolume", sortDescending(new ArrayList<>(agencies), "totalVolume"));
+        rankings.put("agenciesByFees", sortDescending(new ArrayList<>(agencies), "totalFees"));
+        rankings.put("servicesByTransactions", services);
+        rankings.put("servicesByVolume", sortDescending(new ArrayList<>(services), "totalVolume"));
+        rankings.put("servicesByFees", sortDescending(new ArrayList<>(services), "totalFees"));
         return rankings;
     }
     
-    /**
-     * Filtrer les AgencySummaryEntity selon la période temporelle
-     */
-    private List<AgencySummaryEntity> filterSummariesByPeriod(List<AgencySummaryEntity> summaries, String period, String customStartDate, String customEndDate) {
-        LocalDate today = LocalDate.now();
-        LocalDate startDate;
-        LocalDate endDate;
-        
-        if ("custom".equals(period) && customStartDate != null && customEndDate != null) {
-            // Période personnalisée
-            try {
-                startDate = LocalDate.parse(customStartDate);
-                endDate = LocalDate.parse(customEndDate);
-            } catch (Exception e) {
-                // En cas d'erreur de parsing, utiliser le mois en cours
-                startDate = today.withDayOfMonth(1);
-                endDate = today.withDayOfMonth(today.lengthOfMonth());
-            }
-        } else {
-            switch (period != null ? period.toLowerCase() : "month") {
-                case "all":
-                    // Toute la période - pas de filtrage temporel
-                    return summaries; // Retourner toutes les données sans filtrage
-                case "day":
-                    // J-1 (hier)
-                    startDate = today.minusDays(1);
-                    endDate = today.minusDays(1);
-                    break;
-                case "week":
-                    // Dernière semaine (lundi au dimanche)
-                    startDate = today.minusWeeks(1).with(java.time.DayOfWeek.MONDAY);
-                    endDate = startDate.plusDays(6);
-                    break;
-                case "thisyear":
-                    // Cette année (1er janvier au 31 décembre)
-                    startDate = today.withDayOfYear(1);
-                    endDate = today.withDayOfYear(today.lengthOfYear());
-                    break;
-                case "lastyear":
-                    // Année dernière (1er janvier au 31 décembre de l'année précédente)
-                    startDate = today.minusYears(1).withDayOfYear(1);
-                    endDate = today.minusYears(1).withDayOfYear(today.minusYears(1).lengthOfYear());
-                    break;
-                case "lastmonth":
-                    // Mois dernier (1er au dernier jour du mois précédent)
-                    startDate = today.minusMonths(1).withDayOfMonth(1);
-                    endDate = today.minusMonths(1).withDayOfMonth(today.minusMonths(1).lengthOfMonth());
-                    break;
-                case "month":
-                default:
-                    // Mois en cours
-                    startDate = today.withDayOfMonth(1);
-                    endDate = today.withDayOfMonth(today.lengthOfMonth());
-                    break;
-            }
-        }
-        
-        final LocalDate finalStartDate = startDate;
-        final LocalDate finalEndDate = endDate;
-        
-        return summaries.stream()
-            .filter(s -> {
-                if (s.getDate() == null || s.getDate().isEmpty()) {
-                    return false;
-                }
-                try {
-                    LocalDate summaryDate = LocalDate.parse(s.getDate(), DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                    return !summaryDate.isBefore(finalStartDate) && !summaryDate.isAfter(finalEndDate);
-                } catch (Exception e) {
-                    return false;
-                }
-            })
-            .collect(Collectors.toList());
+    private List<Map<String, Object>> sortDescending(List<Map<String, Object>> ranking, String field) {
+        ranking.sort((a, b) -> Double.compare((Double) b.get(field), (Double) a.get(field)));
+        return ranking;
     }
     
     /**
-     * Filtrer les opérations selon la période temporelle
+     * Bornes (incluses) de la période demandée, null pour toute la période
      */
-    private List<Operation> filterOperationsByPeriod(List<Operation> operations, String period, String customStartDate, String customEndDate) {
+    private LocalDate[] resolvePeriod(String period, String customStartDate, String customEndDate) {
         LocalDate today = LocalDate.now();
         LocalDate startDate;
         LocalDate endDate;
@@ -449,7 +244,7 @@ public class RankingService {
             switch (period != null ? period.toLowerCase() : "month") {
                 case "all":
                     // Toute la période - pas de filtrage temporel
-                    return operations; // Retourner toutes les opérations sans filtrage
+                    return null;
                 case "day":
                     // J-1 (hier)
                     startDate = today.minusDays(1);
@@ -483,58 +278,30 @@ public class RankingService {
                     break;
             }
         }
-        
-        final LocalDate finalStartDate = startDate;
-        final LocalDate finalEndDate = endDate;
-        
-        return operations.stream()
-            .filter(op -> {
-                if (op.getDateOperation() == null) {
-                    return false;
-                }
-                LocalDate operationDate = op.getDateOperation().toLocalDate();
-                return !operationDate.isBefore(finalStartDate) && !operationDate.isAfter(finalEndDate);
-            })
-            .collect(Collectors.toList());
+        return new LocalDate[]{startDate, endDate};
     }
     
     /**
-     * Vérifie si un pays correspond aux filtres de pays sélectionnés
-     * Gère les cas spéciaux comme CI et CICTH qui doivent être traités de la même manière
+     * Filtre pays normalisé (CI et CICTH donnent tous les deux CI)
+     * null si aucun filtre ; liste vide si aucun pays du filtre n'est reconnu (aucun résultat)
      */
-    private boolean matchesCountryFilter(String country, List<String> filterCountries) {
-        if (country == null || country.trim().isEmpty()) {
-            return false;
-        }
-        
-        // Normaliser le pays à vérifier
-        String normalizedCountry = normalizeCountryCode(country);
-        
-        if (normalizedCountry.isEmpty()) {
-            return false;
-        }
-        
-        // Vérifier si le pays normalisé correspond à l'un des filtres (normalisés aussi)
-        for (String filterCountry : filterCountries) {
-            if (filterCountry == null || filterCountry.trim().isEmpty()) {
-                continue;
-            }
-            String normalizedFilter = normalizeCountryCode(filterCountry);
-            
-            // Correspondance après normalisation (CI et CICTH seront tous les deux normalisés en CI)
-            if (normalizedCountry.equals(normalizedFilter)) {
-                return true;
-            }
+    private List<String> normalizeCountryFilter(List<String> filterCountries) {
+        if (filterCountries == null || filterCountries.isEmpty()) {
+            return null;
         }
-        
-        return false;
+        return filterCountries.stream()
+            .filter(country -> country != null && !country.trim().isEmpty())
+            .map(RankingService::normalizeCountryCode)
+            .filter(normalized -> !normalized.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
     }
     
     /**
      * Normalise un code pays pour le filtrage
      * CI et CICTH sont traités de la même manière
      */
-    private String normalizeCountryCode(String countryCode) {
+    static String normalizeCountryCode(String countryCode) {
         if (countryCode == null || countryCode.trim().isEmpty()) {
             return "";
         }
@@ -579,33 +346,15 @@ public class RankingService {
     }
     
     /**
-     * Récupère les pays distincts depuis une liste de summaries
-     * Retourne une chaîne avec les pays séparés par des virgules
+     * Pays distincts (déjà normalisés et triés) séparés par des virgules
      */
-    private String getDistinctCountries(List<AgencySummaryEntity> summaries) {
-        if (summaries == null || summaries.isEmpty()) {
+    private String joinCountries(Set<String> countries) {
+        if (countries == null) {
             return "";
         }
-        
-        List<String> countries = summaries.stream()
-            .map(AgencySummaryEntity::getCountry)
-            .map(this::normalizeCountryCode)
-            .filter(country -> country != null && !country.isEmpty())
-            .distinct()
-            .sorted()
-            .collect(Collectors.toList());
-        
-        if (countries.isEmpty()) {
-            return "";
-        }
-        
-        // Si un seul pays, le retourner tel quel
-        if (countries.size() == 1) {
-            return countries.get(0);
-        }
-        
-        // Sinon, les concaténer avec des virgules
-        return String.join(", ", countries);
+        return countries.stream()
+            .filter(country -> !country.isEmpty())
+            .collect(Collectors.joining(", "));
     }
     
     /**
@@ -618,13 +367,25 @@ public class RankingService {
         // Normaliser et dédupliquer les pays
         return allCountries.stream()
             .filter(country -> country != null && !country.trim().isEmpty())
-            .map(this::normalizeCountryCode)
+            .map(RankingService::normalizeCountryCode)
             .filter(normalized -> !normalized.isEmpty())
             .distinct()
             .sorted()
             .collect(Collectors.toList());
     }
     
+    /**
+     * Totaux d'une agence ou d'un service sur la période
+     */
+    private static final class RankingTotals {
+        private long summaryCount;
+        private long transactionCount;
+        private double totalVolume;
+        private double totalFees;
+        private final Map<String, Double> volumeByPeriod = new HashMap<>();
+        private final Map<String, Double> feesByPeriod = new HashMap<>();
+    }
+    
     private static Map<String, String> initCountryKeywordMap() {
         Map<String, String> map = new LinkedHashMap<>();
         map.put("COTE D IVOIRE", "CI");
@@ -0,0 +1,161 @@
+package com.reconciliation.service;
+
+import com.reconciliation.dto.ReconciliationRequest;
+import com.reconciliation.dto.ReconciliationResponse;
+import com.reconciliation.entity.ReconciliationJob;
+import com.reconciliation.model.ReconciliationProgress;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File de jobs de réconciliation asynchrones (/api/reconciliation/start).
+ * File bornée et nombre de workers configurables ; la progression est publiée dans {@link ReconciliationProgressService}
+ * et le résultat enregistré via {@link ReconciliationJobService}.
+ */
+@Slf4j
+@Service
+public class ReconciliationJobQueue implements DisposableBean {
+
+    private final CsvReconciliationService reconciliationService;
+    private final ReconciliationJobService jobService;
+    private final ReconciliationProgressService progressService;
+    private final ThreadPoolExecutor workers;
+    /** Jetons d'annulation des jobs en file ou en cours */
+    private final Map<String, AtomicBoolean> cancellationFlags = new ConcurrentHashMap<>();
+
+    public ReconciliationJobQueue(CsvReconciliationService reconciliationService,
+                                  ReconciliationJobService jobService,
+                                  ReconciliationProgressService progressService,
+                                  @Value("${reconciliation.jobs.workers:2}") int workerCount,
+                                  @Value("${reconciliation.jobs.queue-capacity:20}") int queueCapacity) {
+        this.reconciliationService = reconciliationService;
+        this.jobService = jobService;
+        this.progressService = progressService;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, "reconciliation-job-" + threadCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        log.info("⚙️ File de jobs de réconciliation: {} workers, capacité {}", workerCount, queueCapacity);
+    }
+
+    /**
+     * Crée le job et le place dans la file
+     * @throws RejectedExecutionException si la file est pleine
+     */
+    public String submit(ReconciliationRequest request, String clientId) {
+        if (workers.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("File de réconciliation pleine");
+        }
+        String jobId = jobService.createJob(clientId);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        cancellationFlags.put(jobId, cancelled);
+        progressService.createJob(jobId, "En file d'attente");
+        try {
+            workers.execute(() -> runJob(jobId, request, cancelled));
+        } catch (RejectedExecutionException e) {
+            cancellationFlags.remove(jobId);
+            jobService.failJob(jobId, "File de réconciliation pleine");
+            progressService.clearProgress(jobId);
+            throw e;
+        }
+        log.info("📥 Job {} placé dans la file ({} en attente)", jobId, workers.getQueue().size());
+        return jobId;
+    }
+
+    /**
+     * Annule un job en file ou en cours (arrêt à la prochaine étape ou au prochain lot)
+     */
+    public CancelOutcome cancel(String jobId) {
+        Optional<ReconciliationJob> job = jobService.getJobStatus(jobId);
+        if (job.isEmpty()) {
+            return CancelOutcome.NOT_FOUND;
+        }
+        // Transition atomique : échoue si le job s'est terminé entre-temps
+        if (!jobService.cancelJob(jobId)) {
+            return CancelOutcome.ALREADY_FINISHED;
+        }
+        AtomicBoolean cancelled = cancellationFlags.get(jobId);
+        if (cancelled != null) {
+            cancelled.set(true);
+        }
+        progressService.finishJob(jobId, new ReconciliationProgress(0, "Annulé", 0, 0));
+        return CancelOutcome.CANCELLED;
+    }
+
+    private void runJob(String jobId, ReconciliationRequest request, AtomicBoolean cancelled) {
+        try {
+            if (cancelled.get() || !jobService.markProcessing(jobId)) {
+                log.info("⏹️ Job {} annulé avant son démarrage", jobId);
+                return;
+            }
+            log.info("🚀 Démarrage du job de réconciliation {}", jobId);
+
+            ReconciliationResponse response = reconciliationService.reconcile(request,
+                new CsvReconciliationService.ProgressListener() {
+                    @Override
+                    public void onStage(String step, int percentage) {
+                        if (!cancelled.get()) {
+                            progressService.updateProgress(jobId, new ReconciliationProgress(percentage, step, 0, 0));
+                        }
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return cancelled.get();
+                    }
+                });
+
+            if (cancelled.get()) {
+                log.info("⏹️ Job {} annulé, résultat ignoré", jobId);
+                return;
+            }
+            progressService.updateProgress(jobId, new ReconciliationProgress(95, "Enregistrement des résultats", 0, 0));
+            if (!jobService.completeJob(jobId, response)) {
+                log.info("⏹️ Job {} annulé pendant l'enregistrement, résultat ignoré", jobId);
+                return;
+            }
+            progressService.finishJob(jobId, new ReconciliationProgress(100, "Réconciliation terminée avec succès", 0, 0));
+            log.info("✅ Job de réconciliation {} terminé", jobId);
+        } catch (CancellationException e) {
+            log.info("⏹️ Job {} annulé en cours de traitement", jobId);
+        } catch (Exception e) {
+            log.error("❌ Erreur lors du job de réconciliation {}: {}", jobId, e.getMessage(), e);
+            jobService.failJob(jobId, "Erreur: " + e.getMessage());
+            progressService.finishJob(jobId, new ReconciliationProgress(0, "Erreur: " + e.getMessage(), 0, 0));
+        } finally {
+            cancellationFlags.remove(jobId);
+        }
+    }
+
+    /**
+     * Résultat d'une demande d'annulation
+     */
+    public enum CancelOutcome {
+        CANCELLED,
+        NOT_FOUND,
+        // Job déjà terminé, échoué ou annulé : rien à annuler
+        ALREADY_FINISHED
+    }
+
+    @Override
+    public void destroy() {
+        log.info("🧹 Arrêt de la file de jobs de réconciliation...");
+        workers.shutdownNow();
+    }
+}
@@ -6,6 +6,7 @@ import com.reconciliation.dto.ProgressUpdate;
 import com.reconciliation.dto.ReconciliationConfig;
 import com.reconciliation.dto.ReconciliationResponse;
 import com.reconciliation.entity.ReconciliationJob;
+import com.reconciliation.entity.ReconciliationJobResultChunk.ResultCategory;
 import com.reconciliation.repository.ReconciliationJobRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,10 +16,16 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,9 +36,14 @@ public class ReconciliationJobService {
     
     private final ReconciliationJobRepository jobRepository;
     private final ObjectMapper objectMapper;
+    private final ReconciliationResultStore resultStore;
     
     private static final String UPLOAD_DIR = "uploads/reconciliation";
     
+    // Statuts à partir desquels un job peut encore être annulé ou échouer
+    private static final Set<ReconciliationJob.JobStatus> ACTIVE_STATUSES = EnumSet.of(
+        ReconciliationJob.JobStatus.PENDING, ReconciliationJob.JobStatus.PREPARING, ReconciliationJob.JobStatus.PROCESSING);
+    
     /**
      * Crée un nouveau job de réconciliation
      */
@@ -70,6 +82,33 @@ public class ReconciliationJobService {
         return jobId;
     }
     
+    /**
+     * Crée un job pour une réconciliation dont les données sont déjà en mémoire (requête JSON)
+     */
+    @Transactional
+    public String createJob(String clientId) {
+        String jobId = "job_" + System.currentTimeMillis() + "_" + UUID.randomUUID().toString().substring(0, 8);
+        
+        ReconciliationJob job = new ReconciliationJob();
+        job.setJobId(jobId);
+        job.setStatus(ReconciliationJob.JobStatus.PENDING);
+        job.setClientId(clientId);
+        jobRepository.save(job);
+        
+        log.info("Job créé: {} pour client: {}", jobId, clientId);
+        return jobId;
+    }
+    
+    /**
+     * Passe un job en cours de traitement (sauf s'il a été annulé entre-temps)
+     * @return false si le job n'existe pas ou a été annulé
+     */
+    @Transactional
+    public boolean markProcessing(String jobId) {
+        return jobRepository.transitionStatus(jobId, EnumSet.of(ReconciliationJob.JobStatus.PENDING),
+            ReconciliationJob.JobStatus.PROCESSING, LocalDateTime.now()) == 1;
+    }
+    
     /**
      * Met à jour la progression d'un job
      */
@@ -93,39 +132,43 @@ public class ReconciliationJobService {
     }
     
     /**
-     * Marque un job comme terminé avec succès
+     * Enregistre le résultat d'un job en cours puis le marque comme terminé avec succès.
+     * Le job est verrouillé pendant l'enregistrement : un job annulé entre-temps reste annulé, et une annulation
+     * concurrente attend la fin de la transaction.
+     * @return false si le job n'existe pas ou n'est plus en cours (annulé, échoué)
+     * @throws UncheckedIOException si l'écriture des résultats échoue : la transaction est annulée (aucun bloc
+     *         enregistré) et le job reste en cours, à marquer en échec par l'appelant
      */
     @Transactional
-    public void completeJob(String jobId, ReconciliationResponse result) {
-        Optional<ReconciliationJob> jobOpt = jobRepository.findByJobId(jobId);
-        if (jobOpt.isPresent()) {
-            ReconciliationJob job = jobOpt.get();
-            try {
-                log.info("💾 Sauvegarde des résultats pour le job: {}", jobId);
-                log.info("📊 Détails des résultats:");
-                log.info("  - totalMatches: {}", result.getTotalMatches());
-                log.info("  - totalMismatches: {}", result.getTotalMismatches());
-                log.info("  - totalBoOnly: {}", result.getTotalBoOnly());
-                log.info("  - totalPartnerOnly: {}", result.getTotalPartnerOnly());
-                log.info("  - totalBoRecords: {}", result.getTotalBoRecords());
-                log.info("  - totalPartnerRecords: {}", result.getTotalPartnerRecords());
-                log.info("  - matches size: {}", result.getMatches() != null ? result.getMatches().size() : 0);
-                log.info("  - mismatches size: {}", result.getMismatches() != null ? result.getMismatches().size() : 0);
-                log.info("  - boOnly size: {}", result.getBoOnly() != null ? result.getBoOnly().size() : 0);
-                log.info("  - partnerOnly size: {}", result.getPartnerOnly() != null ? result.getPartnerOnly().size() : 0);
-                
-                job.setResultJson(objectMapper.writeValueAsString(result));
-                job.setStatus(ReconciliationJob.JobStatus.COMPLETED);
-                job.setCompletedAt(LocalDateTime.now());
-                jobRepository.save(job);
-                
-                log.info("✅ Job terminé avec succès: {} - Résultats sauvegardés", jobId);
-            } catch (JsonProcessingException e) {
-                log.error("❌ Erreur lors de la sérialisation du résultat", e);
-            }
-        } else {
-            log.error("❌ Job non trouvé pour sauvegarde: {}", jobId);
+    public boolean completeJob(String jobId, ReconciliationResponse result) {
+        Optional<ReconciliationJob> jobOpt = jobRepository.findByJobIdForUpdate(jobId);
+        if (jobOpt.isEmpty() || jobOpt.get().getStatus() != ReconciliationJob.JobStatus.PROCESSING) {
+            log.warn("⚠️ Job {} introuvable ou plus en cours, résultat ignoré", jobId);
+            return false;
         }
+        ReconciliationJob job = jobOpt.get();
+        log.info("💾 Sauvegarde des résultats pour le job: {}", jobId);
+        log.info("📊 Détails des résultats:");
+        log.info("  - totalMatches: {}", result.getTotalMatches());
+        log.info("  - totalMismatches: {}", result.getTotalMismatches());
+        log.info("  - totalBoOnly: {}", result.getTotalBoOnly());
+        log.info("  - totalPartnerOnly: {}", result.getTotalPartnerOnly());
+        log.info("  - totalBoRecords: {}", result.getTotalBoRecords());
+        log.info("  - totalPartnerRecords: {}", result.getTotalPartnerRecords());
+        log.info("  - matches size: {}", result.getMatches() != null ? result.getMatches().size() : 0);
+        log.info("  - mismatches size: {}", result.getMismatches() != null ? result.getMismatches().size() : 0);
+        log.info("  - boOnly size: {}", result.getBoOnly() != null ? result.getBoOnly().size() : 0);
+        log.info("  - partnerOnly size: {}", result.getPartnerOnly() != null ? result.getPartnerOnly().size() : 0);
+        
+        // Lignes stockées par blocs, compteurs dans les colonnes du job ; la transition n'a lieu qu'ensuite
+        resultStore.saveResult(job, result);
+        job.setResultJson(null);
+        job.setStatus(ReconciliationJob.JobStatus.COMPLETED);
+        job.setCompletedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        
+        log.info("✅ Job terminé avec succès: {} - Résultats sauvegardés", jobId);
+        return true;
     }
     
     /**
@@ -133,11 +176,14 @@ public class ReconciliationJobService {
      */
     @Transactional
     public void failJob(String jobId, String error) {
+        if (jobRepository.transitionStatus(jobId, ACTIVE_STATUSES, ReconciliationJob.JobStatus.FAILED, LocalDateTime.now()) == 0) {
+            log.warn("⚠️ Job {} introuvable ou déjà terminé, échec non enregistré: {}", jobId, error);
+            return;
+        }
         Optional<ReconciliationJob> jobOpt = jobRepository.findByJobId(jobId);
         if (jobOpt.isPresent()) {
             ReconciliationJob job = jobOpt.get();
             job.setErrorMessage(error);
-            job.setStatus(ReconciliationJob.JobStatus.FAILED);
             job.setCompletedAt(LocalDateTime.now());
             jobRepository.save(job);
             
@@ -148,21 +194,20 @@ public class ReconciliationJobService {
     }
     
     /**
-     * Annule un job
+     * Annule un job en file ou en cours
+     * @return false si le job n'existe pas ou est déjà terminé (terminé, échoué ou annulé)
      */
     @Transactional
-    public void cancelJob(String jobId) {
-        Optional<ReconciliationJob> jobOpt = jobRepository.findByJobId(jobId);
-        if (jobOpt.isPresent()) {
-            ReconciliationJob job = jobOpt.get();
-            job.setStatus(ReconciliationJob.JobStatus.CANCELLED);
+    public boolean cancelJob(String jobId) {
+        if (jobRepository.transitionStatus(jobId, ACTIVE_STATUSES, ReconciliationJob.JobStatus.CANCELLED, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        jobRepository.findByJobId(jobId).ifPresent(job -> {
             job.setCompletedAt(LocalDateTime.now());
             jobRepository.save(job);
-            
-            // Job annulé
-            
-            log.info("Job annulé: {}", jobId);
-        }
+        });
+        log.info("Job annulé: {}", jobId);
+        return true;
     }
     
     /**
@@ -172,6 +217,76 @@ public class ReconciliationJobService {
         return jobRepository.findByJobId(jobId);
     }
     
+    /**
+     * Indique si un résultat est disponible pour le job (blocs ou ancien format result_json)
+     */
+    public boolean hasResult(ReconciliationJob job) {
+        return job.getTotalMatches() != null || job.getResultJson() != null;
+    }
+    
+    /**
+     * Résultat complet du job, ou null si aucun résultat n'est disponible
+     */
+    public ReconciliationResponse loadResult(ReconciliationJob job) throws IOException {
+        if (job.getTotalMatches() != null) {
+            return resultStore.loadFullResult(job);
+        }
+        if (job.getResultJson() != null) {
+            return objectMapper.readValue(job.getResultJson(), ReconciliationResponse.class);
+        }
+        return null;
+    }
+    
+    /**
+     * Nombre total de lignes d'une catégorie de résultat (lu dans les compteurs du job)
+     */
+    public int getResultTotal(ReconciliationJob job, ResultCategory category) throws IOException {
+        if (job.getTotalMatches() == null) {
+            return legacyRows(job, category).size();
+        }
+        Integer total;
+        switch (category) {
+            case MATCHES: total = job.getTotalMatches(); break;
+            case MISMATCHES: total = job.getTotalMismatches(); break;
+            case BO_ONLY: total = job.getTotalBoOnly(); break;
+            default: total = job.getTotalPartnerOnly(); break;
+        }
+        return total != null ? total : 0;
+    }
+    
+    /**
+     * Page de lignes d'une catégorie : seuls les blocs recouvrant la page sont lus
+     */
+    public List<?> getResultPage(ReconciliationJob job, ResultCategory category, int page, int size) throws IOException {
+        if (job.getTotalMatches() == null) {
+            List<?> rows = legacyRows(job, category);
+            int start = page * size;
+            return start < rows.size() ? rows.subList(start, Math.min(start + size, rows.size())) : new ArrayList<>();
+        }
+        if (category == ResultCategory.MATCHES) {
+            return resultStore.getMatchesPage(job.getJobId(), page, size);
+        }
+        return resultStore.getRecordsPage(job.getJobId(), category, page, size);
+    }
+    
+    /**
+     * Lignes d'une catégorie pour les jobs enregistrés avant le stockage par blocs
+     */
+    private List<?> legacyRows(ReconciliationJob job, ResultCategory category) throws IOException {
+        if (job.getResultJson() == null) {
+            return Collections.emptyList();
+        }
+        ReconciliationResponse result = objectMapper.readValue(job.getResultJson(), ReconciliationResponse.class);
+        List<?> rows;
+        switch (category) {
+            case MATCHES: rows = result.getMatches(); break;
+            case MISMATCHES: rows = result.getMismatches(); break;
+            case BO_ONLY: rows = result.getBoOnly(); break;
+            default: rows = result.getPartnerOnly(); break;
+        }
+        return rows != null ? rows : Collections.emptyList();
+    }
+    
     /**
      * Sauvegarde un fichier uploadé
      */
@@ -1,13 +1,21 @@
 package com.reconciliation.service;
 
 import com.reconciliation.model.ReconciliationProgress;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ReconciliationProgressService {
     private final ConcurrentHashMap<String, ReconciliationProgress> progressMap = new ConcurrentHashMap<>();
+    // Instant de fin des jobs terminés (terminé, échoué, annulé), pour expirer leur progression
+    private final ConcurrentHashMap<String, Long> finishedAt = new ConcurrentHashMap<>();
+
+    @Value("${reconciliation.progress.retention-minutes:10}")
+    private long retentionMinutes;
 
     public void updateProgress(String sessionId, ReconciliationProgress progress) {
         progressMap.put(sessionId, progress);
@@ -17,12 +25,38 @@ public class ReconciliationProgressService {
         return progressMap.getOrDefault(sessionId, new ReconciliationProgress(0, "En attente", 0, 0));
     }
 
+    /**
+     * Progression connue pour le job, ou null (job jamais suivi ou progression expirée)
+     */
+    public ReconciliationProgress findProgress(String sessionId) {
+        return progressMap.get(sessionId);
+    }
+
     public void clearProgress(String sessionId) {
         progressMap.remove(sessionId);
+        finishedAt.remove(sessionId);
     }
 
     public void createJob(String jobId, String message) {
         ReconciliationProgress progress = new ReconciliationProgress(0, message, 0, 0);
         progressMap.put(jobId, progress);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Dernière progression d'un job arrivé dans un état terminal, conservée retentionMinutes puis supprimée
+     */
+    public void finishJob(String jobId, ReconciliationProgress progress) {
+        progressMap.put(jobId, progress);
+        finishedAt.put(jobId, System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.MINUTES)
+    public void evictFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        finishedAt.forEach((jobId, finished) -> {
+            if (finished < cutoff && finishedAt.remove(jobId, finished)) {
+                progressMap.remove(jobId);
+            }
+        });
+    }
+}
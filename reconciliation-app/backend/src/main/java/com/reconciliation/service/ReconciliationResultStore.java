@@ -0,0 +1,189 @@
+package com.reconciliation.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reconciliation.dto.ReconciliationResponse;
+import com.reconciliation.entity.ReconciliationJob;
+import com.reconciliation.entity.ReconciliationJobResultChunk;
+import com.reconciliation.entity.ReconciliationJobResultChunk.ResultCategory;
+import com.reconciliation.repository.ReconciliationJobResultChunkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stockage des résultats de jobs par blocs : chaque catégorie (matches, mismatches, boOnly, partnerOnly)
+ * est découpée en blocs de {@link #CHUNK_SIZE} lignes compressés, adressables individuellement.
+ * Une page ne charge que les blocs qui la recouvrent.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReconciliationResultStore {
+    
+    public static final int CHUNK_SIZE = 1000;
+    private static final int SAVE_BATCH_SIZE = 50;
+    
+    private final ReconciliationJobResultChunkRepository chunkRepository;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Enregistre les lignes du résultat par blocs et recopie les compteurs sur le job
+     */
+    @Transactional
+    public void saveResult(ReconciliationJob job, ReconciliationResponse result) {
+        String jobId = job.getJobId();
+        chunkRepository.deleteByJobId(jobId);
+        
+        int chunkCount = saveCategory(jobId, ResultCategory.MATCHES, result.getMatches())
+            + saveCategory(jobId, ResultCategory.MISMATCHES, result.getMismatches())
+            + saveCategory(jobId, ResultCategory.BO_ONLY, result.getBoOnly())
+            + saveCategory(jobId, ResultCategory.PARTNER_ONLY, result.getPartnerOnly());
+        
+        job.setTotalMatches(result.getTotalMatches());
+        job.setTotalMismatches(result.getTotalMismatches());
+        job.setTotalBoOnly(result.getTotalBoOnly());
+        job.setTotalPartnerOnly(result.getTotalPartnerOnly());
+        job.setTotalBoRecords(result.getTotalBoRecords());
+        job.setTotalPartnerRecords(result.getTotalPartnerRecords());
+        job.setExecutionTimeMs(result.getExecutionTimeMs());
+        job.setProcessedRecords(result.getProcessedRecords());
+        
+        log.info("💾 {} blocs de résultats enregistrés pour le job {}", chunkCount, jobId);
+    }
+    
+    /**
+     * Indique si les résultats du job sont stockés par blocs (sinon: ancien format result_json)
+     */
+    public boolean hasChunks(String jobId) {
+        return chunkRepository.existsByJobId(jobId);
+    }
+    
+    /**
+     * Page de correspondances
+     */
+    public List<ReconciliationResponse.Match> getMatchesPage(String jobId, int page, int size) {
+        return readRange(jobId, ResultCategory.MATCHES, page, size,
+            objectMapper.getTypeFactory().constructType(ReconciliationResponse.Match.class));
+    }
+    
+    /**
+     * Page de lignes (mismatches, boOnly, partnerOnly)
+     */
+    public List<Map<String, String>> getRecordsPage(String jobId, ResultCategory category, int page, int size) {
+        JavaType rowType = objectMapper.getTypeFactory().constructMapType(Map.class, String.class, String.class);
+        return readRange(jobId, category, page, size, rowType);
+    }
+    
+    /**
+     * Reconstitue le résultat complet (endpoints historiques renvoyant toutes les lignes)
+     */
+    public ReconciliationResponse loadFullResult(ReconciliationJob job) {
+        JavaType rowType = objectMapper.getTypeFactory().constructMapType(Map.class, String.class, String.class);
+        ReconciliationResponse result = new ReconciliationResponse();
+        result.setMatches(readAll(job.getJobId(), ResultCategory.MATCHES,
+            objectMapper.getTypeFactory().constructType(ReconciliationResponse.Match.class)));
+        result.setMismatches(readAll(job.getJobId(), ResultCategory.MISMATCHES, rowType));
+        result.setBoOnly(readAll(job.getJobId(), ResultCategory.BO_ONLY, rowType));
+        result.setPartnerOnly(readAll(job.getJobId(), ResultCategory.PARTNER_ONLY, rowType));
+        result.setTotalMatches(valueOrZero(job.getTotalMatches()));
+        result.setTotalMismatches(valueOrZero(job.getTotalMismatches()));
+        result.setTotalBoOnly(valueOrZero(job.getTotalBoOnly()));
+        result.setTotalPartnerOnly(valueOrZero(job.getTotalPartnerOnly()));
+        result.setTotalBoRecords(valueOrZero(job.getTotalBoRecords()));
+        result.setTotalPartnerRecords(valueOrZero(job.getTotalPartnerRecords()));
+        result.setExecutionTimeMs(job.getExecutionTimeMs() != null ? job.getExecutionTimeMs() : 0L);
+        result.setProcessedRecords(valueOrZero(job.getProcessedRecords()));
+        result.setProgressPercentage(100.0);
+        return result;
+    }
+    
+    private int saveCategory(String jobId, ResultCategory category, List<?> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        List<ReconciliationJobResultChunk> batch = new ArrayList<>(SAVE_BATCH_SIZE);
+        int chunkIndex = 0;
+        for (int start = 0; start < rows.size(); start += CHUNK_SIZE, chunkIndex++) {
+            List<?> slice = rows.subList(start, Math.min(start + CHUNK_SIZE, rows.size()));
+            batch.add(new ReconciliationJobResultChunk(null, jobId, category, chunkIndex, slice.size(), compress(slice)));
+            if (batch.size() >= SAVE_BATCH_SIZE) {
+                chunkRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            chunkRepository.saveAll(batch);
+        }
+        return chunkIndex;
+    }
+    
+    private <T> List<T> readRange(String jobId, ResultCategory category, int page, int size, JavaType elementType) {
+        if (page < 0 || size <= 0) {
+            return Collections.emptyList();
+        }
+        long start = (long) page * size;
+        long end = start + size;
+        int firstChunk = (int) (start / CHUNK_SIZE);
+        int lastChunk = (int) ((end - 1) / CHUNK_SIZE);
+        
+        List<ReconciliationJobResultChunk> chunks = chunkRepository
+            .findByJobIdAndCategoryAndChunkIndexBetweenOrderByChunkIndexAsc(jobId, category, firstChunk, lastChunk);
+        
+        List<T> pageRows = new ArrayList<>(size);
+        for (ReconciliationJobResultChunk chunk : chunks) {
+            long chunkStart = (long) chunk.getChunkIndex() * CHUNK_SIZE;
+            List<T> rows = decompress(chunk.getPayload(), elementType);
+            int from = (int) Math.max(0, start - chunkStart);
+            int to = (int) Math.min(rows.size(), end - chunkStart);
+            if (from < to) {
+                pageRows.addAll(rows.subList(from, to));
+            }
+        }
+        return pageRows;
+    }
+    
+    private <T> List<T> readAll(String jobId, ResultCategory category, JavaType elementType) {
+        List<T> rows = new ArrayList<>();
+        for (ReconciliationJobResultChunk chunk : chunkRepository.findByJobIdAndCategoryOrderByChunkIndexAsc(jobId, category)) {
+            rows.addAll(this.<T>decompress(chunk.getPayload(), elementType));
+        }
+        return rows;
+    }
+    
+    private byte[] compress(List<?> rows) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            objectMapper.writeValue(out, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erreur lors de la compression d'un bloc de résultats", e);
+        }
+        return buffer.toByteArray();
+    }
+    
+    private <T> List<T> decompress(byte[] payload, JavaType elementType) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(in, objectMapper.getTypeFactory().constructCollectionType(List.class, elementType));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erreur lors de la lecture d'un bloc de résultats", e);
+        }
+    }
+    
+    private int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
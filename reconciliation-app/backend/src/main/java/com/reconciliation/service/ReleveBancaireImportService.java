@@ -3,13 +3,10 @@ package com.reconciliation.service;
 import com.reconciliation.dto.ReleveBancaireRow;
 import com.reconciliation.repository.CompteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.DateUtil;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -19,36 +16,47 @@ public class ReleveBancaireImportService {
 
     private static final Map<String, String> HEADER_ALIASES = buildAliases();
 
+    // Ligne d'entêtes : celle qui contient le plus de colonnes reconnues (6 suffisent)
+    private static final TabularFileReader.HeaderDetector HEADER_DETECTOR = new TabularFileReader.HeaderDetector() {
+        @Override
+        public int score(List<String> values) {
+            int score = 0;
+            for (String raw : values) {
+                if (HEADER_ALIASES.containsKey(normalize(raw))) score++;
+            }
+            return score;
+        }
+
+        @Override
+        public int sufficientScore() {
+            return 6;
+        }
+    };
+
     @Autowired
     private CompteRepository compteRepository;
+    @Autowired
+    private TabularFileReader tabularFileReader;
 
     public com.reconciliation.dto.ReleveImportResult parseFileWithAlerts(MultipartFile file) throws Exception {
         String filename = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
-        try (InputStream is = file.getInputStream(); Workbook wb = createWorkbook(filename, is)) {
-            Sheet sheet = wb.getSheetAt(0);
-            if (sheet == null) return new com.reconciliation.dto.ReleveImportResult(new ArrayList<>(), 0, 0, new ArrayList<>());
-
+        if (!filename.endsWith(".xlsx") && !filename.endsWith(".xlsm") && !filename.endsWith(".xls") && !filename.endsWith(".csv")) {
+            throw new IllegalArgumentException("Format non supporté: " + filename);
+        }
+        // Trouver dynamiquement la ligne d'entêtes (fichiers avec bannières hautes) parmi les 50 premières lignes
+        try (TabularFileReader.RowCursor cursor = tabularFileReader.open(file.getInputStream(), filename, null, HEADER_DETECTOR, 51)) {
             // Detect headers row and map columns
-            // Trouver dynamiquement la ligne d'entêtes (fichiers avec bannières hautes)
-            int headerRowIdx = findBestHeaderRow(sheet, 50);
-            Row header = sheet.getRow(headerRowIdx);
-            Map<String, Integer> colIndex = mapHeaders(header);
+            Map<String, String> colIndex = mapHeaders(cursor.getHeaders());
             List<String> unmapped = new ArrayList<>();
-            if (header != null) {
-                for (int i = header.getFirstCellNum(); i < header.getLastCellNum(); i++) {
-                    Cell c = header.getCell(i);
-                    String raw = (c != null) ? c.toString() : null;
-                    if (raw == null) continue;
-                    String norm = normalize(raw);
-                    if (!HEADER_ALIASES.containsKey(norm)) {
-                        unmapped.add(raw);
-                    }
+            for (String raw : cursor.getHeaders()) {
+                if (raw.isEmpty()) continue;
+                if (!HEADER_ALIASES.containsKey(normalize(raw))) {
+                    unmapped.add(raw);
                 }
             }
             List<ReleveBancaireRow> rows = new ArrayList<>();
-            for (int r = headerRowIdx + 1; r <= sheet.getLastRowNum(); r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) continue;
+            while (cursor.hasNext()) {
+                Map<String, String> row = cursor.next();
                 ReleveBancaireRow dto = new ReleveBancaireRow();
                 dto.nomCompte = getString(row, colIndex.get("nomCompte"));
                 dto.numeroCompte = getString(row, colIndex.get("numeroCompte"));
@@ -169,42 +177,11 @@ public class ReleveBancaireImportService {
         return String.join("|", num, dc, dv, lib, String.valueOf(cents));
     }
 
-    private static Workbook createWorkbook(String filename, InputStream is) throws Exception {
-        if (filename.endsWith(".xlsx") || filename.endsWith(".xlsm")) {
-            return new XSSFWorkbook(is);
-        } else if (filename.endsWith(".xls")) {
-            return new HSSFWorkbook(is);
-        } else if (filename.endsWith(".csv")) {
-            // Convert CSV to a Workbook-like structure for reuse
-            List<String> lines = new java.io.BufferedReader(new java.io.InputStreamReader(is)).lines().toList();
-            org.apache.poi.ss.usermodel.Workbook wb = new XSSFWorkbook();
-            org.apache.poi.ss.usermodel.Sheet sheet = wb.createSheet();
-            int r = 0;
-            for (String line : lines) {
-                Row row = sheet.createRow(r++);
-                String[] parts = line.split(",");
-                for (int i = 0; i < parts.length; i++) {
-                    Cell cell = row.createCell(i, CellType.STRING);
-                    cell.setCellValue(parts[i]);
-                }
-            }
-            return wb;
-        } else {
-            // Tenter CSV via Apache POI (simple): fallback simple en lisant comme texte
-            throw new IllegalArgumentException("Format non supporté: " + filename);
-        }
-    }
-
-    private static Map<String, Integer> mapHeaders(Row headerRow) {
-        Map<String, Integer> map = new HashMap<>();
-        if (headerRow == null) return map;
-        for (int i = headerRow.getFirstCellNum(); i < headerRow.getLastCellNum(); i++) {
-            Cell c = headerRow.getCell(i);
-            String raw = (c != null) ? c.toString() : null;
-            if (raw == null) continue;
-            String key = normalize(raw);
-            String std = HEADER_ALIASES.get(key);
-            if (std != null) map.put(std, i);
+    private static Map<String, String> mapHeaders(List<String> headers) {
+        Map<String, String> map = new HashMap<>();
+        for (String raw : headers) {
+            String std = HEADER_ALIASES.get(normalize(raw));
+            if (std != null) map.put(std, raw);
         }
         return map;
     }
@@ -220,30 +197,6 @@ public class ReleveBancaireImportService {
                 .trim();
     }
 
-    // Recherche la meilleure ligne d'entêtes en scannant les N premières lignes
-    private static int findBestHeaderRow(Sheet sheet, int maxScan) {
-        int first = sheet.getFirstRowNum();
-        int last = Math.min(sheet.getLastRowNum(), first + Math.max(5, maxScan));
-        int bestRow = first;
-        int bestScore = -1;
-        for (int r = first; r <= last; r++) {
-            Row row = sheet.getRow(r);
-            if (row == null) continue;
-            int score = 0;
-            for (int i = row.getFirstCellNum(); i < row.getLastCellNum(); i++) {
-                Cell c = row.getCell(i);
-                String raw = (c != null) ? c.toString() : null;
-                if (raw == null) continue;
-                String norm = normalize(raw);
-                if (HEADER_ALIASES.containsKey(norm)) score++;
-            }
-            if (score > bestScore) { bestScore = score; bestRow = r; }
-            // Court-circuit si score suffisant
-            if (score >= 6) break;
-        }
-        return bestRow;
-    }
-
     private static Map<String, String> buildAliases() {
         Map<String, String> m = new HashMap<>();
         // Canonical keys → our fields
@@ -350,25 +303,18 @@ public class ReleveBancaireImportService {
         return m;
     }
 
-    private static String getString(Row row, Integer idx) {
-        if (idx == null) return null;
-        Cell c = row.getCell(idx);
-        if (c == null) return null;
-        c.setCellType(CellType.STRING);
-        String s = c.getStringCellValue();
+    private static String getString(Map<String, String> row, String column) {
+        if (column == null) return null;
+        String s = row.get(column);
         return (s != null && !s.isBlank()) ? s.trim() : null;
     }
 
-    private static Double getNumber(Row row, Integer idx) {
-        if (idx == null) return null;
-        Cell c = row.getCell(idx);
-        if (c == null) return null;
+    private static Double getNumber(Map<String, String> row, String column) {
+        String s = getString(row, column);
+        if (s == null) return null;
         try {
-            if (c.getCellType() == CellType.NUMERIC) return c.getNumericCellValue();
-            String s = c.toString();
-            if (s == null) return null;
-            s = s.trim();
-            if (s.isEmpty()) return null;
+            // Nombre Excel (lu sans séparateur de milliers)
+            try { return Double.parseDouble(s); } catch (NumberFormatException ignore) {}
             
             // Support ECOBANK: Supprimer XAF, XOF et autres devises
             s = s.replaceAll("(?i)(xaf|xof|usd|eur|cfa)\\s*", "");
@@ -395,27 +341,22 @@ public class ReleveBancaireImportService {
         } catch (Exception e) { return null; }
     }
 
-    private static LocalDate getDate(Row row, Integer idx) {
-        if (idx == null) return null;
-        Cell c = row.getCell(idx);
-        if (c == null) return null;
+    private static LocalDate getDate(Map<String, String> row, String column) {
+        String s = getString(row, column);
+        if (s == null) return null;
         try {
-            // 1) Vrai format date Excel
-            if (DateUtil.isCellDateFormatted(c)) {
-                return c.getLocalDateTimeCellValue().toLocalDate();
+            // 1) Vrai format date Excel (lu au format ISO)
+            java.time.LocalDateTime iso = TabularFileReader.toDateTime(s);
+            if (iso != null) {
+                return iso.toLocalDate();
             }
             // 2) Valeur numérique Excel (saisie comme nombre, non formatée)
-            if (c.getCellType() == CellType.NUMERIC) {
-                double v = c.getNumericCellValue();
+            if (s.matches("\\d{1,5}(\\.\\d+)?")) {
+                double v = Double.parseDouble(s);
                 if (DateUtil.isValidExcelDate(v)) {
-                    java.util.Date d = DateUtil.getJavaDate(v);
-                    return d.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+                    return DateUtil.getLocalDateTime(v).toLocalDate();
                 }
             }
-            String s = c.toString();
-            if (s == null) return null;
-            s = s.trim();
-            if (s.isBlank()) return null;
             // Try multiple patterns (case-insensitive)
             // Normaliser multiples espaces/points au besoin
             s = s.replaceAll("\\s+", " ").replace('.', '-').replace('/', '-');
@@ -0,0 +1,230 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.OperationEntity;
+import com.reconciliation.repository.OperationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Soldes chaînés (soldeAvant / soldeApres) des opérations d'un compte.
+ *
+ * Les recalculs partent du point modifié : seules les opérations postérieures du compte sont lues
+ * (colonnes utiles uniquement, via l'index compte/date) et seules les lignes dont le solde change sont
+ * réécrites, par lots JDBC.
+ */
+@Service
+public class RunningBalanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunningBalanceService.class);
+
+    private static final int UPDATE_BATCH_SIZE = 1000;
+    private static final String UPDATE_SOLDES_SQL = "UPDATE operation SET solde_avant = ?, solde_apres = ? WHERE id = ?";
+
+    /**
+     * Impact d'une opération sur le solde du compte
+     */
+    @FunctionalInterface
+    public interface ImpactFunction {
+        double impact(String typeOperation, double montant, String service);
+    }
+
+    @Autowired
+    private OperationRepository operationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Solde juste avant une date : soldeApres de l'opération précédente du compte (0 si aucune)
+     */
+    public double getSoldeAvant(Long compteId, LocalDateTime dateOperation) {
+        return operationRepository
+            .findFirstByCompteIdAndDateOperationBeforeOrderByDateOperationDescIdDesc(compteId, dateOperation)
+            .map(OperationEntity::getSoldeApres)
+            .orElse(0.0);
+    }
+
+    /**
+     * Dernière opération du compte (toutes opérations confondues)
+     */
+    public Optional<OperationEntity> getDerniereOperation(Long compteId) {
+        return operationRepository.findFirstByCompteIdOrderByDateOperationDescIdDesc(compteId);
+    }
+
+    /**
+     * Recalcule les soldes des opérations postérieures à une date en partant d'un solde donné
+     * @return le solde après la dernière opération du compte (le solde de départ si aucune opération postérieure)
+     */
+    @Transactional
+    public double recalculerApres(Long compteId, LocalDateTime dateOperation, double soldeDepart, ImpactFunction impactFunction) {
+        List<Object[]> chain = operationRepository.findSoldeChainAfter(compteId, dateOperation);
+        List<Object[]> updates = new ArrayList<>();
+
+        double soldeCourant = soldeDepart;
+        for (Object[] row : chain) {
+            Long id = (Long) row[0];
+            String typeOperation = (String) row[1];
+            double montant = ((Number) row[2]).doubleValue();
+            String service = (String) row[3];
+
+            double soldeAvant = soldeCourant;
+            soldeCourant += impactFunction.impact(typeOperation, montant, service);
+            if (!Objects.equals(row[4], soldeAvant) || !Objects.equals(row[5], soldeCourant)) {
+                updates.add(new Object[]{soldeAvant, soldeCourant, id});
+            }
+        }
+
+        for (int start = 0; start < updates.size(); start += UPDATE_BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(UPDATE_SOLDES_SQL, updates.subList(start, Math.min(start + UPDATE_BATCH_SIZE, updates.size())));
+        }
+        logger.debug("🔄 Soldes recalculés pour le compte {}: {} opération(s) postérieure(s), {} mise(s) à jour",
+            compteId, chain.size(), updates.size());
+        return soldeCourant;
+    }
+
+    /**
+     * Validation groupée d'opérations d'un même compte, en un seul passage sur la chaîne des soldes.
+     *
+     * Résultat identique à des validations unitaires successives dans l'ordre chronologique (date, id) :
+     * chaque opération validée repart du solde de l'opération précédant sa date, et les opérations de date
+     * strictement postérieure sont rechaînées depuis la dernière opération validée.
+     * @return le solde après la dernière opération validée (solde provisoire du compte)
+     */
+    @Transactional
+    public double recalculerValidations(Long compteId, List<OperationEntity> operationsValidees, ImpactFunction impactFunction) {
+        Set<Long> validatedIds = new HashSet<>();
+        LocalDateTime dateDebut = null;
+        for (OperationEntity operation : operationsValidees) {
+            validatedIds.add(operation.getId());
+            if (dateDebut == null || operation.getDateOperation().isBefore(dateDebut)) {
+                dateDebut = operation.getDateOperation();
+            }
+        }
+        if (dateDebut == null) {
+            return 0.0;
+        }
+
+        double soldeBase = getSoldeAvant(compteId, dateDebut);
+        List<ChainRow> rows = new ArrayList<>();
+        for (Object[] row : operationRepository.findSoldeChainFrom(compteId, dateDebut)) {
+            rows.add(new ChainRow((Long) row[0], (LocalDateTime) row[6], (String) row[1],
+                ((Number) row[2]).doubleValue(), (String) row[3], (Double) row[4], (Double) row[5]));
+        }
+
+        double soldeFinal = chainerValidations(rows, validatedIds, soldeBase, impactFunction);
+
+        List<Object[]> updates = new ArrayList<>();
+        for (ChainRow row : rows) {
+            if (row.changed) {
+                updates.add(new Object[]{row.soldeAvant, row.soldeApres, row.id});
+            }
+        }
+        for (int start = 0; start < updates.size(); start += UPDATE_BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(UPDATE_SOLDES_SQL, updates.subList(start, Math.min(start + UPDATE_BATCH_SIZE, updates.size())));
+        }
+        logger.info("🔄 Validation groupée sur le compte {}: {} opération(s) validée(s), {} solde(s) mis à jour",
+            compteId, validatedIds.size(), updates.size());
+        return soldeFinal;
+    }
+
+    /**
+     * Rejoue les validations sur la chaîne triée par (date, id), en mémoire
+     * - les opérations d'un groupe de même date sont rechaînées si une validation antérieure est active
+     * - une opération validée repart du solde final de la dernière opération de date antérieure
+     * - la chaîne des dates suivantes repart de la dernière opération validée du groupe
+     */
+    static double chainerValidations(List<ChainRow> rows, Set<Long> validatedIds, double soldeBase, ImpactFunction impactFunction) {
+        double soldePrecedent = soldeBase;
+        double soldeChaine = 0.0;
+        boolean chaineActive = false;
+        double soldeFinal = soldeBase;
+
+        int start = 0;
+        while (start < rows.size()) {
+            int end = start;
+            LocalDateTime date = rows.get(start).dateOperation;
+            while (end < rows.size() && rows.get(end).dateOperation.equals(date)) {
+                end++;
+            }
+
+            ChainRow derniereValidee = null;
+            for (int i = start; i < end; i++) {
+                ChainRow row = rows.get(i);
+                double impact = impactFunction.impact(row.typeOperation, row.montant, row.service);
+                if (chaineActive) {
+                    row.set(soldeChaine, soldeChaine + impact);
+                    soldeChaine += impact;
+                }
+                if (validatedIds.contains(row.id)) {
+                    row.set(soldePrecedent, soldePrecedent + impact);
+                    derniereValidee = row;
+                }
+            }
+            if (derniereValidee != null) {
+                chaineActive = true;
+                soldeChaine = derniereValidee.soldeApres;
+                soldeFinal = derniereValidee.soldeApres;
+            }
+            soldePrecedent = rows.get(end - 1).soldeApres;
+            start = end;
+        }
+        return soldeFinal;
+    }
+
+    /**
+     * Ligne de la chaîne des soldes d'un compte
+     */
+    static final class ChainRow {
+        final Long id;
+        final LocalDateTime dateOperation;
+        final String typeOperation;
+        final double montant;
+        final String service;
+        Double soldeAvant;
+        Double soldeApres;
+        boolean changed;
+
+        ChainRow(Long id, LocalDateTime dateOperation, String typeOperation, double montant, String service,
+                 Double soldeAvant, Double soldeApres) {
+            this.id = id;
+            this.dateOperation = dateOperation;
+            this.typeOperation = typeOperation;
+            this.montant = montant;
+            this.service = service;
+            this.soldeAvant = soldeAvant;
+            this.soldeApres = soldeApres;
+        }
+
+        void set(double nouveauSoldeAvant, double nouveauSoldeApres) {
+            if (!Objects.equals(soldeAvant, nouveauSoldeAvant) || !Objects.equals(soldeApres, nouveauSoldeApres)) {
+                soldeAvant = nouveauSoldeAvant;
+                soldeApres = nouveauSoldeApres;
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * Décale les soldes des opérations postérieures à une date (même impact pour toutes) en une seule requête
+     * @return le nombre d'opérations décalées
+     */
+    @Transactional
+    public int decalerApres(Long compteId, LocalDateTime dateOperation, double delta) {
+        if (delta == 0.0) {
+            return 0;
+        }
+        return operationRepository.shiftSoldesAfter(compteId, dateOperation, delta);
+    }
+}
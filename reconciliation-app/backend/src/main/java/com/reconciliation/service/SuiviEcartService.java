@@ -4,9 +4,6 @@ import com.reconciliation.entity.SuiviEcartEntity;
 import com.reconciliation.model.SuiviEcart;
 import com.reconciliation.repository.SuiviEcartRepository;
 import com.reconciliation.util.RequestContextUtil;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +24,9 @@ public class SuiviEcartService {
     @Autowired
     private SuiviEcartRepository suiviEcartRepository;
     
+    @Autowired
+    private TabularFileReader tabularFileReader;
+    
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
     // Classe pour stocker les résultats de l'upload
@@ -243,18 +243,19 @@ public class SuiviEcartService {
     private List<SuiviEcart> parseExcelFile(MultipartFile file) throws IOException {
         List<SuiviEcart> suiviEcarts = new ArrayList<>();
         
-        try (Workbook workbook = createWorkbook(file)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) { // Commencer à 1 pour ignorer l'en-tête
-                Row row = sheet.getRow(i);
-                if (row != null) {
-                    try {
-                        SuiviEcart suiviEcart = parseFromExcelRow(row);
-                        suiviEcarts.add(suiviEcart);
-                    } catch (Exception e) {
-                        System.err.println("Erreur lors du parsing de la ligne Excel " + (i + 1) + ": " + e.getMessage());
-                    }
+        // Lecture en flux de la première feuille, dates au format yyyy-MM-dd
+        try (TabularFileReader.RawRowCursor rows = tabularFileReader.openRaw(file.getInputStream(), file.getOriginalFilename(), DATE_FORMATTER)) {
+            // Ignorer l'en-tête
+            if (rows.hasNext()) {
+                rows.next();
+            }
+            while (rows.hasNext()) {
+                TabularFileReader.RawRow row = rows.next();
+                try {
+                    SuiviEcart suiviEcart = parseFromExcelRow(row);
+                    suiviEcarts.add(suiviEcart);
+                } catch (Exception e) {
+                    System.err.println("Erreur lors du parsing de la ligne Excel " + row.getRowNumber() + ": " + e.getMessage());
                 }
             }
         }
@@ -262,20 +263,6 @@ public class SuiviEcartService {
         return suiviEcarts;
     }
     
-    private Workbook createWorkbook(MultipartFile file) throws IOException {
-        if (file == null) {
-            throw new IllegalArgumentException("Le fichier ne peut pas être null");
-        }
-        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
-        if (fileName.endsWith(".xlsx")) {
-            return new XSSFWorkbook(file.getInputStream());
-        } else if (fileName.endsWith(".xls")) {
-            return new HSSFWorkbook(file.getInputStream());
-        } else {
-            throw new IllegalArgumentException("Format Excel non supporté: " + fileName);
-        }
-    }
-    
     private SuiviEcart parseFromValues(String[] values) {
         SuiviEcart suiviEcart = new SuiviEcart();
         suiviEcart.setDate(cleanValue(values[0]));
@@ -292,66 +279,24 @@ public class SuiviEcartService {
         return suiviEcart;
     }
     
-    private SuiviEcart parseFromExcelRow(Row row) {
+    private SuiviEcart parseFromExcelRow(TabularFileReader.RawRow row) {
         SuiviEcart suiviEcart = new SuiviEcart();
         
-        suiviEcart.setDate(getCellValueAsString(row.getCell(0)));
-        suiviEcart.setAgence(getCellValueAsString(row.getCell(1)));
-        suiviEcart.setService(getCellValueAsString(row.getCell(2)));
-        suiviEcart.setPays(getCellValueAsString(row.getCell(3)));
-        suiviEcart.setMontant(getCellValueAsDouble(row.getCell(4)));
-        suiviEcart.setToken(getCellValueAsString(row.getCell(5)));
-        suiviEcart.setIdPartenaire(getCellValueAsString(row.getCell(6)));
-        suiviEcart.setStatut(getCellValueAsString(row.getCell(7)));
-        suiviEcart.setTraitement(row.getCell(8) != null ? getCellValueAsString(row.getCell(8)) : "");
-        suiviEcart.setTelephone(row.getCell(9) != null ? getCellValueAsString(row.getCell(9)) : "");
-        suiviEcart.setCommentaire(row.getCell(10) != null ? getCellValueAsString(row.getCell(10)) : "");
+        suiviEcart.setDate(cleanValue(row.get(0)));
+        suiviEcart.setAgence(cleanValue(row.get(1)));
+        suiviEcart.setService(cleanValue(row.get(2)));
+        suiviEcart.setPays(cleanValue(row.get(3)));
+        suiviEcart.setMontant(parseDouble(cleanValue(row.get(4))));
+        suiviEcart.setToken(cleanValue(row.get(5)));
+        suiviEcart.setIdPartenaire(cleanValue(row.get(6)));
+        suiviEcart.setStatut(cleanValue(row.get(7)));
+        suiviEcart.setTraitement(cleanValue(row.get(8)));
+        suiviEcart.setTelephone(cleanValue(row.get(9)));
+        suiviEcart.setCommentaire(cleanValue(row.get(10)));
         
         return suiviEcart;
     }
     
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
-        
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toInstant()
-                            .atZone(java.time.ZoneId.systemDefault())
-                            .toLocalDate()
-                            .format(DATE_FORMATTER);
-                } else {
-                    return String.valueOf((long) cell.getNumericCellValue());
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return "";
-        }
-    }
-    
-    private Double getCellValueAsDouble(Cell cell) {
-        if (cell == null) return 0.0;
-        
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return cell.getNumericCellValue();
-            case STRING:
-                String value = cell.getStringCellValue().trim().replace(",", ".");
-                try {
-                    return Double.parseDouble(value);
-                } catch (NumberFormatException e) {
-                    return 0.0;
-                }
-            default:
-                return 0.0;
-        }
-    }
-    
     private String cleanValue(String value) {
         return value != null ? value.trim() : "";
     }
@@ -0,0 +1,832 @@
+package com.reconciliation.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Lecteur tabulaire en flux partagé par les imports (CSV, XLSX, XLS) : les lignes sont lues une par une
+ * sans construire de classeur POI.
+ * <ul>
+ *   <li>CSV : commons-csv, délimiteur détecté sur la première ligne ;</li>
+ *   <li>XLSX : XML de la première feuille lu en flux (StAX) depuis le fichier zip (un flux est d'abord copié
+ *   dans un fichier temporaire), seules les chaînes partagées restent en mémoire ;</li>
+ *   <li>XLS : API événementielle HSSF, lignes conservées sous forme de texte (format limité à 65 536 lignes).</li>
+ * </ul>
+ *
+ * Valeurs des cellules Excel : nombres entiers sans décimale, dates au format ISO (yyyy-MM-dd, ou
+ * yyyy-MM-ddTHH:mm:ss si l'heure est renseignée) ou au format demandé, résultat en cache pour les formules.
+ * Les lignes vides des classeurs sont ignorées.
+ */
+@Slf4j
+@Component
+public class TabularFileReader {
+
+    private static final String[] CSV_DELIMITERS = {";", ",", "\t", "|"};
+    private static final int HEADER_PEEK_LIMIT = 1024 * 1024;
+    private static final DateTimeFormatter SPACED_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss][.SSSSSSSSS][.SSSSSS][.SSS][.S]");
+
+    /**
+     * Source de lignes ré-ouvrable (permet plusieurs passes sur un même fichier)
+     */
+    @FunctionalInterface
+    public interface RowSource {
+        RowCursor open() throws IOException;
+    }
+
+    /**
+     * Curseur sur les lignes d'un fichier, chaque ligne étant exposée sous forme colonne -> valeur
+     */
+    public interface RowCursor extends Iterator<Map<String, String>>, Closeable {
+        List<String> getHeaders();
+
+        /**
+         * Numéro (à partir de 1, en-tête compris) de la dernière ligne renvoyée par {@link #next()}
+         */
+        long getRowNumber();
+    }
+
+    /**
+     * Curseur sur les lignes brutes d'un fichier (valeurs par position de colonne, sans en-tête)
+     */
+    public interface RawRowCursor extends Iterator<RawRow>, Closeable {
+    }
+
+    /**
+     * Choix de la ligne d'en-tête parmi les premières lignes d'un fichier (fichiers avec bannière)
+     */
+    public interface HeaderDetector {
+        /**
+         * Score d'une ligne candidate (ex : nombre de colonnes reconnues) ; la ligne de meilleur score est retenue
+         */
+        int score(List<String> values);
+
+        /**
+         * Score à partir duquel la ligne est retenue sans examiner les suivantes
+         */
+        default int sufficientScore() {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Ligne brute : valeurs par position de colonne, avec accès typé
+     */
+    public static final class RawRow {
+        private final long rowNumber;
+        private final List<String> values;
+
+        RawRow(long rowNumber, List<String> values) {
+            this.rowNumber = rowNumber;
+            this.values = values;
+        }
+
+        /**
+         * Numéro de la ligne dans le fichier (à partir de 1)
+         */
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        public List<String> getValues() {
+            return values;
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        /**
+         * Valeur de la colonne (à partir de 0), chaîne vide si absente
+         */
+        public String get(int column) {
+            if (column < 0 || column >= values.size()) {
+                return "";
+            }
+            String value = values.get(column);
+            return value != null ? value : "";
+        }
+
+        public Double getDouble(int column) {
+            return toDouble(get(column));
+        }
+
+        public LocalDateTime getDateTime(int column) {
+            return toDateTime(get(column));
+        }
+
+        public LocalDate getDate(int column) {
+            LocalDateTime dateTime = getDateTime(column);
+            return dateTime != null ? dateTime.toLocalDate() : null;
+        }
+
+        public boolean isBlank() {
+            return TabularFileReader.isBlank(values);
+        }
+    }
+
+    /**
+     * Ouvre un curseur sur le fichier selon son extension ; la première ligne est l'en-tête
+     */
+    public RowCursor open(InputStream inputStream, String fileName) throws IOException {
+        return open(inputStream, fileName, null, null, 0);
+    }
+
+    /**
+     * Ouvre un curseur sur le fichier selon son extension
+     * @param dateFormat format des cellules date Excel (null : ISO)
+     * @param headerDetector choix de la ligne d'en-tête parmi les {@code maxHeaderScan} premières lignes
+     *                       (null : la première ligne)
+     */
+    public RowCursor open(InputStream inputStream, String fileName, DateTimeFormatter dateFormat,
+                          HeaderDetector headerDetector, int maxHeaderScan) throws IOException {
+        return new HeaderRowCursor(openRaw(inputStream, fileName, dateFormat), headerDetector, maxHeaderScan);
+    }
+
+    /**
+     * Ouvre un curseur sur les lignes brutes du fichier selon son extension
+     * @param dateFormat format des cellules date Excel (null : ISO)
+     */
+    public RawRowCursor openRaw(InputStream inputStream, String fileName, DateTimeFormatter dateFormat) throws IOException {
+        String lowerName = fileName != null ? fileName.toLowerCase() : "";
+        if (lowerName.endsWith(".xlsx") || lowerName.endsWith(".xlsm")) {
+            return openXlsx(inputStream, dateFormat);
+        }
+        if (lowerName.endsWith(".xls")) {
+            return openXls(inputStream, dateFormat);
+        }
+        return openCsv(inputStream);
+    }
+
+    /**
+     * Ouvre la première feuille d'un classeur XLSX reçu en flux : le flux est copié dans un fichier temporaire
+     * (supprimé à la fermeture du curseur) pour que POI lise les entrées du zip à la demande au lieu de
+     * les décompresser toutes en mémoire
+     */
+    public RawRowCursor openXlsx(InputStream inputStream, DateTimeFormatter dateFormat) throws IOException {
+        File spooled;
+        try (InputStream in = inputStream) {
+            spooled = Files.createTempFile("tabular-", ".xlsx").toFile();
+            try {
+                Files.copy(in, spooled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                deleteSpooled(spooled);
+                throw e;
+            }
+        }
+        return openXlsx(spooled, dateFormat, true);
+    }
+
+    /**
+     * Ouvre la première feuille d'un classeur XLSX sur disque, lue en flux XML (StAX) :
+     * seules les chaînes partagées sont gardées en mémoire
+     */
+    public RawRowCursor openXlsx(File file, DateTimeFormatter dateFormat) throws IOException {
+        return openXlsx(file, dateFormat, false);
+    }
+
+    private RawRowCursor openXlsx(File file, DateTimeFormatter dateFormat, boolean deleteOnClose) throws IOException {
+        OPCPackage pkg = null;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                pkg.revert();
+                if (deleteOnClose) {
+                    deleteSpooled(file);
+                }
+                return new ListRawRowCursor(Collections.emptyList());
+            }
+            InputStream sheet = sheets.next();
+            XMLStreamReader xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(sheet);
+            return new XlsxRawRowCursor(pkg, sheet, xml, sharedStrings, styles, dateFormat, deleteOnClose ? file : null);
+        } catch (Exception e) {
+            if (pkg != null) {
+                pkg.revert();
+            }
+            if (deleteOnClose) {
+                deleteSpooled(file);
+            }
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException("Lecture du fichier XLSX impossible: " + e.getMessage(), e);
+        }
+    }
+
+    private static void deleteSpooled(File file) {
+        if (!file.delete() && file.exists()) {
+            log.warn("⚠️ Fichier temporaire XLSX non supprimé: {}", file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Ouvre la première feuille d'un classeur XLS via l'API événementielle HSSF :
+     * pas de modèle objet, seules les valeurs texte des lignes sont conservées
+     */
+    public RawRowCursor openXls(InputStream inputStream, DateTimeFormatter dateFormat) throws IOException {
+        try (InputStream in = inputStream; POIFSFileSystem fs = new POIFSFileSystem(in)) {
+            XlsRowCollector collector = new XlsRowCollector(dateFormat);
+            FormatTrackingHSSFListener formatListener = new FormatTrackingHSSFListener(new MissingRecordAwareHSSFListener(collector));
+            collector.formatListener = formatListener;
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(formatListener);
+            new HSSFEventFactory().processWorkbookEvents(request, fs);
+            log.debug("Feuille XLS lue ({} lignes non vides)", collector.rows.size());
+            return new ListRawRowCursor(collector.rows);
+        }
+    }
+
+    /**
+     * Ouvre un curseur CSV (délimiteur détecté sur la première ligne non vide, valeurs trimées)
+     */
+    public RawRowCursor openCsv(InputStream inputStream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        // Supprimer le BOM UTF-8 éventuel
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+
+        reader.mark(HEADER_PEEK_LIMIT);
+        String firstLine = reader.readLine();
+        int skippedLines = 0;
+        while (firstLine != null && firstLine.trim().isEmpty()) {
+            reader.mark(HEADER_PEEK_LIMIT);
+            firstLine = reader.readLine();
+            skippedLines++;
+        }
+        if (firstLine == null) {
+            reader.close();
+            return new ListRawRowCursor(Collections.emptyList());
+        }
+        reader.reset();
+
+        String delimiter = detectCsvDelimiter(firstLine);
+        CSVFormat format = CSVFormat.DEFAULT.builder()
+            .setDelimiter(delimiter)
+            .setIgnoreEmptyLines(true)
+            .setTrim(true)
+            .build();
+        log.debug("Lecture CSV (délimiteur '{}')", delimiter);
+        return new CsvRawRowCursor(format.parse(reader), skippedLines);
+    }
+
+    /**
+     * Détecte le délimiteur le plus fréquent sur une ligne
+     */
+    private String detectCsvDelimiter(String line) {
+        String bestDelimiter = CSV_DELIMITERS[0];
+        int bestCount = 0;
+        for (String delimiter : CSV_DELIMITERS) {
+            int count = line.length() - line.replace(delimiter, "").length();
+            if (count > bestCount) {
+                bestCount = count;
+                bestDelimiter = delimiter;
+            }
+        }
+        return bestDelimiter;
+    }
+
+    /**
+     * Nombre lu depuis une valeur de cellule (espaces ignorés, virgule décimale acceptée), null si invalide
+     */
+    public static Double toDouble(String value) {
+        if (value == null) {
+            return null;
+        }
+        String s = value.replace("\u00A0", "").replace(" ", "").trim();
+        if (s.isEmpty()) {
+            return null;
+        }
+        if (s.indexOf(',') >= 0) {
+            s = s.indexOf('.') >= 0 ? s.replace(",", "") : s.replace(',', '.');
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Date/heure lue depuis une valeur de cellule au format ISO (yyyy-MM-dd, yyyy-MM-ddTHH:mm[:ss],
+     * yyyy-MM-dd HH:mm[:ss[.S]]), null sinon
+     */
+    public static LocalDateTime toDateTime(String value) {
+        if (value == null) {
+            return null;
+        }
+        String s = value.trim();
+        try {
+            if (s.length() == 10) {
+                return LocalDate.parse(s).atStartOfDay();
+            }
+            if (s.length() > 10 && s.charAt(10) == 'T') {
+                return LocalDateTime.parse(s);
+            }
+            if (s.length() > 10 && s.charAt(10) == ' ') {
+                return LocalDateTime.parse(s, SPACED_DATE_TIME);
+            }
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static boolean isBlank(List<String> values) {
+        for (String value : values) {
+            if (value != null && !value.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Nombre Excel -> texte : date (ISO ou format demandé) si le format est un format de date,
+     * entier sans décimale sinon
+     */
+    private static String formatNumber(double value, boolean dateFormatted, DateTimeFormatter dateFormat) {
+        if (dateFormatted && DateUtil.isValidExcelDate(value)) {
+            LocalDateTime dateTime = DateUtil.getLocalDateTime(value);
+            if (dateFormat != null) {
+                return dateTime.format(dateFormat);
+            }
+            return dateTime.toLocalTime().toSecondOfDay() == 0 ? dateTime.toLocalDate().toString() : dateTime.toString();
+        }
+        long longValue = (long) value;
+        if (Math.abs(value - longValue) < 1e-9) {
+            return Long.toString(longValue);
+        }
+        // Sans notation scientifique (1.23456789E7)
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+
+    /**
+     * Curseur colonne -> valeur au-dessus d'un curseur brut : la ligne d'en-tête est la première ligne,
+     * ou la meilleure des premières lignes selon le {@link HeaderDetector} (les lignes qui la précèdent sont ignorées)
+     */
+    private static class HeaderRowCursor implements RowCursor {
+        private final RawRowCursor rows;
+        private final Deque<RawRow> pending = new ArrayDeque<>();
+        private final List<String> headers;
+        private long rowNumber;
+
+        HeaderRowCursor(RawRowCursor rows, HeaderDetector headerDetector, int maxHeaderScan) {
+            this.rows = rows;
+            RawRow header = headerDetector != null ? detectHeader(headerDetector, maxHeaderScan) : (rows.hasNext() ? rows.next() : null);
+            List<String> trimmed = new ArrayList<>();
+            if (header != null) {
+                for (String value : header.getValues()) {
+                    trimmed.add(value != null ? value.trim() : "");
+                }
+                rowNumber = header.getRowNumber();
+            }
+            this.headers = Collections.unmodifiableList(trimmed);
+            log.debug("En-tête lu ({} colonnes, ligne {})", headers.size(), rowNumber);
+        }
+
+        /**
+         * Lit au plus maxHeaderScan lignes et retient celle de meilleur score ; les lignes lues après elle
+         * sont rejouées comme données
+         */
+        private RawRow detectHeader(HeaderDetector headerDetector, int maxHeaderScan) {
+            List<RawRow> scanned = new ArrayList<>();
+            int bestIndex = -1;
+            int bestScore = -1;
+            while (scanned.size() < Math.max(1, maxHeaderScan) && rows.hasNext()) {
+                RawRow row = rows.next();
+                scanned.add(row);
+                int score = headerDetector.score(row.getValues());
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestIndex = scanned.size() - 1;
+                }
+                if (score >= headerDetector.sufficientScore()) {
+                    break;
+                }
+            }
+            if (bestIndex < 0) {
+                return null;
+            }
+            pending.addAll(scanned.subList(bestIndex + 1, scanned.size()));
+            return scanned.get(bestIndex);
+        }
+
+        @Override
+        public List<String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pending.isEmpty() || rows.hasNext();
+        }
+
+        @Override
+        public Map<String, String> next() {
+            RawRow row = !pending.isEmpty() ? pending.poll() : rows.next();
+            rowNumber = row.getRowNumber();
+            // Colonnes au-delà de l'en-tête ignorées
+            int columnCount = Math.min(headers.size(), row.size());
+            Map<String, String> values = new HashMap<>(Math.max(16, columnCount * 2));
+            for (int j = 0; j < columnCount; j++) {
+                values.put(headers.get(j), row.get(j));
+            }
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
+
+    /**
+     * Curseur CSV : le numéro de ligne est celui du fichier (lignes vides comprises), pas le rang de l'enregistrement
+     */
+    private static class CsvRawRowCursor implements RawRowCursor {
+        private final CSVParser parser;
+        private final Iterator<CSVRecord> records;
+        // Lignes vides sautées avant l'en-tête, hors du décompte du parseur
+        private final int skippedLines;
+
+        CsvRawRowCursor(CSVParser parser, int skippedLines) {
+            this.parser = parser;
+            this.records = parser.iterator();
+            this.skippedLines = skippedLines;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        @Override
+        public RawRow next() {
+            CSVRecord record = records.next();
+            List<String> values = new ArrayList<>(record.size());
+            for (String value : record) {
+                values.add(value != null ? value : "");
+            }
+            // Ligne de fin de l'enregistrement (un champ entre guillemets peut couvrir plusieurs lignes)
+            return new RawRow(skippedLines + parser.getCurrentLineNumber(), values);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    /**
+     * Curseur sur des lignes déjà lues (XLS, fichier vide)
+     */
+    private static class ListRawRowCursor implements RawRowCursor {
+        private final Iterator<RawRow> rows;
+
+        ListRawRowCursor(List<RawRow> rows) {
+            this.rows = rows.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public RawRow next() {
+            return rows.next();
+        }
+
+        @Override
+        public void close() {
+            // rien à libérer
+        }
+    }
+
+    /**
+     * Curseur XLSX : parcours en flux (StAX) des éléments row/c de la feuille ; les lignes vides sont ignorées
+     */
+    private static class XlsxRawRowCursor implements RawRowCursor {
+        private final OPCPackage pkg;
+        private final InputStream sheet;
+        private final XMLStreamReader xml;
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final StylesTable styles;
+        private final DateTimeFormatter dateFormat;
+        // Copie temporaire du flux d'origine, supprimée à la fermeture (null pour un fichier de l'appelant)
+        private final File spooled;
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+        private RawRow nextRow;
+        private long lastRowNumber;
+
+        XlsxRawRowCursor(OPCPackage pkg, InputStream sheet, XMLStreamReader xml, ReadOnlySharedStringsTable sharedStrings,
+                         StylesTable styles, DateTimeFormatter dateFormat, File spooled) throws IOException {
+            this.pkg = pkg;
+            this.sheet = sheet;
+            this.xml = xml;
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.dateFormat = dateFormat;
+            this.spooled = spooled;
+            this.nextRow = readRow();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextRow != null;
+        }
+
+        @Override
+        public RawRow next() {
+            if (nextRow == null) {
+                throw new NoSuchElementException();
+            }
+            RawRow row = nextRow;
+            try {
+                nextRow = readRow();
+            } catch (IOException e) {
+                throw new IllegalStateException("Lecture du fichier XLSX impossible: " + e.getMessage(), e);
+            }
+            return row;
+        }
+
+        /**
+         * Lit la prochaine ligne non vide, ou null en fin de feuille
+         */
+        private RawRow readRow() throws IOException {
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                        String ref = xml.getAttributeValue(null, "r");
+                        lastRowNumber = ref != null ? Long.parseLong(ref) : lastRowNumber + 1;
+                        List<String> values = readCells();
+                        if (!isBlank(values)) {
+                            return new RawRow(lastRowNumber, values);
+                        }
+                    }
+                }
+                return null;
+            } catch (XMLStreamException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Lit les cellules de l'élément row courant jusqu'à sa fermeture
+         */
+        private List<String> readCells() throws XMLStreamException {
+            List<String> values = new ArrayList<>();
+            int nextColumn = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+                    break;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT || !"c".equals(xml.getLocalName())) {
+                    continue;
+                }
+                String ref = xml.getAttributeValue(null, "r");
+                int column = ref != null ? columnIndex(ref) : nextColumn;
+                String type = xml.getAttributeValue(null, "t");
+                String style = xml.getAttributeValue(null, "s");
+                String value = readCellValue(type, style);
+                while (values.size() < column) {
+                    values.add("");
+                }
+                if (column < values.size()) {
+                    values.set(column, value);
+                } else {
+                    values.add(value);
+                }
+                nextColumn = column + 1;
+            }
+            return values;
+        }
+
+        /**
+         * Lit la valeur de l'élément c courant (v, ou is/t pour les chaînes en ligne) jusqu'à sa fermeture
+         */
+        private String readCellValue(String type, String style) throws XMLStreamException {
+            StringBuilder raw = new StringBuilder();
+            boolean inValue = false;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    inValue = "v".equals(name) || "t".equals(name);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if ("c".equals(xml.getLocalName())) {
+                        break;
+                    }
+                    inValue = false;
+                } else if (inValue && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                    raw.append(xml.getText());
+                }
+            }
+            String text = raw.toString();
+            if (type == null || "n".equals(type)) {
+                if (text.isEmpty()) {
+                    return "";
+                }
+                try {
+                    return formatNumber(Double.parseDouble(text), isDateStyle(style), dateFormat);
+                } catch (NumberFormatException e) {
+                    return text.trim();
+                }
+            }
+            switch (type) {
+                case "s":
+                    return text.isEmpty() ? "" : sharedStrings.getItemAt(Integer.parseInt(text.trim())).getString().trim();
+                case "b":
+                    return "1".equals(text.trim()) ? "TRUE" : "FALSE";
+                default:
+                    // inlineStr, str (formule texte), e (erreur)
+                    return text.trim();
+            }
+        }
+
+        private boolean isDateStyle(String style) {
+            if (style == null || styles == null) {
+                return false;
+            }
+            int styleIndex = Integer.parseInt(style);
+            return dateStyles.computeIfAbsent(styleIndex, index -> {
+                XSSFCellStyle cellStyle = styles.getStyleAt(index);
+                return cellStyle != null
+                    && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString());
+            });
+        }
+
+        /**
+         * Index (à partir de 0) de la colonne d'une référence de cellule (ex: "AB12" -> 27)
+         */
+        private static int columnIndex(String ref) {
+            int column = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                xml.close();
+            } catch (XMLStreamException e) {
+                log.debug("Fermeture du flux XLSX: {}", e.getMessage());
+            } finally {
+                try {
+                    sheet.close();
+                } finally {
+                    pkg.revert();
+                    if (spooled != null) {
+                        deleteSpooled(spooled);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Écouteur HSSF collectant les valeurs texte des lignes non vides de la première feuille
+     */
+    private static class XlsRowCollector implements HSSFListener {
+        private final DateTimeFormatter dateFormat;
+        private final List<RawRow> rows = new ArrayList<>();
+        private FormatTrackingHSSFListener formatListener;
+        private SSTRecord sharedStrings;
+        private int worksheetIndex = -1;
+        private List<String> currentValues = new ArrayList<>();
+        private int pendingStringColumn = -1;
+
+        XlsRowCollector(DateTimeFormatter dateFormat) {
+            this.dateFormat = dateFormat;
+        }
+
+        @Override
+        public void processRecord(org.apache.poi.hssf.record.Record record) {
+            if (record instanceof BOFRecord) {
+                if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                    worksheetIndex++;
+                }
+                return;
+            }
+            if (record instanceof SSTRecord) {
+                sharedStrings = (SSTRecord) record;
+                return;
+            }
+            if (worksheetIndex != 0) {
+                return;
+            }
+            if (record instanceof NumberRecord) {
+                NumberRecord number = (NumberRecord) record;
+                set(number.getColumn(), formatNumber(number.getValue(), isDate(number), dateFormat));
+            } else if (record instanceof LabelSSTRecord) {
+                LabelSSTRecord label = (LabelSSTRecord) record;
+                set(label.getColumn(), sharedStrings != null ? sharedStrings.getString(label.getSSTIndex()).getString().trim() : "");
+            } else if (record instanceof LabelRecord) {
+                LabelRecord label = (LabelRecord) record;
+                set(label.getColumn(), label.getValue() != null ? label.getValue().trim() : "");
+            } else if (record instanceof BoolErrRecord) {
+                BoolErrRecord boolErr = (BoolErrRecord) record;
+                set(boolErr.getColumn(), boolErr.isBoolean() ? (boolErr.getBooleanValue() ? "TRUE" : "FALSE") : "");
+            } else if (record instanceof FormulaRecord) {
+                FormulaRecord formula = (FormulaRecord) record;
+                if (formula.hasCachedResultString()) {
+                    // La valeur texte suit dans un StringRecord
+                    pendingStringColumn = formula.getColumn();
+                } else {
+                    double value = formula.getValue();
+                    set(formula.getColumn(), Double.isNaN(value) ? "" : formatNumber(value, isDate(formula), dateFormat));
+                }
+            } else if (record instanceof StringRecord) {
+                if (pendingStringColumn >= 0) {
+                    String value = ((StringRecord) record).getString();
+                    set(pendingStringColumn, value != null ? value.trim() : "");
+                    pendingStringColumn = -1;
+                }
+            } else if (record instanceof LastCellOfRowDummyRecord) {
+                if (!isBlank(currentValues)) {
+                    rows.add(new RawRow(((LastCellOfRowDummyRecord) record).getRow() + 1L, currentValues));
+                }
+                currentValues = new ArrayList<>();
+            }
+        }
+
+        private boolean isDate(CellValueRecordInterface cell) {
+            return DateUtil.isADateFormat(formatListener.getFormatIndex(cell), formatListener.getFormatString(cell));
+        }
+
+        private void set(int column, String value) {
+            while (currentValues.size() < column) {
+                currentValues.add("");
+            }
+            if (column < currentValues.size()) {
+                currentValues.set(column, value);
+            } else {
+                currentValues.add(value);
+            }
+        }
+    }
+}
@@ -2,8 +2,6 @@ package com.reconciliation.service;
 
 import com.reconciliation.entity.TrxSfEntity;
 import com.reconciliation.repository.TrxSfRepository;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,9 +15,13 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import com.reconciliation.entity.FraisTransactionEntity;
 import com.reconciliation.service.FraisTransactionService;
@@ -27,12 +29,19 @@ import com.reconciliation.service.FraisTransactionService;
 @Service
 public class TrxSfService {
     
+    // Lignes d'un fichier de changement de statut traitées par requête
+    private static final int STATUT_CHANGE_CHUNK_SIZE = 1000;
+    private static final String STATUT_TRAITE = "TRAITE";
+    
     @Autowired
     private TrxSfRepository trxSfRepository;
     
     @Autowired
     private FraisTransactionService fraisTransactionService;
     
+    @Autowired
+    private TabularFileReader tabularFileReader;
+    
     public List<TrxSfEntity> getAllTrxSf() {
         return trxSfRepository.findAllOrderByDateTransactionDesc();
     }
@@ -144,10 +153,7 @@ public class TrxSfService {
         
         Map<String, Object> result = new HashMap<>();
         int totalLines = 0;
-        int processedLines = 0;
-        int updatedLines = 0;
-        int errorLines = 0;
-        List<String> errors = new ArrayList<>();
+        StatutChangeReport report = new StatutChangeReport();
         
         try {
             String fileExtension = getFileExtension(file.getOriginalFilename());
@@ -187,57 +193,37 @@ public class TrxSfService {
             
             System.out.println("✅ Colonnes trouvées - Agence: " + agenceIndex + ", Numero Trans GU: " + numeroTransGuIndex);
             
-            // Traiter les lignes de données (en commençant par l'index 1 pour ignorer les en-têtes)
+            // Traiter les lignes de données (en commençant par l'index 1 pour ignorer les en-têtes) par lots :
+            // une requête pour les transactions correspondantes et une requête UPDATE par lot
+            List<StatutChangeLine> pending = new ArrayList<>();
             for (int i = 1; i < fileData.size(); i++) {
                 totalLines++;
                 String[] row = fileData.get(i);
                 
-                try {
-                    if (row.length <= Math.max(agenceIndex, numeroTransGuIndex)) {
-                        errors.add("Ligne " + (i + 1) + ": Nombre de colonnes insuffisant");
-                        errorLines++;
-                        continue;
-                    }
-                    
-                    String agence = row[agenceIndex].trim();
-                    String numeroTransGu = row[numeroTransGuIndex].trim();
-                    
-                    if (agence.isEmpty() || numeroTransGu.isEmpty()) {
-                        errors.add("Ligne " + (i + 1) + ": Agence ou Numero Trans GU vide");
-                        errorLines++;
-                        continue;
-                    }
-                    
-                    System.out.println("🔍 Recherche - Agence: " + agence + ", Numero Trans GU: " + numeroTransGu);
-                    
-                    // Rechercher la transaction correspondante
-                    List<TrxSfEntity> matchingTransactions = trxSfRepository.findByAgenceAndNumeroTransGu(agence, numeroTransGu);
-                    
-                    if (matchingTransactions.isEmpty()) {
-                        errors.add("Ligne " + (i + 1) + ": Aucune transaction trouvée pour Agence=" + agence + ", Numero Trans GU=" + numeroTransGu);
-                        errorLines++;
-                        continue;
-                    }
-                    
-                    // Mettre à jour le statut de toutes les transactions correspondantes
-                    for (TrxSfEntity transaction : matchingTransactions) {
-                        if (!"TRAITE".equals(transaction.getStatut())) {
-                            transaction.setStatut("TRAITE");
-                            trxSfRepository.save(transaction);
-                            updatedLines++;
-                            System.out.println("✅ Statut mis à jour pour ID: " + transaction.getId() + " - Agence: " + agence + ", Numero Trans GU: " + numeroTransGu);
-                        } else {
-                            System.out.println("ℹ️ Transaction déjà traitée - ID: " + transaction.getId() + " - Agence: " + agence + ", Numero Trans GU: " + numeroTransGu);
-                        }
-                    }
-                    
-                    processedLines++;
-                    
-                } catch (Exception e) {
-                    System.out.println("❌ Erreur lors du traitement de la ligne " + (i + 1) + ": " + e.getMessage());
-                    errors.add("Ligne " + (i + 1) + ": " + e.getMessage());
-                    errorLines++;
+                if (row.length <= Math.max(agenceIndex, numeroTransGuIndex)) {
+                    report.errors.add("Ligne " + (i + 1) + ": Nombre de colonnes insuffisant");
+                    report.errorLines++;
+                    continue;
                 }
+                
+                String agence = row[agenceIndex].trim();
+                String numeroTransGu = row[numeroTransGuIndex].trim();
+                
+                if (agence.isEmpty() || numeroTransGu.isEmpty()) {
+                    report.errors.add("Ligne " + (i + 1) + ": Agence ou Numero Trans GU vide");
+                    report.errorLines++;
+                    continue;
+                }
+                
+                pending.add(new StatutChangeLine(i + 1, agence, numeroTransGu));
+                if (pending.size() >= STATUT_CHANGE_CHUNK_SIZE) {
+                    applyStatutChangeChunk(pending, report);
+                    pending.clear();
+                    System.out.println("🔄 " + totalLines + " lignes traitées - " + report.updatedLines + " transactions mises à jour");
+                }
+            }
+            if (!pending.isEmpty()) {
+                applyStatutChangeChunk(pending, report);
             }
             
         } catch (Exception e) {
@@ -246,21 +232,103 @@ public class TrxSfService {
         }
         
         result.put("totalLines", totalLines);
-        result.put("processedLines", processedLines);
-        result.put("updatedLines", updatedLines);
-        result.put("errorLines", errorLines);
-        result.put("errors", errors);
-        result.put("success", errorLines == 0);
+        result.put("processedLines", report.processedLines);
+        result.put("updatedLines", report.updatedLines);
+        result.put("alreadyTreatedLines", report.alreadyTreatedLines);
+        result.put("errorLines", report.errorLines);
+        result.put("errors", report.errors);
+        result.put("success", report.errorLines == 0);
         
         System.out.println("📊 Résultat final:");
         System.out.println("   - Total lignes: " + totalLines);
-        System.out.println("   - Lignes traitées: " + processedLines);
-        System.out.println("   - Lignes mises à jour: " + updatedLines);
-        System.out.println("   - Lignes avec erreurs: " + errorLines);
+        System.out.println("   - Lignes traitées: " + report.processedLines);
+        System.out.println("   - Lignes mises à jour: " + report.updatedLines);
+        System.out.println("   - Lignes déjà traitées: " + report.alreadyTreatedLines);
+        System.out.println("   - Lignes avec erreurs: " + report.errorLines);
         
         return result;
     }
     
+    /**
+     * Ligne d'un fichier de changement de statut
+     */
+    private static final class StatutChangeLine {
+        private final int lineNumber;
+        private final String agence;
+        private final String numeroTransGu;
+        
+        StatutChangeLine(int lineNumber, String agence, String numeroTransGu) {
+            this.lineNumber = lineNumber;
+            this.agence = agence;
+            this.numeroTransGu = numeroTransGu;
+        }
+    }
+    
+    /**
+     * Compteurs et erreurs ligne à ligne du changement de statut
+     */
+    private static final class StatutChangeReport {
+        private int processedLines;
+        private int updatedLines;
+        private int alreadyTreatedLines;
+        private int errorLines;
+        private final List<String> errors = new ArrayList<>();
+    }
+    
+    /**
+     * Passer au statut TRAITE les transactions d'un lot de lignes : une requête pour les transactions
+     * correspondantes (agences et numéros Trans GU du lot), une requête UPDATE pour celles à traiter
+     */
+    private void applyStatutChangeChunk(List<StatutChangeLine> lines, StatutChangeReport report) {
+        Set<String> agences = new HashSet<>();
+        Set<String> numerosTransGu = new HashSet<>();
+        for (StatutChangeLine line : lines) {
+            agences.add(line.agence);
+            numerosTransGu.add(line.numeroTransGu);
+        }
+        
+        // Transactions indexées par couple (agence, numéro Trans GU), sans tenir compte de la casse comme la base
+        Map<List<String>, List<Object[]>> transactionsByKey = new HashMap<>();
+        for (Object[] transaction : trxSfRepository.findStatutsByAgenceInAndNumeroTransGuIn(agences, numerosTransGu)) {
+            transactionsByKey.computeIfAbsent(statutChangeKey((String) transaction[1], (String) transaction[2]), k -> new ArrayList<>())
+                .add(transaction);
+        }
+        
+        Set<Long> idsToUpdate = new LinkedHashSet<>();
+        for (StatutChangeLine line : lines) {
+            List<Object[]> matchingTransactions = transactionsByKey.get(statutChangeKey(line.agence, line.numeroTransGu));
+            if (matchingTransactions == null) {
+                report.errors.add("Ligne " + line.lineNumber + ": Aucune transaction trouvée pour Agence=" + line.agence + ", Numero Trans GU=" + line.numeroTransGu);
+                report.errorLines++;
+                continue;
+            }
+            
+            int lineUpdates = 0;
+            for (Object[] transaction : matchingTransactions) {
+                if (!STATUT_TRAITE.equals(transaction[3])) {
+                    idsToUpdate.add((Long) transaction[0]);
+                    // Une ligne suivante sur le même couple verra la transaction déjà traitée
+                    transaction[3] = STATUT_TRAITE;
+                    report.updatedLines++;
+                    lineUpdates++;
+                }
+            }
+            if (lineUpdates == 0) {
+                report.alreadyTreatedLines++;
+            }
+            report.processedLines++;
+        }
+        
+        if (!idsToUpdate.isEmpty()) {
+            trxSfRepository.updateStatutByIdIn(idsToUpdate, STATUT_TRAITE);
+        }
+    }
+    
+    private static List<String> statutChangeKey(String agence, String numeroTransGu) {
+        return List.of(agence == null ? "" : agence.toLowerCase(Locale.ROOT),
+                       numeroTransGu == null ? "" : numeroTransGu.toLowerCase(Locale.ROOT));
+    }
+    
     /**
      * Obtenir l'extension d'un fichier
      */
@@ -295,21 +363,14 @@ public class TrxSfService {
     }
     
     /**
-     * Parser un fichier Excel
+     * Parser un fichier Excel (lecture en flux de la première feuille)
      */
     private List<String[]> parseExcelFile(MultipartFile file) throws IOException {
         List<String[]> data = new ArrayList<>();
         
-        try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            for (Row row : sheet) {
-                String[] rowData = new String[row.getLastCellNum()];
-                for (int i = 0; i < row.getLastCellNum(); i++) {
-                    Cell cell = row.getCell(i);
-                    rowData[i] = cell != null ? cell.toString() : "";
-                }
-                data.add(rowData);
+        try (TabularFileReader.RawRowCursor rows = tabularFileReader.openRaw(file.getInputStream(), file.getOriginalFilename(), null)) {
+            while (rows.hasNext()) {
+                data.add(rows.next().getValues().toArray(new String[0]));
             }
         }
         return data;
@@ -517,16 +578,15 @@ public class TrxSfService {
         List<TrxSfEntity> trxSfList = new ArrayList<>();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row != null) {
-                    TrxSfEntity trxSf = parseTrxSfFromExcelRow(row, formatter);
-                    if (trxSf != null) {
-                        trxSfList.add(trxSf);
-                    }
+        try (TabularFileReader.RawRowCursor rows = tabularFileReader.openRaw(file.getInputStream(), file.getOriginalFilename(), formatter)) {
+            // Ignorer l'en-tête
+            if (rows.hasNext()) {
+                rows.next();
+            }
+            while (rows.hasNext()) {
+                TrxSfEntity trxSf = parseTrxSfFromExcelRow(rows.next(), formatter);
+                if (trxSf != null) {
+                    trxSfList.add(trxSf);
                 }
             }
         }
@@ -627,52 +687,49 @@ public class TrxSfService {
             } else if (fileName.endsWith(".xlsx") || fileName.endsWith(".xls")) {
                 // Validation des fichiers Excel
                 System.out.println("DEBUG: Traitement fichier Excel");
-                try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-                    Sheet sheet = workbook.getSheetAt(0);
-                    totalLines = sheet.getLastRowNum();
-                    System.out.println("DEBUG: Nombre de lignes dans la feuille Excel: " + totalLines);
-                    System.out.println("DEBUG: Nombre de feuilles dans le workbook: " + workbook.getNumberOfSheets());
-                    System.out.println("DEBUG: Nom de la première feuille: " + sheet.getSheetName());
+                try (TabularFileReader.RawRowCursor rows = tabularFileReader.openRaw(file.getInputStream(), originalFileName, formatter)) {
+                    // Ignorer l'en-tête
+                    if (rows.hasNext()) {
+                        rows.next();
+                    }
                     
-                    for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+                    while (rows.hasNext()) {
+                        TabularFileReader.RawRow row = rows.next();
+                        long i = row.getRowNumber();
+                        totalLines++;
                         processedLines++;
-                        Row row = sheet.getRow(i);
-                        System.out.println("DEBUG: Traitement ligne Excel " + i + "/" + totalLines + " - Progression: " + Math.round((processedLines * 100.0) / totalLines) + "%");
-                        
-                        if (row != null) {
-                            System.out.println("DEBUG: Ligne Excel " + i + " - Nombre de cellules: " + row.getLastCellNum());
-                            try {
-                                TrxSfEntity trxSf = parseTrxSfFromExcelRow(row, formatter);
-                                
-                                if (trxSf != null) {
-                                    System.out.println("DEBUG: Ligne Excel " + i + " - Entité créée avec succès - ID: " + trxSf.getIdTransaction());
+                        System.out.println("DEBUG: Traitement ligne Excel " + i);
+                        System.out.println("DEBUG: Ligne Excel " + i + " - Nombre de cellules: " + row.size());
+                        try {
+                            TrxSfEntity trxSf = parseTrxSfFromExcelRow(row, formatter);
+                            
+                            if (trxSf != null) {
+                                System.out.println("DEBUG: Ligne Excel " + i + " - Entité créée avec succès - ID: " + trxSf.getIdTransaction());
                                 
                                 // Vérifier les doublons
                                 if (trxSfRepository.existsByIdTransaction(trxSf.getIdTransaction())) {
                                     duplicates++;
-                                    errors.add("Ligne " + (i + 1) + ": Doublon détecté pour ID " + trxSf.getIdTransaction());
-                                        System.out.println("DEBUG: Ligne Excel " + i + " - DOUBLON DÉTECTÉ pour ID: " + trxSf.getIdTransaction());
+                                    errors.add("Ligne " + i + ": Doublon détecté pour ID " + trxSf.getIdTransaction());
+                                    System.out.println("DEBUG: Ligne Excel " + i + " - DOUBLON DÉTECTÉ pour ID: " + trxSf.getIdTransaction());
                                 } else {
                                     newRecords++;
                                     validRecords.add(trxSf);
-                                        System.out.println("DEBUG: Ligne Excel " + i + " - NOUVEL ENREGISTREMENT AJOUTÉ - ID: " + trxSf.getIdTransaction());
+                                    System.out.println("DEBUG: Ligne Excel " + i + " - NOUVEL ENREGISTREMENT AJOUTÉ - ID: " + trxSf.getIdTransaction());
                                 }
                                 validLines++;
-                                } else {
-                                    errorLines++;
-                                    errors.add("Ligne " + (i + 1) + ": Impossible de parser la ligne");
-                                    System.out.println("DEBUG: Ligne Excel " + i + " - ERREUR: parseTrxSfFromExcelRow a retourné null");
-                                }
-                            } catch (Exception e) {
+                            } else {
                                 errorLines++;
-                                errors.add("Ligne " + (i + 1) + ": " + e.getMessage());
-                                System.out.println("DEBUG: Ligne Excel " + i + " - EXCEPTION: " + e.getMessage());
-                                e.printStackTrace();
+                                errors.add("Ligne " + i + ": Impossible de parser la ligne");
+                                System.out.println("DEBUG: Ligne Excel " + i + " - ERREUR: parseTrxSfFromExcelRow a retourné null");
                             }
-                        } else {
-                            System.out.println("DEBUG: Ligne Excel " + i + " - Ligne vide, ignorée");
+                        } catch (Exception e) {
+                            errorLines++;
+                            errors.add("Ligne " + i + ": " + e.getMessage());
+                            System.out.println("DEBUG: Ligne Excel " + i + " - EXCEPTION: " + e.getMessage());
+                            e.printStackTrace();
                         }
                     }
+                    System.out.println("DEBUG: Nombre de lignes dans la feuille Excel: " + totalLines);
                 } catch (Exception e) {
                     System.out.println("DEBUG: ERREUR lors de la lecture du fichier Excel: " + e.getMessage());
                     e.printStackTrace();
@@ -1028,59 +1085,59 @@ public class TrxSfService {
         }
     }
     
-    private TrxSfEntity parseTrxSfFromExcelRow(Row row, DateTimeFormatter formatter) {
+    private TrxSfEntity parseTrxSfFromExcelRow(TabularFileReader.RawRow row, DateTimeFormatter formatter) {
         try {
             System.out.println("DEBUG: === DÉBUT parseTrxSfFromExcelRow ===");
-            System.out.println("DEBUG: Nombre de cellules dans la ligne: " + row.getLastCellNum());
+            System.out.println("DEBUG: Nombre de cellules dans la ligne: " + row.size());
             
             TrxSfEntity trxSf = new TrxSfEntity();
             
             // ID Transaction (colonne 0)
-            String idTransaction = getCellValueAsString(row.getCell(0));
+            String idTransaction = row.get(0).trim();
             System.out.println("DEBUG: ID Transaction (Excel): '" + idTransaction + "'");
             trxSf.setIdTransaction(idTransaction);
             
             // Téléphone Client (colonne 1)
-            String telephoneClient = getCellValueAsString(row.getCell(1));
+            String telephoneClient = row.get(1).trim();
             System.out.println("DEBUG: Téléphone Client (Excel): '" + telephoneClient + "'");
             trxSf.setTelephoneClient(telephoneClient);
             
             // Montant (colonne 2)
-            Double montant = getCellValueAsDouble(row.getCell(2));
+            Double montant = getDouble(row, 2);
             System.out.println("DEBUG: Montant (Excel): " + montant);
             trxSf.setMontant(montant);
             
             // Service (colonne 3)
-            String service = getCellValueAsString(row.getCell(3));
+            String service = row.get(3).trim();
             System.out.println("DEBUG: Service (Excel): '" + service + "'");
             trxSf.setService(service);
             
             // Agence (colonne 4)
-            String agence = getCellValueAsString(row.getCell(4));
+            String agence = row.get(4).trim();
             System.out.println("DEBUG: Agence (Excel): '" + agence + "'");
             trxSf.setAgence(agence);
             
             // Date Transaction (colonne 5)
-            String dateStr = getCellValueAsString(row.getCell(5));
+            String dateStr = row.get(5).trim();
             System.out.println("DEBUG: Date (Excel, string): '" + dateStr + "'");
             LocalDateTime dateTransaction = LocalDateTime.parse(dateStr, formatter);
             System.out.println("DEBUG: Date (Excel, parsée): " + dateTransaction);
             trxSf.setDateTransaction(dateTransaction);
             
             // Numéro Trans GU (colonne 6)
-            String numeroTransGu = getCellValueAsString(row.getCell(6));
+            String numeroTransGu = row.get(6).trim();
             System.out.println("DEBUG: Numéro Trans GU (Excel): '" + numeroTransGu + "'");
             trxSf.setNumeroTransGu(numeroTransGu);
             
             // Pays (colonne 7)
-            String pays = getCellValueAsString(row.getCell(7));
+            String pays = row.get(7).trim();
             System.out.println("DEBUG: Pays (Excel): '" + pays + "'");
             trxSf.setPays(pays);
             
             // Frais (colonne 8, optionnel)
             Double frais = 0.0;
-            if (row.getCell(8) != null) {
-                frais = getCellValueAsDouble(row.getCell(8));
+            if (!row.get(8).trim().isEmpty()) {
+                frais = getDouble(row, 8);
                 System.out.println("DEBUG: Frais (Excel): " + frais);
             } else {
                 System.out.println("DEBUG: Frais (Excel): cellule vide, valeur par défaut: 0.0");
@@ -1089,8 +1146,8 @@ public class TrxSfService {
             
             // Commentaire (colonne 9, optionnel)
             String commentaire = "";
-            if (row.getCell(9) != null) {
-                commentaire = getCellValueAsString(row.getCell(9));
+            if (!row.get(9).trim().isEmpty()) {
+                commentaire = row.get(9).trim();
                 System.out.println("DEBUG: Commentaire (Excel): '" + commentaire + "'");
             } else {
                 System.out.println("DEBUG: Commentaire (Excel): cellule vide");
@@ -1113,68 +1170,11 @@ public class TrxSfService {
         }
     }
     
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            System.out.println("DEBUG: getCellValueAsString - Cellule null, retourne chaîne vide");
-            return "";
-        }
-        
-        System.out.println("DEBUG: getCellValueAsString - Type de cellule: " + cell.getCellType());
-        
-        switch (cell.getCellType()) {
-            case STRING:
-                String stringValue = cell.getStringCellValue().trim();
-                System.out.println("DEBUG: getCellValueAsString - Valeur STRING: '" + stringValue + "'");
-                return stringValue;
-            case NUMERIC:
-                long numericValue = (long) cell.getNumericCellValue();
-                String numericString = String.valueOf(numericValue);
-                System.out.println("DEBUG: getCellValueAsString - Valeur NUMERIC: " + numericValue + " -> '" + numericString + "'");
-                return numericString;
-            case BOOLEAN:
-                boolean booleanValue = cell.getBooleanCellValue();
-                String booleanString = String.valueOf(booleanValue);
-                System.out.println("DEBUG: getCellValueAsString - Valeur BOOLEAN: " + booleanValue + " -> '" + booleanString + "'");
-                return booleanString;
-            case BLANK:
-                System.out.println("DEBUG: getCellValueAsString - Cellule BLANK, retourne chaîne vide");
-                return "";
-            default:
-                System.out.println("DEBUG: getCellValueAsString - Type non géré: " + cell.getCellType() + ", retourne chaîne vide");
-                return "";
-        }
-    }
-    
-    private Double getCellValueAsDouble(Cell cell) {
-        if (cell == null) {
-            System.out.println("DEBUG: getCellValueAsDouble - Cellule null, retourne 0.0");
-            return 0.0;
-        }
-        
-        System.out.println("DEBUG: getCellValueAsDouble - Type de cellule: " + cell.getCellType());
-        
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                double numericValue = cell.getNumericCellValue();
-                System.out.println("DEBUG: getCellValueAsDouble - Valeur NUMERIC: " + numericValue);
-                return numericValue;
-            case STRING:
-                String stringValue = cell.getStringCellValue().trim();
-                System.out.println("DEBUG: getCellValueAsDouble - Valeur STRING: '" + stringValue + "'");
-                try {
-                    double parsedValue = Double.parseDouble(stringValue);
-                    System.out.println("DEBUG: getCellValueAsDouble - Conversion réussie: " + parsedValue);
-                    return parsedValue;
-                } catch (NumberFormatException e) {
-                    System.out.println("DEBUG: getCellValueAsDouble - ERREUR conversion: " + e.getMessage() + ", retourne 0.0");
-                    return 0.0;
-                }
-            case BLANK:
-                System.out.println("DEBUG: getCellValueAsDouble - Cellule BLANK, retourne 0.0");
-                return 0.0;
-            default:
-                System.out.println("DEBUG: getCellValueAsDouble - Type non géré: " + cell.getCellType() + ", retourne 0.0");
-                return 0.0;
-        }
+    /**
+     * Valeur numérique d'une colonne, 0.0 si vide ou invalide
+     */
+    private Double getDouble(TabularFileReader.RawRow row, int column) {
+        Double value = row.getDouble(column);
+        return value != null ? value : 0.0;
     }
 }
@@ -9,6 +9,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class UserLogService {
@@ -16,6 +17,9 @@ public class UserLogService {
     @Autowired
     private UserLogRepository userLogRepository;
 
+    @Autowired
+    private UserLogWriter userLogWriter;
+
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
@@ -27,6 +31,21 @@ public class UserLogService {
         return userLogRepository.save(log);
     }
 
+    /**
+     * Enregistre un log utilisateur de façon asynchrone (insertion par lots, hors du thread de la requête)
+     * @return false si le log a été abandonné (file pleine)
+     */
+    public boolean enqueueLog(String permission, String module, String username) {
+        return userLogWriter.enqueue(permission, module, username);
+    }
+
+    /**
+     * Compteurs de l'écriture asynchrone des logs
+     */
+    public Map<String, Object> getWriterStats() {
+        return userLogWriter.getStats();
+    }
+
     /**
      * Récupère tous les logs triés par date décroissante
      */
@@ -0,0 +1,166 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.UserLogEntity;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Écriture asynchrone des logs utilisateur (user_log).
+ *
+ * Les logs sont placés dans une file bornée (sans attente pour la requête) et insérés par lots par un thread
+ * dédié, dès que le lot est plein ou à chaque intervalle. Si la file est pleine, le log est abandonné et compté.
+ */
+@Slf4j
+@Service
+public class UserLogWriter {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO user_log (permission, module, username, date_heure, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<UserLogEntity> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public UserLogWriter(JdbcTemplate jdbcTemplate,
+                         @Value("${user-log.queue-capacity:10000}") int queueCapacity,
+                         @Value("${user-log.batch-size:200}") int batchSize,
+                         @Value("${user-log.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::run, "user-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Place un log dans la file (non bloquant)
+     * @return false si la file est pleine (log abandonné)
+     */
+    public boolean enqueue(String permission, String module, String username) {
+        UserLogEntity entry = new UserLogEntity(permission, module, username, LocalDateTime.now());
+        if (queue.offer(entry)) {
+            enqueued.incrementAndGet();
+            return true;
+        }
+        long total = dropped.incrementAndGet();
+        if (total == 1 || total % 1000 == 0) {
+            log.warn("⚠️ File des logs utilisateur pleine: {} log(s) abandonné(s)", total);
+        }
+        return false;
+    }
+
+    private void run() {
+        List<UserLogEntity> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                UserLogEntity first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    UserLogEntity next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Arrêt demandé : vider la file avant de terminer
+                queue.drainTo(batch);
+                flush(batch);
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<UserLogEntity> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<Object[]> rows = new ArrayList<>(batch.size());
+            for (UserLogEntity entry : batch) {
+                rows.add(new Object[]{
+                    entry.getPermission(), entry.getModule(), entry.getUsername(),
+                    Timestamp.valueOf(entry.getDateHeure()), Timestamp.valueOf(entry.getCreatedAt())
+                });
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.error("❌ Erreur lors de l'écriture de {} log(s) utilisateur: {}", batch.size(), e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Compteurs de la file des logs utilisateur
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enqueued", enqueued.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("pending", queue.size());
+        stats.put("remainingCapacity", queue.remainingCapacity());
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writerThread != null) {
+            // Le thread termine après avoir vidé la file (au plus un intervalle d'attente)
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("🧹 Writer des logs utilisateur arrêté: {}", getStats());
+    }
+}
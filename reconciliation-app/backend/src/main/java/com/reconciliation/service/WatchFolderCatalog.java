@@ -0,0 +1,366 @@
+package com.reconciliation.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Catalogue des fichiers du watch-folder (colonnes, données d'exemple, type, nombre d'enregistrements).
+ *
+ * Chaque fichier est analysé une fois par version (chemin, taille, date de modification) par un pool borné de workers.
+ * Un thread WatchService relance l'analyse des fichiers créés ou modifiés une fois leur taille et leur date de
+ * modification stables pendant le délai de debounce, et retire les fichiers supprimés ; l'analyse d'une version
+ * remplacée est annulée. Une version absente du catalogue (ex: événement perdu) est analysée à la demande.
+ */
+@Slf4j
+@Service
+public class WatchFolderCatalog {
+
+    @Autowired
+    private WatchFolderFileAnalyzer fileAnalyzer;
+
+    @Value("${app.watch-folder.path:../watch-folder}")
+    private String watchFolderPath;
+
+    @Value("${app.watch-folder.catalog.workers:2}")
+    private int workerCount;
+
+    @Value("${app.watch-folder.catalog.debounce-ms:500}")
+    private long debounceMs;
+
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    // Fichiers modifiés en attente de stabilité : dernière version observée
+    private final Map<Path, Version> pendingChanges = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor workers;
+    private ScheduledThreadPoolExecutor debouncer;
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "watch-folder-catalog-" + threadCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        debouncer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "watch-folder-debounce");
+            t.setDaemon(true);
+            return t;
+        });
+        startWatching();
+    }
+
+    /**
+     * Démarre la surveillance du dossier s'il existe et qu'elle n'est pas déjà active, puis analyse ses fichiers
+     */
+    public synchronized void startWatching() {
+        if (watcherThread != null) {
+            return;
+        }
+        Path folder = folder();
+        if (!Files.isDirectory(folder)) {
+            log.warn("⚠️ Watch-folder absent, catalogue alimenté à la demande: {}", folder);
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            log.error("❌ Impossible de surveiller le watch-folder {}: {}", folder, e.getMessage());
+            return;
+        }
+        watcherThread = new Thread(() -> watch(folder), "watch-folder-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        log.info("👀 Surveillance du watch-folder démarrée: {} ({} workers)", folder, workerCount);
+        rescan();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Erreur à la fermeture du WatchService: {}", e.getMessage());
+            }
+        }
+        debouncer.shutdownNow();
+        workers.shutdownNow();
+        log.info("🧹 Catalogue du watch-folder arrêté ({} fichiers)", entries.size());
+    }
+
+    /**
+     * Métadonnées de tous les fichiers pris en charge du dossier, triés par nom
+     */
+    public List<FileMetadata> listFiles() {
+        List<File> files = listSupportedFiles();
+        Set<Path> present = new HashSet<>();
+        List<CompletableFuture<FileMetadata>> pending = new ArrayList<>(files.size());
+        for (File file : files) {
+            present.add(key(file));
+            pending.add(refresh(file));
+        }
+        retainEntries(present);
+        List<FileMetadata> result = new ArrayList<>(pending.size());
+        for (int i = 0; i < files.size(); i++) {
+            result.add(await(files.get(i), pending.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Métadonnées d'un fichier (analysé à la demande si sa version n'est pas encore au catalogue)
+     */
+    public FileMetadata getFile(File file) {
+        return await(file, refresh(file));
+    }
+
+    // Attend l'analyse ; si elle a été annulée entre-temps (nouvelle version du fichier), attend celle qui la remplace
+    private FileMetadata await(File file, CompletableFuture<FileMetadata> metadata) {
+        while (true) {
+            try {
+                return metadata.join();
+            } catch (CancellationException e) {
+                metadata = refresh(file);
+            }
+        }
+    }
+
+    // Version au catalogue si elle correspond au fichier sur disque (et que son analyse n'a pas échoué ni été annulée),
+    // sinon analyse soumise aux workers ; l'analyse de la version remplacée est annulée
+    private CompletableFuture<FileMetadata> refresh(File file) {
+        Version version = versionOf(file);
+        Entry entry = entries.compute(key(file), (path, current) -> {
+            if (current != null && current.version.equals(version) && !current.metadata.isCompletedExceptionally()) {
+                return current;
+            }
+            if (current != null) {
+                current.metadata.cancel(false);
+            }
+            return new Entry(version, CompletableFuture.supplyAsync(() -> analyze(file), workers));
+        });
+        return entry.metadata;
+    }
+
+    // Une analyse annulée avant son démarrage n'est jamais exécutée par les workers
+    private void remove(Path path) {
+        Entry removed = entries.remove(path);
+        if (removed != null) {
+            removed.metadata.cancel(false);
+        }
+    }
+
+    private void retainEntries(Set<Path> present) {
+        for (Path path : entries.keySet()) {
+            if (!present.contains(path)) {
+                remove(path);
+            }
+        }
+    }
+
+    private FileMetadata analyze(File file) {
+        long start = System.currentTimeMillis();
+        List<String> columns = fileAnalyzer.getFileColumns(file);
+        FileMetadata metadata = new FileMetadata(
+            file.getName(),
+            file.getAbsolutePath(),
+            columns,
+            fileAnalyzer.getSampleData(file, columns),
+            fileAnalyzer.getFileType(file.getName()),
+            fileAnalyzer.getRecordCount(file));
+        log.debug("Fichier {} analysé en {} ms", file.getName(), System.currentTimeMillis() - start);
+        return metadata;
+    }
+
+    private void rescan() {
+        List<File> files = listSupportedFiles();
+        Set<Path> present = new HashSet<>();
+        for (File file : files) {
+            present.add(key(file));
+            refresh(file);
+        }
+        retainEntries(present);
+    }
+
+    // Analyse différée jusqu'à ce que la taille et la date de modification n'aient pas bougé pendant debounceMs
+    private void refreshWhenStable(File file) {
+        Path path = key(file);
+        if (pendingChanges.putIfAbsent(path, versionOf(file)) == null) {
+            debouncer.schedule(() -> checkStable(file), debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void checkStable(File file) {
+        Path path = key(file);
+        Version observed = pendingChanges.get(path);
+        if (observed == null || !file.isFile()) {
+            pendingChanges.remove(path);
+            return;
+        }
+        Version current = versionOf(file);
+        if (current.equals(observed) && pendingChanges.remove(path, observed)) {
+            refresh(file);
+            return;
+        }
+        // Fichier encore en cours d'écriture
+        pendingChanges.put(path, current);
+        debouncer.schedule(() -> checkStable(file), debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void watch(Path folder) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rescan();
+                        continue;
+                    }
+                    Path path = folder.resolve((Path) event.context());
+                    if (!fileAnalyzer.isSupported(path.getFileName().toString())) {
+                        continue;
+                    }
+                    File file = path.toFile();
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE || !file.isFile()) {
+                        pendingChanges.remove(key(file));
+                        remove(key(file));
+                    } else {
+                        refreshWhenStable(file);
+                    }
+                }
+                if (!key.reset()) {
+                    log.warn("⚠️ Watch-folder inaccessible, surveillance arrêtée");
+                    synchronized (this) {
+                        watcherThread = null;
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.info("🛑 Surveillance du watch-folder arrêtée");
+        }
+    }
+
+    private List<File> listSupportedFiles() {
+        File[] files = folder().toFile().listFiles((dir, name) -> fileAnalyzer.isSupported(name));
+        List<File> result = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile()) {
+                    result.add(file);
+                }
+            }
+        }
+        result.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return result;
+    }
+
+    private Path folder() {
+        return Paths.get(watchFolderPath).toAbsolutePath().normalize();
+    }
+
+    private static Version versionOf(File file) {
+        return new Version(file.length(), file.lastModified());
+    }
+
+    private static Path key(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    private static final class Version {
+        final long size;
+        final long lastModified;
+
+        Version(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Version)) return false;
+            Version other = (Version) o;
+            return size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lastModified);
+        }
+    }
+
+    private static final class Entry {
+        final Version version;
+        final CompletableFuture<FileMetadata> metadata;
+
+        Entry(Version version, CompletableFuture<FileMetadata> metadata) {
+            this.version = version;
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * Métadonnées d'un fichier du watch-folder (immuables, partagées entre les requêtes)
+     */
+    public static final class FileMetadata {
+        private final String fileName;
+        private final String filePath;
+        private final List<String> columns;
+        private final List<Map<String, Object>> sampleData;
+        private final String fileType;
+        private final int recordCount;
+
+        FileMetadata(String fileName, String filePath, List<String> columns,
+                     List<Map<String, Object>> sampleData, String fileType, int recordCount) {
+            this.fileName = fileName;
+            this.filePath = filePath;
+            this.columns = List.copyOf(columns);
+            this.sampleData = List.copyOf(sampleData);
+            this.fileType = fileType;
+            this.recordCount = recordCount;
+        }
+
+        public String getFileName() { return fileName; }
+        public String getFilePath() { return filePath; }
+        public List<String> getColumns() { return columns; }
+        public List<Map<String, Object>> getSampleData() { return sampleData; }
+        public String getFileType() { return fileType; }
+        public int getRecordCount() { return recordCount; }
+    }
+}
@@ -0,0 +1,107 @@
+package com.reconciliation.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversion d'un nom de pays (ou d'une variante de code) en code pays pour le cloisonnement.
+ *
+ * Calculé à l'écriture dans la colonne country_code des tables filtrées par pays, pour que le filtre
+ * sur les pays autorisés de l'utilisateur ({@code PaysFilterService.getAllowedPaysCodes}) s'applique en SQL.
+ */
+public final class CountryCodeUtil {
+
+    private static final Map<String, String> COUNTRY_NAMES = new HashMap<>();
+    private static final List<String> VALID_CODES = Arrays.asList("CM", "CI", "SN", "BF", "ML", "BJ", "NE", "TD", "TG");
+
+    static {
+        COUNTRY_NAMES.put("CAMEROUN", "CM");
+        COUNTRY_NAMES.put("CAMEROON", "CM");
+        COUNTRY_NAMES.put("CÔTE D'IVOIRE", "CI");
+        COUNTRY_NAMES.put("COTE D'IVOIRE", "CI");
+        COUNTRY_NAMES.put("COTE DIVOIRE", "CI");
+        COUNTRY_NAMES.put("CÔTE DIVOIRE", "CI");
+        COUNTRY_NAMES.put("SÉNÉGAL", "SN");
+        COUNTRY_NAMES.put("SENEGAL", "SN");
+        COUNTRY_NAMES.put("BURKINA FASO", "BF");
+        COUNTRY_NAMES.put("BURKINA", "BF");
+        COUNTRY_NAMES.put("MALI", "ML");
+        COUNTRY_NAMES.put("BÉNIN", "BJ");
+        COUNTRY_NAMES.put("BENIN", "BJ");
+        COUNTRY_NAMES.put("NIGER", "NE");
+        COUNTRY_NAMES.put("TCHAD", "TD");
+        COUNTRY_NAMES.put("TOGO", "TG");
+    }
+
+    private CountryCodeUtil() {
+    }
+
+    /**
+     * Code pays d'un nom de pays ; chaîne vide si le pays est absent
+     */
+    public static String toCountryCode(String countryName) {
+        if (countryName == null || countryName.trim().isEmpty()) {
+            return "";
+        }
+        
+        String normalizedName = countryName.trim().toUpperCase();
+        
+        // Gérer les variantes spéciales comme "CITCH" qui signifie "CI" (Côte d'Ivoire)
+        if (normalizedName.startsWith("CITCH")) {
+            return "CI";
+        }
+        
+        // Chercher par nom exact
+        String code = COUNTRY_NAMES.get(normalizedName);
+        if (code != null) {
+            return code;
+        }
+        
+        // Chercher par contenu (pour gérer les cas comme "Côte d'Ivoire" dans "Côte d'Ivoire - Abidjan")
+        if (normalizedName.contains("COTE") || normalizedName.contains("CÔTE") || normalizedName.contains("IVOIRE")) {
+            return "CI";
+        }
+        if (normalizedName.contains("SENEGAL") || normalizedName.contains("SÉNÉGAL")) {
+            return "SN";
+        }
+        if (normalizedName.contains("CAMEROUN") || normalizedName.contains("CAMEROON")) {
+            return "CM";
+        }
+        if (normalizedName.contains("BURKINA")) {
+            return "BF";
+        }
+        if (normalizedName.contains("MALI")) {
+            return "ML";
+        }
+        if (normalizedName.contains("BENIN") || normalizedName.contains("BÉNIN")) {
+            return "BJ";
+        }
+        if (normalizedName.contains("NIGER")) {
+            return "NE";
+        }
+        if (normalizedName.contains("TCHAD")) {
+            return "TD";
+        }
+        if (normalizedName.contains("TOGO")) {
+            return "TG";
+        }
+        
+        // Si c'est déjà un code (2 lettres), le retourner tel quel
+        if (normalizedName.length() == 2) {
+            return normalizedName;
+        }
+        
+        // Si c'est un code de 4-5 lettres qui commence par un code pays connu, extraire les 2 premières lettres
+        if (normalizedName.length() >= 4) {
+            String firstTwo = normalizedName.substring(0, 2);
+            if (VALID_CODES.contains(firstTwo)) {
+                return firstTwo;
+            }
+        }
+        
+        // Sinon, retourner le nom tel quel pour comparaison (normalisé en majuscules)
+        return normalizedName;
+    }
+}
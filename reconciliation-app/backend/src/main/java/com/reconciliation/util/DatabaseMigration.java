@@ -5,6 +5,8 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class DatabaseMigration implements CommandLineRunner {
 
@@ -84,5 +86,31 @@ public class DatabaseMigration implements CommandLineRunner {
             System.err.println("❌ Erreur lors de l'ajout de la colonne traitement à operation_bancaire: " + e.getMessage());
             e.printStackTrace();
         }
+        
+        // Remplissage de country_code (cloisonnement en SQL) pour les lignes existantes
+        backfillCountryCode("agency_summary_entity");
+        backfillCountryCode("result8rec");
+    }
+    
+    /**
+     * Calcule country_code des lignes qui n'en ont pas : une mise à jour par nom de pays distinct
+     */
+    private void backfillCountryCode(String table) {
+        try {
+            List<String> countries = jdbcTemplate.queryForList(
+                "SELECT DISTINCT country FROM " + table + " WHERE country_code IS NULL", String.class);
+            if (countries.isEmpty()) {
+                return;
+            }
+            int updated = 0;
+            for (String country : countries) {
+                updated += jdbcTemplate.update(
+                    "UPDATE " + table + " SET country_code = ? WHERE country_code IS NULL AND country <=> ?",
+                    CountryCodeUtil.toCountryCode(country), country);
+            }
+            System.out.println("✅ country_code renseigné pour " + updated + " ligne(s) de " + table);
+        } catch (Exception e) {
+            System.err.println("❌ Erreur lors du remplissage de country_code pour " + table + ": " + e.getMessage());
+        }
     }
 }
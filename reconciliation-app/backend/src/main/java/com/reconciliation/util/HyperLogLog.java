@@ -0,0 +1,56 @@
+package com.reconciliation.util;
+
+/**
+ * Estimation du nombre de valeurs distinctes en mémoire constante (HyperLogLog, 2^14 registres).
+ *
+ * Erreur relative attendue d'environ 0,8 % ; les petites cardinalités sont estimées par comptage linéaire.
+ */
+public final class HyperLogLog {
+
+    private static final int PRECISION = 14;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Rang du premier bit à 1 dans les bits restants (borné par le bit sentinelle)
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public long estimate() {
+        double sum = 0.0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    // FNV-1a 64 bits suivi du mélange final de MurmurHash3
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93e185ea9b7L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
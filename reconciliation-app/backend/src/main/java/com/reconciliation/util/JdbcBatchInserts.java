@@ -0,0 +1,69 @@
+package com.reconciliation.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Insertions JDBC par lots avec un résultat par ligne.
+ *
+ * Avec rewriteBatchedStatements=true, le driver MySQL envoie un lot en un seul INSERT multi-lignes : une ligne
+ * invalide fait échouer tout le lot (aucune ligne insérée) et getUpdateCounts() signale toutes les lignes en échec.
+ * Les lignes en échec ou non exécutées d'un lot sont donc rejouées une à une, ce qui insère les lignes valides
+ * et donne l'erreur propre à chaque ligne invalide.
+ */
+public final class JdbcBatchInserts {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcBatchInserts.class);
+
+    private JdbcBatchInserts() {
+    }
+
+    /**
+     * Insère un lot de lignes
+     * @return pour chaque ligne (même ordre), null si insérée, sinon le message d'erreur
+     */
+    public static List<String> insert(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        List<String> errors = new ArrayList<>(Collections.nCopies(rows.size(), (String) null));
+        int[] counts;
+        try {
+            jdbcTemplate.batchUpdate(sql, rows);
+            return errors;
+        } catch (DataAccessException e) {
+            BatchUpdateException batchException = findBatchUpdateException(e);
+            counts = batchException != null ? batchException.getUpdateCounts() : new int[0];
+            logger.warn("⚠️ Lot de {} ligne(s) en erreur, lignes en échec rejouées une à une: {}",
+                rows.size(), e.getMostSpecificCause().getMessage());
+        }
+        int failed = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (i < counts.length && counts[i] != Statement.EXECUTE_FAILED) {
+                continue;
+            }
+            try {
+                jdbcTemplate.update(sql, rows.get(i));
+            } catch (DataAccessException e) {
+                errors.set(i, e.getMostSpecificCause().getMessage());
+                failed++;
+            }
+        }
+        logger.info("📊 Lot rejoué ligne à ligne: {} ligne(s) en erreur sur {}", failed, rows.size());
+        return errors;
+    }
+
+    private static BatchUpdateException findBatchUpdateException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BatchUpdateException) {
+                return (BatchUpdateException) cause;
+            }
+        }
+        return null;
+    }
+}
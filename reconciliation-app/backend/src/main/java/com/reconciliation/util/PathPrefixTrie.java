@@ -0,0 +1,109 @@
+package com.reconciliation.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table de routes par préfixe de chemin, précompilée sous forme d'arbre de caractères.
+ *
+ * Une recherche parcourt le chemin une seule fois ; parmi les entrées qui correspondent, la première
+ * déclarée l'emporte (même résultat qu'une suite de {@code startsWith} / {@code equals} dans l'ordre).
+ * Construction au démarrage ; lectures concurrentes possibles ensuite.
+ */
+public final class PathPrefixTrie<V> {
+
+    private final Node<V> root = new Node<>();
+    private int nextOrder;
+
+    /**
+     * Correspond à tout chemin commençant par {@code prefix}
+     */
+    public PathPrefixTrie<V> prefix(String prefix, V value) {
+        Node<V> node = nodeFor(prefix);
+        if (node.prefixValue == null) {
+            node.prefixValue = value;
+            node.prefixOrder = nextOrder;
+        }
+        nextOrder++;
+        return this;
+    }
+
+    /**
+     * Correspond exactement à {@code path}
+     */
+    public PathPrefixTrie<V> exact(String path, V value) {
+        Node<V> node = nodeFor(path);
+        if (node.exactValue == null) {
+            node.exactValue = value;
+            node.exactOrder = nextOrder;
+        }
+        nextOrder++;
+        return this;
+    }
+
+    /**
+     * Correspond au chemin lui-même et à ses sous-chemins ({@code path} ou {@code path/...})
+     */
+    public PathPrefixTrie<V> pathAndChildren(String path, V value) {
+        Node<V> node = nodeFor(path);
+        if (node.exactValue == null) {
+            node.exactValue = value;
+            node.exactOrder = nextOrder;
+        }
+        Node<V> children = nodeFor(path + "/");
+        if (children.prefixValue == null) {
+            children.prefixValue = value;
+            children.prefixOrder = nextOrder;
+        }
+        nextOrder++;
+        return this;
+    }
+
+    /**
+     * Valeur de la première entrée déclarée qui correspond au chemin, ou null
+     */
+    public V match(String path) {
+        if (path == null) {
+            return null;
+        }
+        V best = null;
+        int bestOrder = Integer.MAX_VALUE;
+        Node<V> node = root;
+        for (int i = 0; ; i++) {
+            if (node.prefixValue != null && node.prefixOrder < bestOrder) {
+                best = node.prefixValue;
+                bestOrder = node.prefixOrder;
+            }
+            if (i == path.length()) {
+                if (node.exactValue != null && node.exactOrder < bestOrder) {
+                    best = node.exactValue;
+                }
+                return best;
+            }
+            node = node.children.get(path.charAt(i));
+            if (node == null) {
+                return best;
+            }
+        }
+    }
+
+    public boolean matches(String path) {
+        return match(path) != null;
+    }
+
+    private Node<V> nodeFor(String key) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node<>());
+        }
+        return node;
+    }
+
+    private static final class Node<V> {
+        private final Map<Character, Node<V>> children = new HashMap<>(4);
+        private V prefixValue;
+        private int prefixOrder;
+        private V exactValue;
+        private int exactOrder;
+    }
+}
@@ -0,0 +1,3 @@
+-- Index pour le calcul des soldes chaînés par compte
+-- (opération précédente, dernière opération et opérations postérieures d'un compte)
+CREATE INDEX idx_operation_compte_date ON operation(compte_id, date_operation, id);
@@ -0,0 +1,15 @@
+-- Agrégat pré-calculé des classements agences / services (un enregistrement par jour, pays, agence, service)
+CREATE TABLE IF NOT EXISTS ranking_cube (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    bucket_date DATE NULL,
+    country VARCHAR(10) NOT NULL,
+    agency VARCHAR(255) NOT NULL,
+    service VARCHAR(255) NOT NULL,
+    summary_count BIGINT NOT NULL DEFAULT 0,
+    transaction_count BIGINT NOT NULL DEFAULT 0,
+    total_volume DOUBLE NOT NULL DEFAULT 0,
+    operation_count BIGINT NOT NULL DEFAULT 0,
+    total_fees DOUBLE NOT NULL DEFAULT 0,
+    CONSTRAINT uk_ranking_cube_cell UNIQUE (bucket_date, country, agency, service),
+    INDEX idx_ranking_cube_date (bucket_date)
+);
@@ -0,0 +1,10 @@
+-- Code pays normalisé pour appliquer le cloisonnement par pays en SQL
+-- (renseigné à l'écriture par l'application ; lignes existantes complétées au démarrage)
+ALTER TABLE agency_summary_entity ADD COLUMN country_code VARCHAR(255) NULL;
+ALTER TABLE result8rec ADD COLUMN country_code VARCHAR(255) NULL;
+
+CREATE INDEX idx_agency_summary_country_code ON agency_summary_entity(country_code);
+CREATE INDEX idx_result8rec_country_code ON result8rec(country_code);
+
+-- Anti-jointure des résumés avec les opérations annulées/rejetées (même agence, service et jour)
+CREATE INDEX idx_operation_proprietaire_service_date ON operation(code_proprietaire, service, date_operation);
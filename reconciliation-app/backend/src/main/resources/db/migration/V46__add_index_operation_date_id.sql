@@ -0,0 +1,2 @@
+-- Index pour la pagination par curseur des opérations (tri date_operation, id)
+CREATE INDEX idx_operation_date_id ON operation(date_operation, id);
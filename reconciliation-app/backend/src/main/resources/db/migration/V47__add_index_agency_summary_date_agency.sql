@@ -0,0 +1,2 @@
+-- Index pour la recherche des doublons d'un lot de résumés d'agence (dates et agences du lot)
+CREATE INDEX idx_agency_summary_date_agency ON agency_summary_entity(date, agency);
@@ -0,0 +1,2 @@
+-- Index pour le changement de statut par lots (couples agence / numéro Trans GU d'un fichier)
+CREATE INDEX idx_trx_sf_agence_numero_trans_gu ON trx_sf(agence, numero_trans_gu);
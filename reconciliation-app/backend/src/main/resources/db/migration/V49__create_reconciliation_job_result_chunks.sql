@@ -0,0 +1,20 @@
+-- Résultats des jobs de réconciliation stockés par blocs compressés (gzip) de N lignes par catégorie
+CREATE TABLE IF NOT EXISTS reconciliation_job_result_chunks (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_id VARCHAR(255) NOT NULL,
+    category VARCHAR(20) NOT NULL,
+    chunk_index INT NOT NULL,
+    row_count INT NOT NULL,
+    payload LONGBLOB NOT NULL,
+    CONSTRAINT uk_result_chunk_job_category_index UNIQUE (job_id, category, chunk_index)
+);
+
+-- Compteurs des résultats (lus par /results/summary sans charger les blocs)
+ALTER TABLE reconciliation_jobs ADD COLUMN total_matches INT NULL;
+ALTER TABLE reconciliation_jobs ADD COLUMN total_mismatches INT NULL;
+ALTER TABLE reconciliation_jobs ADD COLUMN total_bo_only INT NULL;
+ALTER TABLE reconciliation_jobs ADD COLUMN total_partner_only INT NULL;
+ALTER TABLE reconciliation_jobs ADD COLUMN total_bo_records INT NULL;
+ALTER TABLE reconciliation_jobs ADD COLUMN total_partner_records INT NULL;
+ALTER TABLE reconciliation_jobs ADD COLUMN execution_time_ms BIGINT NULL;
+ALTER TABLE reconciliation_jobs ADD COLUMN processed_records INT NULL;
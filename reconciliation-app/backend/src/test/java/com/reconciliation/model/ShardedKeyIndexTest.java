@@ -0,0 +1,142 @@
+package com.reconciliation.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Index partenaire construit par plages parallèles : identique à une construction séquentielle dans l'ordre des
+ * lignes, y compris pour les clés présentes dans plusieurs plages.
+ */
+class ShardedKeyIndexTest {
+
+    private static final Logger log = LoggerFactory.getLogger("benchmark");
+    private static final int PARALLELISM = 8;
+    private static final int RUNS = 3;
+
+    @Test
+    void parallelBuildMatchesSequentialBuild() {
+        // Assez de lignes pour les 8 plages ; chaque clé revient dans plusieurs plages, une ligne sur cent sans clé
+        int rows = 200_000;
+        String[] keys = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            keys[i] = i % 100 == 0 ? null : "TX" + (i % 70_000);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+        try {
+            ShardedKeyIndex<Integer> unique = ShardedKeyIndex.unique(rows, row -> keys[row], executor, PARALLELISM);
+            assertEquals(sequentialBuild(keys), new HashMap<>(unique));
+
+            ShardedKeyIndex<List<Integer>> grouped = ShardedKeyIndex.grouped(rows, row -> keys[row], row -> row,
+                executor, PARALLELISM);
+            Map<String, List<Integer>> expected = new HashMap<>();
+            for (int i = 0; i < rows; i++) {
+                if (keys[i] != null) {
+                    expected.computeIfAbsent(keys[i], key -> new ArrayList<>()).add(i);
+                }
+            }
+            assertEquals(expected, new HashMap<>(grouped));
+            assertEquals(rows - rows / 100, grouped.getIndexedRowCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Construction de l'index 1-1 : ancien index parallèle (HashMap partagée, put synchronisé), HashMap séquentielle
+     * et {@link ShardedKeyIndex#unique}. Hors build : mvn test -Pbenchmark ;
+     * tailles : -Dbenchmark.index.sizes=... (100 000, 1 000 000 et 5 000 000 lignes par défaut).
+     */
+    @Tag("benchmark")
+    @Test
+    void buildTimePerSize() {
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+        try {
+            for (String size : System.getProperty("benchmark.index.sizes", "100000,1000000,5000000").split(",")) {
+                benchmark(Integer.parseInt(size.trim()), executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void benchmark(int rows, ExecutorService executor) {
+        // Une clé sur vingt est dupliquée, une sur cent est nulle
+        String[] keys = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            keys[i] = i % 100 == 0 ? null : "TX" + (i % 20 == 0 ? i - 1 : i);
+        }
+
+        long synchronizedNanos = Long.MAX_VALUE;
+        long sequentialNanos = Long.MAX_VALUE;
+        long shardedNanos = Long.MAX_VALUE;
+        Map<String, Integer> sequential = null;
+        ShardedKeyIndex<Integer> sharded = null;
+        for (int run = 0; run < RUNS; run++) {
+            // Un seul index vivant à la fois
+            sequential = null;
+            sharded = null;
+            long start = System.nanoTime();
+            Map<String, Integer> shared = synchronizedBuild(keys, executor);
+            synchronizedNanos = Math.min(synchronizedNanos, System.nanoTime() - start);
+            shared = null;
+
+            start = System.nanoTime();
+            sharded = ShardedKeyIndex.unique(rows, row -> keys[row], executor, PARALLELISM);
+            shardedNanos = Math.min(shardedNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            sequential = sequentialBuild(keys);
+            sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+        }
+        assertEquals(sequential.size(), sharded.size());
+
+        log.info("Index partenaire, {} lignes ({} coeurs) - HashMap synchronisée: {} ms | HashMap séquentielle: {} ms"
+                + " | ShardedKeyIndex: {} ms",
+            rows, Runtime.getRuntime().availableProcessors(),
+            synchronizedNanos / 1_000_000, sequentialNanos / 1_000_000, shardedNanos / 1_000_000);
+    }
+
+    // Ancienne construction : plages parallèles écrivant dans une HashMap partagée sous verrou
+    private static Map<String, Integer> synchronizedBuild(String[] keys, ExecutorService executor) {
+        Map<String, Integer> index = new HashMap<>();
+        int chunkSize = keys.length / PARALLELISM;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < PARALLELISM; t++) {
+            int start = t * chunkSize;
+            int end = t == PARALLELISM - 1 ? keys.length : (t + 1) * chunkSize;
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int j = start; j < end; j++) {
+                    if (keys[j] != null) {
+                        synchronized (index) {
+                            index.put(keys[j], j);
+                        }
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return index;
+    }
+
+    private static Map<String, Integer> sequentialBuild(String[] keys) {
+        Map<String, Integer> index = new HashMap<>(Math.max(16, keys.length * 2));
+        for (int j = 0; j < keys.length; j++) {
+            if (keys[j] != null) {
+                index.put(keys[j], j);
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,104 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.AgencySummaryEntity;
+import com.reconciliation.repository.AgencySummaryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Insertion par lots avec une ligne invalide : seule cette ligne est en erreur, les autres sont insérées,
+ * y compris lorsque le driver signale tout le lot en échec (INSERT multi-lignes de rewriteBatchedStatements).
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AgencySummaryBulkService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AgencySummaryBulkServiceTest {
+
+    private static final int ROWS = 5;
+    private static final int INVALID_ROW = 2;
+
+    @Autowired
+    private AgencySummaryBulkService bulkService;
+
+    @Autowired
+    private AgencySummaryRepository repository;
+
+    @SpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void invalidRowFailsAloneInBatch() {
+        assertOnlyInvalidRowFails(bulkService.insertAll(summaries()));
+    }
+
+    @Test
+    void invalidRowFailsAloneWhenWholeRewrittenBatchIsRejected() {
+        // INSERT multi-lignes refusé : aucune ligne insérée, toutes signalées en échec
+        int[] allFailed = new int[ROWS];
+        Arrays.fill(allFailed, Statement.EXECUTE_FAILED);
+        doThrow(new DataIntegrityViolationException("Lot refusé", new BatchUpdateException("Data too long for column 'agency'", allFailed)))
+            .doCallRealMethod()
+            .when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        assertOnlyInvalidRowFails(bulkService.insertAll(summaries()));
+    }
+
+    private void assertOnlyInvalidRowFails(List<String> errors) {
+        assertEquals(ROWS, errors.size());
+        for (int i = 0; i < ROWS; i++) {
+            if (i == INVALID_ROW) {
+                assertNotNull(errors.get(i), "ligne invalide " + i);
+            } else {
+                assertNull(errors.get(i), "ligne valide " + i);
+            }
+        }
+        assertEquals(ROWS - 1, repository.count());
+    }
+
+    private static List<AgencySummaryEntity> summaries() {
+        List<AgencySummaryEntity> summaries = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            AgencySummaryEntity summary = new AgencySummaryEntity();
+            // Agence plus longue que la colonne (varchar 255)
+            summary.setAgency(i == INVALID_ROW ? "A".repeat(300) : "CELCM000" + i);
+            summary.setService("CASHINMTN");
+            summary.setCountry("CM");
+            summary.setDate("2024-01-0" + (i + 1));
+            summary.setTotalVolume(1000.0 * i);
+            summary.setRecordCount(10 + i);
+            summary.setTimestamp("2024-01-10T00:00:00");
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+}
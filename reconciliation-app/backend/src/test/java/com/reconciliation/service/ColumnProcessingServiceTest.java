@@ -0,0 +1,251 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.ColumnProcessingRule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pipeline de règles de colonnes compilé une fois sur l'en-tête ({@link ColumnProcessingService#compileRowPipeline})
+ * comparé au traitement d'origine, ligne par ligne : règles relues, colonnes résolues et expressions régulières
+ * recompilées à chaque ligne (voir {@link OriginalRowProcessor}).
+ */
+class ColumnProcessingServiceTest {
+
+    private static final Logger log = LoggerFactory.getLogger("benchmark");
+    private static final String MODEL_ID = "modele-test";
+    private static final List<String> HEADERS =
+        List.of("IDTransaction", "Numéro Trans GU", "Téléphone client", "Montant", "Service", "Agence");
+
+    private final List<ColumnProcessingRule> rules = List.of(
+        rule("IDTransaction", null, r -> r.setStringToRemove("_CM")),
+        rule("Numero Trans GU", null, r -> r.setTrimSpaces(true)),
+        rule("Téléphone client", "Téléphone normalisé", r -> r.setRegexReplace("[^0-9]|")),
+        rule("Service", null, r -> r.setToUpperCase(true)),
+        rule("Agence", null, r -> r.setRemoveAccents(true)),
+        rule("Montant", "Montant formaté", r -> {
+            r.setFormatType("numeric");
+            r.setPadZeros(true);
+        }));
+
+    private final ColumnProcessingRuleService ruleService = new ColumnProcessingRuleService() {
+        private final List<CompiledColumnRule> compiledRules = CompiledColumnRule.compile(rules);
+
+        @Override
+        public List<ColumnProcessingRule> getRulesByModelId(String modelId) {
+            return rules;
+        }
+
+        @Override
+        public List<CompiledColumnRule> getCompiledRulesByModelId(String modelId) {
+            return compiledRules;
+        }
+    };
+
+    @Test
+    void compiledPipelineMatchesOriginalPerRowProcessing() {
+        List<List<String>> values = values(2_000);
+
+        assertEquals(processOriginal(values), processCompiled(values));
+
+        Map<String, String> first = processCompiled(values.subList(0, 1)).get(0);
+        assertEquals("TX0", first.get("IDTransaction"));
+        assertEquals("GU0", first.get("Numéro Trans GU"));
+        assertEquals("221771000000", first.get("Téléphone normalisé"));
+        assertEquals("CASHIN", first.get("Service"));
+        assertEquals("Agence Thies 0", first.get("Agence"));
+    }
+
+    /**
+     * Débit des deux chemins. Hors build : mvn test -Pbenchmark ; taille : -Dbenchmark.pipeline.rows=...
+     * (200 000 lignes par défaut). Les traces System.out du chemin d'origine ne sont pas reproduites.
+     */
+    @Tag("benchmark")
+    @Test
+    void perRowRuleLookupVersusCompiledPipeline() {
+        int rows = Integer.getInteger("benchmark.pipeline.rows", 200_000);
+        List<List<String>> values = values(rows);
+
+        long originalStart = System.nanoTime();
+        List<Map<String, String>> original = processOriginal(values);
+        long originalNanos = System.nanoTime() - originalStart;
+
+        long pipelineStart = System.nanoTime();
+        List<Map<String, String>> compiled = processCompiled(values);
+        long pipelineNanos = System.nanoTime() - pipelineStart;
+
+        assertEquals(original, compiled);
+        log.info("Règles de colonnes, {} lignes - règles relues par ligne: {} lignes/s ({} ms)"
+                + " | pipeline compilé: {} lignes/s ({} ms)",
+            rows, Math.round(rows / (originalNanos / 1e9)), originalNanos / 1_000_000,
+            Math.round(rows / (pipelineNanos / 1e9)), pipelineNanos / 1_000_000);
+    }
+
+    private List<Map<String, String>> processOriginal(List<List<String>> values) {
+        OriginalRowProcessor processor = new OriginalRowProcessor(ruleService);
+        List<Map<String, String>> processed = new ArrayList<>(values.size());
+        for (List<String> row : values) {
+            Map<String, String> processedRow = new HashMap<>();
+            processor.processDataRow(new HashMap<>(toRow(row))).forEach((key, value) ->
+                processedRow.put(key, value != null ? value.toString() : null));
+            processed.add(processedRow);
+        }
+        return processed;
+    }
+
+    private List<Map<String, String>> processCompiled(List<List<String>> values) {
+        ColumnProcessingService service = new ColumnProcessingService();
+        ReflectionTestUtils.setField(service, "columnProcessingRuleService", ruleService);
+        ColumnProcessingService.RowPipeline pipeline = service.compileRowPipeline(MODEL_ID, HEADERS);
+        List<Map<String, String>> processed = new ArrayList<>(values.size());
+        for (List<String> row : values) {
+            processed.add(pipeline.apply(toRow(row)));
+        }
+        return processed;
+    }
+
+    private static List<List<String>> values(int rows) {
+        List<List<String>> values = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            values.add(List.of("TX" + i + "_CM", "  GU" + i + " ", "+221 77-" + (1_000_000 + i), String.valueOf(i * 10),
+                "cashin", "Agence Thiès " + (i % 40)));
+        }
+        return values;
+    }
+
+    // Ligne telle que produite par le curseur (nouvelle map par ligne)
+    private static Map<String, String> toRow(List<String> values) {
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < HEADERS.size(); i++) {
+            row.put(HEADERS.get(i), values.get(i));
+        }
+        return row;
+    }
+
+    private static ColumnProcessingRule rule(String source, String target, java.util.function.Consumer<ColumnProcessingRule> options) {
+        ColumnProcessingRule rule = new ColumnProcessingRule();
+        rule.setSourceColumn(source);
+        rule.setTargetColumn(target);
+        options.accept(rule);
+        return rule;
+    }
+
+    /**
+     * ColumnProcessingService.processDataRow d'origine, sans ses traces : règles relues pour chaque ligne,
+     * colonne source recherchée dans chaque ligne, chaque transformation par String.replaceAll
+     */
+    private static final class OriginalRowProcessor {
+        private final ColumnProcessingRuleService ruleService;
+
+        OriginalRowProcessor(ColumnProcessingRuleService ruleService) {
+            this.ruleService = ruleService;
+        }
+
+        Map<String, Object> processDataRow(Map<String, Object> data) {
+            List<ColumnProcessingRule> rules = ruleService.getRulesByModelId(MODEL_ID);
+            Map<String, Object> processedData = new HashMap<>(data);
+            for (ColumnProcessingRule rule : rules) {
+                String targetColumn = rule.getTargetColumn();
+                String actualColumnKey = findColumnKey(processedData.keySet(), rule.getSourceColumn());
+                if (actualColumnKey == null) {
+                    continue;
+                }
+                Object processedValue = applyRule(processedData.get(actualColumnKey), rule);
+                if (targetColumn == null || targetColumn.trim().isEmpty()) {
+                    processedData.put(actualColumnKey, processedValue);
+                } else {
+                    processedData.put(targetColumn, processedValue);
+                }
+            }
+            return processedData;
+        }
+
+        private static String findColumnKey(Collection<String> columns, String sourceColumn) {
+            if (columns.contains(sourceColumn)) {
+                return sourceColumn;
+            }
+            String normalizedSource = normalizeColumnName(sourceColumn);
+            for (String key : columns) {
+                if (normalizedSource.equalsIgnoreCase(normalizeColumnName(key))) {
+                    return key;
+                }
+            }
+            for (String key : columns) {
+                if (key.contains(normalizedSource) || normalizedSource.contains(key)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+
+        private static String normalizeColumnName(String columnName) {
+            if (columnName == null) {
+                return "";
+            }
+            String normalized = columnName.replace("Num??ro", "Numéro").replace("??", "é").replace("?", "");
+            normalized = Normalizer.normalize(normalized, Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+            return normalized.trim().toLowerCase().replaceAll("\\s+", " ");
+        }
+
+        private static Object applyRule(Object value, ColumnProcessingRule rule) {
+            if (value == null) {
+                return null;
+            }
+            String stringValue = value.toString();
+            String formatType = rule.getFormatType();
+            if (formatType != null && formatType.equalsIgnoreCase("numeric")) {
+                stringValue = stringValue.replaceAll("[^0-9.-]", "");
+            } else if (formatType != null && formatType.equalsIgnoreCase("boolean")) {
+                stringValue = Boolean.parseBoolean(stringValue) ? "true" : "false";
+            }
+            if (rule.isRemoveAccents()) {
+                stringValue = Normalizer.normalize(stringValue, Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+            }
+            String stringToRemove = rule.getStringToRemove();
+            if (stringToRemove != null && !stringToRemove.isEmpty()) {
+                stringValue = stringValue.replaceAll(java.util.regex.Pattern.quote(stringToRemove), "");
+            }
+            Map<String, String> replacementMap = rule.getSpecialCharReplacementMap();
+            if (replacementMap != null) {
+                for (Map.Entry<String, String> entry : replacementMap.entrySet()) {
+                    stringValue = stringValue.replace(entry.getKey(), entry.getValue());
+                }
+            }
+            if (rule.isRemoveSpecialChars()) {
+                stringValue = stringValue.replaceAll("[^a-zA-Z0-9\\s]", "");
+            }
+            if (rule.isToUpperCase()) {
+                stringValue = stringValue.toUpperCase();
+            }
+            if (rule.isToLowerCase()) {
+                stringValue = stringValue.toLowerCase();
+            }
+            if (rule.isPadZeros() && stringValue.matches("\\d+")) {
+                stringValue = String.format("%08d", Integer.parseInt(stringValue));
+            }
+            String regexReplace = rule.getRegexReplace();
+            if (regexReplace != null && !regexReplace.isEmpty()) {
+                String[] parts = regexReplace.split("\\|", 2);
+                if (parts.length == 2) {
+                    stringValue = stringValue.replaceAll(parts[0], parts[1]);
+                }
+            }
+            if (rule.isTrimSpaces()) {
+                stringValue = stringValue.trim();
+            }
+            return stringValue;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.reconciliation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompiledCorrespondenceRulesTest {
+
+    @Test
+    void tabulatesSmallLiterals() {
+        CompiledCorrespondenceRules rules = CompiledCorrespondenceRules.compile(List.of(
+            rule("partnerMatches == 0", "MARK_AS_BO_ONLY"),
+            rule("partnerMatches == 1", "MARK_AS_MATCH"),
+            rule("partnerMatches > 1", "MARK_AS_MISMATCH")));
+
+        assertEquals("MARK_AS_BO_ONLY", rules.actionFor(0));
+        assertEquals("MARK_AS_MATCH", rules.actionFor(1));
+        assertEquals("MARK_AS_MISMATCH", rules.actionFor(2));
+        assertEquals("MARK_AS_MISMATCH", rules.actionFor(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void evaluatesCountsBeyondTheTableForLargeLiterals() {
+        CompiledCorrespondenceRules rules = CompiledCorrespondenceRules.compile(List.of(
+            rule("partnerMatches > 2147483647", "NEVER"),
+            rule("partnerMatches >= 1000000000", "MARK_AS_MISMATCH"),
+            rule("partnerMatches >= 1", "MARK_AS_MATCH")));
+
+        assertEquals(CompiledCorrespondenceRules.DEFAULT_ACTION, rules.actionFor(0));
+        assertEquals("MARK_AS_MATCH", rules.actionFor(1));
+        assertEquals("MARK_AS_MATCH", rules.actionFor(CompiledCorrespondenceRules.MAX_TABULATED_COUNT + 5));
+        assertEquals("MARK_AS_MISMATCH", rules.actionFor(1_000_000_000));
+        assertEquals("MARK_AS_MISMATCH", rules.actionFor(Integer.MAX_VALUE));
+    }
+
+    private static ConfigurableReconciliationService.CorrespondenceRule rule(String condition, String action) {
+        ConfigurableReconciliationService.CorrespondenceRule rule = new ConfigurableReconciliationService.CorrespondenceRule();
+        rule.setName(condition);
+        rule.setCondition(condition);
+        rule.setAction(action);
+        return rule;
+    }
+}
@@ -0,0 +1,235 @@
+package com.reconciliation.service;
+
+import com.reconciliation.dto.ReconciliationRequest;
+import com.reconciliation.dto.ReconciliationResponse;
+import com.reconciliation.entity.ColumnProcessingRule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Appariement par lots BO : logique SPECIAL_RATIO (TRXBO/OPPART) identique à un parcours séquentiel, et règles du
+ * modèle BO lues une seule fois pour tous les lots d'une réconciliation en flux.
+ *
+ * Paire TRXBO/OPPART générée : une clé BO sur dix sans OPPART (TSOP), une avec un seul (TRXSF), une avec trois (Ecart),
+ * les autres avec deux (correspondance), plus des OPPART sans TRXBO.
+ */
+class CsvReconciliationServiceTest {
+
+    private static final Logger log = LoggerFactory.getLogger("benchmark");
+    private static final int RUNS = 3;
+
+    @Test
+    void parallelRatioBatchesMatchSequentialWalk() {
+        // Plusieurs lots de 10 000 lignes BO
+        ReconciliationRequest request = trxboOppartPair(35_000);
+
+        ReconciliationResponse parallel = reconcileWithSpecialRatio(request, 4);
+
+        assertSameAsSequentialWalk(request, parallel);
+        assertSameResponse(reconcileWithSpecialRatio(request, 1), parallel);
+    }
+
+    @Test
+    void streamingStandardPathLoadsBoRulesOnceForAllBatches() throws Exception {
+        Map<String, Integer> ruleLoads = new HashMap<>();
+        ColumnProcessingRule removeSuffix = new ColumnProcessingRule();
+        removeSuffix.setSourceColumn("IDTransaction");
+        removeSuffix.setStringToRemove("_CM");
+        ColumnProcessingRuleService ruleService = new ColumnProcessingRuleService() {
+            @Override
+            public List<CompiledColumnRule> getCompiledRulesByModelId(String modelId) {
+                ruleLoads.merge(modelId, 1, Integer::sum);
+                return CompiledColumnRule.compile("modele-bo".equals(modelId) ? List.of(removeSuffix) : List.of());
+            }
+        };
+        ColumnProcessingService columnProcessingService = new ColumnProcessingService();
+        ReflectionTestUtils.setField(columnProcessingService, "columnProcessingRuleService", ruleService);
+        ConfigurableReconciliationService configurableService = Mockito.mock(ConfigurableReconciliationService.class);
+        Mockito.when(configurableService.getPartnerModelId(Mockito.any())).thenReturn("modele-partenaire");
+        CsvReconciliationService service = new CsvReconciliationService(configurableService, columnProcessingService);
+
+        // Trois lots BO de 10 000 lignes au plus ; une clé BO sur deux a son partenaire
+        int rows = 25_000;
+        StringBuilder bo = new StringBuilder("IDTransaction;Montant\n");
+        StringBuilder partner = new StringBuilder("IDTransaction;Montant\n");
+        for (int i = 0; i < rows; i++) {
+            bo.append("TX").append(i).append("_CM;").append(i).append('\n');
+            if (i % 2 == 0) {
+                partner.append("TX").append(i).append(';').append(i).append('\n');
+            }
+        }
+        TabularFileReader reader = new TabularFileReader();
+        ReconciliationRequest request = new ReconciliationRequest();
+        request.setBoKeyColumn("IDTransaction");
+        request.setPartnerKeyColumn("IDTransaction");
+        request.setModelId("modele-bo");
+
+        ReconciliationResponse response;
+        try {
+            response = service.reconcileStreaming(
+                () -> reader.open(new ByteArrayInputStream(bo.toString().getBytes(StandardCharsets.UTF_8)), "bo.csv"),
+                () -> reader.open(new ByteArrayInputStream(partner.toString().getBytes(StandardCharsets.UTF_8)), "partenaire.csv"),
+                request);
+        } finally {
+            service.destroy();
+        }
+
+        assertEquals(rows / 2, response.getTotalMatches());
+        assertEquals(rows / 2, response.getTotalBoOnly());
+        assertEquals(0, response.getTotalPartnerOnly());
+        assertEquals(1, ruleLoads.get("modele-bo"));
+    }
+
+    /**
+     * Débit sur un thread (lots traités l'un après l'autre) et sur un thread par cœur.
+     * Hors build : mvn test -Pbenchmark ; taille : -Dbenchmark.ratio.rows=... (1 000 000 lignes BO par défaut).
+     */
+    @Tag("benchmark")
+    @Test
+    void ratioThroughputPerThreadCount() {
+        int rows = Integer.getInteger("benchmark.ratio.rows", 1_000_000);
+        int cores = Runtime.getRuntime().availableProcessors();
+        ReconciliationRequest request = trxboOppartPair(rows);
+
+        ReconciliationResponse sequential = null;
+        ReconciliationResponse parallel = null;
+        long sequentialNanos = Long.MAX_VALUE;
+        long parallelNanos = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            sequential = null;
+            parallel = null;
+            long start = System.nanoTime();
+            sequential = reconcileWithSpecialRatio(request, 1);
+            sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            parallel = reconcileWithSpecialRatio(request, cores);
+            parallelNanos = Math.min(parallelNanos, System.nanoTime() - start);
+        }
+        assertSameResponse(sequential, parallel);
+
+        log.info("SPECIAL_RATIO, {} lignes TRXBO / {} OPPART - 1 thread: {} lignes/s ({} ms) | {} threads: {} lignes/s"
+                + " ({} ms) | accélération x{}",
+            rows, request.getPartnerFileContent().size(),
+            Math.round(rows / (sequentialNanos / 1e9)), sequentialNanos / 1_000_000,
+            cores, Math.round(rows / (parallelNanos / 1e9)), parallelNanos / 1_000_000,
+            String.format("%.2f", (double) sequentialNanos / parallelNanos));
+    }
+
+    // Classement attendu, ligne BO par ligne BO, d'après le nombre d'OPPART de chaque clé
+    private static void assertSameAsSequentialWalk(ReconciliationRequest request, ReconciliationResponse response) {
+        Map<String, Integer> partnerCounts = new HashMap<>();
+        for (Map<String, String> partner : request.getPartnerFileContent()) {
+            partnerCounts.merge(partner.get("ID"), 1, Integer::sum);
+        }
+        List<String> matches = new ArrayList<>();
+        List<String> mismatches = new ArrayList<>();
+        List<String> boOnly = new ArrayList<>();
+        List<String> partnerOnly = new ArrayList<>();
+        for (Map<String, String> bo : request.getBoFileContent()) {
+            String key = bo.get("ID");
+            int count = partnerCounts.getOrDefault(key, 0);
+            switch (count) {
+                case 0 -> boOnly.add(key + "/TSOP");
+                case 1 -> {
+                    boOnly.add(key + "/TRXSF");
+                    partnerOnly.add(key + "/TRXSF");
+                }
+                case 2 -> matches.add(key);
+                default -> {
+                    mismatches.add(key + "/Ecart");
+                    for (int p = 0; p < count; p++) {
+                        partnerOnly.add(key + "/Ecart");
+                    }
+                }
+            }
+        }
+        // OPPART sans TRXBO, à la suite, dans l'ordre du fichier partenaire
+        for (Map<String, String> partner : request.getPartnerFileContent()) {
+            if (partner.get("ID").startsWith("ORPHELIN")) {
+                partnerOnly.add(partner.get("ID") + "/Ecart");
+            }
+        }
+
+        assertEquals(matches, response.getMatches().stream().map(ReconciliationResponse.Match::getKey).toList());
+        assertEquals(mismatches, commented(response.getMismatches()));
+        assertEquals(boOnly, commented(response.getBoOnly()));
+        assertEquals(partnerOnly, commented(response.getPartnerOnly()));
+    }
+
+    private static List<String> commented(List<Map<String, String>> records) {
+        return records.stream().map(record -> record.get("ID") + "/" + record.get("Commentaire")).toList();
+    }
+
+    private static void assertSameResponse(ReconciliationResponse expected, ReconciliationResponse actual) {
+        assertEquals(expected.getMatches(), actual.getMatches());
+        assertEquals(expected.getBoOnly(), actual.getBoOnly());
+        assertEquals(expected.getMismatches(), actual.getMismatches());
+        assertEquals(expected.getPartnerOnly(), actual.getPartnerOnly());
+    }
+
+    // Service dont les lots BO s'exécutent sur un executor de la taille donnée
+    private static ReconciliationResponse reconcileWithSpecialRatio(ReconciliationRequest request, int threads) {
+        CsvReconciliationService service = new CsvReconciliationService(
+            Mockito.mock(ConfigurableReconciliationService.class), Mockito.mock(ColumnProcessingService.class));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ReflectionTestUtils.setField(service, "executorService", executor);
+        try {
+            return ReflectionTestUtils.invokeMethod(service, "reconcileWithSpecialRatio", request,
+                System.currentTimeMillis(), CsvReconciliationService.ProgressListener.NONE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ReconciliationRequest trxboOppartPair(int rows) {
+        List<Map<String, String>> bo = new ArrayList<>(rows);
+        List<Map<String, String>> partner = new ArrayList<>(rows * 2);
+        for (int i = 0; i < rows; i++) {
+            String key = "TRX" + i;
+            bo.add(record(key, "TRXBO", i));
+            int partnerCount = switch (i % 10) {
+                case 0 -> 0;
+                case 1 -> 1;
+                case 2 -> 3;
+                default -> 2;
+            };
+            for (int p = 0; p < partnerCount; p++) {
+                partner.add(record(key, "OPPART", i));
+            }
+            if (i % 50 == 0) {
+                partner.add(record("ORPHELIN" + i, "OPPART", i));
+            }
+        }
+        ReconciliationRequest request = new ReconciliationRequest();
+        request.setBoFileContent(bo);
+        request.setPartnerFileContent(partner);
+        request.setBoKeyColumn("ID");
+        request.setPartnerKeyColumn("ID");
+        return request;
+    }
+
+    private static Map<String, String> record(String key, String type, int i) {
+        Map<String, String> record = new HashMap<>(8);
+        record.put("ID", key);
+        record.put("Type", type);
+        record.put("Montant", String.valueOf(1000 + i % 5000));
+        record.put("Service", "CASHIN");
+        return record;
+    }
+}
@@ -0,0 +1,136 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.EcartSoldeEntity;
+import com.reconciliation.model.EcartSolde;
+import com.reconciliation.repository.EcartSoldeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Débit d'import des écarts de solde sur H2 embarquée : chemin d'origine (existsByIdTransaction par ligne puis saveAll)
+ * comparé à {@link EcartSoldeService#createMultipleEcartSoldes}. Hors build : mvn test -Pbenchmark.
+ *
+ * Un écart sur dix existe déjà en base. Taille : -Dbenchmark.ecart.rows=... (100 000 lignes par défaut).
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EcartSoldeService.class, EcartSoldeBulkService.class, TabularFileReader.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EcartSoldeServiceBenchmarkTest {
+
+    // Hors de com.reconciliation, limité à WARN par le profil h2
+    private static final Logger log = LoggerFactory.getLogger("benchmark");
+
+    @Autowired
+    private EcartSoldeService ecartSoldeService;
+
+    @Autowired
+    private EcartSoldeBulkService bulkService;
+
+    @Autowired
+    private EcartSoldeRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private FraisTransactionService fraisTransactionService;
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void perRowDuplicateCheckVersusBulkImport() {
+        int rows = Integer.getInteger("benchmark.ecart.rows", 100_000);
+        int existingCount = rows / 10;
+        // Index de la migration V20 (absent du schéma généré par Hibernate)
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_ecart_solde_id_transaction ON ecart_solde(id_transaction)");
+
+        List<EcartSoldeEntity> existing = new ArrayList<>(existingCount);
+        for (int i = 0; i < existingCount; i++) {
+            existing.add(toEntity(ecart("EXIST-" + i, i)));
+        }
+        bulkService.insertAll(existing);
+
+        List<EcartSolde> legacyInput = input("OLD-", rows, existingCount);
+        long legacyStart = System.nanoTime();
+        int legacySaved = saveWithPerRowCheck(legacyInput);
+        long legacyNanos = System.nanoTime() - legacyStart;
+
+        List<EcartSolde> bulkInput = input("NEW-", rows, existingCount);
+        long bulkStart = System.nanoTime();
+        int bulkSaved = ecartSoldeService.createMultipleEcartSoldes(bulkInput).size();
+        long bulkNanos = System.nanoTime() - bulkStart;
+
+        log.info("Écarts de solde, {} lignes - existsByIdTransaction + saveAll: {} lignes/s ({} ms, {} enregistrées)"
+                + " | createMultipleEcartSoldes: {} lignes/s ({} ms, {} enregistrées)",
+            rows, Math.round(rows / (legacyNanos / 1e9)), legacyNanos / 1_000_000, legacySaved,
+            Math.round(rows / (bulkNanos / 1e9)), bulkNanos / 1_000_000, bulkSaved);
+    }
+
+    // Chemin d'origine de createMultipleEcartSoldes, conservé ici comme référence
+    private int saveWithPerRowCheck(List<EcartSolde> input) {
+        List<EcartSoldeEntity> toSave = new ArrayList<>();
+        for (EcartSolde ecartSolde : input) {
+            if (!repository.existsByIdTransaction(ecartSolde.getIdTransaction())) {
+                ecartSolde.setCommentaire("IMPACT J+1");
+                toSave.add(toEntity(ecartSolde));
+            }
+        }
+        return repository.saveAll(toSave).size();
+    }
+
+    // Lignes à importer : les existingCount premières reprennent des IDTransaction déjà en base
+    private static List<EcartSolde> input(String prefix, int rows, int existingCount) {
+        List<EcartSolde> input = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            input.add(ecart(i < existingCount ? "EXIST-" + i : prefix + i, i));
+        }
+        return input;
+    }
+
+    private static EcartSolde ecart(String idTransaction, int i) {
+        EcartSolde ecartSolde = new EcartSolde();
+        ecartSolde.setIdTransaction(idTransaction);
+        ecartSolde.setTelephoneClient("77" + (1_000_000 + i));
+        ecartSolde.setMontant(-1000.0 - i);
+        ecartSolde.setService("CASHIN");
+        ecartSolde.setAgence("AG" + (i % 50));
+        ecartSolde.setDateTransaction(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i));
+        ecartSolde.setPays("SN");
+        return ecartSolde;
+    }
+
+    private static EcartSoldeEntity toEntity(EcartSolde ecartSolde) {
+        EcartSoldeEntity entity = new EcartSoldeEntity();
+        entity.setIdTransaction(ecartSolde.getIdTransaction());
+        entity.setTelephoneClient(ecartSolde.getTelephoneClient());
+        entity.setMontant(ecartSolde.getMontant());
+        entity.setService(ecartSolde.getService());
+        entity.setAgence(ecartSolde.getAgence());
+        entity.setDateTransaction(ecartSolde.getDateTransaction());
+        entity.setPays(ecartSolde.getPays());
+        entity.setCommentaire(ecartSolde.getCommentaire());
+        return entity;
+    }
+}
@@ -0,0 +1,128 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.EcartSoldeEntity;
+import com.reconciliation.model.EcartSolde;
+import com.reconciliation.repository.EcartSoldeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Import groupé des écarts de solde : mêmes lignes enregistrées que l'ancienne vérification ligne à ligne
+ * (existsByIdTransaction), sur plusieurs lots de recherche des IDTransaction existants.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EcartSoldeService.class, EcartSoldeBulkService.class, TabularFileReader.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EcartSoldeServiceTest {
+
+    private static final int ROWS = 1200;
+    private static final int EXISTING = 150;
+
+    @Autowired
+    private EcartSoldeService ecartSoldeService;
+
+    @Autowired
+    private EcartSoldeRepository repository;
+
+    @MockBean
+    private FraisTransactionService fraisTransactionService;
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void bulkImportPersistsSameRowsAsPerRowCheck() {
+        List<EcartSoldeEntity> existing = new ArrayList<>(EXISTING);
+        for (int i = 0; i < EXISTING; i++) {
+            EcartSoldeEntity entity = new EcartSoldeEntity();
+            entity.setIdTransaction("EXIST-" + i);
+            entity.setMontant(-1.0);
+            entity.setDateTransaction(LocalDateTime.of(2023, 12, 31, 0, 0));
+            existing.add(entity);
+        }
+        repository.saveAll(existing);
+
+        // Ancien chemin : une requête d'existence par ligne, écart enregistré s'il est absent
+        List<Long> legacyIds = new ArrayList<>();
+        for (EcartSolde ecartSolde : input()) {
+            String idTransaction = ecartSolde.getIdTransaction();
+            if (!idTransaction.isEmpty() && repository.existsByIdTransaction(idTransaction)) {
+                continue;
+            }
+            ecartSolde.setCommentaire("IMPACT J+1");
+            legacyIds.add(ecartSoldeService.createEcartSolde(ecartSolde).getId());
+        }
+        List<List<Object>> legacyRows = rows(legacyIds);
+        repository.deleteAllByIdInBatch(legacyIds);
+
+        List<Long> bulkIds = ecartSoldeService.createMultipleEcartSoldes(input()).stream()
+            .map(EcartSolde::getId)
+            .toList();
+
+        assertEquals(ROWS - EXISTING, bulkIds.size());
+        assertEquals(legacyRows, rows(bulkIds));
+        assertEquals(ROWS, repository.count());
+    }
+
+    @Test
+    void duplicateWithinImportIsSavedOnce() {
+        List<EcartSolde> input = new ArrayList<>(List.of(ecart("TX-1", 1), ecart("TX-2", 2), ecart("TX-1", 3),
+            ecart("", 4), ecart("", 5)));
+
+        List<EcartSolde> saved = ecartSoldeService.createMultipleEcartSoldes(input);
+
+        // Seule la première occurrence de TX-1 est retenue ; un IDTransaction vide n'est jamais un doublon
+        assertEquals(List.of("TX-1", "TX-2", "", ""), saved.stream().map(EcartSolde::getIdTransaction).toList());
+        assertEquals(4, repository.count());
+    }
+
+    // Lignes enregistrées, dans l'ordre d'insertion, sans l'identifiant ni la date d'import
+    private List<List<Object>> rows(List<Long> ids) {
+        return repository.findAllById(ids).stream()
+            .sorted(Comparator.comparing(EcartSoldeEntity::getId))
+            .map(e -> List.<Object>of(e.getIdTransaction(), e.getTelephoneClient(), e.getMontant(), e.getService(),
+                e.getAgence(), e.getDateTransaction(), e.getPays(), e.getCommentaire()))
+            .toList();
+    }
+
+    // Écarts à importer : les EXISTING premiers reprennent des IDTransaction déjà en base, un sur cent est vide
+    private static List<EcartSolde> input() {
+        List<EcartSolde> input = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            String idTransaction = i < EXISTING ? "EXIST-" + i : i % 100 == 0 ? "" : "TX-" + i;
+            input.add(ecart(idTransaction, i));
+        }
+        return input;
+    }
+
+    private static EcartSolde ecart(String idTransaction, int i) {
+        EcartSolde ecartSolde = new EcartSolde();
+        ecartSolde.setIdTransaction(idTransaction);
+        ecartSolde.setTelephoneClient("77" + (1_000_000 + i));
+        ecartSolde.setMontant(1000.0 + i);
+        ecartSolde.setService(i % 2 == 0 ? "CASHIN" : "PAIEMENT");
+        ecartSolde.setAgence("AG" + (i % 50));
+        ecartSolde.setDateTransaction(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i));
+        ecartSolde.setPays("SN");
+        return ecartSolde;
+    }
+}
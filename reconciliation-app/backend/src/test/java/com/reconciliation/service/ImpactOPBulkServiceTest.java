@@ -0,0 +1,108 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.ImpactOPEntity;
+import com.reconciliation.repository.ImpactOPRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Lot d'impacts OP dont un seul est invalide : les quatre autres sont enregistrés, que le lot échoue ligne à ligne
+ * ou en bloc (driver MySQL avec rewriteBatchedStatements).
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ImpactOPBulkService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImpactOPBulkServiceTest {
+
+    private static final int ROWS = 5;
+    private static final int INVALID_ROW = 2;
+
+    @Autowired
+    private ImpactOPBulkService bulkService;
+
+    @Autowired
+    private ImpactOPRepository repository;
+
+    @SpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void invalidRowFailsAloneInBatch() {
+        assertOnlyInvalidRowFails(bulkService.insertAll(impacts()));
+    }
+
+    @Test
+    void invalidRowFailsAloneWhenWholeRewrittenBatchIsRejected() {
+        // INSERT multi-lignes refusé : aucune ligne insérée, toutes signalées en échec
+        int[] allFailed = new int[ROWS];
+        Arrays.fill(allFailed, Statement.EXECUTE_FAILED);
+        doThrow(new DataIntegrityViolationException("Lot refusé", new BatchUpdateException("Data too long for column 'groupe_reseau'", allFailed)))
+            .doCallRealMethod()
+            .when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        assertOnlyInvalidRowFails(bulkService.insertAll(impacts()));
+    }
+
+    private void assertOnlyInvalidRowFails(List<String> errors) {
+        assertEquals(ROWS, errors.size());
+        for (int i = 0; i < ROWS; i++) {
+            if (i == INVALID_ROW) {
+                assertNotNull(errors.get(i), "ligne invalide " + i);
+            } else {
+                assertNull(errors.get(i), "ligne valide " + i);
+            }
+        }
+        assertEquals(ROWS - 1, repository.count());
+    }
+
+    private static List<ImpactOPEntity> impacts() {
+        List<ImpactOPEntity> impacts = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            ImpactOPEntity impact = new ImpactOPEntity();
+            impact.setTypeOperation("IMPACT_COMPTIMPACT-COMPTE-GENERAL");
+            impact.setMontant(BigDecimal.valueOf(-1500L * (i + 1)));
+            impact.setSoldeAvant(BigDecimal.valueOf(100_000));
+            impact.setSoldeApres(BigDecimal.valueOf(100_000 - 1500L * (i + 1)));
+            impact.setCodeProprietaire("CELCM000" + i);
+            impact.setDateOperation(LocalDateTime.of(2024, 1, 1 + i, 10, 0));
+            impact.setNumeroTransGU("GU" + i);
+            // Groupe réseau plus long que la colonne (varchar 10)
+            impact.setGroupeReseau(i == INVALID_ROW ? "GROUPE-TROP-LONG" : "CM");
+            impact.setStatut(ImpactOPEntity.Statut.EN_ATTENTE);
+            impacts.add(impact);
+        }
+        return impacts;
+    }
+}
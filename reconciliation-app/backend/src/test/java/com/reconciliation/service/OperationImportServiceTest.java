@@ -0,0 +1,209 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.CompteEntity;
+import com.reconciliation.entity.FraisTransactionEntity;
+import com.reconciliation.entity.OperationEntity;
+import com.reconciliation.repository.CompteRepository;
+import com.reconciliation.repository.FraisTransactionRepository;
+import com.reconciliation.repository.OperationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Import en masse des opérations ({@link OperationImportService#importFileBulk}) comparé à l'import ligne à ligne
+ * ({@link OperationImportService#importFile}, createOperationWithFourOperations puis createFraisTransactionAutomatique)
+ * sur le même fichier : mêmes opérations nominales et frais, mêmes soldes, mêmes erreurs par ligne.
+ *
+ * Fichier dans l'ordre chronologique : l'import en masse chaîne les soldes par date, l'import ligne à ligne
+ * dans l'ordre du fichier.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OperationImportService.class, OperationBulkImportService.class, OperationService.class,
+    RunningBalanceService.class, FraisTransactionService.class, TabularFileReader.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OperationImportServiceTest {
+
+    private static final String HEADER = "numero_compte;type_operation;montant;banque;service;date_operation;nom_bordereau;record_count";
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    @Autowired
+    private OperationImportService operationImportService;
+
+    @Autowired
+    private OperationRepository operationRepository;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private FraisTransactionRepository fraisTransactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CompteRegroupementService compteRegroupementService;
+
+    @MockBean
+    private OperationBancaireService operationBancaireService;
+
+    @MockBean
+    private PaysFilterService paysFilterService;
+
+    @AfterEach
+    void cleanUp() {
+        operationRepository.deleteAllInBatch();
+        compteRepository.deleteAllInBatch();
+        fraisTransactionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void bulkImportCreatesSameOperationsAndFeesAsPerRowImport() throws Exception {
+        // Frais fixe, frais en pourcentage, service sans frais ; les opérations service reprennent le frais de l'agence
+        saveFrais("CASHINMTN", "AGENCE1", "NOMINAL", 50.0, null);
+        saveFrais("PAIEMENTWAVE", "AGENCE1", "POURCENTAGE", 0.0, 1.5);
+        saveFrais("CASHINMTN", "AGENCE2", "NOMINAL", 25.0, null);
+        saveFrais("PAIEMENTWAVE", "AGENCE2", "POURCENTAGE", 0.0, 2.0);
+        byte[] csv = csv();
+
+        setUpComptes();
+        OperationImportService.ImportResult unit = operationImportService.importFile(file(csv));
+        List<List<Object>> unitOperations = operations();
+        List<List<Object>> unitComptes = comptes();
+        operationRepository.deleteAllInBatch();
+        compteRepository.deleteAllInBatch();
+
+        setUpComptes();
+        OperationImportService.ImportResult bulk = operationImportService.importFileBulk(file(csv));
+
+        assertEquals(unit.totalRead, bulk.totalRead);
+        assertEquals(unit.saved, bulk.saved);
+        assertEquals(unit.errors, bulk.errors);
+        assertEquals(unitOperations, operations());
+        assertEquals(unitComptes, comptes());
+
+        // Erreurs attendues : compte inconnu, type invalide, doublon en base, doublon dans le fichier
+        assertEquals(4, bulk.errors.size());
+        assertTrue(unitOperations.stream().anyMatch(operation -> "FRAIS_TRANSACTION".equals(operation.get(1))));
+        assertTrue(unitComptes.stream().anyMatch(compte -> "PAIEMENTWAVE".equals(compte.get(0))));
+    }
+
+    // Agences existantes, compte service CASHINMTN existant, PAIEMENTWAVE créé à l'import ; une opération déjà en base
+    private void setUpComptes() {
+        CompteEntity agence1 = saveCompte("AGENCE1", "SN", 1000.0);
+        saveCompte("AGENCE2", "CM", 0.0);
+        saveCompte("CASHINMTN", "SN", 500.0);
+
+        OperationEntity existing = new OperationEntity();
+        existing.setCompte(agence1);
+        existing.setTypeOperation("transaction_cree");
+        existing.setMontant(700.0);
+        existing.setService("CASHINMTN");
+        existing.setDateOperation(START.atStartOfDay());
+        existing.setCodeProprietaire("AGENCE1");
+        existing.setPays("SN");
+        existing.setStatut("Validée");
+        existing.setSoldeAvant(1000.0);
+        existing.setSoldeApres(1000.0);
+        operationRepository.save(existing);
+    }
+
+    // Lignes dans l'ordre chronologique, dates ISO et jj/mm/aaaa, avec les lignes en erreur intercalées
+    private static byte[] csv() {
+        String[] services = {"CASHINMTN", "PAIEMENTWAVE", "BILLPAY"};
+        StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 60; i++) {
+            LocalDate day = START.plusDays(i / 10);
+            String date = i % 2 == 0 ? day.toString() : String.format("%02d/%02d/%d", day.getDayOfMonth(), day.getMonthValue(), day.getYear());
+            String type = i % 3 == 0 ? "annulation_bo" : "transaction_cree";
+            csv.append(i % 4 == 0 ? "AGENCE2" : "AGENCE1").append(';').append(type).append(';')
+                .append(1000 + i * 37.5).append(";BOA;").append(services[i % 3]).append(';').append(date)
+                .append(";BORDEREAU_").append(i).append(';').append(1 + i % 5).append('\n');
+            switch (i) {
+                case 0 -> csv.append("AGENCE1;transaction_cree;700;BOA;CASHINMTN;").append(START).append(";;1\n");
+                case 12 -> csv.append("INCONNU;transaction_cree;100;BOA;CASHINMTN;").append(day).append(";;1\n");
+                case 25 -> csv.append("AGENCE1;retrait;100;BOA;CASHINMTN;").append(day).append(";;1\n");
+                case 41 -> csv.append("AGENCE1;transaction_cree;").append(1000 + i * 37.5).append(";BOA;")
+                    .append(services[i % 3]).append(';').append(day).append(";;2\n");
+                default -> { }
+            }
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MockMultipartFile file(byte[] csv) {
+        return new MockMultipartFile("file", "operations.csv", "text/csv", csv);
+    }
+
+    // Opérations dans l'ordre d'insertion, sans identifiants : compte et opération parente désignés par position
+    private List<List<Object>> operations() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "SELECT o.id, o.parent_operation_id, c.numero_compte, o.type_operation, o.date_operation, " +
+            "o.code_proprietaire, o.service, o.montant, o.solde_avant, o.solde_apres, o.nom_bordereau, o.banque, " +
+            "o.statut, o.pays, o.record_count FROM operation o JOIN compte c ON c.id = o.compte_id ORDER BY o.id");
+        Map<Object, Integer> positions = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            positions.put(row.get("ID"), positions.size());
+        }
+        List<List<Object>> operations = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            operations.add(Arrays.asList(row.get("NUMERO_COMPTE"), row.get("TYPE_OPERATION"), row.get("DATE_OPERATION"),
+                row.get("CODE_PROPRIETAIRE"), row.get("SERVICE"), row.get("MONTANT"), row.get("SOLDE_AVANT"),
+                row.get("SOLDE_APRES"), row.get("NOM_BORDEREAU"), row.get("BANQUE"), row.get("STATUT"), row.get("PAYS"),
+                row.get("RECORD_COUNT"), positions.get(row.get("PARENT_OPERATION_ID"))));
+        }
+        return operations;
+    }
+
+    private List<List<Object>> comptes() {
+        return compteRepository.findAll().stream()
+            .sorted((a, b) -> a.getNumeroCompte().compareTo(b.getNumeroCompte()))
+            .map(c -> Arrays.<Object>asList(c.getNumeroCompte(), c.getSolde(), c.getPays(), c.getCodeProprietaire(), c.getAgence()))
+            .toList();
+    }
+
+    private CompteEntity saveCompte(String numero, String pays, double solde) {
+        CompteEntity compte = new CompteEntity();
+        compte.setNumeroCompte(numero);
+        compte.setSolde(solde);
+        compte.setDateDerniereMaj(LocalDateTime.now());
+        compte.setPays(pays);
+        compte.setCodeProprietaire(numero);
+        return compteRepository.save(compte);
+    }
+
+    private void saveFrais(String service, String agence, String typeCalcul, double montantFrais, Double pourcentage) {
+        FraisTransactionEntity frais = new FraisTransactionEntity();
+        frais.setService(service);
+        frais.setAgence(agence);
+        frais.setTypeCalcul(typeCalcul);
+        frais.setMontantFrais(montantFrais);
+        frais.setPourcentage(pourcentage);
+        frais.setActif(true);
+        fraisTransactionRepository.save(frais);
+    }
+}
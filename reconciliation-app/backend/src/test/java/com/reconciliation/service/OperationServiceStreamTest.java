@@ -0,0 +1,143 @@
+package com.reconciliation.service;
+
+import com.reconciliation.dto.OperationSearchCriteria;
+import com.reconciliation.entity.AgencySummaryEntity;
+import com.reconciliation.entity.CompteEntity;
+import com.reconciliation.entity.FraisTransactionEntity;
+import com.reconciliation.entity.OperationEntity;
+import com.reconciliation.model.Operation;
+import com.reconciliation.repository.AgencySummaryRepository;
+import com.reconciliation.repository.CompteRepository;
+import com.reconciliation.repository.OperationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Export en flux avec frais fixes : le nombre de transactions vient d'agency_summary (requête pendant l'export),
+ * comme pour les pages /with-frais, sur plusieurs pages de lecture.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OperationService.class, RunningBalanceService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OperationServiceStreamTest {
+
+    private static final String AGENCE = "CELCM0001";
+    private static final String SERVICE = "CASHINMTN";
+    private static final double FRAIS_FIXE = 50.0;
+    private static final int OPERATIONS = 2500;
+    private static final int DATES = 10;
+
+    @Autowired
+    private OperationService operationService;
+
+    @Autowired
+    private OperationRepository operationRepository;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private AgencySummaryRepository agencySummaryRepository;
+
+    @MockBean
+    private FraisTransactionService fraisTransactionService;
+
+    @MockBean
+    private CompteRegroupementService compteRegroupementService;
+
+    @MockBean
+    private OperationBancaireService operationBancaireService;
+
+    @MockBean
+    private PaysFilterService paysFilterService;
+
+    @AfterEach
+    void cleanUp() {
+        operationRepository.deleteAll();
+        compteRepository.deleteAll();
+        agencySummaryRepository.deleteAll();
+    }
+
+    @Test
+    void streamedFixedFeesUseAgencySummaryCounts() {
+        FraisTransactionEntity frais = new FraisTransactionEntity();
+        frais.setService(SERVICE);
+        frais.setAgence(AGENCE);
+        frais.setMontantFrais(FRAIS_FIXE);
+        frais.setTypeCalcul("NOMINAL");
+        when(fraisTransactionService.getFraisRules()).thenReturn(FraisRules.of(List.of(frais)));
+
+        CompteEntity compte = new CompteEntity();
+        compte.setNumeroCompte(AGENCE);
+        compte.setSolde(0.0);
+        compte.setDateDerniereMaj(LocalDateTime.now());
+        compte.setPays("CM");
+        compte.setCodeProprietaire(AGENCE);
+        compte = compteRepository.save(compte);
+
+        List<OperationEntity> operations = new ArrayList<>(OPERATIONS);
+        for (int i = 0; i < OPERATIONS; i++) {
+            OperationEntity operation = new OperationEntity();
+            operation.setCompte(compte);
+            operation.setDateOperation(LocalDateTime.of(2024, 1, 1 + i % DATES, 10, 0));
+            operation.setTypeOperation("total_cashin");
+            operation.setMontant(1000.0);
+            operation.setStatut("Validée");
+            operation.setSoldeAvant(0.0);
+            operation.setSoldeApres(0.0);
+            operation.setCodeProprietaire(AGENCE);
+            operation.setService(SERVICE);
+            operation.setPays("CM");
+            operations.add(operation);
+        }
+        operationRepository.saveAll(operations);
+
+        // Résumé d'agence un jour sur deux (jours impairs) : les autres jours retombent sur le volume (1 transaction)
+        List<AgencySummaryEntity> summaries = new ArrayList<>();
+        for (int day = 1; day <= DATES; day += 2) {
+            AgencySummaryEntity summary = new AgencySummaryEntity();
+            summary.setAgency(AGENCE);
+            summary.setService(SERVICE);
+            summary.setCountry("CM");
+            summary.setDate(LocalDateTime.of(2024, 1, day, 0, 0).toLocalDate().toString());
+            summary.setRecordCount(day * 3);
+            summaries.add(summary);
+        }
+        agencySummaryRepository.saveAll(summaries);
+
+        OperationSearchCriteria criteria = new OperationSearchCriteria();
+        List<Operation> streamed = new ArrayList<>();
+        long count = operationService.streamOperations(criteria, true, streamed::add);
+        List<Operation> paged = operationService.getOperationsPage(criteria, null, OPERATIONS, true).content;
+
+        assertEquals(OPERATIONS, count);
+        assertEquals(paged.size(), streamed.size());
+        for (int i = 0; i < streamed.size(); i++) {
+            Operation operation = streamed.get(i);
+            int day = operation.getDateOperation().getDayOfMonth();
+            double expected = FRAIS_FIXE * (day % 2 == 1 ? day * 3 : 1);
+            assertEquals(paged.get(i).getId(), operation.getId());
+            assertTrue(operation.getFraisApplicable(), "frais applicable - opération " + operation.getId());
+            assertEquals(expected, operation.getMontantFrais(), "frais fixes - opération " + operation.getId());
+            assertEquals(paged.get(i).getMontantFrais(), operation.getMontantFrais());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.reconciliation.service;
+
+import com.reconciliation.dto.ReconciliationResponse;
+import com.reconciliation.entity.ReconciliationJob;
+import com.reconciliation.repository.ReconciliationJobRepository;
+import com.reconciliation.repository.ReconciliationJobResultChunkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Fin d'un job : résultats enregistrés avant la transition vers COMPLETED, rien d'enregistré si l'écriture échoue
+ * ou si le job n'est plus en cours.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReconciliationJobService.class, ReconciliationResultStore.class, JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReconciliationJobServiceTest {
+
+    @Autowired
+    private ReconciliationJobService jobService;
+
+    @Autowired
+    private ReconciliationJobRepository jobRepository;
+
+    @Autowired
+    private ReconciliationJobResultChunkRepository chunkRepository;
+
+    @SpyBean
+    private ReconciliationResultStore resultStore;
+
+    @AfterEach
+    void cleanUp() {
+        chunkRepository.deleteAll();
+        jobRepository.deleteAll();
+    }
+
+    @Test
+    void completedJobHasChunksAndCounters() {
+        String jobId = processingJob();
+
+        assertTrue(jobService.completeJob(jobId, result(2500)));
+
+        ReconciliationJob job = jobRepository.findByJobId(jobId).orElseThrow();
+        assertEquals(ReconciliationJob.JobStatus.COMPLETED, job.getStatus());
+        assertEquals(2500, job.getTotalBoOnly());
+        assertTrue(chunkRepository.existsByJobId(jobId));
+    }
+
+    @Test
+    void failedResultWriteLeavesJobUncompletedWithoutChunks() {
+        String jobId = processingJob();
+        // Tous les blocs sont écrits avant l'erreur : ils doivent être annulés avec la transaction
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            throw new UncheckedIOException(new IOException("disque plein"));
+        }).when(resultStore).saveResult(any(), any());
+
+        assertThrows(UncheckedIOException.class, () -> jobService.completeJob(jobId, result(2500)));
+
+        ReconciliationJob job = jobRepository.findByJobId(jobId).orElseThrow();
+        assertEquals(ReconciliationJob.JobStatus.PROCESSING, job.getStatus());
+        assertNull(job.getTotalBoOnly());
+        assertFalse(chunkRepository.existsByJobId(jobId));
+
+        jobService.failJob(jobId, "Erreur: disque plein");
+        assertEquals(ReconciliationJob.JobStatus.FAILED, jobRepository.findByJobId(jobId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void cancelledJobKeepsItsStatusAndStoresNothing() {
+        String jobId = processingJob();
+        assertTrue(jobService.cancelJob(jobId));
+
+        assertFalse(jobService.completeJob(jobId, result(10)));
+
+        assertEquals(ReconciliationJob.JobStatus.CANCELLED, jobRepository.findByJobId(jobId).orElseThrow().getStatus());
+        assertFalse(chunkRepository.existsByJobId(jobId));
+    }
+
+    private String processingJob() {
+        String jobId = jobService.createJob("client-test");
+        assertTrue(jobService.markProcessing(jobId));
+        return jobId;
+    }
+
+    private static ReconciliationResponse result(int boOnlyCount) {
+        List<Map<String, String>> boOnly = new ArrayList<>(boOnlyCount);
+        for (int i = 0; i < boOnlyCount; i++) {
+            boOnly.add(Map.of("ID", "TX" + i));
+        }
+        ReconciliationResponse response = new ReconciliationResponse();
+        response.setMatches(new ArrayList<>());
+        response.setMismatches(new ArrayList<>());
+        response.setBoOnly(boOnly);
+        response.setPartnerOnly(new ArrayList<>());
+        response.setTotalBoOnly(boOnlyCount);
+        response.setTotalBoRecords(boOnlyCount);
+        return response;
+    }
+}
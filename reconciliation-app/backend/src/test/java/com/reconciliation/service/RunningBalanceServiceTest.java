@@ -0,0 +1,159 @@
+package com.reconciliation.service;
+
+import com.reconciliation.entity.CompteEntity;
+import com.reconciliation.entity.OperationEntity;
+import com.reconciliation.repository.CompteRepository;
+import com.reconciliation.repository.OperationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Validation groupée (bulkUpdateOperationStatut / recalculerValidations) comparée à des validations unitaires
+ * successives (updateOperationStatut) sur des chaînes identiques : mêmes soldes d'opérations et de comptes.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OperationService.class, RunningBalanceService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RunningBalanceServiceTest {
+
+    private static final String[] TYPES = {"total_cashin", "total_paiement", "Appro_client", "Compense_client",
+        "FRAIS_TRANSACTION", "ajustement"};
+    private static final String[] STATUTS = {"En attente", "Validée", "Rejetée"};
+
+    @Autowired
+    private OperationService operationService;
+
+    @Autowired
+    private OperationRepository operationRepository;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @MockBean
+    private FraisTransactionService fraisTransactionService;
+
+    @MockBean
+    private CompteRegroupementService compteRegroupementService;
+
+    @MockBean
+    private OperationBancaireService operationBancaireService;
+
+    @MockBean
+    private PaysFilterService paysFilterService;
+
+    @AfterEach
+    void cleanUp() {
+        operationRepository.deleteAll();
+        compteRepository.deleteAll();
+    }
+
+    @Test
+    void bulkValidationMatchesSuccessiveUnitValidations() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random random = new Random(seed);
+            int accountCount = 3;
+            List<List<OperationEntity>> unitChains = new ArrayList<>();
+            List<List<OperationEntity>> bulkChains = new ArrayList<>();
+            List<Long> unitIds = new ArrayList<>();
+            List<Long> bulkIds = new ArrayList<>();
+
+            for (int a = 0; a < accountCount; a++) {
+                CompteEntity unitCompte = saveCompte("U" + seed + "-" + a);
+                CompteEntity bulkCompte = saveCompte("B" + seed + "-" + a);
+                List<OperationEntity> unitChain = new ArrayList<>();
+                List<OperationEntity> bulkChain = new ArrayList<>();
+                int operationCount = 20 + random.nextInt(30);
+                for (int i = 0; i < operationCount; i++) {
+                    // Peu de dates distinctes : nombreuses opérations de même date (départage par id)
+                    LocalDateTime date = LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(random.nextInt(8));
+                    String type = TYPES[random.nextInt(TYPES.length)];
+                    double montant = Math.round(random.nextDouble() * 100_000) / 100.0;
+                    String statut = STATUTS[random.nextInt(STATUTS.length)];
+                    double soldeAvant = Math.round(random.nextDouble() * 10_000) / 100.0;
+                    double soldeApres = Math.round(random.nextDouble() * 10_000) / 100.0;
+                    boolean valider = random.nextInt(3) == 0;
+
+                    OperationEntity unitOperation = saveOperation(unitCompte, date, type, montant, statut, soldeAvant, soldeApres);
+                    OperationEntity bulkOperation = saveOperation(bulkCompte, date, type, montant, statut, soldeAvant, soldeApres);
+                    unitChain.add(unitOperation);
+                    bulkChain.add(bulkOperation);
+                    if (valider) {
+                        unitIds.add(unitOperation.getId());
+                        bulkIds.add(bulkOperation.getId());
+                    }
+                }
+                unitChains.add(unitChain);
+                bulkChains.add(bulkChain);
+            }
+
+            // Validations unitaires dans l'ordre chronologique (date, id), contrat de la validation groupée
+            List<OperationEntity> unitOrder = new ArrayList<>(operationRepository.findAllById(unitIds));
+            unitOrder.sort(Comparator.comparing(OperationEntity::getDateOperation).thenComparing(OperationEntity::getId));
+            for (OperationEntity operation : unitOrder) {
+                operationService.updateOperationStatut(operation.getId(), "Validée");
+            }
+            operationService.bulkUpdateOperationStatut(bulkIds, "Validée");
+
+            for (int a = 0; a < accountCount; a++) {
+                List<OperationEntity> unitChain = unitChains.get(a);
+                List<OperationEntity> bulkChain = bulkChains.get(a);
+                for (int i = 0; i < unitChain.size(); i++) {
+                    OperationEntity unit = operationRepository.findById(unitChain.get(i).getId()).orElseThrow();
+                    OperationEntity bulk = operationRepository.findById(bulkChain.get(i).getId()).orElseThrow();
+                    String context = "seed " + seed + ", compte " + a + ", opération " + i;
+                    assertEquals(unit.getSoldeAvant(), bulk.getSoldeAvant(), "soldeAvant - " + context);
+                    assertEquals(unit.getSoldeApres(), bulk.getSoldeApres(), "soldeApres - " + context);
+                    assertEquals(unit.getStatut(), bulk.getStatut(), "statut - " + context);
+                }
+                if (unitIds.stream().anyMatch(id -> unitChain.stream().anyMatch(op -> op.getId().equals(id)))) {
+                    double unitSolde = compteRepository.findById(unitChain.get(0).getCompte().getId()).orElseThrow().getSolde();
+                    double bulkSolde = compteRepository.findById(bulkChain.get(0).getCompte().getId()).orElseThrow().getSolde();
+                    assertEquals(unitSolde, bulkSolde, "solde du compte - seed " + seed + ", compte " + a);
+                }
+            }
+        }
+    }
+
+    private CompteEntity saveCompte(String numero) {
+        CompteEntity compte = new CompteEntity();
+        compte.setNumeroCompte(numero);
+        compte.setSolde(0.0);
+        compte.setDateDerniereMaj(LocalDateTime.now());
+        compte.setPays("SN");
+        compte.setCodeProprietaire(numero);
+        return compteRepository.save(compte);
+    }
+
+    private OperationEntity saveOperation(CompteEntity compte, LocalDateTime date, String type, double montant,
+                                          String statut, double soldeAvant, double soldeApres) {
+        OperationEntity operation = new OperationEntity();
+        operation.setCompte(compte);
+        operation.setDateOperation(date);
+        operation.setTypeOperation(type);
+        operation.setMontant(montant);
+        operation.setStatut(statut);
+        operation.setSoldeAvant(soldeAvant);
+        operation.setSoldeApres(soldeApres);
+        operation.setCodeProprietaire(compte.getCodeProprietaire());
+        operation.setPays("SN");
+        return operationRepository.save(operation);
+    }
+}
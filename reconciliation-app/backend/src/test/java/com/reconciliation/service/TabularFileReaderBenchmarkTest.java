@@ -0,0 +1,136 @@
+package com.reconciliation.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pic de heap à la lecture d'un XLSX, par taille de fichier : chargement complet des importeurs d'origine
+ * (WorkbookFactory.create puis parcours des cellules) comparé à {@link TabularFileReader#openRaw}.
+ * Hors build : mvn test -Pbenchmark.
+ *
+ * Tailles : -Dbenchmark.xlsx.sizes=10000,100000,250000 (lignes de 10 colonnes). Un OutOfMemoryError du chargement
+ * complet est reporté comme tel.
+ */
+@Tag("benchmark")
+class TabularFileReaderBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger("benchmark");
+    private static final int COLUMNS = 10;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void peakHeapPerFileSize() throws Exception {
+        TabularFileReader reader = new TabularFileReader();
+        for (String size : System.getProperty("benchmark.xlsx.sizes", "10000,100000,250000").split(",")) {
+            int rows = Integer.parseInt(size.trim());
+            File xlsx = writeWorkbook(tempDir.resolve("benchmark-" + rows + ".xlsx").toFile(), rows);
+
+            String workbookResult;
+            resetPeaks();
+            try {
+                int workbookRows = readWithWorkbookFactory(xlsx);
+                workbookResult = (peakHeap() >> 20) + " Mo";
+                assertEquals(rows + 1, workbookRows);
+            } catch (OutOfMemoryError e) {
+                workbookResult = "OutOfMemoryError";
+            }
+
+            resetPeaks();
+            int streamedRows = 0;
+            try (TabularFileReader.RawRowCursor cursor = reader.openRaw(new FileInputStream(xlsx), xlsx.getName(), null)) {
+                while (cursor.hasNext()) {
+                    cursor.next();
+                    streamedRows++;
+                }
+            }
+            long streamedPeak = peakHeap();
+            assertEquals(rows + 1, streamedRows);
+
+            log.info("XLSX {} lignes ({} Ko) - pic de heap WorkbookFactory: {} | TabularFileReader: {} Mo",
+                rows, xlsx.length() / 1024, workbookResult, streamedPeak >> 20);
+        }
+    }
+
+    // Lecture des importeurs d'origine : classeur entier en mémoire, valeurs lues cellule par cellule
+    private static int readWithWorkbookFactory(File xlsx) throws Exception {
+        DataFormatter formatter = new DataFormatter();
+        int count = 0;
+        try (InputStream in = new FileInputStream(xlsx); Workbook workbook = WorkbookFactory.create(in)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    formatter.formatCellValue(cell);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static File writeWorkbook(File file, int rows) throws Exception {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100); OutputStream out = new FileOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Données");
+            Row header = sheet.createRow(0);
+            for (int c = 0; c < COLUMNS; c++) {
+                header.createCell(c).setCellValue("Colonne " + c);
+            }
+            for (int r = 1; r <= rows; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < COLUMNS; c++) {
+                    if (c % 2 == 0) {
+                        row.createCell(c).setCellValue("REF-" + r + "-" + c);
+                    } else {
+                        row.createCell(c).setCellValue(r * 1.5 + c);
+                    }
+                }
+            }
+            workbook.write(out);
+            workbook.dispose();
+        }
+        return file;
+    }
+
+    // Pic mesuré depuis un tas vidé des objets des mesures précédentes
+    private static void resetPeaks() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
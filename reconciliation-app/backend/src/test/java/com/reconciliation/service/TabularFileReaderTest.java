@@ -0,0 +1,37 @@
+package com.reconciliation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Numéros de ligne CSV : ceux du fichier, lignes vides sautées comprises.
+ */
+class TabularFileReaderTest {
+
+    private final TabularFileReader reader = new TabularFileReader();
+
+    @Test
+    void csvRowNumbersCountSkippedBlankLines() throws Exception {
+        String csv = "\n\nID;Montant\nTX1;10\n\n\nTX2;20\n;\nTX3;30";
+        List<Long> rowNumbers = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        try (TabularFileReader.RowCursor cursor = reader.open(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "releve.csv")) {
+            while (cursor.hasNext()) {
+                Map<String, String> row = cursor.next();
+                ids.add(row.get("ID"));
+                rowNumbers.add(cursor.getRowNumber());
+            }
+        }
+
+        assertEquals(List.of("TX1", "TX2", "", "TX3"), ids);
+        assertEquals(List.of(4L, 7L, 8L, 9L), rowNumbers);
+    }
+}